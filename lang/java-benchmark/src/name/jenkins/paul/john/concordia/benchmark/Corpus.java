@@ -0,0 +1,226 @@
+package name.jenkins.paul.john.concordia.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import name.jenkins.paul.john.concordia.reference.ReferenceResolver;
+
+/**
+ * <p>
+ * One of the corpora under "test/data", which is a directory with a
+ * "definition.json" schema, a "valid" directory of data that conforms to it,
+ * and an optional "invalid" directory of data that does not.
+ * </p>
+ *
+ * <p>
+ * The corpora are found under the directory named by the
+ * {@value #PROPERTY_ROOT} system property, which defaults to
+ * {@value #DEFAULT_ROOT}, i.e. relative to this module's directory.
+ * </p>
+ *
+ * <p>
+ * The tests serve a corpus's "referenced.json" from a local server. Instead,
+ * every reference in a corpus is resolved to that file by the corpus's
+ * {@link #getResolver() resolver}, so no network access is measured.
+ * </p>
+ *
+ * <p>
+ * This class is immutable.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+final class Corpus {
+	/**
+	 * The system property that names the directory of the corpora.
+	 */
+	static final String PROPERTY_ROOT = "concordia.corpus";
+	/**
+	 * The default directory of the corpora.
+	 */
+	static final String DEFAULT_ROOT = "../../test/data";
+
+	/**
+	 * The name of a corpus's schema.
+	 */
+	private static final String DEFINITION = "definition.json";
+	/**
+	 * The name of a corpus's referenced schema.
+	 */
+	private static final String REFERENCED = "referenced.json";
+	/**
+	 * The name of the directory of a corpus's valid data.
+	 */
+	private static final String VALID = "valid";
+	/**
+	 * The name of the directory of a corpus's invalid data.
+	 */
+	private static final String INVALID = "invalid";
+
+	/**
+	 * The schema.
+	 */
+	private final byte[] definition;
+	/**
+	 * The data that conforms to the schema.
+	 */
+	private final List<byte[]> valid;
+	/**
+	 * The data that does not conform to the schema.
+	 */
+	private final List<byte[]> invalid;
+	/**
+	 * The resolver for the schema's references.
+	 */
+	private final ReferenceResolver resolver;
+
+	/**
+	 * Reads a corpus.
+	 *
+	 * @param name
+	 *        The name of the corpus's directory.
+	 *
+	 * @throws IOException
+	 *         The corpus could not be read.
+	 */
+	Corpus(final String name) throws IOException {
+		File directory =
+			new File(System.getProperty(PROPERTY_ROOT, DEFAULT_ROOT), name);
+
+		File definitionFile = new File(directory, DEFINITION);
+		if(!definitionFile.isFile()) {
+			throw
+				new IOException(
+					"The corpus does not have a schema: " +
+						definitionFile.getAbsolutePath());
+		}
+
+		definition = read(definitionFile);
+		valid = readAll(new File(directory, VALID));
+		invalid = readAll(new File(directory, INVALID));
+
+		File referencedFile = new File(directory, REFERENCED);
+		if(referencedFile.isFile()) {
+			final byte[] referenced = read(referencedFile);
+			resolver =
+				new ReferenceResolver() {
+					/*
+					 * (non-Javadoc)
+					 * @see name.jenkins.paul.john.concordia.reference.ReferenceResolver#resolve(java.net.URL)
+					 */
+					@Override
+					public InputStream resolve(final URL reference) {
+						return new ByteArrayInputStream(referenced);
+					}
+				};
+		}
+		else {
+			resolver = null;
+		}
+	}
+
+	/**
+	 * Returns the schema.
+	 *
+	 * @return The schema.
+	 */
+	InputStream getDefinition() {
+		return new ByteArrayInputStream(definition);
+	}
+
+	/**
+	 * Returns the data that conforms to the schema.
+	 *
+	 * @return The data that conforms to the schema.
+	 */
+	List<byte[]> getValid() {
+		return valid;
+	}
+
+	/**
+	 * Returns the data that does not conform to the schema.
+	 *
+	 * @return The data that does not conform to the schema, which may be
+	 *         empty.
+	 */
+	List<byte[]> getInvalid() {
+		return invalid;
+	}
+
+	/**
+	 * Returns the resolver for the schema's references.
+	 *
+	 * @return The resolver for the schema's references or null if the corpus
+	 *         does not have a referenced schema.
+	 */
+	ReferenceResolver getResolver() {
+		return resolver;
+	}
+
+	/**
+	 * Reads every JSON file in a directory in name order.
+	 *
+	 * @param directory
+	 *        The directory.
+	 *
+	 * @return The contents of each JSON file or an empty list if the
+	 *         directory does not exist.
+	 *
+	 * @throws IOException
+	 *         A file could not be read.
+	 */
+	private static List<byte[]> readAll(
+		final File directory)
+		throws IOException {
+
+		File[] files = directory.listFiles();
+		if(files == null) {
+			return Collections.emptyList();
+		}
+		Arrays.sort(files);
+
+		List<byte[]> result = new ArrayList<byte[]>(files.length);
+		for(File file : files) {
+			if(file.isFile() && file.getName().endsWith(".json")) {
+				result.add(read(file));
+			}
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * Reads a file.
+	 *
+	 * @param file
+	 *        The file.
+	 *
+	 * @return The contents of the file.
+	 *
+	 * @throws IOException
+	 *         The file could not be read.
+	 */
+	private static byte[] read(final File file) throws IOException {
+		InputStream input = new FileInputStream(file);
+		try {
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int read;
+			while((read = input.read(buffer)) != -1) {
+				output.write(buffer, 0, read);
+			}
+			return output.toByteArray();
+		}
+		finally {
+			input.close();
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package name.jenkins.paul.john.concordia.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import name.jenkins.paul.john.concordia.Concordia;
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.validator.ValidationController;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * <p>
+ * Benchmarks each stage of using Concordia against each of the corpora under
+ * "test/data": parsing the schema, validating the schema, and validating the
+ * corpus's data, both from a tree and directly from its serialized form.
+ * </p>
+ *
+ * <p>
+ * Each data benchmark validates every document in the corpus once, so its
+ * score is in corpora, not documents, per second.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CorpusBenchmark {
+	/**
+	 * The mapper used to build the data trees.
+	 */
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	/**
+	 * The name of the corpus.
+	 */
+	@Param({
+		"boolean",
+		"number",
+		"string",
+		"object",
+		"optional",
+		"reference",
+		"const_length_array",
+		"const_type_array_array",
+		"const_type_array_boolean",
+		"const_type_array_number",
+		"const_type_array_object",
+		"const_type_array_string" })
+	public String corpus;
+
+	/**
+	 * The corpus being benchmarked.
+	 */
+	private Corpus data;
+	/**
+	 * The parsed schema.
+	 */
+	private Concordia concordia;
+	/**
+	 * The valid data as trees.
+	 */
+	private List<JsonNode> validTrees;
+
+	/**
+	 * Reads the corpus and parses its schema and data.
+	 *
+	 * @throws ConcordiaException
+	 *         The corpus's schema was invalid.
+	 *
+	 * @throws IOException
+	 *         The corpus could not be read.
+	 */
+	@Setup
+	public void setup() throws ConcordiaException, IOException {
+		data = new Corpus(corpus);
+		concordia = parse();
+
+		validTrees = new ArrayList<JsonNode>(data.getValid().size());
+		for(byte[] valid : data.getValid()) {
+			validTrees.add(MAPPER.readTree(valid));
+		}
+
+		// Make sure the corpus is sound before measuring it.
+		if(validateTrees() != validTrees.size()) {
+			throw new IllegalStateException("Valid data was rejected.");
+		}
+		if(rejectInvalid() != data.getInvalid().size()) {
+			throw new IllegalStateException("Invalid data was accepted.");
+		}
+	}
+
+	/**
+	 * Parses and validates the schema.
+	 *
+	 * @return The parsed schema.
+	 */
+	@Benchmark
+	public Concordia parse() throws ConcordiaException, IOException {
+		return
+			new Concordia(
+				data.getDefinition(),
+				ValidationController.BASIC_CONTROLLER,
+				data.getResolver());
+	}
+
+	/**
+	 * Validates the already-parsed schema.
+	 */
+	@Benchmark
+	public void validateSchema() throws ConcordiaException {
+		ValidationController.BASIC_CONTROLLER.validate(concordia.getSchema());
+	}
+
+	/**
+	 * Validates each valid document from its tree.
+	 *
+	 * @return The number of documents that were validated.
+	 */
+	@Benchmark
+	public int validateTrees() throws ConcordiaException {
+		int result = 0;
+		for(JsonNode tree : validTrees) {
+			concordia.validateData(tree);
+			result++;
+		}
+		return result;
+	}
+
+	/**
+	 * Validates each valid document directly from its serialized form.
+	 *
+	 * @return The number of documents that were validated.
+	 */
+	@Benchmark
+	public int validateStream() throws ConcordiaException, IOException {
+		int result = 0;
+		for(byte[] valid : data.getValid()) {
+			concordia.validateData(valid);
+			result++;
+		}
+		return result;
+	}
+
+	/**
+	 * Rejects each invalid document, which is read directly from its
+	 * serialized form.
+	 *
+	 * @return The number of documents that were rejected.
+	 */
+	@Benchmark
+	public int rejectInvalid() {
+		int result = 0;
+		for(byte[] invalid : data.getInvalid()) {
+			try {
+				concordia.validateData(invalid);
+			}
+			catch(ConcordiaException e) {
+				result++;
+			}
+			catch(IOException e) {
+				result++;
+			}
+		}
+		return result;
+	}
+}
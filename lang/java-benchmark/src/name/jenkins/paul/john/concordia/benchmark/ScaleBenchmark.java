@@ -0,0 +1,228 @@
+package name.jenkins.paul.john.concordia.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import name.jenkins.paul.john.concordia.Concordia;
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.validator.ValidationController;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * <p>
+ * Benchmarks Concordia against synthetic schemas and data that are much
+ * larger than the corpora under "test/data":
+ * </p>
+ *
+ * <ul>
+ * <li>{@value #SHAPE_WIDE}: an object with {@value #WIDE_FIELDS} fields.</li>
+ * <li>{@value #SHAPE_DEEP}: {@value #DEEP_LEVELS} levels of nested
+ * objects.</li>
+ * <li>{@value #SHAPE_ARRAY}: a constant-type array of
+ * {@value #ARRAY_LENGTH} numbers.</li>
+ * </ul>
+ *
+ * @author John Jenkins
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ScaleBenchmark {
+	/**
+	 * The shape of a wide object.
+	 */
+	public static final String SHAPE_WIDE = "wide";
+	/**
+	 * The shape of deeply nested objects.
+	 */
+	public static final String SHAPE_DEEP = "deep";
+	/**
+	 * The shape of a large constant-type array.
+	 */
+	public static final String SHAPE_ARRAY = "array";
+
+	/**
+	 * The number of fields in a wide object.
+	 */
+	public static final int WIDE_FIELDS = 1000;
+	/**
+	 * The number of nested objects.
+	 */
+	public static final int DEEP_LEVELS = 200;
+	/**
+	 * The number of elements in a large array.
+	 */
+	public static final int ARRAY_LENGTH = 1000000;
+
+	/**
+	 * The mapper used to build the data tree.
+	 */
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	/**
+	 * The shape of the schema and data.
+	 */
+	@Param({ SHAPE_WIDE, SHAPE_DEEP, SHAPE_ARRAY })
+	public String shape;
+
+	/**
+	 * The serialized schema.
+	 */
+	private byte[] definition;
+	/**
+	 * The serialized data.
+	 */
+	private byte[] serialized;
+	/**
+	 * The data as a tree.
+	 */
+	private JsonNode tree;
+	/**
+	 * The parsed schema.
+	 */
+	private Concordia concordia;
+
+	/**
+	 * Generates the schema and data.
+	 *
+	 * @throws ConcordiaException
+	 *         The generated schema or data was invalid.
+	 *
+	 * @throws IOException
+	 *         The generated schema or data could not be parsed.
+	 */
+	@Setup
+	public void setup() throws ConcordiaException, IOException {
+		StringBuilder schemaBuilder = new StringBuilder();
+		StringBuilder dataBuilder = new StringBuilder();
+
+		if(SHAPE_WIDE.equals(shape)) {
+			schemaBuilder.append("{\"type\":\"object\",\"fields\":[");
+			dataBuilder.append('{');
+			for(int i = 0; i < WIDE_FIELDS; i++) {
+				if(i > 0) {
+					schemaBuilder.append(',');
+					dataBuilder.append(',');
+				}
+				schemaBuilder
+					.append("{\"name\":\"f")
+					.append(i)
+					.append("\",\"type\":\"")
+					.append((i % 2 == 0) ? "number" : "string")
+					.append("\"}");
+				dataBuilder.append("\"f").append(i).append("\":");
+				if(i % 2 == 0) {
+					dataBuilder.append(i);
+				}
+				else {
+					dataBuilder.append("\"v").append(i).append('"');
+				}
+			}
+			schemaBuilder.append("]}");
+			dataBuilder.append('}');
+		}
+		else if(SHAPE_DEEP.equals(shape)) {
+			schemaBuilder.append("{\"type\":\"object\",\"fields\":[");
+			for(int i = 0; i < DEEP_LEVELS; i++) {
+				if(i > 0) {
+					schemaBuilder
+						.append(",{\"name\":\"child\",")
+						.append("\"type\":\"object\",\"fields\":[");
+					dataBuilder.append(",\"child\":");
+				}
+				schemaBuilder
+					.append("{\"name\":\"value\",\"type\":\"number\"}");
+				dataBuilder.append("{\"value\":").append(i);
+			}
+			for(int i = 0; i < DEEP_LEVELS; i++) {
+				schemaBuilder.append("]}");
+				dataBuilder.append('}');
+			}
+		}
+		else if(SHAPE_ARRAY.equals(shape)) {
+			schemaBuilder
+				.append("{\"type\":\"array\",\"constType\":")
+				.append("{\"type\":\"number\"}}");
+			dataBuilder.append('[');
+			for(int i = 0; i < ARRAY_LENGTH; i++) {
+				if(i > 0) {
+					dataBuilder.append(',');
+				}
+				dataBuilder.append(i);
+			}
+			dataBuilder.append(']');
+		}
+		else {
+			throw new IllegalArgumentException("Unknown shape: " + shape);
+		}
+
+		definition = schemaBuilder.toString().getBytes("UTF-8");
+		serialized = dataBuilder.toString().getBytes("UTF-8");
+		tree = MAPPER.readTree(serialized);
+		concordia = parse();
+
+		// Make sure the data is valid before measuring it.
+		concordia.validateData(tree);
+	}
+
+	/**
+	 * Parses and validates the schema.
+	 *
+	 * @return The parsed schema.
+	 */
+	@Benchmark
+	public Concordia parse() throws ConcordiaException, IOException {
+		return
+			new Concordia(
+				new ByteArrayInputStream(definition),
+				ValidationController.BASIC_CONTROLLER);
+	}
+
+	/**
+	 * Validates the already-parsed schema.
+	 */
+	@Benchmark
+	public void validateSchema() throws ConcordiaException {
+		ValidationController.BASIC_CONTROLLER.validate(concordia.getSchema());
+	}
+
+	/**
+	 * Validates the data from its tree.
+	 *
+	 * @return The validated tree.
+	 */
+	@Benchmark
+	public JsonNode validateTree() throws ConcordiaException {
+		concordia.validateData(tree);
+		return tree;
+	}
+
+	/**
+	 * Validates the data directly from its serialized form.
+	 *
+	 * @return The validated data.
+	 */
+	@Benchmark
+	public byte[] validateStream() throws ConcordiaException, IOException {
+		concordia.validateData(serialized);
+		return serialized;
+	}
+}
@@ -3,28 +3,38 @@ package name.jenkins.paul.john.concordia;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 
 import name.jenkins.paul.john.concordia.exception.ConcordiaException;
 import name.jenkins.paul.john.concordia.jackson.ConcordiaDeserializer;
-import name.jenkins.paul.john.concordia.jackson.StrictBooleanDeserializer;
-import name.jenkins.paul.john.concordia.jackson.StrictStringDeserializer;
+import name.jenkins.paul.john.concordia.reference.AsyncLoader;
+import name.jenkins.paul.john.concordia.reference.ReferenceResolver;
+import name.jenkins.paul.john.concordia.reference.UrlReferenceResolver;
 import name.jenkins.paul.john.concordia.schema.ArraySchema;
 import name.jenkins.paul.john.concordia.schema.ObjectSchema;
 import name.jenkins.paul.john.concordia.schema.ReferenceSchema;
 import name.jenkins.paul.john.concordia.schema.Schema;
+import name.jenkins.paul.john.concordia.schema.SchemaReader;
+import name.jenkins.paul.john.concordia.schema.SchemaSizeReport;
+import name.jenkins.paul.john.concordia.schema.SchemaSnapshot;
+import name.jenkins.paul.john.concordia.validator.BatchResult;
+import name.jenkins.paul.john.concordia.validator.CompiledValidator;
+import name.jenkins.paul.john.concordia.validator.DataAccessor;
 import name.jenkins.paul.john.concordia.validator.ValidationController;
+import name.jenkins.paul.john.concordia.validator.ValidationResult;
 
 import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
-import com.fasterxml.jackson.databind.module.SimpleModule;
 
 /**
  * <p>
@@ -40,35 +50,11 @@ import com.fasterxml.jackson.databind.module.SimpleModule;
 @JsonDeserialize(using = ConcordiaDeserializer.class)
 public class Concordia implements Serializable {
 	/**
-	 * The internal reader that converts schemas to {@link Schema} objects.
+	 * The factory for parsers that read data to be validated. It leaves the
+	 * callers' streams open.
 	 */
-	private static final ObjectReader JSON_READER;
-	static {
-		ObjectMapper mapper = new ObjectMapper();
-
-		mapper
-			.registerModule(
-				(new SimpleModule())
-					.addDeserializer(
-						boolean.class,
-						new StrictBooleanDeserializer()));
-
-		mapper
-			.registerModule(
-				(new SimpleModule())
-					.addDeserializer(
-						Boolean.class,
-						new StrictBooleanDeserializer()));
-
-		mapper
-			.registerModule(
-				(new SimpleModule())
-					.addDeserializer(
-						String.class,
-						new StrictStringDeserializer()));
-
-		JSON_READER = mapper.reader(Schema.class);
-	}
+	private static final JsonFactory DATA_FACTORY =
+		(new JsonFactory()).disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
 
 	/**
 	 * The key to use when injecting a {@link ValidationController} into an
@@ -77,6 +63,13 @@ public class Concordia implements Serializable {
 	public static final String JACKSON_INJECTABLE_VALIDATION_CONTROLLER =
 		"_concordia_injectable_validation_controller_";
 
+	/**
+	 * The key to use when injecting a {@link ReferenceResolver} into an
+	 * {@link ObjectMapper}.
+	 */
+	public static final String JACKSON_INJECTABLE_REFERENCE_RESOLVER =
+		"_concordia_injectable_reference_resolver_";
+
 	/**
 	 * A default ID for this class for serialization.
 	 */
@@ -90,6 +83,10 @@ public class Concordia implements Serializable {
 	 * The validation controller for building this object.
 	 */
 	private ValidationController controller;
+	/**
+	 * The compiled form of the schema, which is used to validate data.
+	 */
+	private CompiledValidator validator;
 
 	/**
 	 * Creates a new Concordia object and validates it. It will use the default
@@ -181,7 +178,7 @@ public class Concordia implements Serializable {
 
 		controller = ValidationController.BASIC_CONTROLLER;
 
-		setup();
+		setup(true);
 	}
 
 	/**
@@ -218,7 +215,40 @@ public class Concordia implements Serializable {
 			this.controller = controller;
 		}
 
-		setup();
+		setup(true);
+	}
+
+	/**
+	 * Creates a new Concordia object from a schema that may already have
+	 * been validated.
+	 *
+	 * @param schema
+	 *        The schema to use to create this object.
+	 *
+	 * @param controller
+	 *        The controller to validate the schema and data with, or null to
+	 *        use the basic one.
+	 *
+	 * @param validate
+	 *        Whether or not the schema still needs to be validated by the
+	 *        controller.
+	 *
+	 * @throws ConcordiaException
+	 *         The schema is invalid.
+	 */
+	private Concordia(
+		final Schema schema,
+		final ValidationController controller,
+		final boolean validate)
+		throws ConcordiaException {
+
+		this.schema = schema;
+		this.controller =
+			(controller == null) ?
+				ValidationController.BASIC_CONTROLLER :
+				controller;
+
+		setup(validate);
 	}
 
 	/**
@@ -283,21 +313,54 @@ public class Concordia implements Serializable {
 			JsonParseException,
 			ConcordiaException {
 
+		this(schema, controller, null);
+	}
+
+	/**
+	 * Creates a new Concordia object and validates it.
+	 *
+	 * @param schema
+	 *        The schema to validate and use to create this object.
+	 *
+	 * @param controller
+	 *        A custom validation controller or null, in which case the default
+	 *        controller will be used,
+	 *        {@link ValidationController#BASIC_CONTROLLER}.
+	 *
+	 * @param resolver
+	 *        The resolver for any referenced schemas or null, in which case
+	 *        the default resolver will be used,
+	 *        {@link UrlReferenceResolver#DEFAULT_RESOLVER}.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The schema is null.
+	 *
+	 * @throws IOException
+	 *         The schema could not be read.
+	 *
+	 * @throws JsonParseException
+	 *         The schema was not valid JSON.
+	 *
+	 * @throws ConcordiaException
+	 *         The schema is invalid.
+	 */
+	public Concordia(
+		final InputStream schema,
+		final ValidationController controller,
+		final ReferenceResolver resolver)
+		throws
+			IllegalArgumentException,
+			IOException,
+			JsonParseException,
+			ConcordiaException {
+
 		// Validate the schema.
 		if(schema == null) {
 			throw new IllegalArgumentException("The schema is null.");
 		}
 
 		// Process the JSON and create a Schema from it.
-		try {
-			this.schema = JSON_READER.readValue(schema);
-		}
-		catch(JsonMappingException e) {
-			throw
-				new ConcordiaException(
-					"The schema was malformed or invalid.",
-					e);
-		}
+		this.schema = SchemaReader.read(schema, resolver);
 
 		// If a controller was not given, fall back to the default one.
 		if(controller == null) {
@@ -309,7 +372,7 @@ public class Concordia implements Serializable {
 		}
 
 		// Validate the schema using the controller.
-		setup();
+		setup(true);
 	}
 
 	/**
@@ -344,21 +407,54 @@ public class Concordia implements Serializable {
 			JsonParseException,
 			ConcordiaException {
 
+		this(parser, controller, null);
+	}
+
+	/**
+	 * Creates a new Concordia object and validates it.
+	 *
+	 * @param parser
+	 *        A JsonParser that is pointing to the definition and can be read.
+	 *
+	 * @param controller
+	 *        A custom validation controller or null, in which case the default
+	 *        controller will be used,
+	 *        {@link ValidationController#BASIC_CONTROLLER}.
+	 *
+	 * @param resolver
+	 *        The resolver for any referenced schemas or null, in which case
+	 *        the default resolver will be used,
+	 *        {@link UrlReferenceResolver#DEFAULT_RESOLVER}.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The schema is null.
+	 *
+	 * @throws IOException
+	 *         The schema could not be read.
+	 *
+	 * @throws JsonParseException
+	 *         The schema was not valid JSON.
+	 *
+	 * @throws ConcordiaException
+	 *         The schema is invalid.
+	 */
+	public Concordia(
+		final JsonParser parser,
+		final ValidationController controller,
+		final ReferenceResolver resolver)
+		throws
+			IllegalArgumentException,
+			IOException,
+			JsonParseException,
+			ConcordiaException {
+
 		// Validate the schema.
 		if(parser == null) {
 			throw new IllegalArgumentException("The parser is null.");
 		}
 
 		// Process the JSON and create a Schema from it.
-		try {
-			schema = JSON_READER.readValue(parser);
-		}
-		catch(JsonMappingException e) {
-			throw
-				new ConcordiaException(
-					"The schema was malformed or invalid.",
-					e);
-		}
+		schema = SchemaReader.read(parser, resolver);
 
 		// If a controller was not given, fall back to the default one.
 		if(controller == null) {
@@ -370,7 +466,7 @@ public class Concordia implements Serializable {
 		}
 
 		// Validate the schema using the controller.
-		setup();
+		setup(true);
 	}
 
 	/**
@@ -381,6 +477,53 @@ public class Concordia implements Serializable {
 	public Concordia(final Concordia concordia) {
 		schema = concordia.schema;
 		controller = concordia.controller;
+		validator = concordia.validator;
+	}
+
+	/**
+	 * Starts loading a schema whose references are fetched concurrently. The
+	 * schema is read before this returns, but its references are fetched on
+	 * the executor. Once all of them have arrived, the schema is built and
+	 * validated once, and the returned future completes.
+	 *
+	 * @param schema
+	 *        The schema to validate and use to create the object.
+	 *
+	 * @param controller
+	 *        A custom validation controller or null, in which case the default
+	 *        controller will be used,
+	 *        {@link ValidationController#BASIC_CONTROLLER}.
+	 *
+	 * @param resolver
+	 *        The resolver for any referenced schemas or null, in which case
+	 *        the default resolver will be used,
+	 *        {@link UrlReferenceResolver#DEFAULT_RESOLVER}. Each fetch is
+	 *        bounded by the resolver's own timeouts.
+	 *
+	 * @param executor
+	 *        The executor to fetch the references on. No task submitted to it
+	 *        waits on another, so it may be bounded.
+	 *
+	 * @return The Concordia object once it is built. If it cannot be built,
+	 *         the future fails with the reason, typically a
+	 *         {@link ConcordiaException}.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The schema or executor is null.
+	 *
+	 * @throws IOException
+	 *         The schema could not be read.
+	 *
+	 * @see AsyncLoader
+	 */
+	public static Future<Concordia> loadAsync(
+		final InputStream schema,
+		final ValidationController controller,
+		final ReferenceResolver resolver,
+		final Executor executor)
+		throws IllegalArgumentException, IOException {
+
+		return AsyncLoader.load(schema, controller, resolver, executor);
 	}
 
 	/**
@@ -393,6 +536,111 @@ public class Concordia implements Serializable {
 		return schema;
 	}
 
+	/**
+	 * Estimates the memory that this object's schema retains, including how
+	 * much of it is shared with other Concordia objects.
+	 *
+	 * @return The report for this object's schema.
+	 *
+	 * @see SchemaSizeReport
+	 */
+	public SchemaSizeReport getSizeReport() {
+		return SchemaSizeReport.measure(schema);
+	}
+
+	/**
+	 * Writes a binary snapshot of this object's schema, including every
+	 * schema that it refers to, which can be read again with
+	 * {@link #readSnapshot(InputStream, ValidationController, ReferenceResolver)}.
+	 * Every schema is validated by this object's controller as it is
+	 * written, so that reading the snapshot for the same kind of controller
+	 * can skip validation. The output is flushed but not closed.
+	 *
+	 * @param output
+	 *        The output.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The output is null.
+	 *
+	 * @throws ConcordiaException
+	 *         A referenced schema could not be read or is invalid, or the
+	 *         schema contains a type that is not defined by Concordia.
+	 *
+	 * @throws IOException
+	 *         The snapshot could not be written.
+	 *
+	 * @see SchemaSnapshot
+	 */
+	public void writeSnapshot(
+		final OutputStream output)
+		throws IllegalArgumentException, ConcordiaException, IOException {
+
+		SchemaSnapshot.write(schema, controller, output);
+	}
+
+	/**
+	 * <p>
+	 * Creates a new Concordia object from a snapshot that was written by
+	 * {@link #writeSnapshot(OutputStream)}. The schemas that it refers to are
+	 * read from the snapshot as well.
+	 * </p>
+	 *
+	 * <p>
+	 * If the schema matches the fingerprint it was written with and was
+	 * validated by a controller with the same schema validators as this
+	 * controller, it is not validated again. Otherwise, it is validated like
+	 * any other schema.
+	 * </p>
+	 *
+	 * @param input
+	 *        The snapshot, which should be buffered.
+	 *
+	 * @param controller
+	 *        The custom validation controller to use to validate data and, if
+	 *        needed, the schema, or null to use the basic one.
+	 *
+	 * @param resolver
+	 *        The resolver for any references that were not in the snapshot,
+	 *        or null to use the default one. This should be the same kind of
+	 *        resolver that the snapshot's schema was read with.
+	 *
+	 * @return The new Concordia object.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The input is null.
+	 *
+	 * @throws ConcordiaException
+	 *         The snapshot is malformed, or the schema is invalid.
+	 *
+	 * @throws IOException
+	 *         The snapshot could not be read.
+	 *
+	 * @see SchemaSnapshot
+	 */
+	public static Concordia readSnapshot(
+		final InputStream input,
+		final ValidationController controller,
+		final ReferenceResolver resolver)
+		throws IllegalArgumentException, ConcordiaException, IOException {
+
+		SchemaSnapshot snapshot =
+			SchemaSnapshot.read(input, resolver, controller);
+		return
+			new Concordia(
+				snapshot.getSchema(),
+				controller,
+				! snapshot.isVerified());
+	}
+
+	/**
+	 * Returns the compiled form of the schema that is used to validate data.
+	 *
+	 * @return The compiled form of the schema.
+	 */
+	public CompiledValidator getValidator() {
+		return validator;
+	}
+
 	/**
 	 * Validates that some data conforms to the given schema.
 	 *
@@ -401,7 +649,272 @@ public class Concordia implements Serializable {
 	 * @throws ConcordiaException The data is invalid.
 	 */
 	public void validateData(final JsonNode data) throws ConcordiaException {
-		controller.validate(schema, data);
+		validator.validate(data);
+	}
+
+	/**
+	 * Checks whether some data conforms to the given schema without throwing
+	 * an exception if it does not. This is preferable when invalid data is
+	 * expected, as rejecting data is then as cheap as accepting it.
+	 *
+	 * @param data
+	 *        The data to check.
+	 *
+	 * @return The result of the check.
+	 */
+	public ValidationResult check(final JsonNode data) {
+		return validator.check(data);
+	}
+
+	/**
+	 * Validates that some data conforms to the given schema in place, e.g.
+	 * {@link java.util.Map}s and {@link java.util.List}s or plain Java
+	 * objects, without converting it into a {@link JsonNode}.
+	 *
+	 * @param data
+	 *        The data to validate.
+	 *
+	 * @param accessor
+	 *        The accessor that reads the data, e.g.
+	 *        {@link name.jenkins.paul.john.concordia.validator.PojoAccessor#INSTANCE}.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The accessor is null.
+	 *
+	 * @throws ConcordiaException
+	 *         The data is invalid.
+	 *
+	 * @see CompiledValidator#validate(Object, DataAccessor)
+	 */
+	public void validateData(
+		final Object data,
+		final DataAccessor accessor)
+		throws IllegalArgumentException, ConcordiaException {
+
+		validator.validate(data, accessor);
+	}
+
+	/**
+	 * Checks whether some data conforms to the given schema in place without
+	 * throwing an exception if it does not.
+	 *
+	 * @param data
+	 *        The data to check.
+	 *
+	 * @param accessor
+	 *        The accessor that reads the data.
+	 *
+	 * @return The result of the check.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The accessor is null.
+	 *
+	 * @see CompiledValidator#check(Object, DataAccessor)
+	 */
+	public ValidationResult check(
+		final Object data,
+		final DataAccessor accessor)
+		throws IllegalArgumentException {
+
+		return validator.check(data, accessor);
+	}
+
+	/**
+	 * Checks whether each record in a batch conforms to the given schema on
+	 * the calling thread.
+	 *
+	 * @param records
+	 *        The records to check.
+	 *
+	 * @return Whether each record was valid and the violations in those that
+	 *         were not.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The records are null.
+	 *
+	 * @see CompiledValidator#checkAll(Iterable)
+	 */
+	public BatchResult validateAll(
+		final Iterable<? extends JsonNode> records)
+		throws IllegalArgumentException {
+
+		return validator.checkAll(records);
+	}
+
+	/**
+	 * Checks whether each record in a batch conforms to the given schema,
+	 * splitting the batch across an executor.
+	 *
+	 * @param records
+	 *        The records to check.
+	 *
+	 * @param executor
+	 *        The executor to check the records on.
+	 *
+	 * @return Whether each record was valid and the violations in those that
+	 *         were not.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The records or the executor are null.
+	 *
+	 * @throws InterruptedException
+	 *         The calling thread was interrupted while waiting for the
+	 *         records to be checked.
+	 *
+	 * @see CompiledValidator#checkAll(List, Executor)
+	 */
+	public BatchResult validateAll(
+		final List<? extends JsonNode> records,
+		final Executor executor)
+		throws IllegalArgumentException, InterruptedException {
+
+		return validator.checkAll(records, executor);
+	}
+
+	/**
+	 * Validates that some data conforms to the given schema by reading it
+	 * directly from a parser. No tree is built for the data, so this is
+	 * preferable for large data.
+	 *
+	 * @param data
+	 *        The parser that is pointing to the data or just before it.
+	 *
+	 * @throws ConcordiaException
+	 *         The data is invalid.
+	 *
+	 * @throws IOException
+	 *         The data could not be read or was not well-formed JSON.
+	 *
+	 * @see CompiledValidator#validate(JsonParser)
+	 */
+	public void validateData(
+		final JsonParser data)
+		throws ConcordiaException, IOException {
+
+		validator.validate(data);
+	}
+
+	/**
+	 * Wraps a parser so that the data it reads is validated against the given
+	 * schema on the fly. This allows the data to be bound, e.g. by
+	 * {@link ObjectMapper#readValue(JsonParser, Class)}, and validated in a
+	 * single pass.
+	 *
+	 * @param parser
+	 *        The parser to wrap.
+	 *
+	 * @return A parser that throws a
+	 *         {@link name.jenkins.paul.john.concordia.validator.ValidationParseException}
+	 *         when the data is invalid.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The parser is null.
+	 *
+	 * @see CompiledValidator#validatingParser(JsonParser)
+	 */
+	public JsonParser validatingParser(
+		final JsonParser parser)
+		throws IllegalArgumentException {
+
+		return validator.validatingParser(parser);
+	}
+
+	/**
+	 * Wraps a generator so that the data written to it is validated against
+	 * the given schema as it is written. This allows output, e.g. from
+	 * {@link ObjectMapper#writeValue(JsonGenerator, Object)}, to be checked
+	 * without parsing it again or buffering it.
+	 *
+	 * @param generator
+	 *        The generator to wrap.
+	 *
+	 * @return A generator that throws a
+	 *         {@link name.jenkins.paul.john.concordia.validator.ValidationGenerationException}
+	 *         when the data is invalid.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The generator is null.
+	 *
+	 * @see CompiledValidator#validatingGenerator(JsonGenerator)
+	 */
+	public JsonGenerator validatingGenerator(
+		final JsonGenerator generator)
+		throws IllegalArgumentException {
+
+		return validator.validatingGenerator(generator);
+	}
+
+	/**
+	 * Validates that some data conforms to the given schema by reading it
+	 * directly from a stream. No tree is built for the data, so this is
+	 * preferable for large data. The stream is not closed.
+	 *
+	 * @param data
+	 *        The stream containing the data.
+	 *
+	 * @throws ConcordiaException
+	 *         The data is invalid or is followed by more content.
+	 *
+	 * @throws IOException
+	 *         The data could not be read or was not well-formed JSON.
+	 */
+	public void validateData(
+		final InputStream data)
+		throws ConcordiaException, IOException {
+
+		validateDocument(DATA_FACTORY.createParser(data));
+	}
+
+	/**
+	 * Validates that some data conforms to the given schema by reading it
+	 * directly from its serialized form. No tree is built for the data, so
+	 * this is preferable for large data.
+	 *
+	 * @param data
+	 *        The serialized data.
+	 *
+	 * @throws ConcordiaException
+	 *         The data is invalid or is followed by more content.
+	 *
+	 * @throws IOException
+	 *         The data was not well-formed JSON.
+	 */
+	public void validateData(
+		final byte[] data)
+		throws ConcordiaException, IOException {
+
+		validateDocument(DATA_FACTORY.createParser(data));
+	}
+
+	/**
+	 * Validates a whole document, i.e. a single value with nothing after it.
+	 * The parser is closed.
+	 *
+	 * @param parser
+	 *        The parser over the document, which has not been started.
+	 *
+	 * @throws ConcordiaException
+	 *         The data is invalid or is followed by more content.
+	 *
+	 * @throws IOException
+	 *         The data could not be read or was not well-formed JSON.
+	 */
+	private void validateDocument(
+		final JsonParser parser)
+		throws ConcordiaException, IOException {
+
+		try {
+			validator.validate(parser);
+
+			if(parser.nextToken() != null) {
+				throw
+					new ConcordiaException(
+						"The data has more than one value.");
+			}
+		}
+		finally {
+			parser.close();
+		}
 	}
 
 	/* (non-Javadoc)
@@ -409,14 +922,9 @@ public class Concordia implements Serializable {
 	 */
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result =
-			(prime *
-				result) +
-				((controller == null) ? 0 : controller.hashCode());
-		result = (prime * result) + ((schema == null) ? 0 : schema.hashCode());
-		return result;
+		// The schema's hash code is cached, while the controller's would
+		// hash all of its validators, and equal objects have equal schemas.
+		return (schema == null) ? 0 : schema.hashCode();
 	}
 
 	/* (non-Javadoc)
@@ -434,20 +942,22 @@ public class Concordia implements Serializable {
 			return false;
 		}
 		Concordia other = (Concordia) obj;
-		if(controller == null) {
-			if(other.controller != null) {
+		// The schemas are compared first, as they usually differ by their
+		// fingerprints.
+		if(schema == null) {
+			if(other.schema != null) {
 				return false;
 			}
 		}
-		else if(!controller.equals(other.controller)) {
+		else if(!schema.equals(other.schema)) {
 			return false;
 		}
-		if(schema == null) {
-			if(other.schema != null) {
+		if(controller == null) {
+			if(other.controller != null) {
 				return false;
 			}
 		}
-		else if(!schema.equals(other.schema)) {
+		else if(!controller.equals(other.controller)) {
 			return false;
 		}
 		return true;
@@ -459,12 +969,19 @@ public class Concordia implements Serializable {
 	 * the schema using the validator and do any additional, necessary
 	 * validation and setup.
 	 *
+	 * @param validate
+	 *        Whether or not the schema needs to be validated by the
+	 *        controller, which is only skipped for a schema that it has
+	 *        already validated.
+	 *
 	 * @throws ConcordiaException
 	 *         The schema is invalid.
 	 */
-	private void setup() throws ConcordiaException {
+	private void setup(final boolean validate) throws ConcordiaException {
 		// Validate the schema.
-		controller.validate(schema);
+		if(validate) {
+			controller.validate(schema);
+		}
 
 		// Make sure the root is either an object or an array.
 		if( (! (schema instanceof ObjectSchema)) &&
@@ -488,6 +1005,9 @@ public class Concordia implements Serializable {
 
 		// Update the controller on any child schemas.
 		updateController(schema.getSubSchemas(), controller);
+
+		// Compile the schema for validating data.
+		validator = controller.compile(schema);
 	}
 
 	/**
@@ -509,8 +1029,12 @@ public class Concordia implements Serializable {
 		// recursively.
 		this.controller = controller;
 
-		// Cycle through the schemas.
+		// Cycle through the schemas. References are skipped, as their
+		// schemas are read lazily and may refer back to this one.
 		for(Schema schema : schemas) {
+			if(schema instanceof ReferenceSchema) {
+				continue;
+			}
 		    updateController(schema.getSubSchemas(), controller);
 		}
 	}
@@ -0,0 +1,1243 @@
+package name.jenkins.paul.john.concordia.codec;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import name.jenkins.paul.john.concordia.Concordia;
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.schema.ArraySchema;
+import name.jenkins.paul.john.concordia.schema.BooleanSchema;
+import name.jenkins.paul.john.concordia.schema.NumberSchema;
+import name.jenkins.paul.john.concordia.schema.ObjectSchema;
+import name.jenkins.paul.john.concordia.schema.ReferenceSchema;
+import name.jenkins.paul.john.concordia.schema.Schema;
+import name.jenkins.paul.john.concordia.schema.StringSchema;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * <p>
+ * A compact binary encoding of data that is driven by its schema. Because
+ * the schema already describes the data's structure, none of it is written:
+ * </p>
+ *
+ * <ul>
+ * <li>Booleans are a single byte, 0 or 1.</li>
+ * <li>Numbers start with an unsigned varint. If its lowest bit is 0, the
+ * rest is the zig-zag encoding of an integer. Otherwise, the rest is the
+ * kind of number that follows: {@value #NUMBER_DOUBLE} for an 8-byte IEEE
+ * 754 double, {@value #NUMBER_BIG_INTEGER} for an integer that is too large
+ * for a varint, or {@value #NUMBER_DECIMAL} for a decimal, where the latter
+ * two are written like strings.</li>
+ * <li>Strings are their UTF-8 length as a varint followed by their UTF-8
+ * bytes.</li>
+ * <li>Objects start with a bitmap with a bit for each optional field, in
+ * schema order, that is set if that field is present. Then, the value of
+ * every present field follows in schema order, without its name. Fields that
+ * the schema does not define are not encoded.</li>
+ * <li>Constant-type arrays are their length as a varint followed by their
+ * elements. Constant-length arrays are only their elements.</li>
+ * <li>An optional value that is not a field of an object, i.e. the root or
+ * an array element, is preceded by a byte that is 1 if it is present and 0
+ * if it is null.</li>
+ * </ul>
+ *
+ * <p>
+ * Values round-trip by value, so a float is decoded as a double and a small
+ * long as an int. The data should already have been validated, as anything
+ * that is not in the schema is dropped and anything that the encoding cannot
+ * represent is rejected.
+ * </p>
+ *
+ * <p>
+ * The coder for each referenced schema is built the first time data reaches
+ * it, as in a {@link name.jenkins.paul.john.concordia.validator.CompiledValidator},
+ * so schemas may be recursive.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public final class BinaryCodec {
+	/**
+	 * The kind of a number that is an 8-byte IEEE 754 double.
+	 */
+	public static final int NUMBER_DOUBLE = 0;
+	/**
+	 * The kind of a number that is an integer that is too large for a
+	 * varint, written as its decimal string.
+	 */
+	public static final int NUMBER_BIG_INTEGER = 1;
+	/**
+	 * The kind of a number that is a decimal, written as its string.
+	 */
+	public static final int NUMBER_DECIMAL = 2;
+
+	/**
+	 * The encoding of strings.
+	 */
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	/**
+	 * The factory for decoded values.
+	 */
+	private static final JsonNodeFactory FACTORY = JsonNodeFactory.instance;
+	/**
+	 * The initial size of the buffer used to encode to an array.
+	 */
+	private static final int INITIAL_BUFFER_SIZE = 256;
+	/**
+	 * The most elements that are decoded for a constant-type array whose
+	 * elements might not use any bytes, where the length cannot be checked
+	 * against the bytes that remain.
+	 */
+	private static final int MAX_EMPTY_ELEMENTS = 1 << 16;
+
+	/**
+	 * <p>
+	 * Encodes and decodes the values of a single schema.
+	 * </p>
+	 *
+	 * @author John Jenkins
+	 */
+	private abstract static class Coder {
+		/**
+		 * The schema whose values this coder encodes.
+		 */
+		protected final Schema schema;
+
+		/**
+		 * Creates a new coder.
+		 *
+		 * @param schema
+		 *        The schema whose values this coder encodes.
+		 */
+		protected Coder(final Schema schema) {
+			this.schema = schema;
+		}
+
+		/**
+		 * Encodes a value that is present.
+		 *
+		 * @param data
+		 *        The value, which is not null.
+		 *
+		 * @param out
+		 *        The buffer to write to.
+		 *
+		 * @throws ConcordiaException
+		 *         The value cannot be encoded with this schema.
+		 */
+		abstract void encode(
+			final JsonNode data,
+			final ByteBuffer out)
+			throws ConcordiaException;
+
+		/**
+		 * Decodes a value that is present.
+		 *
+		 * @param in
+		 *        The buffer to read from.
+		 *
+		 * @return The value.
+		 *
+		 * @throws ConcordiaException
+		 *         The encoded value was malformed.
+		 */
+		abstract JsonNode decode(
+			final ByteBuffer in)
+			throws ConcordiaException;
+
+		/**
+		 * Returns whether or not every value that this coder encodes uses at
+		 * least one byte.
+		 *
+		 * @param visited
+		 *        The references whose targets are being checked, which is
+		 *        used to stop at a schema that contains itself.
+		 *
+		 * @return True if every value uses at least one byte, or false if
+		 *         some value might not use any.
+		 *
+		 * @throws ConcordiaException
+		 *         A referenced or extended schema could not be read.
+		 */
+		boolean usesBytes(final Set<Coder> visited) throws ConcordiaException {
+			return true;
+		}
+	}
+
+	/**
+	 * The coder for a {@link BooleanSchema}.
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class BooleanCoder extends Coder {
+		/**
+		 * Creates a new coder.
+		 */
+		private BooleanCoder(final BooleanSchema schema) {
+			super(schema);
+		}
+
+		@Override
+		void encode(
+			final JsonNode data,
+			final ByteBuffer out)
+			throws ConcordiaException {
+
+			if(! data.isBoolean()) {
+				throw mismatch("boolean", data);
+			}
+			out.put((byte) (data.booleanValue() ? 1 : 0));
+		}
+
+		@Override
+		JsonNode decode(final ByteBuffer in) throws ConcordiaException {
+			byte value = in.get();
+			if(value == 0) {
+				return FACTORY.booleanNode(false);
+			}
+			else if(value == 1) {
+				return FACTORY.booleanNode(true);
+			}
+			throw new ConcordiaException("A boolean was malformed: " + value);
+		}
+	}
+
+	/**
+	 * The coder for a {@link NumberSchema}.
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class NumberCoder extends Coder {
+		/**
+		 * The largest magnitude of an integer that is written as a varint,
+		 * which leaves room for the flag bit.
+		 */
+		private static final long VARINT_LIMIT = 1L << 62;
+
+		/**
+		 * Creates a new coder.
+		 */
+		private NumberCoder(final NumberSchema schema) {
+			super(schema);
+		}
+
+		@Override
+		void encode(
+			final JsonNode data,
+			final ByteBuffer out)
+			throws ConcordiaException {
+
+			if(! data.isNumber()) {
+				throw mismatch("number", data);
+			}
+
+			if(data.isIntegralNumber()) {
+				if(data.canConvertToLong()) {
+					long value = data.longValue();
+					if((value < VARINT_LIMIT) && (value >= -VARINT_LIMIT)) {
+						writeVarint(out, zigZag(value) << 1);
+						return;
+					}
+				}
+				writeVarint(out, (NUMBER_BIG_INTEGER << 1) | 1);
+				writeString(out, data.bigIntegerValue().toString());
+			}
+			else if(data.isBigDecimal()) {
+				writeVarint(out, (NUMBER_DECIMAL << 1) | 1);
+				writeString(out, data.decimalValue().toString());
+			}
+			else {
+				writeVarint(out, (NUMBER_DOUBLE << 1) | 1);
+				out.putDouble(data.doubleValue());
+			}
+		}
+
+		@Override
+		JsonNode decode(final ByteBuffer in) throws ConcordiaException {
+			long header = readVarint(in);
+			if((header & 1) == 0) {
+				long value = unZigZag(header >>> 1);
+				if((value <= Integer.MAX_VALUE) &&
+					(value >= Integer.MIN_VALUE)) {
+
+					return FACTORY.numberNode((int) value);
+				}
+				return FACTORY.numberNode(value);
+			}
+
+			long kind = header >>> 1;
+			try {
+				if(kind == NUMBER_DOUBLE) {
+					return FACTORY.numberNode(in.getDouble());
+				}
+				else if(kind == NUMBER_BIG_INTEGER) {
+					BigInteger value = new BigInteger(readString(in));
+					if(value.bitLength() < 64) {
+						return FACTORY.numberNode(value.longValue());
+					}
+					return FACTORY.numberNode(value);
+				}
+				else if(kind == NUMBER_DECIMAL) {
+					return FACTORY.numberNode(new BigDecimal(readString(in)));
+				}
+			}
+			catch(NumberFormatException e) {
+				throw new ConcordiaException("A number was malformed.", e);
+			}
+			throw
+				new ConcordiaException(
+					"A number was of an unknown kind: " + kind);
+		}
+	}
+
+	/**
+	 * The coder for a {@link StringSchema}.
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class StringCoder extends Coder {
+		/**
+		 * Creates a new coder.
+		 */
+		private StringCoder(final StringSchema schema) {
+			super(schema);
+		}
+
+		@Override
+		void encode(
+			final JsonNode data,
+			final ByteBuffer out)
+			throws ConcordiaException {
+
+			if(! data.isTextual()) {
+				throw mismatch("string", data);
+			}
+			writeString(out, data.textValue());
+		}
+
+		@Override
+		JsonNode decode(final ByteBuffer in) throws ConcordiaException {
+			return FACTORY.textNode(readString(in));
+		}
+	}
+
+	/**
+	 * The coder for an {@link ObjectSchema}.
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class ObjectCoder extends Coder {
+		/**
+		 * The codec that this coder belongs to, which builds the coders for
+		 * the fields.
+		 */
+		private final BinaryCodec codec;
+		/**
+		 * The names of every field, including those of any extended objects,
+		 * in schema order, or null if they have not been gathered yet.
+		 */
+		private volatile String[] names;
+		/**
+		 * The coders for every field in the same order as their names.
+		 */
+		private Coder[] coders;
+		/**
+		 * Whether or not each field is optional, in the same order as their
+		 * names.
+		 */
+		private boolean[] optional;
+		/**
+		 * The number of optional fields.
+		 */
+		private int optionalCount;
+
+		/**
+		 * Creates a new coder.
+		 */
+		private ObjectCoder(
+			final ObjectSchema schema,
+			final BinaryCodec codec) {
+
+			super(schema);
+			this.codec = codec;
+		}
+
+		@Override
+		void encode(
+			final JsonNode data,
+			final ByteBuffer out)
+			throws ConcordiaException {
+
+			if(! data.isObject()) {
+				throw mismatch("object", data);
+			}
+			String[] names = getNames();
+
+			// Reserve the bitmap, which is filled in as the fields are
+			// written.
+			int bitmapSize = (optionalCount + 7) >>> 3;
+			if(out.remaining() < bitmapSize) {
+				throw new BufferOverflowException();
+			}
+			int bitmap = out.position();
+			out.position(bitmap + bitmapSize);
+
+			int bit = 0;
+			int bits = 0;
+			for(int i = 0; i < names.length; i++) {
+				JsonNode value = data.get(names[i]);
+				boolean present = (value != null) && (! value.isNull());
+
+				if(optional[i]) {
+					if(present) {
+						bits |= 1 << (bit & 7);
+					}
+					bit++;
+					if((bit & 7) == 0) {
+						out.put(bitmap + (bit >>> 3) - 1, (byte) bits);
+						bits = 0;
+					}
+				}
+				else if(! present) {
+					throw
+						new ConcordiaException(
+							"A field that is not optional is missing: " +
+								names[i]);
+				}
+
+				if(present) {
+					coders[i].encode(value, out);
+				}
+			}
+			if((bit & 7) != 0) {
+				out.put(bitmap + (bit >>> 3), (byte) bits);
+			}
+		}
+
+		@Override
+		JsonNode decode(final ByteBuffer in) throws ConcordiaException {
+			String[] names = getNames();
+
+			int bitmapSize = (optionalCount + 7) >>> 3;
+			if(in.remaining() < bitmapSize) {
+				throw new BufferUnderflowException();
+			}
+			int bitmap = in.position();
+			in.position(bitmap + bitmapSize);
+
+			ObjectNode result = FACTORY.objectNode();
+			int bit = 0;
+			for(int i = 0; i < names.length; i++) {
+				if(optional[i]) {
+					int bits = in.get(bitmap + (bit >>> 3));
+					boolean present = ((bits >>> (bit & 7)) & 1) != 0;
+					bit++;
+					if(! present) {
+						continue;
+					}
+				}
+				result.put(names[i], coders[i].decode(in));
+			}
+			return result;
+		}
+
+		@Override
+		boolean usesBytes(final Set<Coder> visited) throws ConcordiaException {
+			getNames();
+			if(optionalCount > 0) {
+				return true;
+			}
+			for(Coder coder : coders) {
+				if(coder.usesBytes(visited)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Returns the names of the fields, gathering them and building their
+		 * coders the first time.
+		 *
+		 * @return The names of the fields.
+		 *
+		 * @throws ConcordiaException
+		 *         An extended object could not be read.
+		 */
+		private String[] getNames() throws ConcordiaException {
+			String[] result = names;
+			if(result != null) {
+				return result;
+			}
+
+			synchronized(this) {
+				if(names == null) {
+					List<String> fieldNames = new ArrayList<String>();
+					List<Coder> fieldCoders = new ArrayList<Coder>();
+					List<Boolean> fieldOptional = new ArrayList<Boolean>();
+					gather(
+						(ObjectSchema) schema,
+						fieldNames,
+						fieldCoders,
+						fieldOptional,
+						Collections
+							.newSetFromMap(
+								new IdentityHashMap<Schema, Boolean>()));
+
+					coders = fieldCoders.toArray(new Coder[fieldCoders.size()]);
+					optional = new boolean[fieldOptional.size()];
+					optionalCount = 0;
+					for(int i = 0; i < optional.length; i++) {
+						optional[i] = fieldOptional.get(i);
+						if(optional[i]) {
+							optionalCount++;
+						}
+					}
+					names = fieldNames.toArray(new String[fieldNames.size()]);
+				}
+				return names;
+			}
+		}
+
+		/**
+		 * Adds the fields of an object, including those of the objects that
+		 * it extends, to the lists.
+		 *
+		 * @param object
+		 *        The object.
+		 *
+		 * @param names
+		 *        The names of the fields.
+		 *
+		 * @param coders
+		 *        The coders for the fields.
+		 *
+		 * @param optional
+		 *        Whether or not each field is optional.
+		 *
+		 * @param visited
+		 *        The objects that are being gathered, which is used to detect
+		 *        an object that extends itself.
+		 *
+		 * @throws ConcordiaException
+		 *         An extended object could not be read or extends itself.
+		 */
+		private void gather(
+			final ObjectSchema object,
+			final List<String> names,
+			final List<Coder> coders,
+			final List<Boolean> optional,
+			final Set<Schema> visited)
+			throws ConcordiaException {
+
+			if(! visited.add(object)) {
+				throw
+					new ConcordiaException(
+						"The object extends itself: " + object);
+			}
+
+			for(Schema field : object.getFields()) {
+				if(field.getName() != null) {
+					names.add(field.getName());
+					coders.add(codec.getCoder(field));
+					optional.add(field.isOptional());
+					continue;
+				}
+
+				// Only a reference to another object may be unnamed, and its
+				// fields are added to this object.
+				Schema extended = ((ReferenceSchema) field).getSchema();
+				if(!(extended instanceof ObjectSchema)) {
+					throw
+						new ConcordiaException(
+							"The sub-schema does not define a name and is " +
+								"not an object schema.");
+				}
+				gather(
+					(ObjectSchema) extended,
+					names,
+					coders,
+					optional,
+					visited);
+			}
+
+			visited.remove(object);
+		}
+	}
+
+	/**
+	 * The coder for an {@link ArraySchema}.
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class ArrayCoder extends Coder {
+		/**
+		 * The coder for every element if this is a constant-type array,
+		 * otherwise null.
+		 */
+		private final Coder constType;
+		/**
+		 * The coder for each index if this is a constant-length array,
+		 * otherwise null.
+		 */
+		private final Coder[] constLength;
+		/**
+		 * Whether or not every element of a constant-type array uses at
+		 * least one byte, or null if that has not been checked yet.
+		 */
+		private volatile Boolean denseElements;
+
+		/**
+		 * Creates a new coder.
+		 */
+		private ArrayCoder(
+			final ArraySchema schema,
+			final Coder constType,
+			final Coder[] constLength) {
+
+			super(schema);
+			this.constType = constType;
+			this.constLength = constLength;
+		}
+
+		@Override
+		void encode(
+			final JsonNode data,
+			final ByteBuffer out)
+			throws ConcordiaException {
+
+			if(! data.isArray()) {
+				throw mismatch("array", data);
+			}
+
+			int size = data.size();
+			if(constType != null) {
+				writeVarint(out, size);
+				for(int i = 0; i < size; i++) {
+					constType.encode(data.get(i), out);
+				}
+			}
+			else {
+				if(constLength.length != size) {
+					throw
+						new ConcordiaException(
+							"The schemas array and the data array are " +
+								"different lengths.");
+				}
+				for(int i = 0; i < size; i++) {
+					constLength[i].encode(data.get(i), out);
+				}
+			}
+		}
+
+		@Override
+		JsonNode decode(final ByteBuffer in) throws ConcordiaException {
+			ArrayNode result = FACTORY.arrayNode();
+			if(constType != null) {
+				// The length is bounded by the bytes that remain if every
+				// element uses at least one, which keeps a malformed length
+				// from being trusted.
+				long size = readVarint(in);
+				long limit =
+					(hasDenseElements()) ? in.remaining() : MAX_EMPTY_ELEMENTS;
+				if((size < 0) || (size > limit)) {
+					throw
+						new ConcordiaException(
+							"An array's length was malformed: " + size);
+				}
+				for(long i = 0; i < size; i++) {
+					result.add(constType.decode(in));
+				}
+			}
+			else {
+				for(Coder coder : constLength) {
+					result.add(coder.decode(in));
+				}
+			}
+			return result;
+		}
+
+		@Override
+		boolean usesBytes(final Set<Coder> visited) throws ConcordiaException {
+			if(constType != null) {
+				// The length is always written.
+				return true;
+			}
+			for(Coder coder : constLength) {
+				if(coder.usesBytes(visited)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Returns whether or not every element of this constant-type array
+		 * uses at least one byte, checking the first time.
+		 *
+		 * @return Whether or not every element uses at least one byte.
+		 *
+		 * @throws ConcordiaException
+		 *         A referenced or extended schema could not be read.
+		 */
+		private boolean hasDenseElements() throws ConcordiaException {
+			Boolean result = denseElements;
+			if(result == null) {
+				result =
+					constType
+						.usesBytes(
+							Collections
+								.newSetFromMap(
+									new IdentityHashMap<Coder, Boolean>()));
+				denseElements = result;
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * The coder for a {@link ReferenceSchema}, which is built the first time
+	 * that it is used.
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class ReferenceCoder extends Coder {
+		/**
+		 * The codec that this coder belongs to, which builds the coder for
+		 * the referenced schema.
+		 */
+		private final BinaryCodec codec;
+		/**
+		 * The coder for the referenced schema or null if it has not been
+		 * built yet.
+		 */
+		private volatile Coder target;
+
+		/**
+		 * Creates a new coder.
+		 */
+		private ReferenceCoder(
+			final ReferenceSchema schema,
+			final BinaryCodec codec) {
+
+			super(schema);
+			this.codec = codec;
+		}
+
+		@Override
+		void encode(
+			final JsonNode data,
+			final ByteBuffer out)
+			throws ConcordiaException {
+
+			getTarget().encode(data, out);
+		}
+
+		@Override
+		JsonNode decode(final ByteBuffer in) throws ConcordiaException {
+			return getTarget().decode(in);
+		}
+
+		@Override
+		boolean usesBytes(final Set<Coder> visited) throws ConcordiaException {
+			// A schema that contains itself might not use any bytes where it
+			// is reached again.
+			if(! visited.add(this)) {
+				return false;
+			}
+			boolean result = getTarget().usesBytes(visited);
+			visited.remove(this);
+			return result;
+		}
+
+		/**
+		 * Returns the coder for the referenced schema, building it the first
+		 * time.
+		 *
+		 * @return The coder for the referenced schema.
+		 *
+		 * @throws ConcordiaException
+		 *         The referenced schema could not be read.
+		 */
+		private Coder getTarget() throws ConcordiaException {
+			Coder result = target;
+			if(result == null) {
+				result =
+					codec.getCoder(((ReferenceSchema) schema).getSchema());
+				target = result;
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * The coder for an optional value that is not a field of an object, which
+	 * precedes the value with whether or not it is present.
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class OptionalCoder extends Coder {
+		/**
+		 * The coder for the value when it is present.
+		 */
+		private final Coder value;
+
+		/**
+		 * Creates a new coder.
+		 */
+		private OptionalCoder(final Coder value) {
+			super(value.schema);
+			this.value = value;
+		}
+
+		@Override
+		void encode(
+			final JsonNode data,
+			final ByteBuffer out)
+			throws ConcordiaException {
+
+			if(data.isNull()) {
+				out.put((byte) 0);
+			}
+			else {
+				out.put((byte) 1);
+				value.encode(data, out);
+			}
+		}
+
+		@Override
+		JsonNode decode(final ByteBuffer in) throws ConcordiaException {
+			byte present = in.get();
+			if(present == 0) {
+				return NullNode.getInstance();
+			}
+			else if(present == 1) {
+				return value.decode(in);
+			}
+			throw
+				new ConcordiaException(
+					"An optional value's marker was malformed: " + present);
+		}
+	}
+
+	/**
+	 * The schema whose data is encoded.
+	 */
+	private final Schema schema;
+	/**
+	 * The coders that have been built, keyed by their schema's identity. All
+	 * access must be synchronized on this map.
+	 */
+	private final Map<Schema, Coder> coders =
+		new IdentityHashMap<Schema, Coder>();
+	/**
+	 * The coder for the root of the data.
+	 */
+	private final Coder root;
+
+	/**
+	 * Creates a codec for data that conforms to a Concordia schema.
+	 *
+	 * @param concordia
+	 *        The schema of the data.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The schema is null.
+	 *
+	 * @throws ConcordiaException
+	 *         The schema is of a type that cannot be encoded.
+	 */
+	public BinaryCodec(
+		final Concordia concordia)
+		throws IllegalArgumentException, ConcordiaException {
+
+		this((concordia == null) ? null : concordia.getSchema());
+	}
+
+	/**
+	 * Creates a codec for data that conforms to a schema. The schema should
+	 * already have been validated.
+	 *
+	 * @param schema
+	 *        The schema of the data.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The schema is null.
+	 *
+	 * @throws ConcordiaException
+	 *         The schema is of a type that cannot be encoded.
+	 */
+	public BinaryCodec(
+		final Schema schema)
+		throws IllegalArgumentException, ConcordiaException {
+
+		if(schema == null) {
+			throw new IllegalArgumentException("The schema is null.");
+		}
+
+		this.schema = schema;
+		root = getElementCoder(schema);
+	}
+
+	/**
+	 * Returns the schema whose data is encoded.
+	 *
+	 * @return The schema whose data is encoded.
+	 */
+	public Schema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * Encodes some data into a buffer, starting at its position. If this
+	 * returns normally, the buffer's position is just after the encoded data.
+	 *
+	 * @param data
+	 *        The data to encode, which should conform to the schema.
+	 *
+	 * @param out
+	 *        The buffer to write to.
+	 *
+	 * @throws ConcordiaException
+	 *         The data cannot be encoded with the schema, including data that
+	 *         reaches a sub-schema of a type that cannot be encoded.
+	 *
+	 * @throws BufferOverflowException
+	 *         The buffer was too small, in which case its position is
+	 *         restored.
+	 */
+	public void encode(
+		final JsonNode data,
+		final ByteBuffer out)
+		throws ConcordiaException, BufferOverflowException {
+
+		int start = out.position();
+		try {
+			root.encode((data == null) ? NullNode.getInstance() : data, out);
+		}
+		catch(BufferOverflowException e) {
+			out.position(start);
+			throw e;
+		}
+	}
+
+	/**
+	 * Encodes some data into a new array.
+	 *
+	 * @param data
+	 *        The data to encode, which should conform to the schema.
+	 *
+	 * @return The encoded data.
+	 *
+	 * @throws ConcordiaException
+	 *         The data cannot be encoded with the schema.
+	 */
+	public byte[] encode(final JsonNode data) throws ConcordiaException {
+		ByteBuffer out = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+		while(true) {
+			try {
+				encode(data, out);
+				break;
+			}
+			catch(BufferOverflowException e) {
+				out = ByteBuffer.allocate(out.capacity() * 2);
+			}
+		}
+
+		byte[] result = new byte[out.position()];
+		System.arraycopy(out.array(), 0, result, 0, result.length);
+		return result;
+	}
+
+	/**
+	 * Decodes some data from a buffer, starting at its position. If this
+	 * returns normally, the buffer's position is just after the encoded data.
+	 *
+	 * @param in
+	 *        The buffer to read from.
+	 *
+	 * @return The decoded data.
+	 *
+	 * @throws ConcordiaException
+	 *         The encoded data was truncated or malformed.
+	 */
+	public JsonNode decode(final ByteBuffer in) throws ConcordiaException {
+		try {
+			return root.decode(in);
+		}
+		catch(BufferUnderflowException e) {
+			throw new ConcordiaException("The encoded data was truncated.", e);
+		}
+	}
+
+	/**
+	 * Decodes some data from an array.
+	 *
+	 * @param in
+	 *        The encoded data.
+	 *
+	 * @return The decoded data.
+	 *
+	 * @throws ConcordiaException
+	 *         The encoded data was truncated, malformed, or followed by extra
+	 *         bytes.
+	 */
+	public JsonNode decode(final byte[] in) throws ConcordiaException {
+		ByteBuffer buffer = ByteBuffer.wrap(in);
+		JsonNode result = decode(buffer);
+		if(buffer.hasRemaining()) {
+			throw
+				new ConcordiaException(
+					"The encoded data was followed by extra bytes.");
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the coder for a value that is not a field of an object, which
+	 * records whether or not it is present if it is optional.
+	 *
+	 * @param schema
+	 *        The value's schema.
+	 *
+	 * @return The coder for the value.
+	 *
+	 * @throws ConcordiaException
+	 *         The schema is of a type that cannot be encoded.
+	 */
+	private Coder getElementCoder(
+		final Schema schema)
+		throws ConcordiaException {
+
+		Coder coder = getCoder(schema);
+		return (schema.isOptional()) ? new OptionalCoder(coder) : coder;
+	}
+
+	/**
+	 * Returns the coder for a schema, building it if it has not been built
+	 * yet.
+	 *
+	 * @param schema
+	 *        The schema.
+	 *
+	 * @return The coder for the schema.
+	 *
+	 * @throws ConcordiaException
+	 *         The schema is of a type that cannot be encoded.
+	 */
+	private Coder getCoder(final Schema schema) throws ConcordiaException {
+		synchronized(coders) {
+			Coder result = coders.get(schema);
+			if(result != null) {
+				return result;
+			}
+
+			if(schema instanceof BooleanSchema) {
+				result = new BooleanCoder((BooleanSchema) schema);
+			}
+			else if(schema instanceof NumberSchema) {
+				result = new NumberCoder((NumberSchema) schema);
+			}
+			else if(schema instanceof StringSchema) {
+				result = new StringCoder((StringSchema) schema);
+			}
+			else if(schema instanceof ObjectSchema) {
+				result = new ObjectCoder((ObjectSchema) schema, this);
+			}
+			else if(schema instanceof ReferenceSchema) {
+				result = new ReferenceCoder((ReferenceSchema) schema, this);
+			}
+			else if(schema instanceof ArraySchema) {
+				ArraySchema array = (ArraySchema) schema;
+				if(array.getConstType() != null) {
+					result =
+						new ArrayCoder(
+							array,
+							getElementCoder(array.getConstType()),
+							null);
+				}
+				else {
+					List<Schema> indices = array.getConstLength();
+					Coder[] constLength = new Coder[indices.size()];
+					for(int i = 0; i < constLength.length; i++) {
+						constLength[i] = getElementCoder(indices.get(i));
+					}
+					result = new ArrayCoder(array, null, constLength);
+				}
+			}
+			else {
+				throw
+					new ConcordiaException(
+						"The schema is of an unknown type: " +
+							schema.getClass().getName());
+			}
+
+			coders.put(schema, result);
+			return result;
+		}
+	}
+
+	/**
+	 * Creates the exception for data that is not of its schema's type.
+	 *
+	 * @param type
+	 *        The type of the schema.
+	 *
+	 * @param data
+	 *        The data.
+	 *
+	 * @return The exception.
+	 */
+	private static ConcordiaException mismatch(
+		final String type,
+		final JsonNode data) {
+
+		return
+			new ConcordiaException(
+				"The data was not a " + type + " value: " + data);
+	}
+
+	/**
+	 * Writes an unsigned varint, i.e. 7 bits at a time with the highest bit
+	 * of each byte set if more follow.
+	 *
+	 * @param out
+	 *        The buffer to write to.
+	 *
+	 * @param value
+	 *        The value, which is treated as unsigned.
+	 */
+	static void writeVarint(final ByteBuffer out, final long value) {
+		long remaining = value;
+		while((remaining & ~0x7FL) != 0) {
+			out.put((byte) ((remaining & 0x7F) | 0x80));
+			remaining >>>= 7;
+		}
+		out.put((byte) remaining);
+	}
+
+	/**
+	 * Reads an unsigned varint.
+	 *
+	 * @param in
+	 *        The buffer to read from.
+	 *
+	 * @return The value.
+	 *
+	 * @throws ConcordiaException
+	 *         The varint was longer than 64 bits.
+	 */
+	static long readVarint(final ByteBuffer in) throws ConcordiaException {
+		long result = 0;
+		for(int shift = 0; shift < 64; shift += 7) {
+			byte b = in.get();
+			result |= (long) (b & 0x7F) << shift;
+			if((b & 0x80) == 0) {
+				return result;
+			}
+		}
+		throw new ConcordiaException("A varint was malformed.");
+	}
+
+	/**
+	 * Maps a signed value to an unsigned one so that values with a small
+	 * magnitude have a small encoding.
+	 *
+	 * @param value
+	 *        The signed value.
+	 *
+	 * @return The unsigned value.
+	 */
+	static long zigZag(final long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	/**
+	 * Reverses {@link #zigZag(long)}.
+	 *
+	 * @param value
+	 *        The unsigned value.
+	 *
+	 * @return The signed value.
+	 */
+	static long unZigZag(final long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Writes a string as its UTF-8 length followed by its UTF-8 bytes.
+	 *
+	 * @param out
+	 *        The buffer to write to.
+	 *
+	 * @param value
+	 *        The string.
+	 */
+	private static void writeString(final ByteBuffer out, final String value) {
+		byte[] bytes = value.getBytes(UTF_8);
+		writeVarint(out, bytes.length);
+		out.put(bytes);
+	}
+
+	/**
+	 * Reads a string. If the buffer is backed by an array, the string is
+	 * decoded straight from it.
+	 *
+	 * @param in
+	 *        The buffer to read from.
+	 *
+	 * @return The string.
+	 *
+	 * @throws ConcordiaException
+	 *         The string's length was malformed.
+	 */
+	private static String readString(
+		final ByteBuffer in)
+		throws ConcordiaException {
+
+		long length = readVarint(in);
+		if(length < 0) {
+			throw
+				new ConcordiaException(
+					"A string's length was malformed: " + length);
+		}
+		if(length > in.remaining()) {
+			throw new ConcordiaException("The encoded data was truncated.");
+		}
+
+		int size = (int) length;
+		if(in.hasArray()) {
+			int position = in.position();
+			in.position(position + size);
+			return
+				new String(
+					in.array(),
+					in.arrayOffset() + position,
+					size,
+					UTF_8);
+		}
+
+		byte[] bytes = new byte[size];
+		in.get(bytes);
+		return new String(bytes, UTF_8);
+	}
+}
@@ -0,0 +1,223 @@
+package name.jenkins.paul.john.concordia.exception;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+
+/**
+ * <p>
+ * The exception thrown when data does not conform to its schema.
+ * </p>
+ *
+ * <p>
+ * Invalid data is expected to be common, so this exception is cheap to
+ * create. It does not record a stack trace, and its message is not rendered
+ * until it is requested. The offending value is kept by reference, not
+ * copied, and is only converted to a string if the message is actually
+ * used. If the value is changed before then, the message shows the changed
+ * value. The message is always rendered before this exception is
+ * serialized, because the value itself is not serialized.
+ * </p>
+ *
+ * <p>
+ * When the location of the offending value is known, it is available as a
+ * JSON Pointer from {@link #getPointer()}. Like the message, the pointer is
+ * not rendered until it is requested.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public class InvalidDataException extends ConcordiaException {
+	/**
+	 * The version of this exception class.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The reason this exception was thrown, which prefixes the detail.
+	 */
+	private final String reason;
+	/**
+	 * The value that is appended to the reason when the message is rendered
+	 * or null if there is no detail.
+	 */
+	private final transient Object detail;
+	/**
+	 * The field names (as {@link String}s) and array indices (as
+	 * {@link Integer}s, or {@link Long}s for indices that do not fit in an
+	 * int) from the root of the data to the offending value or null if the
+	 * location is unknown.
+	 */
+	private final Object[] path;
+	/**
+	 * The rendered message or null if it has not yet been rendered.
+	 */
+	private String message = null;
+	/**
+	 * The rendered pointer or null if it has not yet been rendered.
+	 */
+	private String pointer = null;
+
+	/**
+	 * Creates an exception with a reason why this exception was thrown.
+	 *
+	 * @param reason
+	 *        The user-friendly reason this exception was thrown.
+	 */
+	public InvalidDataException(final String reason) {
+		this(reason, null);
+	}
+
+	/**
+	 * Creates an exception with a reason and the value that caused it. The
+	 * message is the reason followed by the value's string representation.
+	 *
+	 * @param reason
+	 *        The user-friendly reason this exception was thrown.
+	 *
+	 * @param detail
+	 *        The value to append to the reason. It is kept by reference and
+	 *        is not converted to a string until the message is requested or
+	 *        this exception is serialized.
+	 */
+	public InvalidDataException(final String reason, final Object detail) {
+		this(reason, detail, null);
+	}
+
+	/**
+	 * Creates an exception with a reason, the value that caused it, and the
+	 * location of that value.
+	 *
+	 * @param reason
+	 *        The user-friendly reason this exception was thrown.
+	 *
+	 * @param detail
+	 *        The value to append to the reason. It is kept by reference and
+	 *        is not converted to a string until the message is requested or
+	 *        this exception is serialized.
+	 *
+	 * @param path
+	 *        The field names (as {@link String}s) and array indices (as
+	 *        {@link Integer}s, or {@link Long}s for indices that do not fit
+	 *        in an int) from the root of the data to the offending value or
+	 *        null if the location is unknown.
+	 */
+	public InvalidDataException(
+		final String reason,
+		final Object detail,
+		final Object[] path) {
+
+		super(reason);
+
+		this.reason = reason;
+		this.detail = detail;
+		this.path = path;
+	}
+
+	/**
+	 * Creates an exception that locates an existing exception, e.g. one that
+	 * was thrown by a custom validator.
+	 *
+	 * @param cause
+	 *        The exception that described the problem with the data. Its
+	 *        message becomes this exception's message.
+	 *
+	 * @param path
+	 *        The field names (as {@link String}s) and array indices (as
+	 *        {@link Integer}s, or {@link Long}s for indices that do not fit
+	 *        in an int) from the root of the data to the offending value or
+	 *        null if the location is unknown.
+	 */
+	public InvalidDataException(
+		final ConcordiaException cause,
+		final Object[] path) {
+
+		super(cause.getMessage(), cause);
+
+		this.reason = cause.getMessage();
+		this.detail = null;
+		this.path = path;
+	}
+
+	/**
+	 * Returns the reason followed by the detail, if any. This is rendered the
+	 * first time it is requested.
+	 *
+	 * @return The message for this exception.
+	 */
+	@Override
+	public String getMessage() {
+		if(message == null) {
+			if(detail == null) {
+				message = reason;
+			}
+			else {
+				message = reason + detail.toString();
+			}
+		}
+
+		return message;
+	}
+
+	/**
+	 * Returns the location of the offending value as a JSON Pointer, e.g.
+	 * "/field/0". The root of the data is the empty string. This is rendered
+	 * the first time it is requested.
+	 *
+	 * @return The location of the offending value or null if it is unknown.
+	 */
+	public String getPointer() {
+		if((pointer == null) && (path != null)) {
+			StringBuilder builder = new StringBuilder();
+			for(Object segment : path) {
+				builder.append('/');
+
+				// Escape the reserved characters in field names.
+				String text = segment.toString();
+				for(int i = 0; i < text.length(); i++) {
+					char c = text.charAt(i);
+					if(c == '~') {
+						builder.append("~0");
+					}
+					else if(c == '/') {
+						builder.append("~1");
+					}
+					else {
+						builder.append(c);
+					}
+				}
+			}
+			pointer = builder.toString();
+		}
+
+		return pointer;
+	}
+
+	/**
+	 * Renders the message before this exception is serialized, because the
+	 * detail is not serialized with it.
+	 *
+	 * @param out
+	 *        The stream to which this exception is being written.
+	 *
+	 * @throws IOException
+	 *         The exception could not be written.
+	 */
+	private void writeObject(
+		final ObjectOutputStream out)
+		throws IOException {
+
+		getMessage();
+		out.defaultWriteObject();
+	}
+
+	/**
+	 * Does not fill in the stack trace, because this exception reports a
+	 * problem with the data, not with the code.
+	 *
+	 * @return This exception.
+	 */
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		return this;
+	}
+}
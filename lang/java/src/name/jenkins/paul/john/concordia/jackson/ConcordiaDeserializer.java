@@ -4,6 +4,7 @@ import java.io.IOException;
 
 import name.jenkins.paul.john.concordia.Concordia;
 import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.reference.ReferenceResolver;
 import name.jenkins.paul.john.concordia.validator.ValidationController;
 
 import com.fasterxml.jackson.core.JsonParseException;
@@ -36,6 +37,11 @@ import com.fasterxml.jackson.databind.JsonDeserializer;
  * </code>
  * </pre>
  * </p>
+ * 
+ * <p>
+ * A custom {@link ReferenceResolver} may be injected the same way under the
+ * {@link Concordia#JACKSON_INJECTABLE_REFERENCE_RESOLVER} key.
+ * </p>
  *
  * @author John Jenkins
  */
@@ -76,9 +82,37 @@ public class ConcordiaDeserializer extends JsonDeserializer<Concordia> {
 			// There was no injected validation controller.
 		}
 		
+		// Check if a reference resolver was injected.
+		ReferenceResolver resolver = null;
+		try {
+			Object referenceResolverObject =
+				context
+					.findInjectableValue(
+						Concordia.JACKSON_INJECTABLE_REFERENCE_RESOLVER,
+						null,
+						null);
+
+			if(referenceResolverObject instanceof ReferenceResolver) {
+				resolver = (ReferenceResolver) referenceResolverObject;
+			}
+			else {
+				throw
+					new JsonParseException(
+						"The object referenced by the reference resolver " +
+							"key is not a reference resolver.",
+						parser.getCurrentLocation());
+			}
+		}
+		catch(IllegalStateException e) {
+			// There were no injected values.
+		}
+		catch(IllegalArgumentException e) {
+			// There was no injected reference resolver.
+		}
+		
 		// Use parser to build the Concordia object.
 		try {
-			return new Concordia(parser, controller);
+			return new Concordia(parser, controller, resolver);
 		}
 		catch(ConcordiaException e) {
 			throw
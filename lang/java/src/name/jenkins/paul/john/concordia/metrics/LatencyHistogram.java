@@ -0,0 +1,201 @@
+package name.jenkins.paul.john.concordia.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * A histogram of durations that many threads can record at once without
+ * contending with each other.
+ * </p>
+ *
+ * <p>
+ * Durations are counted in buckets whose bounds are powers of two: bucket 0
+ * holds durations of zero, and bucket <i>b</i> holds durations from
+ * 2<sup><i>b</i>-1</sup> to 2<sup><i>b</i></sup>-1 nanoseconds. Recording a
+ * duration is therefore two uncontended atomic additions, and percentiles
+ * are reported as the upper bound of their bucket, i.e. to within a factor
+ * of two.
+ * </p>
+ *
+ * <p>
+ * Like a {@link StripedCounter}, each thread updates its own row of
+ * buckets, and the rows are only added together when the histogram is read.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public final class LatencyHistogram {
+	/**
+	 * The number of buckets.
+	 */
+	public static final int BUCKETS = 64;
+
+	/**
+	 * The index of the total duration in each row.
+	 */
+	private static final int TOTAL = BUCKETS;
+	/**
+	 * The length of each row, which is the buckets and the total rounded up
+	 * to a whole number of 64-byte cache lines.
+	 */
+	private static final int ROW = BUCKETS + 8;
+
+	/**
+	 * The rows of buckets.
+	 */
+	private final AtomicLongArray rows =
+		new AtomicLongArray(Stripes.COUNT * ROW);
+
+	/**
+	 * Creates an empty histogram.
+	 */
+	public LatencyHistogram() {
+		// Do nothing.
+	}
+
+	/**
+	 * Records a duration.
+	 *
+	 * @param nanos
+	 *        The duration in nanoseconds. Negative durations, e.g. from a
+	 *        clock adjustment, are recorded as zero.
+	 */
+	public void record(final long nanos) {
+		int row = Stripes.index() * ROW;
+		if(nanos <= 0) {
+			rows.incrementAndGet(row);
+		}
+		else {
+			rows.incrementAndGet(row + getBucket(nanos));
+			rows.addAndGet(row + TOTAL, nanos);
+		}
+	}
+
+	/**
+	 * Returns the number of durations in each bucket.
+	 *
+	 * @return The number of durations in each bucket.
+	 */
+	public long[] getBuckets() {
+		long[] result = new long[BUCKETS];
+		for(int stripe = 0; stripe < Stripes.COUNT; stripe++) {
+			int row = stripe * ROW;
+			for(int bucket = 0; bucket < BUCKETS; bucket++) {
+				result[bucket] += rows.get(row + bucket);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of durations that have been recorded.
+	 *
+	 * @return The number of durations that have been recorded.
+	 */
+	public long getCount() {
+		long result = 0;
+		for(long count : getBuckets()) {
+			result += count;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the sum of the durations that have been recorded.
+	 *
+	 * @return The sum of the durations in nanoseconds.
+	 */
+	public long getTotalNanos() {
+		long result = 0;
+		for(int stripe = 0; stripe < Stripes.COUNT; stripe++) {
+			result += rows.get((stripe * ROW) + TOTAL);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns an upper bound on some percentile of the durations.
+	 *
+	 * @param percentile
+	 *        The percentile, from 0 to 100.
+	 *
+	 * @return The upper bound, in nanoseconds, of the bucket that contains
+	 *         the percentile or zero if nothing has been recorded.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The percentile is not from 0 to 100.
+	 */
+	public long getPercentile(
+		final double percentile)
+		throws IllegalArgumentException {
+
+		if((percentile < 0) || (percentile > 100)) {
+			throw
+				new IllegalArgumentException(
+					"The percentile must be from 0 to 100.");
+		}
+
+		long[] buckets = getBuckets();
+		long count = 0;
+		for(long bucket : buckets) {
+			count += bucket;
+		}
+		if(count == 0) {
+			return 0;
+		}
+
+		// Find the bucket that holds the rank.
+		long rank = Math.max(1, (long) Math.ceil(count * (percentile / 100)));
+		long seen = 0;
+		for(int bucket = 0; bucket < BUCKETS; bucket++) {
+			seen += buckets[bucket];
+			if(seen >= rank) {
+				return getUpperBound(bucket);
+			}
+		}
+		return getUpperBound(BUCKETS - 1);
+	}
+
+	/**
+	 * Returns the bucket of a positive duration.
+	 *
+	 * @param nanos
+	 *        The positive duration.
+	 *
+	 * @return The duration's bucket.
+	 */
+	static int getBucket(final long nanos) {
+		return BUCKETS - Long.numberOfLeadingZeros(nanos);
+	}
+
+	/**
+	 * Returns the largest duration that a bucket holds.
+	 *
+	 * @param bucket
+	 *        The bucket.
+	 *
+	 * @return The largest duration, in nanoseconds, that the bucket holds.
+	 */
+	static long getUpperBound(final int bucket) {
+		return (bucket == BUCKETS - 1) ? Long.MAX_VALUE : (1L << bucket) - 1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		long count = getCount();
+		return
+			"count=" + count +
+				", mean=" + ((count == 0) ? 0 : getTotalNanos() / count) +
+				"ns, p50<=" + getPercentile(50) +
+				"ns, p99<=" + getPercentile(99) +
+				"ns, max<=" + getPercentile(100) + "ns";
+	}
+}
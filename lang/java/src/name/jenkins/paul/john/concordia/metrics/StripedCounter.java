@@ -0,0 +1,83 @@
+package name.jenkins.paul.john.concordia.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * A counter that many threads can update at once without contending with
+ * each other. The count is spread across a number of cells, one of which is
+ * updated by each thread without locking, and the cells are only added
+ * together when the count is read.
+ * </p>
+ *
+ * <p>
+ * The cells are spaced a cache line apart so that threads updating
+ * different cells do not slow each other down.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public final class StripedCounter {
+	/**
+	 * The number of longs between the cells, which is one 64-byte cache
+	 * line.
+	 */
+	private static final int SPACING = 8;
+
+	/**
+	 * The cells.
+	 */
+	private final AtomicLongArray cells =
+		new AtomicLongArray(Stripes.COUNT * SPACING);
+
+	/**
+	 * Creates a counter whose count is zero.
+	 */
+	public StripedCounter() {
+		// Do nothing.
+	}
+
+	/**
+	 * Adds one to the count.
+	 */
+	public void increment() {
+		cells.incrementAndGet(Stripes.index() * SPACING);
+	}
+
+	/**
+	 * Adds to the count.
+	 *
+	 * @param amount
+	 *        The amount to add.
+	 */
+	public void add(final long amount) {
+		cells.addAndGet(Stripes.index() * SPACING, amount);
+	}
+
+	/**
+	 * Returns the count. Updates that happen while this is running may or may
+	 * not be included.
+	 *
+	 * @return The count.
+	 */
+	public long get() {
+		long result = 0;
+		for(int i = 0; i < Stripes.COUNT; i++) {
+			result += cells.get(i * SPACING);
+		}
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return Long.toString(get());
+	}
+}
@@ -0,0 +1,58 @@
+package name.jenkins.paul.john.concordia.metrics;
+
+/**
+ * <p>
+ * Chooses the stripe that the current thread updates in the striped
+ * structures in this package. Each thread always uses the same stripe, and
+ * threads are spread across the stripes by a hash of their ID, so threads
+ * rarely contend on the same memory.
+ * </p>
+ *
+ * <p>
+ * This class is immutable.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+final class Stripes {
+	/**
+	 * The maximum number of stripes.
+	 */
+	private static final int MAX_STRIPES = 64;
+
+	/**
+	 * The number of stripes, which is the smallest power of two that is at
+	 * least the number of processors, up to {@value #MAX_STRIPES}.
+	 */
+	static final int COUNT;
+	static {
+		int processors = Runtime.getRuntime().availableProcessors();
+		int count = 1;
+		while((count < processors) && (count < MAX_STRIPES)) {
+			count <<= 1;
+		}
+		COUNT = count;
+	}
+
+	/**
+	 * This class only has static members.
+	 */
+	private Stripes() {
+		// Do nothing.
+	}
+
+	/**
+	 * Returns the current thread's stripe.
+	 *
+	 * @return The current thread's stripe, from zero to one less than
+	 *         {@link #COUNT}.
+	 */
+	static int index() {
+		// Mix the bits of the ID, as IDs are usually sequential.
+		long id = Thread.currentThread().getId();
+		int hash = (int) (id ^ (id >>> 32));
+		hash *= 0x9E3779B9;
+		hash ^= hash >>> 16;
+		return hash & (COUNT - 1);
+	}
+}
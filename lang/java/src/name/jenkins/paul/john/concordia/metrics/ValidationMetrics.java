@@ -0,0 +1,296 @@
+package name.jenkins.paul.john.concordia.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import name.jenkins.paul.john.concordia.schema.Schema;
+import name.jenkins.paul.john.concordia.validator.DataValidator;
+import name.jenkins.paul.john.concordia.validator.ValidationController;
+import name.jenkins.paul.john.concordia.validator.ValidationListener;
+
+/**
+ * <p>
+ * A {@link ValidationListener} that gathers metrics about data validation:
+ * </p>
+ *
+ * <ul>
+ * <li>For each schema path, the number of values that were checked, passed,
+ * and failed.</li>
+ * <li>For each custom {@link DataValidator}, a histogram of how long it
+ * took.</li>
+ * <li>For whole documents, the number that passed and failed and a
+ * histogram of how long they took.</li>
+ * </ul>
+ *
+ * <p>
+ * All of the counts are {@link StripedCounter}s and {@link LatencyHistogram}s,
+ * so gathering metrics from many threads at once is cheap. The only shared
+ * structures are the maps from paths and validators to their metrics, which
+ * are only written the first time a path or validator is seen.
+ * </p>
+ *
+ * <p>
+ * To use it, give it to
+ * {@link ValidationController.Builder#setListener(ValidationListener)}.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public final class ValidationMetrics implements ValidationListener {
+	/**
+	 * <p>
+	 * The counts for a single schema path.
+	 * </p>
+	 *
+	 * <p>
+	 * This class is thread-safe.
+	 * </p>
+	 *
+	 * @author John Jenkins
+	 */
+	public static final class PathMetrics {
+		/**
+		 * The number of values that were checked.
+		 */
+		private final StripedCounter checked = new StripedCounter();
+		/**
+		 * The number of values that failed.
+		 */
+		private final StripedCounter failed = new StripedCounter();
+
+		/**
+		 * Creates a new, empty set of counts.
+		 */
+		private PathMetrics() {
+			// Do nothing.
+		}
+
+		/**
+		 * Returns the number of values that were checked.
+		 *
+		 * @return The number of values that were checked.
+		 */
+		public long getChecked() {
+			return checked.get();
+		}
+
+		/**
+		 * Returns the number of values that passed.
+		 *
+		 * @return The number of values that passed.
+		 */
+		public long getPassed() {
+			// Read the failures first so that this is never negative.
+			long failures = failed.get();
+			return checked.get() - failures;
+		}
+
+		/**
+		 * Returns the number of values that failed.
+		 *
+		 * @return The number of values that failed.
+		 */
+		public long getFailed() {
+			return failed.get();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			long failures = failed.get();
+			long checks = checked.get();
+			return
+				"checked=" + checks +
+					", passed=" + (checks - failures) +
+					", failed=" + failures;
+		}
+	}
+
+	/**
+	 * The counts for each schema path.
+	 */
+	private final ConcurrentMap<String, PathMetrics> paths =
+		new ConcurrentHashMap<String, PathMetrics>();
+	/**
+	 * The durations of each custom data validator.
+	 */
+	private final ConcurrentMap<DataValidator<? extends Schema>, LatencyHistogram>
+		validators =
+			new ConcurrentHashMap<DataValidator<? extends Schema>, LatencyHistogram>();
+	/**
+	 * The durations of each document.
+	 */
+	private final LatencyHistogram documents = new LatencyHistogram();
+	/**
+	 * The number of documents that failed.
+	 */
+	private final StripedCounter failedDocuments = new StripedCounter();
+
+	/**
+	 * Creates a new, empty set of metrics.
+	 */
+	public ValidationMetrics() {
+		// Do nothing.
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see name.jenkins.paul.john.concordia.validator.ValidationListener#valueChecked(java.lang.String, name.jenkins.paul.john.concordia.schema.Schema, boolean)
+	 */
+	@Override
+	public void valueChecked(
+		final String path,
+		final Schema schema,
+		final boolean passed) {
+
+		PathMetrics metrics = paths.get(path);
+		if(metrics == null) {
+			metrics = new PathMetrics();
+			PathMetrics existing = paths.putIfAbsent(path, metrics);
+			if(existing != null) {
+				metrics = existing;
+			}
+		}
+
+		// Count the check before the failure. A reader that sees the failure
+		// then also sees the check, because it reads the failures first, so
+		// the number that passed is never negative.
+		metrics.checked.increment();
+		if(!passed) {
+			metrics.failed.increment();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see name.jenkins.paul.john.concordia.validator.ValidationListener#validatorCompleted(name.jenkins.paul.john.concordia.validator.DataValidator, name.jenkins.paul.john.concordia.schema.Schema, long)
+	 */
+	@Override
+	public void validatorCompleted(
+		final DataValidator<? extends Schema> validator,
+		final Schema schema,
+		final long nanos) {
+
+		LatencyHistogram histogram = validators.get(validator);
+		if(histogram == null) {
+			histogram = new LatencyHistogram();
+			LatencyHistogram existing =
+				validators.putIfAbsent(validator, histogram);
+			if(existing != null) {
+				histogram = existing;
+			}
+		}
+
+		histogram.record(nanos);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see name.jenkins.paul.john.concordia.validator.ValidationListener#documentCompleted(long, boolean)
+	 */
+	@Override
+	public void documentCompleted(final long nanos, final boolean passed) {
+		if(!passed) {
+			failedDocuments.increment();
+		}
+		documents.record(nanos);
+	}
+
+	/**
+	 * Returns the counts for each schema path that has been seen.
+	 *
+	 * @return An unmodifiable view of the counts keyed by schema path.
+	 */
+	public Map<String, PathMetrics> getPaths() {
+		return Collections.unmodifiableMap(paths);
+	}
+
+	/**
+	 * Returns the counts for a single schema path.
+	 *
+	 * @param path
+	 *        The schema path.
+	 *
+	 * @return The counts for the schema path or null if it hasn't been seen.
+	 */
+	public PathMetrics getPath(final String path) {
+		return paths.get(path);
+	}
+
+	/**
+	 * Returns the durations of each custom data validator that has been run.
+	 *
+	 * @return An unmodifiable view of the durations keyed by validator.
+	 */
+	public Map<DataValidator<? extends Schema>, LatencyHistogram>
+		getValidators() {
+
+		return Collections.unmodifiableMap(validators);
+	}
+
+	/**
+	 * Returns the durations of whole documents.
+	 *
+	 * @return The durations of whole documents.
+	 */
+	public LatencyHistogram getDocuments() {
+		return documents;
+	}
+
+	/**
+	 * Returns the number of documents that failed.
+	 *
+	 * @return The number of documents that failed.
+	 */
+	public long getFailedDocuments() {
+		return failedDocuments.get();
+	}
+
+	/**
+	 * Returns a report of every metric with the paths in order.
+	 *
+	 * @return A report of every metric.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+
+		builder
+			.append("documents: ")
+			.append(documents)
+			.append(", failed=")
+			.append(failedDocuments.get());
+
+		for(Map.Entry<String, PathMetrics> path :
+			new TreeMap<String, PathMetrics>(paths).entrySet()) {
+
+			builder
+				.append("\npath '")
+				.append(path.getKey())
+				.append("': ")
+				.append(path.getValue());
+		}
+
+		for(Map.Entry<DataValidator<? extends Schema>, LatencyHistogram> validator :
+			validators.entrySet()) {
+
+			builder
+				.append("\nvalidator ")
+				.append(validator.getKey().getClass().getName())
+				.append(": ")
+				.append(validator.getValue());
+		}
+
+		return builder.toString();
+	}
+}
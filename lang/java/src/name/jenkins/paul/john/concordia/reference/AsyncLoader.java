@@ -0,0 +1,402 @@
+package name.jenkins.paul.john.concordia.reference;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import name.jenkins.paul.john.concordia.Concordia;
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.schema.ReferenceSchema;
+import name.jenkins.paul.john.concordia.validator.ValidationController;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * <p>
+ * Loads a schema whose references are fetched concurrently rather than one
+ * at a time. This backs
+ * {@link Concordia#loadAsync(InputStream, ValidationController, ReferenceResolver, Executor)}.
+ * </p>
+ *
+ * <p>
+ * The root schema is scanned for references and each distinct one is
+ * fetched as its own task on the given executor. As each referenced schema
+ * arrives, it is scanned in turn and any new references are fetched. No task
+ * ever waits on another; the outstanding fetches are counted, and the task
+ * that completes the last one builds the {@link Concordia} object from the
+ * fetched schemas, which validates the whole tree once.
+ * </p>
+ *
+ * <p>
+ * The fetched schemas are read into the {@link ReferenceCache} under the
+ * given resolver, just as if they had been read one at a time, and the
+ * {@link Concordia} object is built with that resolver. So, the result is
+ * equal to, and shares its referenced schemas with, a schema that is loaded
+ * directly, and the fetched bytes are not kept once it is built. A fetched
+ * schema that is invalid fails the load, even if no data ever reaches it.
+ * </p>
+ *
+ * <p>
+ * Each fetch is bounded by its resolver, e.g. the connect and read timeouts
+ * of a {@link UrlReferenceResolver}. The first failed fetch fails the load,
+ * and any fetches that have not yet started are skipped.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public final class AsyncLoader {
+	/**
+	 * <p>
+	 * A single load. It completes when the task that finishes the last
+	 * outstanding fetch runs it.
+	 * </p>
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class Load extends FutureTask<Concordia> {
+		/**
+		 * The resolver used to fetch the referenced schemas.
+		 */
+		private final ReferenceResolver resolver;
+		/**
+		 * The executor that runs the fetches.
+		 */
+		private final Executor executor;
+		/**
+		 * The fetched schemas keyed by their normalized URL. A key is added
+		 * when its fetch is scheduled, with an empty value until it completes,
+		 * so each schema is only fetched once.
+		 */
+		private final ConcurrentMap<String, byte[]> fetched;
+		/**
+		 * The number of scans that have been scheduled but have not
+		 * completed. This starts at one on behalf of the root schema.
+		 */
+		private final AtomicInteger pending = new AtomicInteger(1);
+
+		/**
+		 * Creates a new load.
+		 *
+		 * @param root
+		 *        The root schema.
+		 *
+		 * @param controller
+		 *        The controller for the Concordia object or null to use the
+		 *        default.
+		 *
+		 * @param resolver
+		 *        The resolver for the Concordia object or null to use the
+		 *        default.
+		 *
+		 * @param executor
+		 *        The executor that runs the fetches.
+		 *
+		 * @param fetched
+		 *        The map to hold the fetched schemas.
+		 */
+		private Load(
+			final byte[] root,
+			final ValidationController controller,
+			final ReferenceResolver resolver,
+			final Executor executor,
+			final ConcurrentMap<String, byte[]> fetched) {
+
+			super(
+				new Callable<Concordia>() {
+					/*
+					 * (non-Javadoc)
+					 * @see java.util.concurrent.Callable#call()
+					 */
+					@Override
+					public Concordia call()
+						throws ConcordiaException, IOException {
+
+						try {
+							ReferenceCache
+								.getInstance()
+								.preload(fetched, getResolver(resolver));
+						}
+						finally {
+							fetched.clear();
+						}
+
+						return
+							new Concordia(
+								new ByteArrayInputStream(root),
+								controller,
+								resolver);
+					}
+				});
+
+			this.resolver = getResolver(resolver);
+			this.executor = executor;
+			this.fetched = fetched;
+		}
+
+		/**
+		 * Finds the references in a schema, schedules a fetch for each one
+		 * that has not already been scheduled, and then marks the schema's
+		 * own scan as complete.
+		 *
+		 * @param schema
+		 *        The schema to scan.
+		 */
+		private void scan(final byte[] schema) {
+			if(isDone()) {
+				return;
+			}
+
+			// Find the references.
+			List<URL> references = new ArrayList<URL>();
+			try {
+				findReferences(MAPPER.readTree(schema), references);
+			}
+			catch(IOException e) {
+				// Leave it to the Concordia object to report the malformed
+				// schema.
+			}
+
+			// Schedule a fetch for each new reference.
+			for(final URL reference : references) {
+				final String key = ReferenceCache.normalize(reference);
+				if(fetched.putIfAbsent(key, EMPTY) != null) {
+					continue;
+				}
+
+				pending.incrementAndGet();
+				try {
+					executor.execute(
+						new Runnable() {
+							/*
+							 * (non-Javadoc)
+							 * @see java.lang.Runnable#run()
+							 */
+							@Override
+							public void run() {
+								fetch(reference, key);
+							}
+						});
+				}
+				catch(RejectedExecutionException e) {
+					setException(
+						new ConcordiaException(
+							"The fetch could not be scheduled: " + reference,
+							e));
+					return;
+				}
+			}
+
+			// If this was the last outstanding scan, build the result.
+			if(pending.decrementAndGet() == 0) {
+				run();
+			}
+		}
+
+		/**
+		 * Fetches a referenced schema and scans it.
+		 *
+		 * @param reference
+		 *        The URL of the schema.
+		 *
+		 * @param key
+		 *        The normalized URL of the schema.
+		 */
+		private void fetch(final URL reference, final String key) {
+			if(isDone()) {
+				return;
+			}
+
+			byte[] schema;
+			try {
+				InputStream input = resolver.resolve(reference);
+				if(input == null) {
+					throw
+						new ConcordiaException(
+							"The referenced schema could not be found: " +
+								reference);
+				}
+				try {
+					schema = readFully(input);
+				}
+				finally {
+					input.close();
+				}
+			}
+			catch(ConcordiaException e) {
+				setException(e);
+				return;
+			}
+			catch(IOException e) {
+				setException(
+					new ConcordiaException(
+						"There was an error reading the schema: " +
+							reference,
+						e));
+				return;
+			}
+			catch(RuntimeException e) {
+				setException(e);
+				return;
+			}
+
+			fetched.put(key, schema);
+			scan(schema);
+		}
+	}
+
+	/**
+	 * The placeholder for a schema whose fetch has not completed.
+	 */
+	private static final byte[] EMPTY = new byte[0];
+
+	/**
+	 * The mapper used to scan schemas for references.
+	 */
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	/**
+	 * This class only has static methods.
+	 */
+	private AsyncLoader() {
+		// Do nothing.
+	}
+
+	/**
+	 * Starts loading a schema.
+	 *
+	 * @param schema
+	 *        The root schema, which is read fully before this returns.
+	 *
+	 * @param controller
+	 *        The controller for the Concordia object or null to use the
+	 *        default.
+	 *
+	 * @param resolver
+	 *        The resolver used to fetch the referenced schemas or null to use
+	 *        {@link UrlReferenceResolver#DEFAULT_RESOLVER}.
+	 *
+	 * @param executor
+	 *        The executor that runs the fetches.
+	 *
+	 * @return The result of the load.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The schema or executor is null.
+	 *
+	 * @throws IOException
+	 *         The root schema could not be read.
+	 */
+	public static Future<Concordia> load(
+		final InputStream schema,
+		final ValidationController controller,
+		final ReferenceResolver resolver,
+		final Executor executor)
+		throws IllegalArgumentException, IOException {
+
+		if(schema == null) {
+			throw new IllegalArgumentException("The schema is null.");
+		}
+		if(executor == null) {
+			throw new IllegalArgumentException("The executor is null.");
+		}
+
+		byte[] root = readFully(schema);
+		Load load =
+			new Load(
+				root,
+				controller,
+				resolver,
+				executor,
+				new ConcurrentHashMap<String, byte[]>());
+
+		load.scan(root);
+		return load;
+	}
+
+	/**
+	 * Returns the resolver that reads the referenced schemas.
+	 *
+	 * @param resolver
+	 *        The given resolver or null to use the default.
+	 *
+	 * @return The resolver that reads the referenced schemas.
+	 */
+	private static ReferenceResolver getResolver(
+		final ReferenceResolver resolver) {
+
+		return
+			(resolver == null) ?
+				UrlReferenceResolver.DEFAULT_RESOLVER :
+				resolver;
+	}
+
+	/**
+	 * Adds every reference in a schema to a list.
+	 *
+	 * @param node
+	 *        The schema or some part of it.
+	 *
+	 * @param references
+	 *        The list to add the references to.
+	 *
+	 * @throws MalformedURLException
+	 *         A reference is not a valid URL.
+	 */
+	private static void findReferences(
+		final JsonNode node,
+		final List<URL> references)
+		throws MalformedURLException {
+
+		if(node.isObject()) {
+			JsonNode reference = node.get(ReferenceSchema.JSON_KEY_REFERENCE);
+			if((reference != null) && reference.isTextual()) {
+				references.add(new URL(reference.textValue()));
+			}
+		}
+
+		Iterator<JsonNode> children = node.elements();
+		while(children.hasNext()) {
+			findReferences(children.next(), references);
+		}
+	}
+
+	/**
+	 * Reads the remainder of a stream.
+	 *
+	 * @param input
+	 *        The stream to read.
+	 *
+	 * @return The contents of the stream.
+	 *
+	 * @throws IOException
+	 *         The stream could not be read.
+	 */
+	static byte[] readFully(final InputStream input) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+		while((read = input.read(buffer)) != -1) {
+			output.write(buffer, 0, read);
+		}
+		return output.toByteArray();
+	}
+}
@@ -0,0 +1,193 @@
+package name.jenkins.paul.john.concordia.reference;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * <p>
+ * A {@link ReferenceResolver} that reads schemas from a prebuilt catalog
+ * archive. The catalog is a ZIP or JAR file containing the schemas and an
+ * index, {@value #INDEX_ENTRY}, at its root. The index is a properties file
+ * whose keys are the names of the schema entries and whose values are the
+ * URLs they answer for, e.g.:
+ * </p>
+ *
+ * <pre>
+ * <code>
+ * schemas/person.json=http://example.com/schemas/person.json
+ * schemas/address.json=http://example.com/schemas/address.json
+ * </code>
+ * </pre>
+ *
+ * <p>
+ * The index is read once when the catalog is opened, so resolving a URL is a
+ * map lookup followed by reading the entry. URLs that are not in the index
+ * are not handled by this resolver.
+ * </p>
+ *
+ * <p>
+ * The catalog holds the archive open until it is {@link #close() closed}.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public final class CatalogReferenceResolver
+	implements ReferenceResolver, Closeable {
+
+	/**
+	 * The name of the index entry in the archive.
+	 */
+	public static final String INDEX_ENTRY = "catalog.properties";
+
+	/**
+	 * The canonical form of the archive file.
+	 */
+	private final File file;
+	/**
+	 * The open archive.
+	 */
+	private final ZipFile archive;
+	/**
+	 * The normalized URLs in the index mapped to their entries.
+	 */
+	private final Map<String, ZipEntry> index;
+
+	/**
+	 * Opens a catalog and reads its index.
+	 *
+	 * @param file
+	 *        The catalog archive.
+	 *
+	 * @throws IOException
+	 *         The archive could not be read, it has no index, or the index
+	 *         refers to an entry or URL that is invalid.
+	 */
+	public CatalogReferenceResolver(final File file) throws IOException {
+		if(file == null) {
+			throw new IOException("The catalog file is null.");
+		}
+
+		this.file = file.getCanonicalFile();
+		archive = new ZipFile(this.file);
+		try {
+			index = Collections.unmodifiableMap(readIndex(archive));
+		}
+		catch(IOException e) {
+			archive.close();
+			throw e;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see name.jenkins.paul.john.concordia.reference.ReferenceResolver#resolve(java.net.URL)
+	 */
+	@Override
+	public InputStream resolve(final URL reference) throws IOException {
+		ZipEntry entry = index.get(ReferenceCache.normalize(reference));
+		if(entry == null) {
+			return null;
+		}
+		return archive.getInputStream(entry);
+	}
+
+	/**
+	 * Closes the archive. Any further attempts to resolve a schema from this
+	 * catalog will fail.
+	 *
+	 * @throws IOException
+	 *         The archive could not be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		archive.close();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return file.hashCode();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+		if(this == obj) {
+			return true;
+		}
+		if(!(obj instanceof CatalogReferenceResolver)) {
+			return false;
+		}
+		return file.equals(((CatalogReferenceResolver) obj).file);
+	}
+
+	/**
+	 * Reads the index of a catalog.
+	 *
+	 * @param archive
+	 *        The catalog archive.
+	 *
+	 * @return The normalized URLs in the index mapped to their entries.
+	 *
+	 * @throws IOException
+	 *         The index is missing or invalid.
+	 */
+	private static Map<String, ZipEntry> readIndex(
+		final ZipFile archive)
+		throws IOException {
+
+		ZipEntry indexEntry = archive.getEntry(INDEX_ENTRY);
+		if(indexEntry == null) {
+			throw
+				new IOException(
+					"The catalog does not contain an index: " +
+						archive.getName());
+		}
+
+		Properties properties = new Properties();
+		InputStream input = archive.getInputStream(indexEntry);
+		try {
+			properties.load(input);
+		}
+		finally {
+			input.close();
+		}
+
+		Map<String, ZipEntry> result =
+			new HashMap<String, ZipEntry>(properties.size() * 2);
+		for(String name : properties.stringPropertyNames()) {
+			ZipEntry entry = archive.getEntry(name);
+			if(entry == null) {
+				throw
+					new IOException(
+						"The catalog index refers to a missing entry: " +
+							name);
+			}
+
+			result
+				.put(
+					ReferenceCache
+						.normalize(new URL(properties.getProperty(name))),
+					entry);
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,113 @@
+package name.jenkins.paul.john.concordia.reference;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <p>
+ * A {@link ReferenceResolver} that reads schemas from class path resources.
+ * Each URL beginning with a prefix is mapped to the resource with the same
+ * relative path beneath a resource directory, e.g. with a prefix of
+ * "http://example.com/schemas/" and a resource directory of "schemas/",
+ * "http://example.com/schemas/a/b.json" is read from the resource
+ * "schemas/a/b.json".
+ * </p>
+ *
+ * <p>
+ * This class is immutable.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public final class ClasspathReferenceResolver
+	extends PrefixReferenceResolver {
+
+	/**
+	 * The resource directory, which is either empty or ends with a "/".
+	 */
+	private final String resourceDirectory;
+	/**
+	 * The class loader to read the resources from.
+	 */
+	private final ClassLoader classLoader;
+
+	/**
+	 * Creates a new resolver.
+	 *
+	 * @param prefix
+	 *        The prefix of the URLs that this resolver handles.
+	 *
+	 * @param resourceDirectory
+	 *        The resource directory that contains the schemas. A null or
+	 *        empty directory is the root of the class path.
+	 *
+	 * @param classLoader
+	 *        The class loader to read the resources from. If null, the class
+	 *        loader that loaded this class is used.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The prefix is null or invalid.
+	 */
+	public ClasspathReferenceResolver(
+		final String prefix,
+		final String resourceDirectory,
+		final ClassLoader classLoader)
+		throws IllegalArgumentException {
+
+		super(prefix);
+
+		// Resource names never begin with a "/".
+		String directory = (resourceDirectory == null) ? "" : resourceDirectory;
+		while(directory.startsWith("/")) {
+			directory = directory.substring(1);
+		}
+		if((directory.length() > 0) && (!directory.endsWith("/"))) {
+			directory = directory + "/";
+		}
+		this.resourceDirectory = directory;
+
+		this.classLoader =
+			(classLoader == null) ?
+				ClasspathReferenceResolver.class.getClassLoader() :
+				classLoader;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see name.jenkins.paul.john.concordia.reference.PrefixReferenceResolver#resolve(java.lang.String)
+	 */
+	@Override
+	protected InputStream resolve(final String path) throws IOException {
+		return classLoader.getResourceAsStream(resourceDirectory + path);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = getPrefix().hashCode();
+		result = (prime * result) + resourceDirectory.hashCode();
+		result = (prime * result) + classLoader.hashCode();
+		return result;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+		if(this == obj) {
+			return true;
+		}
+		if(!(obj instanceof ClasspathReferenceResolver)) {
+			return false;
+		}
+		ClasspathReferenceResolver other = (ClasspathReferenceResolver) obj;
+		return
+			getPrefix().equals(other.getPrefix()) &&
+			resourceDirectory.equals(other.resourceDirectory) &&
+			(classLoader == other.classLoader);
+	}
+}
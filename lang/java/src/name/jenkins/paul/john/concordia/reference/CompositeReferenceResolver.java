@@ -0,0 +1,104 @@
+package name.jenkins.paul.john.concordia.reference;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * A {@link ReferenceResolver} that consults a list of other resolvers in
+ * order and uses the first one that knows the schema. For example, a local
+ * catalog may be consulted before falling back to the network, or the
+ * network may be left out entirely.
+ * </p>
+ *
+ * <p>
+ * This class is immutable.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public final class CompositeReferenceResolver implements ReferenceResolver {
+	/**
+	 * The resolvers in the order they are consulted.
+	 */
+	private final List<ReferenceResolver> resolvers;
+
+	/**
+	 * Creates a new resolver.
+	 *
+	 * @param resolvers
+	 *        The resolvers in the order they should be consulted.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The list is null or contains a null resolver.
+	 */
+	public CompositeReferenceResolver(
+		final List<? extends ReferenceResolver> resolvers)
+		throws IllegalArgumentException {
+
+		if(resolvers == null) {
+			throw new IllegalArgumentException("The resolvers are null.");
+		}
+		for(ReferenceResolver resolver : resolvers) {
+			if(resolver == null) {
+				throw new IllegalArgumentException("A resolver is null.");
+			}
+		}
+
+		this.resolvers =
+			Collections
+				.unmodifiableList(new ArrayList<ReferenceResolver>(resolvers));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see name.jenkins.paul.john.concordia.reference.ReferenceResolver#resolve(java.net.URL)
+	 */
+	@Override
+	public InputStream resolve(final URL reference) throws IOException {
+		for(ReferenceResolver resolver : resolvers) {
+			InputStream result = resolver.resolve(reference);
+			if(result != null) {
+				return result;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the resolvers in the order they are consulted.
+	 *
+	 * @return The unmodifiable list of resolvers.
+	 */
+	public List<ReferenceResolver> getResolvers() {
+		return resolvers;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return resolvers.hashCode();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+		if(this == obj) {
+			return true;
+		}
+		if(!(obj instanceof CompositeReferenceResolver)) {
+			return false;
+		}
+		return
+			resolvers.equals(((CompositeReferenceResolver) obj).resolvers);
+	}
+}
@@ -0,0 +1,116 @@
+package name.jenkins.paul.john.concordia.reference;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <p>
+ * A {@link ReferenceResolver} that reads schemas from a local directory tree.
+ * Each URL beginning with a prefix is mapped to the file with the same
+ * relative path beneath the directory, e.g. with a prefix of
+ * "http://example.com/schemas/", "http://example.com/schemas/a/b.json" is
+ * read from "a/b.json" in the directory.
+ * </p>
+ *
+ * <p>
+ * This class is immutable.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public final class DirectoryReferenceResolver
+	extends PrefixReferenceResolver {
+
+	/**
+	 * The canonical form of the directory.
+	 */
+	private final File directory;
+
+	/**
+	 * Creates a new resolver.
+	 *
+	 * @param prefix
+	 *        The prefix of the URLs that this resolver handles.
+	 *
+	 * @param directory
+	 *        The directory that contains the schemas.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The prefix is null or invalid or the directory is null or not a
+	 *         directory.
+	 */
+	public DirectoryReferenceResolver(
+		final String prefix,
+		final File directory)
+		throws IllegalArgumentException {
+
+		super(prefix);
+
+		if(directory == null) {
+			throw new IllegalArgumentException("The directory is null.");
+		}
+		if(!directory.isDirectory()) {
+			throw
+				new IllegalArgumentException(
+					"The directory is not a directory: " + directory);
+		}
+
+		try {
+			this.directory = directory.getCanonicalFile();
+		}
+		catch(IOException e) {
+			throw
+				new IllegalArgumentException(
+					"The directory could not be resolved: " + directory,
+					e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see name.jenkins.paul.john.concordia.reference.PrefixReferenceResolver#resolve(java.lang.String)
+	 */
+	@Override
+	protected InputStream resolve(final String path) throws IOException {
+		File file = (new File(directory, path)).getCanonicalFile();
+
+		// Guard against links that lead out of the directory.
+		if(!file.getPath().startsWith(directory.getPath() + File.separator)) {
+			throw
+				new IOException(
+					"The reference is outside of the directory: " + path);
+		}
+
+		if(!file.isFile()) {
+			return null;
+		}
+		return new FileInputStream(file);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return (31 * getPrefix().hashCode()) + directory.hashCode();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+		if(this == obj) {
+			return true;
+		}
+		if(!(obj instanceof DirectoryReferenceResolver)) {
+			return false;
+		}
+		DirectoryReferenceResolver other = (DirectoryReferenceResolver) obj;
+		return
+			getPrefix().equals(other.getPrefix()) &&
+			directory.equals(other.directory);
+	}
+}
@@ -0,0 +1,211 @@
+package name.jenkins.paul.john.concordia.reference;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+/**
+ * <p>
+ * The base class for {@link ReferenceResolver}s that map every URL beginning
+ * with some prefix to a local store of schemas. The remainder of the URL is
+ * treated as a relative path within that store.
+ * </p>
+ *
+ * <p>
+ * URLs are {@link ReferenceCache#normalize(URL) normalized} before they are
+ * compared to the prefix, which always ends with a "/" so that it only
+ * matches whole path segments. The relative path is percent-decoded, so
+ * "a%20b.json" is the schema named "a b.json". Relative paths that would
+ * escape the store, i.e. that contain a ".." segment, are rejected.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+abstract class PrefixReferenceResolver implements ReferenceResolver {
+	/**
+	 * The normalized prefix of the URLs that this resolver handles, which
+	 * ends with a "/".
+	 */
+	private final String prefix;
+	/**
+	 * The decoded path of the prefix or null if the prefix is not a
+	 * hierarchical URI.
+	 */
+	private final String prefixPath;
+
+	/**
+	 * Creates a new resolver.
+	 *
+	 * @param prefix
+	 *        The prefix of the URLs that this resolver handles, e.g.
+	 *        "http://example.com/schemas/". If it does not end with a "/",
+	 *        one is added.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The prefix is null or not a valid URL.
+	 */
+	protected PrefixReferenceResolver(
+		final String prefix)
+		throws IllegalArgumentException {
+
+		if(prefix == null) {
+			throw new IllegalArgumentException("The prefix is null.");
+		}
+
+		String normalized;
+		try {
+			normalized = ReferenceCache.normalize(new URL(prefix));
+		}
+		catch(IOException e) {
+			throw
+				new IllegalArgumentException(
+					"The prefix is not a valid URL: " + prefix,
+					e);
+		}
+		if(! normalized.endsWith("/")) {
+			normalized += "/";
+		}
+		this.prefix = normalized;
+
+		String path = null;
+		try {
+			URI uri = new URI(normalized);
+			if(! uri.isOpaque()) {
+				path = uri.getPath();
+			}
+		}
+		catch(URISyntaxException e) {
+			// The prefix is not a valid URI, so paths cannot be decoded.
+		}
+		prefixPath = path;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see name.jenkins.paul.john.concordia.reference.ReferenceResolver#resolve(java.net.URL)
+	 */
+	@Override
+	public final InputStream resolve(final URL reference) throws IOException {
+		String path = getPath(reference);
+		if(path == null) {
+			return null;
+		}
+
+		// Make sure the path cannot escape the store.
+		for(String segment : path.split("/")) {
+			if("..".equals(segment)) {
+				throw
+					new IOException(
+						"The reference is outside of the resolver's root: " +
+							reference);
+			}
+		}
+
+		return resolve(path);
+	}
+
+	/**
+	 * Returns the prefix of the URLs that this resolver handles.
+	 *
+	 * @return The normalized prefix of the URLs that this resolver handles.
+	 */
+	public String getPrefix() {
+		return prefix;
+	}
+
+	/**
+	 * Returns the path of a schema relative to the prefix, without any query
+	 * or fragment and with any percent-encoding decoded.
+	 *
+	 * @param reference
+	 *        The schema's URL.
+	 *
+	 * @return The schema's relative path or null if the URL does not begin
+	 *         with the prefix.
+	 */
+	String getPath(final URL reference) {
+		String url = ReferenceCache.normalize(reference);
+		if(! url.startsWith(prefix)) {
+			return null;
+		}
+
+		if(prefixPath != null) {
+			try {
+				URI uri = new URI(url);
+				if(! uri.isOpaque()) {
+					// The prefix ends with a "/", so no escape sequence spans
+					// it and the decoded path begins with its decoded path.
+					return uri.getPath().substring(prefixPath.length());
+				}
+			}
+			catch(URISyntaxException e) {
+				// Use the path as-is.
+			}
+		}
+
+		// Strip any query or fragment from the path.
+		String path = url.substring(prefix.length());
+		for(int i = 0; i < path.length(); i++) {
+			char c = path.charAt(i);
+			if((c == '?') || (c == '#')) {
+				return path.substring(0, i);
+			}
+		}
+		return path;
+	}
+
+	/**
+	 * Returns the URL of a schema given its path relative to the prefix. This
+	 * is the inverse of {@link #getPath(URL)}.
+	 *
+	 * @param path
+	 *        The schema's relative path, which is not percent-encoded.
+	 *
+	 * @return The schema's URL.
+	 *
+	 * @throws MalformedURLException
+	 *         The path does not form a valid URL.
+	 */
+	URL getUrl(final String path) throws MalformedURLException {
+		if(prefixPath != null) {
+			try {
+				URI uri = new URI(prefix);
+				return
+					new URI(
+						uri.getScheme(),
+						uri.getUserInfo(),
+						uri.getHost(),
+						uri.getPort(),
+						prefixPath + path,
+						null,
+						null)
+						.toURL();
+			}
+			catch(URISyntaxException e) {
+				// Use the path as-is.
+			}
+		}
+
+		return new URL(prefix + path);
+	}
+
+	/**
+	 * Opens the definition of a schema given its path relative to the prefix.
+	 *
+	 * @param path
+	 *        The path of the schema relative to the prefix, which will not
+	 *        contain any ".." segments.
+	 *
+	 * @return A stream containing the schema's definition or null if there
+	 *         is no such schema.
+	 *
+	 * @throws IOException
+	 *         The schema exists but could not be read.
+	 */
+	protected abstract InputStream resolve(
+		final String path)
+		throws IOException;
+}
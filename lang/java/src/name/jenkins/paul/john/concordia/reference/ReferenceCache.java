@@ -0,0 +1,665 @@
+package name.jenkins.paul.john.concordia.reference;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import name.jenkins.paul.john.concordia.Concordia;
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.schema.ReferenceSchema;
+import name.jenkins.paul.john.concordia.schema.Schema;
+import name.jenkins.paul.john.concordia.validator.ValidationController;
+
+/**
+ * <p>
+ * A cache of the schemas that {@link ReferenceSchema}s refer to.
+ * </p>
+ *
+ * <p>
+ * Each schema is keyed by its normalized URL and the
+ * {@link ReferenceResolver} that read it, so different spellings of the same
+ * location, e.g. with a differently-cased host or with "." and ".."
+ * segments, share one entry. {@link URL#equals(Object)} is never used, as it
+ * may block to resolve host names.
+ * </p>
+ *
+ * <p>
+ * The cache holds at most a fixed number of schemas, evicting the least
+ * recently used first, and each schema expires a fixed amount of time after
+ * it was read. If multiple threads request the same schema at the same time,
+ * it is only read once and every thread is given the same result. Failures
+ * are never cached.
+ * </p>
+ *
+ * <p>
+ * Because schemas are immutable, the cached schemas are shared between every
+ * {@link ReferenceSchema} that refers to them.
+ * </p>
+ *
+ * <p>
+ * Reading a schema only reads the schemas it extends, as the rest are read
+ * lazily by their {@link ReferenceSchema}. If the schemas being read extend
+ * each other, reading them would never finish, so this is detected and
+ * reported instead, whether the schemas are being read by one thread or by
+ * several threads that are waiting on each other.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public final class ReferenceCache {
+	/**
+	 * The default maximum number of schemas to cache.
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 256;
+	/**
+	 * The default number of milliseconds a schema is cached.
+	 */
+	public static final long DEFAULT_TIME_TO_LIVE =
+		TimeUnit.MILLISECONDS.convert(10, TimeUnit.MINUTES);
+
+	/**
+	 * The cache used by {@link ReferenceSchema}s.
+	 */
+	private static final ReferenceCache INSTANCE =
+		new ReferenceCache(DEFAULT_MAX_ENTRIES, DEFAULT_TIME_TO_LIVE);
+
+	/**
+	 * <p>
+	 * A cached schema, which may still be loading.
+	 * </p>
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class CachedSchema {
+		/**
+		 * The task that reads the schema.
+		 */
+		private final FutureTask<Schema> task;
+		/**
+		 * The time, per {@link System#nanoTime()}, when this entry expires.
+		 */
+		private final long expires;
+		/**
+		 * The thread that is reading the schema or null once it has been
+		 * read.
+		 */
+		private volatile Thread owner;
+
+		/**
+		 * Creates a new entry.
+		 *
+		 * @param task
+		 *        The task that reads the schema.
+		 *
+		 * @param expires
+		 *        The time, per {@link System#nanoTime()}, when this entry
+		 *        expires.
+		 *
+		 * @param owner
+		 *        The thread that will read the schema.
+		 */
+		private CachedSchema(
+			final FutureTask<Schema> task,
+			final long expires,
+			final Thread owner) {
+
+			this.task = task;
+			this.expires = expires;
+			this.owner = owner;
+		}
+	}
+
+	/**
+	 * <p>
+	 * The key for a cached schema.
+	 * </p>
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class Key {
+		/**
+		 * The normalized URL of the schema.
+		 */
+		private final String url;
+		/**
+		 * The resolver that reads the schema.
+		 */
+		private final ReferenceResolver resolver;
+
+		/**
+		 * Creates a new key.
+		 *
+		 * @param url
+		 *        The normalized URL of the schema.
+		 *
+		 * @param resolver
+		 *        The resolver that reads the schema.
+		 */
+		private Key(final String url, final ReferenceResolver resolver) {
+			this.url = url;
+			this.resolver = resolver;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return (31 * url.hashCode()) + resolver.hashCode();
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(final Object obj) {
+			if(this == obj) {
+				return true;
+			}
+			if(!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return url.equals(other.url) && resolver.equals(other.resolver);
+		}
+	}
+
+	/**
+	 * The keys that the current thread is loading, which is used to detect a
+	 * schema that refers to itself.
+	 */
+	private static final ThreadLocal<Set<Key>> LOADING =
+		new ThreadLocal<Set<Key>>() {
+			/*
+			 * (non-Javadoc)
+			 * @see java.lang.ThreadLocal#initialValue()
+			 */
+			@Override
+			protected Set<Key> initialValue() {
+				return new HashSet<Key>();
+			}
+		};
+
+	/**
+	 * The schemas that the current thread is {@link #preload(Map,
+	 * ReferenceResolver) preloading}, keyed by their normalized URL, or null
+	 * if there are none.
+	 */
+	private static final ThreadLocal<Map<String, byte[]>> PREFETCHED =
+		new ThreadLocal<Map<String, byte[]>>();
+
+	/**
+	 * The entry that each thread is waiting on, which is used to detect
+	 * threads that are reading schemas that refer to each other.
+	 */
+	private static final ConcurrentMap<Thread, CachedSchema> WAITING =
+		new ConcurrentHashMap<Thread, CachedSchema>();
+
+	/**
+	 * The maximum number of schemas to cache.
+	 */
+	private final int maxEntries;
+	/**
+	 * The number of nanoseconds each schema is cached.
+	 */
+	private final long timeToLive;
+	/**
+	 * The cached schemas in least-recently-used order. All access must be
+	 * synchronized on this map.
+	 */
+	private final Map<Key, CachedSchema> entries;
+
+	/**
+	 * Creates a new, empty cache.
+	 *
+	 * @param maxEntries
+	 *        The maximum number of schemas to cache.
+	 *
+	 * @param timeToLive
+	 *        The number of milliseconds each schema is cached.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The maximum number of entries or the time to live is not
+	 *         positive.
+	 */
+	public ReferenceCache(
+		final int maxEntries,
+		final long timeToLive)
+		throws IllegalArgumentException {
+
+		if(maxEntries <= 0) {
+			throw
+				new IllegalArgumentException(
+					"The maximum number of entries must be positive.");
+		}
+		if(timeToLive <= 0) {
+			throw
+				new IllegalArgumentException(
+					"The time to live must be positive.");
+		}
+
+		this.maxEntries = maxEntries;
+		this.timeToLive =
+			TimeUnit.NANOSECONDS.convert(timeToLive, TimeUnit.MILLISECONDS);
+		entries = new LinkedHashMap<Key, CachedSchema>(16, 0.75f, true) {
+			/**
+			 * An ID for this class for serialization purposes.
+			 */
+			private static final long serialVersionUID = 1L;
+
+			/*
+			 * (non-Javadoc)
+			 * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+			 */
+			@Override
+			protected boolean removeEldestEntry(
+				final Map.Entry<Key, CachedSchema> eldest) {
+
+				return size() > ReferenceCache.this.maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cache that is used by {@link ReferenceSchema}s.
+	 *
+	 * @return The cache that is used by {@link ReferenceSchema}s.
+	 */
+	public static ReferenceCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the schema at some URL, reading it with the
+	 * {@link UrlReferenceResolver#DEFAULT_RESOLVER default resolver} if it is
+	 * not already cached.
+	 *
+	 * @param reference
+	 *        The URL of the schema.
+	 *
+	 * @return The schema at the URL.
+	 *
+	 * @throws ConcordiaException
+	 *         The schema could not be read, was invalid, or refers back to
+	 *         itself.
+	 */
+	public Schema get(final URL reference) throws ConcordiaException {
+		return get(reference, UrlReferenceResolver.DEFAULT_RESOLVER);
+	}
+
+	/**
+	 * Returns the schema at some URL, reading it with the given resolver if
+	 * it is not already cached. Any references within the schema are also
+	 * read with the given resolver.
+	 *
+	 * @param reference
+	 *        The URL of the schema.
+	 *
+	 * @param resolver
+	 *        The resolver to read the schema with.
+	 *
+	 * @return The schema at the URL.
+	 *
+	 * @throws ConcordiaException
+	 *         The schema could not be found or read, was invalid, or refers
+	 *         back to itself.
+	 */
+	public Schema get(
+		final URL reference,
+		final ReferenceResolver resolver)
+		throws ConcordiaException {
+
+		if(reference == null) {
+			throw new ConcordiaException("The reference URL is null.");
+		}
+		if(resolver == null) {
+			throw new ConcordiaException("The resolver is null.");
+		}
+
+		final Key key = new Key(normalize(reference), resolver);
+
+		// A schema that is already being read by this thread can only be
+		// requested again if it refers back to itself, which would otherwise
+		// never finish.
+		Set<Key> loading = LOADING.get();
+		if(loading.contains(key)) {
+			throw
+				new ConcordiaException(
+					"The referenced schema refers back to itself: " +
+						key.url);
+		}
+
+		// Find the entry or, if there isn't a live one, add one.
+		CachedSchema entry;
+		boolean owner = false;
+		synchronized(entries) {
+			entry = entries.get(key);
+			if((entry == null) || (System.nanoTime() - entry.expires > 0)) {
+				entry =
+					new CachedSchema(
+						new FutureTask<Schema>(
+							new Callable<Schema>() {
+								/*
+								 * (non-Javadoc)
+								 * @see java.util.concurrent.Callable#call()
+								 */
+								@Override
+								public Schema call()
+									throws ConcordiaException {
+
+									return load(reference, resolver);
+								}
+							}),
+						System.nanoTime() + timeToLive,
+						Thread.currentThread());
+				entries.put(key, entry);
+				owner = true;
+			}
+		}
+
+		// If this thread added the entry, it is responsible for reading it.
+		if(owner) {
+			loading.add(key);
+			try {
+				entry.task.run();
+			}
+			finally {
+				loading.remove(key);
+				entry.owner = null;
+			}
+		}
+
+		// Wait for the schema to be read.
+		try {
+			if(!entry.task.isDone()) {
+				awaitWithoutCycle(key, entry);
+			}
+			return entry.task.get();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw
+				new ConcordiaException(
+					"Interrupted while waiting for the schema.",
+					e);
+		}
+		catch(ExecutionException e) {
+			// Don't cache failures.
+			synchronized(entries) {
+				if(entries.get(key) == entry) {
+					entries.remove(key);
+				}
+			}
+
+			Throwable cause = e.getCause();
+			if(cause instanceof ConcordiaException) {
+				throw (ConcordiaException) cause;
+			}
+			else if(cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			else if(cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw
+				new ConcordiaException(
+					"There was an error reading the schema.",
+					cause);
+		}
+	}
+
+	/**
+	 * Removes the schema at some URL from the cache, regardless of which
+	 * resolver read it.
+	 *
+	 * @param reference
+	 *        The URL of the schema.
+	 */
+	public void invalidate(final URL reference) {
+		String url = normalize(reference);
+		synchronized(entries) {
+			Iterator<Key> keys = entries.keySet().iterator();
+			while(keys.hasNext()) {
+				if(keys.next().url.equals(url)) {
+					keys.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes every schema from the cache.
+	 */
+	public void clear() {
+		synchronized(entries) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Returns the number of schemas that are cached, including any that are
+	 * still being read or that have expired but have not yet been removed.
+	 *
+	 * @return The number of schemas that are cached.
+	 */
+	public int size() {
+		synchronized(entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * Reads schemas that were fetched in advance into the cache, just as if
+	 * they had been read with the resolver, unless they are already cached.
+	 * The entries are keyed by the resolver, so they are shared with
+	 * everything else that reads the same schemas with it, and the fetched
+	 * bytes are not kept.
+	 *
+	 * @param schemas
+	 *        The fetched schemas keyed by their normalized URL.
+	 *
+	 * @param resolver
+	 *        The resolver that fetched the schemas, which reads any that they
+	 *        refer to that were not fetched.
+	 *
+	 * @throws ConcordiaException
+	 *         A schema was invalid or refers back to itself.
+	 */
+	void preload(
+		final Map<String, byte[]> schemas,
+		final ReferenceResolver resolver)
+		throws ConcordiaException {
+
+		PREFETCHED.set(schemas);
+		try {
+			for(String url : schemas.keySet()) {
+				try {
+					get(new URL(url), resolver);
+				}
+				catch(MalformedURLException e) {
+					throw
+						new ConcordiaException(
+							"The referenced URL is invalid: " + url,
+							e);
+				}
+			}
+		}
+		finally {
+			PREFETCHED.remove();
+		}
+	}
+
+	/**
+	 * Waits for another thread to read a schema, unless that thread is,
+	 * directly or through other threads, waiting on a schema that this thread
+	 * is reading. Each waiting thread records the entry it is waiting on
+	 * before checking, so, of the threads that close a cycle, at least the
+	 * last one to check will find it.
+	 *
+	 * @param key
+	 *        The key of the schema.
+	 *
+	 * @param entry
+	 *        The entry of the schema.
+	 *
+	 * @throws ConcordiaException
+	 *         Waiting would never finish.
+	 *
+	 * @throws ExecutionException
+	 *         The schema could not be read.
+	 *
+	 * @throws InterruptedException
+	 *         The thread was interrupted while waiting.
+	 */
+	private static void awaitWithoutCycle(
+		final Key key,
+		final CachedSchema entry)
+		throws
+			ConcordiaException,
+			ExecutionException,
+			InterruptedException {
+
+		Thread current = Thread.currentThread();
+		WAITING.put(current, entry);
+		try {
+			// Follow the owners until one isn't waiting. The number of steps
+			// is bounded in case the threads change while this is running.
+			CachedSchema next = entry;
+			for(int i = WAITING.size(); (next != null) && (i >= 0); i--) {
+				Thread owner = next.owner;
+				if(owner == null) {
+					break;
+				}
+				if(owner == current) {
+					throw
+						new ConcordiaException(
+							"The referenced schema refers back to itself: " +
+								key.url);
+				}
+				next = WAITING.get(owner);
+			}
+
+			entry.task.get();
+		}
+		finally {
+			WAITING.remove(current);
+		}
+	}
+
+	/**
+	 * Reads and validates the schema at some URL.
+	 *
+	 * @param reference
+	 *        The URL of the schema.
+	 *
+	 * @param resolver
+	 *        The resolver to read the schema and its references with.
+	 *
+	 * @return The schema.
+	 *
+	 * @throws ConcordiaException
+	 *         The schema could not be found or read or was invalid.
+	 */
+	private static Schema load(
+		final URL reference,
+		final ReferenceResolver resolver)
+		throws ConcordiaException {
+
+		try {
+			// Use the schema if it was fetched in advance.
+			InputStream inputStream;
+			Map<String, byte[]> prefetched = PREFETCHED.get();
+			byte[] schema =
+				(prefetched == null) ?
+					null :
+					prefetched.get(normalize(reference));
+			if(schema == null) {
+				inputStream = resolver.resolve(reference);
+			}
+			else {
+				inputStream = new ByteArrayInputStream(schema);
+			}
+
+			if(inputStream == null) {
+				throw
+					new ConcordiaException(
+						"The referenced schema could not be found: " +
+							reference);
+			}
+
+			try {
+				return
+					new Concordia(
+						inputStream,
+						ValidationController.BASIC_CONTROLLER,
+						resolver)
+						.getSchema();
+			}
+			finally {
+				inputStream.close();
+			}
+		}
+		catch(IOException e) {
+			throw
+				new ConcordiaException(
+					"There was an error reading the schema.",
+					e);
+		}
+	}
+
+	/**
+	 * Normalizes a URL so that different spellings of the same location have
+	 * the same key. The scheme and host are lower-cased, and "." and ".."
+	 * path segments are removed.
+	 *
+	 * @param reference
+	 *        The URL to normalize.
+	 *
+	 * @return The normalized form of the URL.
+	 */
+	public static String normalize(final URL reference) {
+		try {
+			URI uri = reference.toURI();
+			if(uri.isOpaque()) {
+				return uri.toString();
+			}
+
+			String scheme = uri.getScheme();
+			String host = uri.getHost();
+			return
+				(new URI(
+					(scheme == null) ? null : scheme.toLowerCase(),
+					uri.getUserInfo(),
+					(host == null) ? null : host.toLowerCase(),
+					uri.getPort(),
+					uri.getPath(),
+					uri.getQuery(),
+					uri.getFragment()))
+					.normalize()
+					.toString();
+		}
+		catch(URISyntaxException e) {
+			// The URL is not a valid URI, so use it as-is.
+			return reference.toExternalForm();
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package name.jenkins.paul.john.concordia.reference;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+import name.jenkins.paul.john.concordia.schema.ReferenceSchema;
+
+/**
+ * <p>
+ * Locates the schemas that {@link ReferenceSchema}s refer to.
+ * </p>
+ *
+ * <p>
+ * A resolver is given the URL of a referenced schema and returns a stream
+ * containing its definition. It does not need to actually connect to the
+ * URL; it may instead use the URL as a key into some local store of schemas.
+ * Resolved schemas are cached by the {@link ReferenceCache} per resolver, so
+ * implementations should define {@link Object#equals(Object)} and
+ * {@link Object#hashCode()} such that resolvers that would return the same
+ * schemas are equal.
+ * </p>
+ *
+ * <p>
+ * Implementations must be thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public interface ReferenceResolver {
+	/**
+	 * Opens the definition of a referenced schema.
+	 *
+	 * @param reference
+	 *        The URL of the schema.
+	 *
+	 * @return A stream containing the schema's definition, which the caller
+	 *         must close, or null if this resolver does not know the schema.
+	 *
+	 * @throws IOException
+	 *         This resolver knows the schema but could not read it.
+	 */
+	public InputStream resolve(final URL reference) throws IOException;
+}
@@ -0,0 +1,708 @@
+package name.jenkins.paul.john.concordia.reference;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import name.jenkins.paul.john.concordia.Concordia;
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.schema.ReferenceSchema;
+import name.jenkins.paul.john.concordia.schema.Schema;
+import name.jenkins.paul.john.concordia.validator.ValidationController;
+
+/**
+ * <p>
+ * A registry of the schemas in a directory, which can be kept up to date
+ * while they are in use. Each ".json" file in the directory tree is loaded
+ * as a {@link Concordia} object and looked up by its path relative to the
+ * directory, e.g. "a/b.json". References to URLs beginning with the
+ * registry's prefix are read from the directory, as with a
+ * {@link DirectoryReferenceResolver}.
+ * </p>
+ *
+ * <p>
+ * Each {@link #refresh()} finds the files that were added, changed, or
+ * removed, by their modification times and lengths, and the files that
+ * refer to them, directly or indirectly. A file whose modification time is
+ * too close to when it was read to rule out a later edit in the same clock
+ * tick is also compared by a checksum of its contents. Only those are read and compiled
+ * again, and every reference they contain is read in advance, so validating
+ * data never waits on a file. A file that cannot be loaded keeps its
+ * previous version, and the failure is reported by {@link #getErrors()}.
+ * Once every affected file has been handled, the new versions are swapped
+ * in at once, so a lookup sees either all of the old versions or all of the
+ * new ones.
+ * </p>
+ *
+ * <p>
+ * The registry can {@link #start(long, TimeUnit) poll} the directory on a
+ * background thread. Lookups read an immutable map through a volatile
+ * field, so they never wait on a refresh.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public final class SchemaRegistry {
+	/**
+	 * The suffix of the files that are loaded.
+	 */
+	public static final String SUFFIX = ".json";
+
+	/**
+	 * The coarsest resolution of file modification times that is allowed
+	 * for, in milliseconds, e.g. FAT's two seconds.
+	 */
+	private static final long TIMESTAMP_RESOLUTION = 2000;
+
+	/**
+	 * <p>
+	 * What was last loaded from a file.
+	 * </p>
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class Entry {
+		/**
+		 * The file's modification time when it was loaded.
+		 */
+		private final long modified;
+		/**
+		 * The file's length when it was loaded.
+		 */
+		private final long length;
+		/**
+		 * The CRC-32 of the file's contents when it was loaded or -1 if they
+		 * could not be read.
+		 */
+		private final long checksum;
+		/**
+		 * The paths of the files that the file refers to.
+		 */
+		private final Set<String> references;
+		/**
+		 * The time the contents were last known to match the checksum. An
+		 * edit after this time that keeps the length changes the
+		 * modification time unless it falls within the same clock tick.
+		 */
+		private long checked;
+
+		/**
+		 * Creates a new entry.
+		 *
+		 * @param modified
+		 *        The file's modification time before it was read.
+		 *
+		 * @param length
+		 *        The file's length before it was read.
+		 *
+		 * @param checked
+		 *        The time just before the file was read.
+		 *
+		 * @param checksum
+		 *        The CRC-32 of the contents that were read or -1 if they could
+		 *        not be read.
+		 *
+		 * @param references
+		 *        The paths of the files that the file refers to.
+		 */
+		private Entry(
+			final long modified,
+			final long length,
+			final long checked,
+			final long checksum,
+			final Set<String> references) {
+
+			this.modified = modified;
+			this.length = length;
+			this.checked = checked;
+			this.checksum = checksum;
+			this.references = references;
+		}
+
+		/**
+		 * Returns whether or not a file has changed since it was loaded. If
+		 * its modification time and length are the same but it could have
+		 * been edited within the same clock tick, its contents are compared.
+		 *
+		 * @param file
+		 *        The file.
+		 *
+		 * @return Whether or not the file has changed.
+		 */
+		private boolean isChanged(final File file) {
+			if((file.lastModified() != modified) ||
+				(file.length() != length)) {
+
+				return true;
+			}
+			if(modified + TIMESTAMP_RESOLUTION < checked) {
+				return false;
+			}
+
+			long now = System.currentTimeMillis();
+			if(checksum(file) != checksum) {
+				return true;
+			}
+			checked = now;
+			return false;
+		}
+	}
+
+	/**
+	 * The directory that contains the schemas.
+	 */
+	private final File directory;
+	/**
+	 * The resolver for references to the schemas in the directory.
+	 */
+	private final DirectoryReferenceResolver resolver;
+	/**
+	 * The controller that validates and compiles the schemas.
+	 */
+	private final ValidationController controller;
+
+	/**
+	 * The loaded schemas keyed by their paths. This map is never modified;
+	 * it is replaced.
+	 */
+	private volatile Map<String, Concordia> schemas =
+		Collections.emptyMap();
+	/**
+	 * The reasons the files that could not be loaded failed, keyed by their
+	 * paths. This map is never modified; it is replaced.
+	 */
+	private volatile Map<String, ConcordiaException> errors =
+		Collections.emptyMap();
+
+	/**
+	 * What was last loaded from each file, keyed by its path. All access
+	 * must be synchronized on this registry.
+	 */
+	private final Map<String, Entry> entries = new HashMap<String, Entry>();
+	/**
+	 * The thread that polls the directory or null if it is not being
+	 * polled. All access must be synchronized on this registry.
+	 */
+	private ScheduledExecutorService poller = null;
+
+	/**
+	 * Creates a registry and loads the schemas in a directory.
+	 *
+	 * @param prefix
+	 *        The prefix of the URLs that refer to the schemas in the
+	 *        directory, e.g. "http://example.com/schemas/".
+	 *
+	 * @param directory
+	 *        The directory that contains the schemas.
+	 *
+	 * @param controller
+	 *        The controller for the schemas or null, in which case
+	 *        {@link ValidationController#BASIC_CONTROLLER} is used.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The prefix is null or invalid or the directory is null or not a
+	 *         directory.
+	 */
+	public SchemaRegistry(
+		final String prefix,
+		final File directory,
+		final ValidationController controller)
+		throws IllegalArgumentException {
+
+		resolver = new DirectoryReferenceResolver(prefix, directory);
+		try {
+			this.directory = directory.getCanonicalFile();
+		}
+		catch(IOException e) {
+			throw
+				new IllegalArgumentException(
+					"The directory could not be resolved: " + directory,
+					e);
+		}
+		this.controller =
+			(controller == null) ?
+				ValidationController.BASIC_CONTROLLER :
+				controller;
+
+		refresh();
+	}
+
+	/**
+	 * Returns the schema at some path.
+	 *
+	 * @param path
+	 *        The path of the schema relative to the directory, e.g.
+	 *        "a/b.json".
+	 *
+	 * @return The schema or null if there is no such schema or it has never
+	 *         been loaded successfully.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The path is null.
+	 */
+	public Concordia get(final String path) throws IllegalArgumentException {
+		if(path == null) {
+			throw new IllegalArgumentException("The path is null.");
+		}
+
+		return schemas.get(path);
+	}
+
+	/**
+	 * Returns every loaded schema.
+	 *
+	 * @return An unmodifiable map of the schemas' paths to the schemas.
+	 */
+	public Map<String, Concordia> getSchemas() {
+		return schemas;
+	}
+
+	/**
+	 * Returns the reasons that the files that could not be loaded, when they
+	 * were last changed, failed. Those files' previous versions, if any, are
+	 * still in use.
+	 *
+	 * @return An unmodifiable map of the files' paths to the reasons.
+	 */
+	public Map<String, ConcordiaException> getErrors() {
+		return errors;
+	}
+
+	/**
+	 * Returns the resolver for references to the schemas in the directory.
+	 *
+	 * @return The resolver for references to the schemas in the directory.
+	 */
+	public DirectoryReferenceResolver getResolver() {
+		return resolver;
+	}
+
+	/**
+	 * Loads the files that were added or changed since the last refresh, the
+	 * files that refer to them or to removed files, and swaps them in.
+	 *
+	 * @return The paths of the schemas that were replaced, added, or removed.
+	 */
+	public synchronized Set<String> refresh() {
+		// Find the files that were added, changed, or removed.
+		Map<String, File> files = new HashMap<String, File>();
+		scan(directory, "", files);
+		Set<String> affected = new HashSet<String>();
+		for(Map.Entry<String, File> file : files.entrySet()) {
+			Entry entry = entries.get(file.getKey());
+			if((entry == null) || entry.isChanged(file.getValue())) {
+				affected.add(file.getKey());
+			}
+		}
+		for(String path : entries.keySet()) {
+			if(! files.containsKey(path)) {
+				affected.add(path);
+			}
+		}
+		if(affected.isEmpty()) {
+			return Collections.emptySet();
+		}
+
+		// Add every file that refers to an affected one until there are no
+		// more.
+		boolean added;
+		do {
+			added = false;
+			for(Map.Entry<String, Entry> entry : entries.entrySet()) {
+				if((! affected.contains(entry.getKey())) &&
+					(! Collections
+						.disjoint(entry.getValue().references, affected))) {
+
+					affected.add(entry.getKey());
+					added = true;
+				}
+			}
+		} while(added);
+
+		// The cached copies of the affected schemas are stale.
+		for(String path : affected) {
+			ReferenceCache.getInstance().invalidate(getUrl(path));
+		}
+
+		// Load the affected files before any of them are swapped in.
+		Map<String, Concordia> loaded = new HashMap<String, Concordia>();
+		Map<String, ConcordiaException> failed =
+			new HashMap<String, ConcordiaException>();
+		for(String path : affected) {
+			File file = files.get(path);
+			if(file == null) {
+				entries.remove(path);
+				continue;
+			}
+
+			long modified = file.lastModified();
+			long length = file.length();
+			long checked = System.currentTimeMillis();
+			long checksum = -1;
+			Set<String> references = new HashSet<String>();
+			try {
+				byte[] contents = read(file);
+				checksum = checksum(contents);
+				loaded.put(path, load(contents, references));
+			}
+			catch(ConcordiaException e) {
+				failed.put(path, e);
+			}
+			entries
+				.put(
+					path,
+					new Entry(modified, length, checked, checksum, references));
+		}
+
+		// Swap in the new versions.
+		Set<String> result = new HashSet<String>();
+		Map<String, Concordia> newSchemas =
+			new HashMap<String, Concordia>(schemas);
+		Map<String, ConcordiaException> newErrors =
+			new HashMap<String, ConcordiaException>(errors);
+		for(String path : affected) {
+			if(! files.containsKey(path)) {
+				if(newSchemas.remove(path) != null) {
+					result.add(path);
+				}
+				newErrors.remove(path);
+			}
+			else if(loaded.containsKey(path)) {
+				newSchemas.put(path, loaded.get(path));
+				newErrors.remove(path);
+				result.add(path);
+			}
+			else {
+				newErrors.put(path, failed.get(path));
+			}
+		}
+		schemas = Collections.unmodifiableMap(newSchemas);
+		errors = Collections.unmodifiableMap(newErrors);
+
+		return Collections.unmodifiableSet(result);
+	}
+
+	/**
+	 * Starts polling the directory for changes on a background thread.
+	 *
+	 * @param period
+	 *        The time between the end of one refresh and the start of the
+	 *        next.
+	 *
+	 * @param unit
+	 *        The unit of the period.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The period is not positive or the unit is null.
+	 *
+	 * @throws IllegalStateException
+	 *         The directory is already being polled.
+	 */
+	public synchronized void start(
+		final long period,
+		final TimeUnit unit)
+		throws IllegalArgumentException, IllegalStateException {
+
+		if(period <= 0) {
+			throw new IllegalArgumentException("The period is not positive.");
+		}
+		if(unit == null) {
+			throw new IllegalArgumentException("The unit is null.");
+		}
+		if(poller != null) {
+			throw
+				new IllegalStateException(
+					"The directory is already being polled.");
+		}
+
+		poller =
+			Executors
+				.newSingleThreadScheduledExecutor(
+					new ThreadFactory() {
+						/*
+						 * (non-Javadoc)
+						 * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+						 */
+						@Override
+						public Thread newThread(final Runnable runnable) {
+							Thread thread =
+								new Thread(
+									runnable,
+									"Concordia registry: " + directory);
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+		poller
+			.scheduleWithFixedDelay(
+				new Runnable() {
+					/*
+					 * (non-Javadoc)
+					 * @see java.lang.Runnable#run()
+					 */
+					@Override
+					public void run() {
+						// An exception would cancel the polling.
+						try {
+							refresh();
+						}
+						catch(RuntimeException e) {
+							// Try again on the next poll.
+						}
+					}
+				},
+				period,
+				period,
+				unit);
+	}
+
+	/**
+	 * Stops polling the directory. A refresh that is already running is
+	 * allowed to finish. This does nothing if the directory is not being
+	 * polled.
+	 */
+	public synchronized void stop() {
+		if(poller != null) {
+			poller.shutdown();
+			poller = null;
+		}
+	}
+
+	/**
+	 * Loads a schema and reads every schema that it refers to, directly or
+	 * indirectly.
+	 *
+	 * @param contents
+	 *        The contents of the file that contains the schema.
+	 *
+	 * @param references
+	 *        The paths of the files in the directory that the schema refers
+	 *        to, which this adds to. It is filled in even if the schema is
+	 *        read but one of its references cannot be.
+	 *
+	 * @return The schema.
+	 *
+	 * @throws ConcordiaException
+	 *         The schema or one of the schemas it refers to could not be read
+	 *         or was invalid.
+	 */
+	private Concordia load(
+		final byte[] contents,
+		final Set<String> references)
+		throws ConcordiaException {
+
+		Concordia result;
+		try {
+			result =
+				new Concordia(
+					new ByteArrayInputStream(contents),
+					controller,
+					resolver);
+		}
+		catch(IOException e) {
+			// The contents are in memory, so this cannot happen.
+			throw
+				new ConcordiaException("The schema could not be read.", e);
+		}
+
+		findReferences(result.getSchema(), references);
+		readReferences(
+			result.getSchema(),
+			Collections
+				.newSetFromMap(new IdentityHashMap<Schema, Boolean>()));
+		return result;
+	}
+
+	/**
+	 * Finds the paths of the files in the directory that a schema refers to,
+	 * without reading them.
+	 *
+	 * @param schema
+	 *        The schema.
+	 *
+	 * @param references
+	 *        The paths, which this adds to.
+	 */
+	private void findReferences(
+		final Schema schema,
+		final Set<String> references) {
+
+		if(schema instanceof ReferenceSchema) {
+			String path =
+				resolver.getPath(((ReferenceSchema) schema).getReference());
+			if(path != null) {
+				references.add(path);
+			}
+		}
+		else if(schema != null) {
+			for(Schema subSchema : schema.getSubSchemas()) {
+				findReferences(subSchema, references);
+			}
+		}
+	}
+
+	/**
+	 * Reads every schema that a schema refers to, directly or indirectly, so
+	 * that none of them are read while data is being validated.
+	 *
+	 * @param schema
+	 *        The schema.
+	 *
+	 * @param visited
+	 *        The schemas that have already been visited, which this adds to.
+	 *
+	 * @throws ConcordiaException
+	 *         A referenced schema could not be read or was invalid.
+	 */
+	private static void readReferences(
+		final Schema schema,
+		final Set<Schema> visited)
+		throws ConcordiaException {
+
+		if((schema == null) || (! visited.add(schema))) {
+			return;
+		}
+
+		if(schema instanceof ReferenceSchema) {
+			readReferences(((ReferenceSchema) schema).getSchema(), visited);
+		}
+		else {
+			for(Schema subSchema : schema.getSubSchemas()) {
+				readReferences(subSchema, visited);
+			}
+		}
+	}
+
+	/**
+	 * Returns the URL that refers to a path in the directory.
+	 *
+	 * @param path
+	 *        The path.
+	 *
+	 * @return The URL.
+	 */
+	private URL getUrl(final String path) {
+		try {
+			return resolver.getUrl(path);
+		}
+		catch(MalformedURLException e) {
+			// The prefix is a valid URL and the path is encoded, so this
+			// cannot happen.
+			throw new IllegalStateException("The URL is invalid.", e);
+		}
+	}
+
+	/**
+	 * Reads the contents of a file.
+	 *
+	 * @param file
+	 *        The file.
+	 *
+	 * @return The file's contents.
+	 *
+	 * @throws ConcordiaException
+	 *         The file could not be read.
+	 */
+	private static byte[] read(final File file) throws ConcordiaException {
+		try {
+			InputStream input = new FileInputStream(file);
+			try {
+				return AsyncLoader.readFully(input);
+			}
+			finally {
+				input.close();
+			}
+		}
+		catch(IOException e) {
+			throw
+				new ConcordiaException(
+					"The schema could not be read: " + file,
+					e);
+		}
+	}
+
+	/**
+	 * Computes the CRC-32 of some contents.
+	 *
+	 * @param contents
+	 *        The contents.
+	 *
+	 * @return The CRC-32 of the contents.
+	 */
+	private static long checksum(final byte[] contents) {
+		CRC32 crc = new CRC32();
+		crc.update(contents);
+		return crc.getValue();
+	}
+
+	/**
+	 * Computes the CRC-32 of a file's contents.
+	 *
+	 * @param file
+	 *        The file.
+	 *
+	 * @return The CRC-32 of the file's contents or -1 if they could not be
+	 *         read.
+	 */
+	private static long checksum(final File file) {
+		try {
+			return checksum(read(file));
+		}
+		catch(ConcordiaException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Finds the schema files in a directory tree.
+	 *
+	 * @param directory
+	 *        The directory.
+	 *
+	 * @param path
+	 *        The path of the directory relative to the registry's directory,
+	 *        which is either empty or ends with a "/".
+	 *
+	 * @param files
+	 *        The files keyed by their paths, which this adds to.
+	 */
+	private static void scan(
+		final File directory,
+		final String path,
+		final Map<String, File> files) {
+
+		File[] children = directory.listFiles();
+		if(children == null) {
+			// The directory was removed or could not be read.
+			return;
+		}
+
+		for(File child : children) {
+			if(child.isDirectory()) {
+				scan(child, path + child.getName() + "/", files);
+			}
+			else if(child.getName().endsWith(SUFFIX) && child.isFile()) {
+				files.put(path + child.getName(), child);
+			}
+		}
+	}
+}
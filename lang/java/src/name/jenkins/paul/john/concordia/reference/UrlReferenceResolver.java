@@ -0,0 +1,117 @@
+package name.jenkins.paul.john.concordia.reference;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+
+/**
+ * <p>
+ * A {@link ReferenceResolver} that connects to each URL and reads its
+ * contents. This is the default resolver.
+ * </p>
+ *
+ * <p>
+ * Unlike {@link URL#openStream()}, connecting and reading are bounded by
+ * timeouts, so an unresponsive server cannot block schema loading forever.
+ * </p>
+ *
+ * <p>
+ * This class is immutable.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public final class UrlReferenceResolver implements ReferenceResolver {
+	/**
+	 * The default number of milliseconds to wait for a connection or for data.
+	 */
+	public static final int DEFAULT_TIMEOUT = 30000;
+
+	/**
+	 * The resolver used when no other resolver is given.
+	 */
+	public static final UrlReferenceResolver DEFAULT_RESOLVER =
+		new UrlReferenceResolver(DEFAULT_TIMEOUT, DEFAULT_TIMEOUT);
+
+	/**
+	 * The number of milliseconds to wait for a connection.
+	 */
+	private final int connectTimeout;
+	/**
+	 * The number of milliseconds to wait for data.
+	 */
+	private final int readTimeout;
+
+	/**
+	 * Creates a new resolver.
+	 *
+	 * @param connectTimeout
+	 *        The number of milliseconds to wait for a connection. Zero waits
+	 *        forever.
+	 *
+	 * @param readTimeout
+	 *        The number of milliseconds to wait for data. Zero waits forever.
+	 *
+	 * @throws IllegalArgumentException
+	 *         Either timeout is negative.
+	 */
+	public UrlReferenceResolver(
+		final int connectTimeout,
+		final int readTimeout)
+		throws IllegalArgumentException {
+
+		if(connectTimeout < 0) {
+			throw
+				new IllegalArgumentException(
+					"The connect timeout is negative.");
+		}
+		if(readTimeout < 0) {
+			throw new IllegalArgumentException("The read timeout is negative.");
+		}
+
+		this.connectTimeout = connectTimeout;
+		this.readTimeout = readTimeout;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see name.jenkins.paul.john.concordia.reference.ReferenceResolver#resolve(java.net.URL)
+	 */
+	@Override
+	public InputStream resolve(final URL reference) throws IOException {
+		URLConnection connection = reference.openConnection();
+		connection.setConnectTimeout(connectTimeout);
+		connection.setReadTimeout(readTimeout);
+		return connection.getInputStream();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = (prime * result) + connectTimeout;
+		result = (prime * result) + readTimeout;
+		return result;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+		if(this == obj) {
+			return true;
+		}
+		if(!(obj instanceof UrlReferenceResolver)) {
+			return false;
+		}
+		UrlReferenceResolver other = (UrlReferenceResolver) obj;
+		return
+			(connectTimeout == other.connectTimeout) &&
+			(readTimeout == other.readTimeout);
+	}
+}
@@ -8,6 +8,7 @@ import java.util.Map;
 import name.jenkins.paul.john.concordia.exception.ConcordiaException;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -55,7 +56,9 @@ public class ArraySchema extends Schema {
             super(original);
 
             constType = original.constType;
-            constLength = original.constLength;
+            if(original.constLength != null) {
+                constLength = new ArrayList<Schema>(original.constLength);
+            }
         }
 
         /**
@@ -123,13 +126,14 @@ public class ArraySchema extends Schema {
         @Override
         public ArraySchema build() throws ConcordiaException {
             return
-                new ArraySchema(
-                    getDoc(),
-                    getOptional(),
-                    getName(),
-                    constType,
-                    constLength,
-                    getOthers());
+                SchemaInterner.getInstance().intern(
+                    new ArraySchema(
+                        getDoc(),
+                        getOptional(),
+                        getName(),
+                        constType,
+                        constLength,
+                        getOthers()));
         }
     }
 
@@ -165,6 +169,12 @@ public class ArraySchema extends Schema {
 	@JsonProperty(JSON_KEY_CONST_LENGTH)
     @JsonInclude(Include.NON_NULL)
 	private final List<Schema> constLength;
+	/**
+	 * The unmodifiable list of sub-schemas, which is either the
+	 * {@link #constType} or the {@link #constLength} schemas.
+	 */
+	@JsonIgnore
+	private final List<Schema> subSchemas;
 
 	/**
 	 * Creates a new constant-type array schema.
@@ -303,7 +313,14 @@ public class ArraySchema extends Schema {
         }
 
         this.constType = constType;
-        this.constLength = constLength;
+        if(constLength == null) {
+            this.constLength = null;
+            subSchemas = Collections.singletonList(constType);
+        }
+        else {
+            this.constLength = compact(constLength);
+            subSchemas = this.constLength;
+        }
     }
 
 	/**
@@ -322,12 +339,7 @@ public class ArraySchema extends Schema {
 	 * @return An index-by-index schema for corresponding data.
 	 */
 	public List<Schema> getConstLength() {
-		if(constLength == null) {
-			return null;
-		}
-		else {
-			return Collections.unmodifiableList(constLength);
-		}
+		return constLength;
 	}
 
 	/*
@@ -346,21 +358,7 @@ public class ArraySchema extends Schema {
 	 */
 	@Override
 	public List<Schema> getSubSchemas() {
-		// Create a result list, which will either be exactly the constant-type
-		// type or the constant-length list which will overwrite this.
-		List<Schema> result = new ArrayList<Schema>(1);
-
-		// If the constant-type exists, use that.
-		if(constType != null) {
-			result.add(constType);
-		}
-		// If the constant-length exists, use that.
-		else if(constLength != null) {
-			result = constLength;
-		}
-
-		// Return an unmodifiable copy of the list.
-		return Collections.unmodifiableList(result);
+		return subSchemas;
 	}
 
     /*
@@ -372,20 +370,13 @@ public class ArraySchema extends Schema {
         return new ArraySchema.Builder(this);
     }
 
-	/* (non-Javadoc)
-	 * @see java.lang.Object#hashCode()
+	/*
+	 * (non-Javadoc)
+	 * @see name.jenkins.paul.john.concordia.schema.Schema#fingerprint(long)
 	 */
 	@Override
-	public int hashCode() {
-		final int prime = 31;
-		int result = super.hashCode();
-		result =
-			(prime *
-				result) +
-				((constLength == null) ? 0 : constLength.hashCode());
-		result =
-			(prime * result) + ((constType == null) ? 0 : constType.hashCode());
-		return result;
+	protected long fingerprint(final long hash) {
+		return mix(mix(super.fingerprint(hash), constLength), constType);
 	}
 
 	/* (non-Javadoc)
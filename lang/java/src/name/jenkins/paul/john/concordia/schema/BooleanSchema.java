@@ -47,11 +47,12 @@ public class BooleanSchema extends Schema {
         @Override
         public BooleanSchema build() throws ConcordiaException {
             return
-                new BooleanSchema(
-                    getDoc(),
-                    getOptional(),
-                    getName(),
-                    getOthers());
+                SchemaInterner.getInstance().intern(
+                    new BooleanSchema(
+                        getDoc(),
+                        getOptional(),
+                        getName(),
+                        getOthers()));
         }
     }
 
@@ -46,11 +46,12 @@ public class NumberSchema extends Schema {
         @Override
         public NumberSchema build() throws ConcordiaException {
             return
-                new NumberSchema(
-                    getDoc(),
-                    getOptional(),
-                    getName(),
-                    getOthers());
+                SchemaInterner.getInstance().intern(
+                    new NumberSchema(
+                        getDoc(),
+                        getOptional(),
+                        getName(),
+                        getOthers()));
         }
     }
 
@@ -1,7 +1,6 @@
 package name.jenkins.paul.john.concordia.schema;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -84,12 +83,13 @@ public class ObjectSchema extends Schema {
         @Override
         public ObjectSchema build() throws ConcordiaException {
             return
-                new ObjectSchema(
-                    getDoc(),
-                    getOptional(),
-                    getName(),
-                    fields,
-                    getOthers());
+                SchemaInterner.getInstance().intern(
+                    new ObjectSchema(
+                        getDoc(),
+                        getOptional(),
+                        getName(),
+                        fields,
+                        getOthers()));
         }
     }
 
@@ -113,10 +113,10 @@ public class ObjectSchema extends Schema {
 	private static final long serialVersionUID = 1L;
 
 	/**
-	 * The list of fields for this object.
+	 * The unmodifiable list of fields for this object.
 	 */
 	@JsonProperty(JSON_KEY_FIELDS)
-	private final List<Schema> fields = new ArrayList<Schema>();
+	private final List<Schema> fields;
 
 	/**
 	 * Creates a new object schema.
@@ -183,7 +183,7 @@ public class ObjectSchema extends Schema {
             throw new ConcordiaException("The fields list is null.");
         }
         else {
-            this.fields.addAll(fields);
+            this.fields = compact(fields);
         }
     }
 
@@ -193,7 +193,7 @@ public class ObjectSchema extends Schema {
 	 * @return Returns the list of fields.
 	 */
 	public List<Schema> getFields() {
-		return Collections.unmodifiableList(fields);
+		return fields;
 	}
 
 	/*
@@ -212,7 +212,7 @@ public class ObjectSchema extends Schema {
 	 */
 	@Override
 	public List<Schema> getSubSchemas() {
-		return Collections.unmodifiableList(fields);
+		return fields;
 	}
 
     /*
@@ -224,15 +224,13 @@ public class ObjectSchema extends Schema {
         return new ObjectSchema.Builder(this);
     }
 
-	/* (non-Javadoc)
-	 * @see java.lang.Object#hashCode()
+	/*
+	 * (non-Javadoc)
+	 * @see name.jenkins.paul.john.concordia.schema.Schema#fingerprint(long)
 	 */
 	@Override
-	public int hashCode() {
-		final int prime = 31;
-		int result = super.hashCode();
-		result = (prime * result) + ((fields == null) ? 0 : fields.hashCode());
-		return result;
+	protected long fingerprint(final long hash) {
+		return mix(super.fingerprint(hash), fields);
 	}
 
 	/* (non-Javadoc)
@@ -1,7 +1,5 @@
 package name.jenkins.paul.john.concordia.schema;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
@@ -9,8 +7,11 @@ import java.util.Map;
 
 import name.jenkins.paul.john.concordia.Concordia;
 import name.jenkins.paul.john.concordia.exception.ConcordiaException;
-import name.jenkins.paul.john.concordia.validator.ValidationController;
+import name.jenkins.paul.john.concordia.reference.ReferenceCache;
+import name.jenkins.paul.john.concordia.reference.ReferenceResolver;
+import name.jenkins.paul.john.concordia.reference.UrlReferenceResolver;
 
+import com.fasterxml.jackson.annotation.JacksonInject;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
@@ -23,6 +24,23 @@ import com.fasterxml.jackson.annotation.JsonProperty;
  * </p>
  *
  * <p>
+ * The referenced schema is retrieved through the {@link ReferenceCache}, so
+ * every reference to the same location shares a single copy of it. It is
+ * read by a {@link ReferenceResolver}, which is injected by Jackson under
+ * the {@link Concordia#JACKSON_INJECTABLE_REFERENCE_RESOLVER} key.
+ * </p>
+ *
+ * <p>
+ * The referenced schema is not read when this schema is built but the first
+ * time it is needed, and it is then remembered. This allows schemas to refer
+ * to themselves or to each other, e.g. a tree or a linked list, and avoids
+ * reading referenced schemas that are never used. A reference without a
+ * name extends its object, so its schema is read when the object is
+ * validated in order to check its field names. An object that extends
+ * itself, directly or indirectly, is rejected by the {@link ReferenceCache}.
+ * </p>
+ *
+ * <p>
  * This class is immutable.
  * </p>
  *
@@ -41,6 +59,10 @@ public class ReferenceSchema extends Schema {
          * The reference to the external schema.
          */
         private URL reference;
+        /**
+         * The resolver for the external schema.
+         */
+        private ReferenceResolver resolver;
 
         /**
          * Creates a builder based off of an existing schema.
@@ -53,6 +75,7 @@ public class ReferenceSchema extends Schema {
             super(original);
 
             reference = original.reference;
+            resolver = original.resolver;
         }
 
         /**
@@ -80,6 +103,33 @@ public class ReferenceSchema extends Schema {
             return this;
         }
 
+        /**
+         * Returns the currently set resolver.
+         *
+         * @return The currently set resolver.
+         */
+        public ReferenceResolver getResolver() {
+            return resolver;
+        }
+
+        /**
+         * Sets the resolver for the reference. If it is null, the
+         * {@link UrlReferenceResolver#DEFAULT_RESOLVER default resolver} is
+         * used.
+         *
+         * @param resolver
+         *        The desired resolver.
+         *
+         * @return Returns this to facilitate chaining.
+         */
+        public ReferenceSchema.Builder setResolver(
+            final ReferenceResolver resolver) {
+
+            this.resolver = resolver;
+
+            return this;
+        }
+
         /*
          * (non-Javadoc)
          * @see name.jenkins.paul.john.concordia.schema.Schema.Builder#build()
@@ -87,12 +137,14 @@ public class ReferenceSchema extends Schema {
         @Override
         public ReferenceSchema build() throws ConcordiaException {
             return
-                new ReferenceSchema(
-                    getDoc(),
-                    getOptional(),
-                    getName(),
-                    reference,
-                    getOthers());
+                SchemaInterner.getInstance().intern(
+                    new ReferenceSchema(
+                        getDoc(),
+                        getOptional(),
+                        getName(),
+                        reference,
+                        resolver,
+                        getOthers()));
         }
     }
 
@@ -124,11 +176,17 @@ public class ReferenceSchema extends Schema {
 	private URL reference = null;
 
 	/**
-	 * The sub-schema that will be populated during validation based on the
-	 * {@link #reference}.
+	 * The sub-schema that is read from the {@link #reference} the first time
+	 * it is needed.
 	 */
 	@JsonIgnore
-	private Schema subSchema = null;
+	private volatile Schema subSchema = null;
+
+	/**
+	 * The resolver that read the {@link #subSchema}.
+	 */
+	@JsonIgnore
+	private final transient ReferenceResolver resolver;
 
 	/**
 	 * Creates a new referenced schema from the given URL.
@@ -147,18 +205,54 @@ public class ReferenceSchema extends Schema {
 	 *        The reference to the external schema.
 	 *
 	 * @throws ConcordiaException
-	 *         The reference URL was invalid or the schema it referenced was
-	 *         invalid.
+	 *         The reference URL was null.
+	 */
+	public ReferenceSchema(
+        final String doc,
+        final boolean optional,
+        final String name,
+        final URL reference)
+		throws ConcordiaException {
+
+		this(doc, optional, name, reference, null, null);
+	}
+
+	/**
+	 * Creates a new referenced schema from the given URL, which is read by
+	 * the given resolver.
+	 *
+	 * @param doc
+	 *        Optional documentation for this Schema.
+	 *
+	 * @param optional
+	 *        Whether or not data for this Schema is optional.
+	 *
+	 * @param name
+	 *        The name of this field, which is needed when constructing an
+	 *        {@link ObjectSchema}.
+	 *
+	 * @param reference
+	 *        The reference to the external schema.
+	 *
+	 * @param resolver
+	 *        The resolver for the external schema. If it is null, the
+	 *        {@link UrlReferenceResolver#DEFAULT_RESOLVER default resolver}
+	 *        is used.
+	 *
+	 * @throws ConcordiaException
+	 *         The reference URL was null.
 	 */
 	@JsonCreator
 	public ReferenceSchema(
         @JsonProperty(JSON_KEY_DOC) final String doc,
         @JsonProperty(JSON_KEY_OPTIONAL) final boolean optional,
         @JsonProperty(ObjectSchema.JSON_KEY_NAME) final String name,
-        @JsonProperty(JSON_KEY_REFERENCE) final URL reference)
+        @JsonProperty(JSON_KEY_REFERENCE) final URL reference,
+        @JacksonInject(Concordia.JACKSON_INJECTABLE_REFERENCE_RESOLVER)
+            final ReferenceResolver resolver)
 		throws ConcordiaException {
 
-		this(doc, optional, name, reference, null);
+		this(doc, optional, name, reference, resolver, null);
 	}
 
     /**
@@ -174,6 +268,13 @@ public class ReferenceSchema extends Schema {
      *        The name of this field, which is needed when constructing an
      *        {@link ObjectSchema}.
      *
+     * @param reference
+     *        The reference to the external schema.
+     *
+     * @param resolver
+     *        The resolver for the external schema or null to use the default
+     *        resolver.
+     *
      * @param others
      *        Additional undefined fields that are being preserved.
      */
@@ -182,6 +283,7 @@ public class ReferenceSchema extends Schema {
         final boolean optional,
         final String name,
         final URL reference,
+        final ReferenceResolver resolver,
         final Map<String, Object> others)
         throws ConcordiaException {
 
@@ -192,31 +294,78 @@ public class ReferenceSchema extends Schema {
         }
 
         this.reference = reference;
-        try {
-            InputStream inputStream = reference.openStream();
-            subSchema =
-                new Concordia(
-                    inputStream,
-                    ValidationController.BASIC_CONTROLLER)
-                    .getSchema();
-            inputStream.close();
-        }
-        catch(IOException e) {
-            throw new ConcordiaException(
-                "There was an error reading the schema.",
-                e);
-        }
+        this.resolver =
+            (resolver == null) ?
+                UrlReferenceResolver.DEFAULT_RESOLVER :
+                resolver;
     }
 
 	/**
-	 * Returns the sub-schema for this referenced schema.
+	 * Returns the referenced URL.
+	 *
+	 * @return The referenced URL.
+	 */
+	public URL getReference() {
+		return reference;
+	}
+
+	/**
+	 * Returns the sub-schema for this referenced schema, reading it if this
+	 * is the first time it has been requested.
 	 *
 	 * @return The sub-schema for this referenced schema.
+	 *
+	 * @throws ConcordiaException
+	 *         The referenced schema could not be read or was invalid.
+	 */
+	public Schema getSchema() throws ConcordiaException {
+		// Concurrent callers may both read the schema, but the cache gives
+		// them the same one.
+		Schema result = subSchema;
+		if(result == null) {
+			result =
+				ReferenceCache
+					.getInstance()
+					.get(
+						reference,
+						(resolver == null) ?
+							UrlReferenceResolver.DEFAULT_RESOLVER :
+							resolver);
+			subSchema = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the referenced schema if it has already been read.
+	 *
+	 * @return The referenced schema or null if it has not been read yet.
 	 */
-	public Schema getSchema() {
+	Schema getLoadedSchema() {
 		return subSchema;
 	}
 
+	/**
+	 * Gives this reference the schema it refers to, e.g. from a
+	 * {@link SchemaSnapshot}, so that it is never read.
+	 *
+	 * @param schema
+	 *        The referenced schema.
+	 */
+	void setLoadedSchema(final Schema schema) {
+		subSchema = schema;
+	}
+
+	/**
+	 * Returns the resolver that read the referenced schema.
+	 *
+	 * @return The resolver that read the referenced schema, which may be null
+	 *         if this schema was deserialized by Java serialization.
+	 */
+	public ReferenceResolver getResolver() {
+		return resolver;
+	}
+
     /**
      * Retrieves the appropriate field name(s) for this schema. If the
      * sub-schema has a field name, that is used. If not, the sub-schema must
@@ -228,14 +377,15 @@ public class ReferenceSchema extends Schema {
      *
      * @throws ConcordiaException
      *         The sub-schema doesn't define a field name and is not an object
-     *         schema.
+     *         schema, or it could not be read.
      */
 	public List<String> getFieldNames() throws ConcordiaException {
 		List<String> result = new ArrayList<String>(1);
 
 		if(getName() == null) {
-			if(subSchema instanceof ObjectSchema) {
-				result = ((ObjectSchema) subSchema).getFieldNames();
+			Schema schema = getSchema();
+			if(schema instanceof ObjectSchema) {
+				result = ((ObjectSchema) schema).getFieldNames();
 			}
 			else {
 			    throw
@@ -261,13 +411,24 @@ public class ReferenceSchema extends Schema {
 		return TYPE_ID;
 	}
 
-	/*
-	 * (non-Javadoc)
-	 * @see name.jenkins.paul.john.concordia.schema.Schema#getSubSchemas()
+	/**
+	 * Returns the referenced schema's sub-schemas, reading it if this is the
+	 * first time it has been requested.
+	 *
+	 * @throws IllegalStateException
+	 *         The referenced schema could not be read or was invalid.
 	 */
 	@Override
-	public List<Schema> getSubSchemas() {
-		return subSchema.getSubSchemas();
+	public List<Schema> getSubSchemas() throws IllegalStateException {
+		try {
+			return getSchema().getSubSchemas();
+		}
+		catch(ConcordiaException e) {
+			throw
+				new IllegalStateException(
+					"The referenced schema could not be read: " + reference,
+					e);
+		}
 	}
 
 	/*
@@ -279,16 +440,23 @@ public class ReferenceSchema extends Schema {
 	    return new ReferenceSchema.Builder(this);
 	}
 
-	/* (non-Javadoc)
-	 * @see java.lang.Object#hashCode()
+	/*
+	 * (non-Javadoc)
+	 * @see name.jenkins.paul.john.concordia.schema.Schema#fingerprint(long)
 	 */
 	@Override
-	public int hashCode() {
-		final int prime = 31;
-		int result = super.hashCode();
-		result =
-			(prime * result) + ((subSchema == null) ? 0 : subSchema.hashCode());
-		return result;
+	protected long fingerprint(final long hash) {
+		// The referenced schema is not part of the fingerprint, for the same
+		// reasons it is not compared. Resolvers may hash by identity, so only
+		// the resolver's class is added, which keeps the fingerprint the same
+		// from one JVM to the next. The resolver is null if this schema was
+		// deserialized.
+		return
+			mix(
+				mix(
+					super.fingerprint(hash),
+					ReferenceCache.normalize(reference)),
+				(resolver == null) ? null : resolver.getClass().getName());
 	}
 
 	/* (non-Javadoc)
@@ -309,12 +477,20 @@ public class ReferenceSchema extends Schema {
 			return false;
 		}
 		ReferenceSchema other = (ReferenceSchema) obj;
-		if(subSchema == null) {
-			if(other.subSchema != null) {
+		// The referenced schemas are not compared, as they may not have been
+		// read and may refer back to these schemas. The URLs are compared by
+		// their normalized form, as URL.equals() may block.
+		if(!ReferenceCache.normalize(reference)
+			.equals(ReferenceCache.normalize(other.reference))) {
+
+			return false;
+		}
+		if(resolver == null) {
+			if(other.resolver != null) {
 				return false;
 			}
 		}
-		else if(!subSchema.equals(other.subSchema)) {
+		else if(!resolver.equals(other.resolver)) {
 			return false;
 		}
 		return true;
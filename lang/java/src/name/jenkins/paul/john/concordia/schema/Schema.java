@@ -1,10 +1,12 @@
 package name.jenkins.paul.john.concordia.schema;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import name.jenkins.paul.john.concordia.exception.ConcordiaException;
 
@@ -191,7 +193,9 @@ public abstract class Schema implements Serializable {
         /**
          * Uses the current state of this builder to produce a Schema object.
          * This may be called any number of times without affecting the state
-         * of the builder.
+         * of the builder. The result is
+         * {@link SchemaInterner#intern(Schema) interned}, so it may be a
+         * schema that was built or read before.
          *
          * @return A Schema object whose type is based on how this builder was
          *         created.
@@ -244,9 +248,18 @@ public abstract class Schema implements Serializable {
 
 	/**
 	 * The other fields that were given but are not part of Concordia proper.
+	 * This is an unmodifiable map, so it can be returned as-is, and most
+	 * schemas have none, so they share the empty map.
 	 */
 	@JsonIgnore
-	private final Map<String, Object> others = new HashMap<String, Object>();
+	private Map<String, Object> others = Collections.emptyMap();
+
+	/**
+	 * The {@link #fingerprint()} of this schema or zero if it has not been
+	 * computed yet.
+	 */
+	@JsonIgnore
+	private transient volatile long fingerprint = 0;
 
     /**
      * Creates a Schema object with the schema-type agnostic fields.
@@ -274,8 +287,10 @@ public abstract class Schema implements Serializable {
 		this.optional = optional;
 		this.name = name;
 
-		if(others != null) {
-		    this.others.putAll(others);
+		if((others != null) && (! others.isEmpty())) {
+		    this.others =
+		        Collections
+		            .unmodifiableMap(new HashMap<String, Object>(others));
 		}
 	}
 
@@ -313,7 +328,7 @@ public abstract class Schema implements Serializable {
 	 * @return A map of keys to values for non-standard fields.
 	 */
 	public Map<String, Object> getAdditionalFields() {
-		return Collections.unmodifiableMap(others);
+		return others;
 	}
 
 	/**
@@ -342,6 +357,44 @@ public abstract class Schema implements Serializable {
      */
 	public abstract Schema.Builder getBuilder();
 
+	/**
+	 * <p>
+	 * Returns a 64-bit fingerprint of this schema. Equal schemas always have
+	 * the same fingerprint, so schemas whose fingerprints differ are never
+	 * equal. Only the URL and the resolver's class of a
+	 * {@link ReferenceSchema} are part of its fingerprint, so this never
+	 * reads a referenced schema.
+	 * </p>
+	 *
+	 * <p>
+	 * The fingerprint depends only on the schema's contents, so it is the
+	 * same in every JVM and can be stored, e.g. in a
+	 * {@link SchemaSnapshot}.
+	 * </p>
+	 *
+	 * <p>
+	 * The fingerprint is computed the first time it is needed and then
+	 * cached, as it is also the basis of {@link #hashCode()}. It is not
+	 * computed when the schema is constructed, because Jackson may still add
+	 * {@link #getAdditionalFields() additional fields} after that.
+	 * </p>
+	 *
+	 * @return The fingerprint of this schema.
+	 */
+	public final long fingerprint() {
+		long result = fingerprint;
+		if(result == 0) {
+			// Racing threads compute the same value, so there is no need to
+			// lock. Zero means "not computed", so it is never the result.
+			result = fingerprint(mix(0, getClass().getName()));
+			if(result == 0) {
+				result = 1;
+			}
+			fingerprint = result;
+		}
+		return result;
+	}
+
     /**
      * Returns String representation of this object.
      * @return The schema name.
@@ -351,18 +404,13 @@ public abstract class Schema implements Serializable {
         return name;
     }
 
-    /* (non-Javadoc)
-         * @see java.lang.Object#hashCode()
-         */
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = (prime * result) + ((doc == null) ? 0 : doc.hashCode());
-		result = (prime * result) + ((name == null) ? 0 : name.hashCode());
-		result = (prime * result) + (optional ? 1231 : 1237);
-		result = (prime * result) + ((others == null) ? 0 : others.hashCode());
-		return result;
+		long result = fingerprint();
+		return (int) (result ^ (result >>> 32));
 	}
 
 	/* (non-Javadoc)
@@ -380,6 +428,9 @@ public abstract class Schema implements Serializable {
 			return false;
 		}
 		Schema other = (Schema) obj;
+		if(fingerprint() != other.fingerprint()) {
+			return false;
+		}
 		if(doc == null) {
 			if(other.doc != null) {
 				return false;
@@ -421,7 +472,13 @@ public abstract class Schema implements Serializable {
 	 */
 	@JsonAnySetter
 	protected void handleUnknown(final String key, final Object value) {
-		others.put(key, value);
+		// This is only called while Jackson is reading the schema, so
+		// copying the map for each field is cheaper than keeping a second,
+		// modifiable one.
+		Map<String, Object> result = new HashMap<String, Object>(others);
+		result.put(key, value);
+		others = Collections.unmodifiableMap(result);
+		fingerprint = 0;
 	}
 
 	/**
@@ -431,6 +488,107 @@ public abstract class Schema implements Serializable {
 	 */
 	@JsonAnyGetter
 	protected Map<String, Object> handleUnknown() {
-		return Collections.unmodifiableMap(others);
+		return others;
+	}
+
+	/**
+	 * Returns an unmodifiable copy of a list of schemas that is backed by an
+	 * array of exactly the right size, so it can be kept and returned as-is.
+	 *
+	 * @param schemas
+	 *        The schemas.
+	 *
+	 * @return The unmodifiable copy.
+	 */
+	static List<Schema> compact(final List<Schema> schemas) {
+		if(schemas.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return
+			Collections
+				.unmodifiableList(
+					Arrays.asList(schemas.toArray(new Schema[schemas.size()])));
+	}
+
+	/**
+	 * Adds the fields of this schema to a fingerprint. Sub-classes that
+	 * compare more fields in {@link #equals(Object)} must override this and
+	 * add them, via {@link #mix(long, Object)}, to the result of this
+	 * class' version.
+	 *
+	 * @param hash
+	 *        The fingerprint so far, which identifies the schema's class.
+	 *
+	 * @return The fingerprint with this schema's fields added.
+	 */
+	protected long fingerprint(final long hash) {
+		long result = mix(hash, doc);
+		result = mix(result, optional);
+		result = mix(result, name);
+		return mix(result, others);
+	}
+
+	/**
+	 * Adds a value to a fingerprint. Strings, lists, sets, maps, and schemas
+	 * are added by their contents and any other value by its
+	 * {@link Object#hashCode()}, so equal values always add the same amount.
+	 * The result is only the same from one JVM to the next if every such
+	 * hash code is based on the value's contents, as for numbers and
+	 * booleans, and not on its identity.
+	 *
+	 * @param hash
+	 *        The fingerprint so far.
+	 *
+	 * @param value
+	 *        The value to add, which may be null.
+	 *
+	 * @return The fingerprint with the value added.
+	 */
+	protected static long mix(final long hash, final Object value) {
+		long result;
+		if(value == null) {
+			result = 0;
+		}
+		else if(value instanceof Schema) {
+			result = ((Schema) value).fingerprint();
+		}
+		else if(value instanceof String) {
+			// FNV-1a, as String.hashCode() only has 32 bits.
+			String string = (String) value;
+			result = 0xCBF29CE484222325L;
+			for(int i = 0; i < string.length(); i++) {
+				result ^= string.charAt(i);
+				result *= 0x100000001B3L;
+			}
+		}
+		else if(value instanceof List) {
+			result = 1;
+			for(Object element : (List<?>) value) {
+				result = mix(result, element);
+			}
+		}
+		else if(value instanceof Set) {
+			// Sets and maps are equal regardless of their order, so neither
+			// is their fingerprint.
+			result = 2;
+			for(Object element : (Set<?>) value) {
+				result += mix(0, element);
+			}
+		}
+		else if(value instanceof Map) {
+			result = 3;
+			for(Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				result += mix(mix(0, entry.getKey()), entry.getValue());
+			}
+		}
+		else {
+			result = value.hashCode();
+		}
+
+		// Spread the bits so that similar fingerprints differ everywhere.
+		result += hash * 0x9E3779B97F4A7C15L;
+		result = (result ^ (result >>> 33)) * 0xFF51AFD7ED558CCDL;
+		result = (result ^ (result >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return result ^ (result >>> 33);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,294 @@
+package name.jenkins.paul.john.concordia.schema;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+
+/**
+ * <p>
+ * Shares structurally identical schemas, so that many schemas built from the
+ * same parts hold one copy of each part instead of one copy each.
+ * </p>
+ *
+ * <p>
+ * Schemas are interned bottom-up: a schema's sub-schemas are interned first
+ * and, if any of them was replaced, the schema is rebuilt around the shared
+ * ones. Equal schemas are found by their {@link Schema#fingerprint()} and
+ * then confirmed with {@link Schema#equals(Object)}, which is cheap because
+ * the sub-schemas of two interned schemas are equal only if they are the
+ * same instance.
+ * </p>
+ *
+ * <p>
+ * A {@link ReferenceSchema} is never shared, nor is any schema that contains
+ * one, because each one remembers the schema it read until it is discarded,
+ * which would keep a shared one from seeing a newer version of that schema.
+ * The schemas it refers to are shared by the {@link
+ * name.jenkins.paul.john.concordia.reference.ReferenceCache} instead, and
+ * their own parts are interned when they are read. Any sub-class of
+ * {@link Schema} that is not defined by Concordia is also never shared, as
+ * its equality may not cover all of its fields.
+ * </p>
+ *
+ * <p>
+ * Interned schemas are held weakly, so they are discarded once nothing else
+ * uses them.
+ * </p>
+ *
+ * <p>
+ * Schemas read by {@link name.jenkins.paul.john.concordia.Concordia} and
+ * built by a {@link Schema.Builder} are interned automatically.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public final class SchemaInterner {
+	/**
+	 * The interner used by the schema readers and builders.
+	 */
+	private static final SchemaInterner INSTANCE = new SchemaInterner();
+
+	/**
+	 * The interned schemas, each of which maps to itself. All access must be
+	 * synchronized on this map.
+	 */
+	private final Map<Schema, WeakReference<Schema>> schemas =
+		new WeakHashMap<Schema, WeakReference<Schema>>();
+
+	/**
+	 * Creates a new, empty interner.
+	 */
+	public SchemaInterner() {
+		// Nothing to do.
+	}
+
+	/**
+	 * Returns the interner that is used by the schema readers and builders.
+	 *
+	 * @return The interner that is used by the schema readers and builders.
+	 */
+	public static SchemaInterner getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the shared instance of a schema and, in turn, of each of its
+	 * sub-schemas. If the schema cannot be shared, it is still rebuilt
+	 * around the shared instances of its sub-schemas.
+	 *
+	 * @param schema
+	 *        The schema to intern. If this is null, null is returned.
+	 *
+	 * @return The shared schema that is equal to the given one, which may be
+	 *         the given schema itself.
+	 *
+	 * @throws ConcordiaException
+	 *         The schema had to be rebuilt around its shared sub-schemas, and
+	 *         that failed.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends Schema> T intern(final T schema)
+		throws ConcordiaException {
+
+		if((schema == null) || (! isInternable(schema))) {
+			return schema;
+		}
+
+		Schema result = find(schema);
+		if(result != null) {
+			return (T) result;
+		}
+
+		// Share the sub-schemas first, rebuilding this schema if any of them
+		// were replaced.
+		result = schema;
+		if(schema instanceof ObjectSchema) {
+			ObjectSchema object = (ObjectSchema) schema;
+			List<Schema> fields = internAll(object.getFields());
+			if(fields != null) {
+				result =
+					new ObjectSchema(
+						object.getDoc(),
+						object.isOptional(),
+						object.getName(),
+						fields,
+						object.getAdditionalFields());
+			}
+		}
+		else if(schema instanceof ArraySchema) {
+			ArraySchema array = (ArraySchema) schema;
+			Schema constType = intern(array.getConstType());
+			List<Schema> constLength = null;
+			if(array.getConstLength() != null) {
+				constLength = internAll(array.getConstLength());
+			}
+			if((constType != array.getConstType()) || (constLength != null)) {
+				result =
+					new ArraySchema(
+						array.getDoc(),
+						array.isOptional(),
+						array.getName(),
+						constType,
+						(constLength == null) ?
+							array.getConstLength() :
+							constLength,
+						array.getAdditionalFields());
+			}
+		}
+
+		// Only share this schema if all of its sub-schemas are shared.
+		for(Schema subSchema : getChildren(result)) {
+			if(find(subSchema) != subSchema) {
+				return (T) result;
+			}
+		}
+
+		return (T) share(result);
+	}
+
+	/**
+	 * Interns a schema whose sub-schemas are all already the interned
+	 * instances, without walking them again. This is for readers that intern
+	 * each schema as soon as its sub-schemas have been read.
+	 *
+	 * @param schema
+	 *        The schema, which must be one of the
+	 *        {@link #isInternable(Schema) internable} types.
+	 *
+	 * @return The shared schema that is equal to the given one, which may be
+	 *         the given schema itself.
+	 */
+	@SuppressWarnings("unchecked")
+	<T extends Schema> T share(final T schema) {
+		synchronized(schemas) {
+			// An equal schema may already be interned, possibly by another
+			// thread.
+			WeakReference<Schema> reference = schemas.get(schema);
+			Schema existing = (reference == null) ? null : reference.get();
+			if(existing != null) {
+				return (T) existing;
+			}
+			schemas.put(schema, new WeakReference<Schema>(schema));
+		}
+		return schema;
+	}
+
+	/**
+	 * Returns the number of schemas that are currently interned.
+	 *
+	 * @return The number of schemas that are currently interned.
+	 */
+	public int size() {
+		synchronized(schemas) {
+			return schemas.size();
+		}
+	}
+
+	/**
+	 * Returns whether or not a schema is the interned instance.
+	 *
+	 * @param schema
+	 *        The schema.
+	 *
+	 * @return Whether or not the schema is the interned instance.
+	 */
+	boolean isInterned(final Schema schema) {
+		return find(schema) == schema;
+	}
+
+	/**
+	 * Returns the interned schema that is equal to a schema.
+	 *
+	 * @param schema
+	 *        The schema to look up.
+	 *
+	 * @return The interned schema or null if there is none.
+	 */
+	private Schema find(final Schema schema) {
+		synchronized(schemas) {
+			WeakReference<Schema> reference = schemas.get(schema);
+			return (reference == null) ? null : reference.get();
+		}
+	}
+
+	/**
+	 * Returns the sub-schemas of a schema without reading any referenced
+	 * schemas.
+	 *
+	 * @param schema
+	 *        The schema, which must be one of the
+	 *        {@link #isInternable(Schema) internable} types.
+	 *
+	 * @return The sub-schemas of the schema.
+	 */
+	private static List<Schema> getChildren(final Schema schema) {
+		if(schema instanceof ObjectSchema) {
+			return ((ObjectSchema) schema).getFields();
+		}
+		else if(schema instanceof ArraySchema) {
+			return schema.getSubSchemas();
+		}
+		else {
+			return Collections.emptyList();
+		}
+	}
+
+	/**
+	 * Interns each schema in a list.
+	 *
+	 * @param list
+	 *        The schemas to intern.
+	 *
+	 * @return The interned schemas or null if every schema was already the
+	 *         interned one.
+	 *
+	 * @throws ConcordiaException
+	 *         One of the schemas could not be interned.
+	 */
+	private List<Schema> internAll(
+		final List<Schema> list)
+		throws ConcordiaException {
+
+		List<Schema> result = null;
+		for(int i = 0; i < list.size(); i++) {
+			Schema schema = list.get(i);
+			Schema interned = intern(schema);
+			if((interned != schema) && (result == null)) {
+				result = new ArrayList<Schema>(list.subList(0, i));
+			}
+			if(result != null) {
+				result.add(interned);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns whether or not a schema is one of the types that can be
+	 * interned.
+	 *
+	 * @param schema
+	 *        The schema.
+	 *
+	 * @return Whether or not the schema's type is defined by Concordia and is
+	 *         not a {@link ReferenceSchema}.
+	 */
+	private static boolean isInternable(final Schema schema) {
+		Class<?> type = schema.getClass();
+		return
+			(type == BooleanSchema.class) ||
+			(type == NumberSchema.class) ||
+			(type == StringSchema.class) ||
+			(type == ObjectSchema.class) ||
+			(type == ArraySchema.class);
+	}
+}
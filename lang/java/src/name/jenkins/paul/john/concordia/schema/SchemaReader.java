@@ -0,0 +1,755 @@
+package name.jenkins.paul.john.concordia.schema;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.reference.ReferenceResolver;
+import name.jenkins.paul.john.concordia.reference.UrlReferenceResolver;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * <p>
+ * Reads schemas directly from the tokens of a {@link JsonParser}, without
+ * Jackson's data binding. It applies the same rules as binding a
+ * {@link Schema} with the
+ * {@link name.jenkins.paul.john.concordia.jackson.StrictBooleanDeserializer strict boolean}
+ * and
+ * {@link name.jenkins.paul.john.concordia.jackson.StrictStringDeserializer strict string}
+ * deserializers:
+ * </p>
+ *
+ * <ul>
+ * <li>The first {@value Schema#JSON_KEY_TYPE} key selects the type. Any
+ * other value, or no such key, makes the schema a {@link ReferenceSchema},
+ * and any later {@value Schema#JSON_KEY_TYPE} key is an additional
+ * field.</li>
+ * <li>Documentation and names must be strings and the optional flag must be
+ * a boolean, though each may be null. If a key is repeated, its last value
+ * is used.</li>
+ * <li>Keys that are not part of the schema's type are kept as its
+ * {@link Schema#getAdditionalFields() additional fields}, as maps, lists,
+ * strings, numbers, and booleans. If such a key is repeated, its first value
+ * is kept.</li>
+ * </ul>
+ *
+ * <p>
+ * Each schema is {@link SchemaInterner interned} as soon as it has been
+ * read, unlike bound schemas, which are interned again from the root, so a
+ * tree is shared without being walked twice.
+ * </p>
+ *
+ * <p>
+ * This class is not thread-safe, but each read uses its own instance.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public final class SchemaReader {
+	/**
+	 * The factory for parsers that read schemas from streams. As with
+	 * Jackson's readers, it closes the streams once they have been read.
+	 */
+	private static final JsonFactory FACTORY = new JsonFactory();
+
+	/**
+	 * The values of a schema's keys as they are read.
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class Values {
+		/**
+		 * The type ID or null if it has not been read yet.
+		 */
+		private String type = null;
+		/**
+		 * The documentation.
+		 */
+		private String doc = null;
+		/**
+		 * Whether or not the schema is optional.
+		 */
+		private boolean optional = false;
+		/**
+		 * The name.
+		 */
+		private String name = null;
+		/**
+		 * The additional fields or null if there are none.
+		 */
+		private Map<String, Object> others = null;
+		/**
+		 * An object schema's fields.
+		 */
+		private List<Schema> fields = null;
+		/**
+		 * Whether or not the {@link #fields} are all interned.
+		 */
+		private boolean fieldsShared = false;
+		/**
+		 * An array schema's constant type.
+		 */
+		private Schema constType = null;
+		/**
+		 * Whether or not the {@link #constType} is interned.
+		 */
+		private boolean constTypeShared = false;
+		/**
+		 * An array schema's constant-length types.
+		 */
+		private List<Schema> constLength = null;
+		/**
+		 * Whether or not the {@link #constLength} types are all interned.
+		 */
+		private boolean constLengthShared = false;
+		/**
+		 * A reference schema's URL.
+		 */
+		private URL reference = null;
+	}
+
+	/**
+	 * The resolver for references.
+	 */
+	private final ReferenceResolver resolver;
+
+	/**
+	 * Whether or not the last schema, or every schema in the last list of
+	 * schemas, that was read is the interned instance. Only a schema whose
+	 * sub-schemas are all interned is interned itself, so schemas that
+	 * contain references are not walked again at every level.
+	 */
+	private boolean shared = false;
+
+	/**
+	 * Creates a reader for one schema.
+	 *
+	 * @param resolver
+	 *        The resolver for references or null to use
+	 *        {@link UrlReferenceResolver#DEFAULT_RESOLVER}.
+	 */
+	private SchemaReader(final ReferenceResolver resolver) {
+		this.resolver =
+			(resolver == null) ?
+				UrlReferenceResolver.DEFAULT_RESOLVER :
+				resolver;
+	}
+
+	/**
+	 * Reads a schema from a stream, which is closed afterwards.
+	 *
+	 * @param input
+	 *        The stream containing the schema.
+	 *
+	 * @param resolver
+	 *        The resolver for any referenced schemas or null, in which case
+	 *        {@link UrlReferenceResolver#DEFAULT_RESOLVER} is used.
+	 *
+	 * @return The interned schema.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The stream is null.
+	 *
+	 * @throws JsonParseException
+	 *         The stream was not valid JSON.
+	 *
+	 * @throws IOException
+	 *         The stream could not be read.
+	 *
+	 * @throws ConcordiaException
+	 *         The JSON was not a schema.
+	 */
+	public static Schema read(
+		final InputStream input,
+		final ReferenceResolver resolver)
+		throws
+			IllegalArgumentException,
+			JsonParseException,
+			IOException,
+			ConcordiaException {
+
+		if(input == null) {
+			throw new IllegalArgumentException("The input is null.");
+		}
+
+		JsonParser parser = FACTORY.createParser(input);
+		try {
+			return read(parser, resolver);
+		}
+		finally {
+			parser.close();
+		}
+	}
+
+	/**
+	 * Reads a schema from a parser. The parser may be positioned before the
+	 * schema, at the start of it, or at its first key, and it is left at the
+	 * end of the schema.
+	 *
+	 * @param parser
+	 *        The parser for the schema.
+	 *
+	 * @param resolver
+	 *        The resolver for any referenced schemas or null, in which case
+	 *        {@link UrlReferenceResolver#DEFAULT_RESOLVER} is used.
+	 *
+	 * @return The interned schema.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The parser is null.
+	 *
+	 * @throws JsonParseException
+	 *         The parser's input was not valid JSON.
+	 *
+	 * @throws IOException
+	 *         The parser's input could not be read.
+	 *
+	 * @throws ConcordiaException
+	 *         The JSON was not a schema.
+	 */
+	public static Schema read(
+		final JsonParser parser,
+		final ReferenceResolver resolver)
+		throws
+			IllegalArgumentException,
+			JsonParseException,
+			IOException,
+			ConcordiaException {
+
+		if(parser == null) {
+			throw new IllegalArgumentException("The parser is null.");
+		}
+
+		JsonToken token = parser.getCurrentToken();
+		if(token == null) {
+			token = parser.nextToken();
+		}
+		if(token == null) {
+			throw new ConcordiaException("The schema is empty.");
+		}
+		if(token == JsonToken.VALUE_NULL) {
+			throw new ConcordiaException("The schema is null.");
+		}
+		if((token != JsonToken.START_OBJECT) &&
+			(token != JsonToken.FIELD_NAME)) {
+
+			throw new ConcordiaException("The schema is not a JSON object.");
+		}
+
+		return (new SchemaReader(resolver)).readSchema(parser);
+	}
+
+	/**
+	 * Reads a schema.
+	 *
+	 * @param parser
+	 *        The parser, which is at the start of the schema or its first
+	 *        key. It is left at the end of the schema.
+	 *
+	 * @return The schema.
+	 *
+	 * @throws IOException
+	 *         The schema could not be read.
+	 *
+	 * @throws ConcordiaException
+	 *         The JSON was not a schema.
+	 */
+	private Schema readSchema(
+		final JsonParser parser)
+		throws IOException, ConcordiaException {
+
+		Values values = new Values();
+
+		// The keys whose meaning depends on the type are buffered until the
+		// type is known. It is usually first, or at least before them, so
+		// this is rarely needed.
+		TokenBuffer buffer = null;
+
+		JsonToken token = parser.getCurrentToken();
+		if(token == JsonToken.START_OBJECT) {
+			token = parser.nextToken();
+		}
+		for(; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+			String key = parser.getCurrentName();
+			if(values.type == null) {
+				if(Schema.JSON_KEY_TYPE.equals(key)) {
+					token = parser.nextToken();
+					if((token == JsonToken.START_OBJECT) ||
+						(token == JsonToken.START_ARRAY)) {
+
+						throw
+							new ConcordiaException(
+								"A string value was expected but not " +
+									"given: " +
+									key);
+					}
+					values.type = parser.getText();
+					continue;
+				}
+				else if(ObjectSchema.JSON_KEY_FIELDS.equals(key) ||
+					ArraySchema.JSON_KEY_CONST_TYPE.equals(key) ||
+					ArraySchema.JSON_KEY_CONST_LENGTH.equals(key) ||
+					ReferenceSchema.JSON_KEY_REFERENCE.equals(key)) {
+
+					if(buffer == null) {
+						buffer = new TokenBuffer(null);
+					}
+					buffer.copyCurrentStructure(parser);
+					continue;
+				}
+			}
+
+			parser.nextToken();
+			readValue(parser, key, values);
+		}
+
+		if(buffer != null) {
+			JsonParser buffered = buffer.asParser(parser);
+			while(buffered.nextToken() == JsonToken.FIELD_NAME) {
+				String key = buffered.getCurrentName();
+				buffered.nextToken();
+				readValue(buffered, key, values);
+			}
+		}
+
+		return build(values);
+	}
+
+	/**
+	 * Reads the value of one of a schema's keys.
+	 *
+	 * @param parser
+	 *        The parser, which is at the value.
+	 *
+	 * @param key
+	 *        The key.
+	 *
+	 * @param values
+	 *        The values of the schema so far, which this updates.
+	 *
+	 * @throws IOException
+	 *         The value could not be read.
+	 *
+	 * @throws ConcordiaException
+	 *         The value was not valid for its key.
+	 */
+	private void readValue(
+		final JsonParser parser,
+		final String key,
+		final Values values)
+		throws IOException, ConcordiaException {
+
+		String type = values.type;
+		if(Schema.JSON_KEY_DOC.equals(key)) {
+			values.doc = readString(parser, key);
+		}
+		else if(Schema.JSON_KEY_OPTIONAL.equals(key)) {
+			values.optional = readBoolean(parser, key);
+		}
+		else if(ObjectSchema.JSON_KEY_NAME.equals(key)) {
+			values.name = readString(parser, key);
+		}
+		else if(ObjectSchema.TYPE_ID.equals(type) &&
+			ObjectSchema.JSON_KEY_FIELDS.equals(key)) {
+
+			values.fields = readSchemas(parser, key);
+			values.fieldsShared = shared;
+		}
+		else if(ArraySchema.TYPE_ID.equals(type) &&
+			ArraySchema.JSON_KEY_CONST_TYPE.equals(key)) {
+
+			values.constType = readSubSchema(parser, key);
+			values.constTypeShared = shared;
+		}
+		else if(ArraySchema.TYPE_ID.equals(type) &&
+			ArraySchema.JSON_KEY_CONST_LENGTH.equals(key)) {
+
+			values.constLength = readSchemas(parser, key);
+			values.constLengthShared = shared;
+		}
+		else if(ReferenceSchema.JSON_KEY_REFERENCE.equals(key) &&
+			(! isType(type))) {
+
+			values.reference = readUrl(parser, key);
+		}
+		else {
+			Object value = readAdditional(parser);
+			if(values.others == null) {
+				values.others = new HashMap<String, Object>();
+			}
+			if(! values.others.containsKey(key)) {
+				values.others.put(key, value);
+			}
+		}
+	}
+
+	/**
+	 * Builds and interns a schema.
+	 *
+	 * @param values
+	 *        The values of the schema.
+	 *
+	 * @return The schema.
+	 *
+	 * @throws ConcordiaException
+	 *         The schema is missing a value its type requires.
+	 */
+	private Schema build(final Values values) throws ConcordiaException {
+		String type = values.type;
+
+		Schema result;
+		shared = true;
+		if(BooleanSchema.TYPE_ID.equals(type)) {
+			result =
+				new BooleanSchema(
+					values.doc,
+					values.optional,
+					values.name,
+					values.others);
+		}
+		else if(NumberSchema.TYPE_ID.equals(type)) {
+			result =
+				new NumberSchema(
+					values.doc,
+					values.optional,
+					values.name,
+					values.others);
+		}
+		else if(StringSchema.TYPE_ID.equals(type)) {
+			result =
+				new StringSchema(
+					values.doc,
+					values.optional,
+					values.name,
+					values.others);
+		}
+		else if(ObjectSchema.TYPE_ID.equals(type)) {
+			result =
+				new ObjectSchema(
+					values.doc,
+					values.optional,
+					values.name,
+					values.fields,
+					values.others);
+			shared = values.fieldsShared;
+		}
+		else if(ArraySchema.TYPE_ID.equals(type)) {
+			result =
+				new ArraySchema(
+					values.doc,
+					values.optional,
+					values.name,
+					values.constType,
+					values.constLength,
+					values.others);
+			shared =
+				(values.constType == null) ?
+					values.constLengthShared :
+					values.constTypeShared;
+		}
+		else {
+			// References are read lazily, so they are never shared.
+			shared = false;
+			return
+				new ReferenceSchema(
+					values.doc,
+					values.optional,
+					values.name,
+					values.reference,
+					resolver,
+					values.others);
+		}
+
+		if(shared) {
+			result = SchemaInterner.getInstance().share(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Reads a sub-schema.
+	 *
+	 * @param parser
+	 *        The parser, which is at the value.
+	 *
+	 * @param key
+	 *        The key of the value.
+	 *
+	 * @return The sub-schema or null if the value was null.
+	 *
+	 * @throws IOException
+	 *         The value could not be read.
+	 *
+	 * @throws ConcordiaException
+	 *         The value was not a schema.
+	 */
+	private Schema readSubSchema(
+		final JsonParser parser,
+		final String key)
+		throws IOException, ConcordiaException {
+
+		JsonToken token = parser.getCurrentToken();
+		if(token == JsonToken.START_OBJECT) {
+			return readSchema(parser);
+		}
+		else if(token == JsonToken.VALUE_NULL) {
+			shared = false;
+			return null;
+		}
+		else {
+			throw
+				new ConcordiaException(
+					"A schema was expected but not given: " + key);
+		}
+	}
+
+	/**
+	 * Reads a list of sub-schemas.
+	 *
+	 * @param parser
+	 *        The parser, which is at the value.
+	 *
+	 * @param key
+	 *        The key of the value.
+	 *
+	 * @return The sub-schemas or null if the value was null.
+	 *
+	 * @throws IOException
+	 *         The value could not be read.
+	 *
+	 * @throws ConcordiaException
+	 *         The value was not a list of schemas.
+	 */
+	private List<Schema> readSchemas(
+		final JsonParser parser,
+		final String key)
+		throws IOException, ConcordiaException {
+
+		JsonToken token = parser.getCurrentToken();
+		if(token == JsonToken.VALUE_NULL) {
+			shared = false;
+			return null;
+		}
+		else if(token != JsonToken.START_ARRAY) {
+			throw
+				new ConcordiaException(
+					"A list of schemas was expected but not given: " + key);
+		}
+
+		List<Schema> result = new ArrayList<Schema>();
+		boolean allShared = true;
+		while(parser.nextToken() != JsonToken.END_ARRAY) {
+			result.add(readSubSchema(parser, key));
+			allShared &= shared;
+		}
+		shared = allShared;
+		return result;
+	}
+
+	/**
+	 * Reads a string.
+	 *
+	 * @param parser
+	 *        The parser, which is at the value.
+	 *
+	 * @param key
+	 *        The key of the value.
+	 *
+	 * @return The string or null if the value was null.
+	 *
+	 * @throws IOException
+	 *         The value could not be read.
+	 *
+	 * @throws ConcordiaException
+	 *         The value was not a string.
+	 */
+	private static String readString(
+		final JsonParser parser,
+		final String key)
+		throws IOException, ConcordiaException {
+
+		JsonToken token = parser.getCurrentToken();
+		if(token == JsonToken.VALUE_STRING) {
+			return parser.getText();
+		}
+		else if(token == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		else {
+			throw
+				new ConcordiaException(
+					"A string value was expected but not given: " + key);
+		}
+	}
+
+	/**
+	 * Reads a boolean.
+	 *
+	 * @param parser
+	 *        The parser, which is at the value.
+	 *
+	 * @param key
+	 *        The key of the value.
+	 *
+	 * @return The boolean, which is false if the value was null.
+	 *
+	 * @throws IOException
+	 *         The value could not be read.
+	 *
+	 * @throws ConcordiaException
+	 *         The value was not a boolean.
+	 */
+	private static boolean readBoolean(
+		final JsonParser parser,
+		final String key)
+		throws IOException, ConcordiaException {
+
+		JsonToken token = parser.getCurrentToken();
+		if(token == JsonToken.VALUE_TRUE) {
+			return true;
+		}
+		else if((token == JsonToken.VALUE_FALSE) ||
+			(token == JsonToken.VALUE_NULL)) {
+
+			return false;
+		}
+		else {
+			throw
+				new ConcordiaException(
+					"A boolean value was expected but not given: " + key);
+		}
+	}
+
+	/**
+	 * Reads a URL. Like Jackson, this accepts the text of any scalar value
+	 * and trims it, and an empty URL is null.
+	 *
+	 * @param parser
+	 *        The parser, which is at the value.
+	 *
+	 * @param key
+	 *        The key of the value.
+	 *
+	 * @return The URL or null if the value was null or empty.
+	 *
+	 * @throws IOException
+	 *         The value could not be read.
+	 *
+	 * @throws ConcordiaException
+	 *         The value was not a URL.
+	 */
+	private static URL readUrl(
+		final JsonParser parser,
+		final String key)
+		throws IOException, ConcordiaException {
+
+		JsonToken token = parser.getCurrentToken();
+		if(token == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		else if((token == JsonToken.START_OBJECT) ||
+			(token == JsonToken.START_ARRAY)) {
+
+			throw
+				new ConcordiaException(
+					"A URL was expected but not given: " + key);
+		}
+
+		String url = parser.getText().trim();
+		if(url.length() == 0) {
+			return null;
+		}
+		try {
+			return new URL(url);
+		}
+		catch(MalformedURLException e) {
+			throw new ConcordiaException("The URL is malformed: " + url, e);
+		}
+	}
+
+	/**
+	 * Reads an additional field's value as Jackson would bind it to an
+	 * {@link Object}.
+	 *
+	 * @param parser
+	 *        The parser, which is at the value.
+	 *
+	 * @return The value as a map, list, string, number, boolean, or null.
+	 *
+	 * @throws IOException
+	 *         The value could not be read.
+	 */
+	private static Object readAdditional(
+		final JsonParser parser)
+		throws IOException {
+
+		switch(parser.getCurrentToken()) {
+		case START_OBJECT:
+			Map<String, Object> object = new LinkedHashMap<String, Object>();
+			while(parser.nextToken() == JsonToken.FIELD_NAME) {
+				String key = parser.getCurrentName();
+				parser.nextToken();
+				object.put(key, readAdditional(parser));
+			}
+			return object;
+
+		case START_ARRAY:
+			List<Object> array = new ArrayList<Object>();
+			while(parser.nextToken() != JsonToken.END_ARRAY) {
+				array.add(readAdditional(parser));
+			}
+			return array;
+
+		case VALUE_STRING:
+			return parser.getText();
+
+		case VALUE_NUMBER_INT:
+			return parser.getNumberValue();
+
+		case VALUE_NUMBER_FLOAT:
+			return parser.getDoubleValue();
+
+		case VALUE_TRUE:
+			return Boolean.TRUE;
+
+		case VALUE_FALSE:
+			return Boolean.FALSE;
+
+		case VALUE_EMBEDDED_OBJECT:
+			return parser.getEmbeddedObject();
+
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Returns whether or not a type ID is one of the types other than
+	 * {@link ReferenceSchema}.
+	 *
+	 * @param type
+	 *        The type ID, which may be null.
+	 *
+	 * @return Whether or not the ID is one of the other types.
+	 */
+	private static boolean isType(final String type) {
+		return
+			BooleanSchema.TYPE_ID.equals(type) ||
+			NumberSchema.TYPE_ID.equals(type) ||
+			StringSchema.TYPE_ID.equals(type) ||
+			ObjectSchema.TYPE_ID.equals(type) ||
+			ArraySchema.TYPE_ID.equals(type);
+	}
+}
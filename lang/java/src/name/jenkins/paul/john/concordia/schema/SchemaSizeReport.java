@@ -0,0 +1,553 @@
+package name.jenkins.paul.john.concordia.schema;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URL;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * An estimate of the memory that a schema retains, which is used to size the
+ * heaps of services that hold many schemas.
+ * </p>
+ *
+ * <p>
+ * Each schema node is counted once, no matter how many times it appears,
+ * along with its strings, lists, and additional fields. Referenced schemas
+ * are counted if they have already been read, but they are never read just
+ * to be measured. Some of the memory may be shared with other schemas,
+ * because the nodes are {@link SchemaInterner interned} or because a
+ * referenced schema is shared by the
+ * {@link name.jenkins.paul.john.concordia.reference.ReferenceCache}. That
+ * memory is reported separately, so a heap with <i>n</i> similar schemas
+ * needs about <i>n</i> times the {@link #getUnsharedBytes() unshared bytes}
+ * and the {@link #getSharedBytes() shared bytes} once.
+ * </p>
+ *
+ * <p>
+ * Sizes are estimated for a 64-bit JVM with compressed references, i.e. a
+ * heap smaller than 32 gigabytes, where objects have a 12-byte header and
+ * are aligned to 8 bytes. Strings that the JVM shares, e.g. literals, and
+ * values that are cached, e.g. {@link Boolean}s, are still counted, so this
+ * is an upper bound. The compiled validator is not included.
+ * </p>
+ *
+ * <p>
+ * This class is immutable.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public final class SchemaSizeReport {
+	/**
+	 * The size of an object's header.
+	 */
+	private static final int OBJECT_HEADER = 12;
+	/**
+	 * The size of an array's header, including its length.
+	 */
+	private static final int ARRAY_HEADER = 16;
+	/**
+	 * The size of a reference.
+	 */
+	private static final int REFERENCE = 4;
+	/**
+	 * The size of an unmodifiable wrapper around a list.
+	 */
+	private static final int LIST_WRAPPER =
+		align(OBJECT_HEADER + (2 * REFERENCE));
+	/**
+	 * The size of an unmodifiable wrapper around a map.
+	 */
+	private static final int MAP_WRAPPER =
+		align(OBJECT_HEADER + (4 * REFERENCE));
+	/**
+	 * The size of a {@link HashMap}, excluding its table and entries.
+	 */
+	private static final int HASH_MAP =
+		align(OBJECT_HEADER + (4 * REFERENCE) + 16);
+	/**
+	 * The size of one entry of a {@link HashMap}.
+	 */
+	private static final int HASH_MAP_ENTRY =
+		align(OBJECT_HEADER + 4 + (3 * REFERENCE));
+	/**
+	 * The size of a {@link LinkedHashMap}, excluding its table and entries.
+	 */
+	private static final int LINKED_HASH_MAP =
+		align(HASH_MAP + (2 * REFERENCE) + 1);
+	/**
+	 * The size of one entry of a {@link LinkedHashMap}.
+	 */
+	private static final int LINKED_HASH_MAP_ENTRY =
+		align(HASH_MAP_ENTRY + (2 * REFERENCE));
+	/**
+	 * The size of a {@link String}, excluding its characters.
+	 */
+	private static final int STRING = align(OBJECT_HEADER + REFERENCE + 4);
+	/**
+	 * The size of a {@link URL}, excluding its strings.
+	 */
+	private static final int URL_OBJECT =
+		align(OBJECT_HEADER + (10 * REFERENCE) + 8);
+
+	/**
+	 * The number of distinct schema nodes.
+	 */
+	private final int nodes;
+	/**
+	 * The number of distinct schema nodes that may be shared.
+	 */
+	private final int sharedNodes;
+	/**
+	 * The estimated number of bytes.
+	 */
+	private final long bytes;
+	/**
+	 * The estimated number of bytes that may be shared.
+	 */
+	private final long sharedBytes;
+
+	/**
+	 * <p>
+	 * Walks a schema and adds up its size.
+	 * </p>
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class Walker {
+		/**
+		 * The interner that decides whether or not a node is shared.
+		 */
+		private final SchemaInterner interner = SchemaInterner.getInstance();
+		/**
+		 * The objects that have already been counted.
+		 */
+		private final Map<Object, Boolean> visited =
+			new IdentityHashMap<Object, Boolean>();
+		/**
+		 * The size of each schema class without the objects it refers to.
+		 */
+		private final Map<Class<?>, Integer> shallowSizes =
+			new HashMap<Class<?>, Integer>();
+
+		/**
+		 * The number of distinct schema nodes.
+		 */
+		private int nodes = 0;
+		/**
+		 * The number of distinct schema nodes that may be shared.
+		 */
+		private int sharedNodes = 0;
+		/**
+		 * The estimated number of bytes.
+		 */
+		private long bytes = 0;
+		/**
+		 * The estimated number of bytes that may be shared.
+		 */
+		private long sharedBytes = 0;
+
+		/**
+		 * Adds a schema node and everything it refers to.
+		 *
+		 * @param schema
+		 *        The schema node.
+		 *
+		 * @param shared
+		 *        Whether or not the parent of this node may be shared, in
+		 *        which case so may this one.
+		 */
+		private void schema(final Schema schema, final boolean shared) {
+			if((schema == null) ||
+				(visited.put(schema, Boolean.TRUE) != null)) {
+
+				return;
+			}
+
+			boolean isShared = shared || interner.isInterned(schema);
+			long size = shallowSize(schema.getClass());
+			size += string(schema.getDoc());
+			size += string(schema.getName());
+			Map<String, Object> others = schema.getAdditionalFields();
+			if((! others.isEmpty()) &&
+				(visited.put(others, Boolean.TRUE) == null)) {
+
+				size += MAP_WRAPPER + map(others, HASH_MAP, HASH_MAP_ENTRY);
+			}
+
+			if(schema instanceof ObjectSchema) {
+				size += list(((ObjectSchema) schema).getFields());
+			}
+			else if(schema instanceof ArraySchema) {
+				ArraySchema array = (ArraySchema) schema;
+				size += list(array.getConstLength());
+				if(array.getConstType() != null) {
+					size += list(array.getSubSchemas());
+				}
+			}
+			else if(schema instanceof ReferenceSchema) {
+				size += url(((ReferenceSchema) schema).getReference());
+			}
+
+			nodes++;
+			bytes += size;
+			if(isShared) {
+				sharedNodes++;
+				sharedBytes += size;
+			}
+
+			for(Schema subSchema : getChildren(schema)) {
+				schema(subSchema, isShared);
+			}
+			if(schema instanceof ReferenceSchema) {
+				// The referenced schemas are shared by the cache.
+				schema(((ReferenceSchema) schema).getLoadedSchema(), true);
+			}
+		}
+
+		/**
+		 * Returns the size of a list of schemas, excluding the schemas.
+		 *
+		 * @param list
+		 *        The list, which is one of the unmodifiable lists created by
+		 *        the schemas or null.
+		 *
+		 * @return The size of the list.
+		 */
+		private long list(final List<Schema> list) {
+			if((list == null) ||
+				list.isEmpty() ||
+				(visited.put(list, Boolean.TRUE) != null)) {
+
+				return 0;
+			}
+			if(list.size() == 1) {
+				// The schemas only create singleton lists for one element.
+				return align(OBJECT_HEADER + REFERENCE);
+			}
+			return
+				LIST_WRAPPER +
+				align(OBJECT_HEADER + REFERENCE) +
+				array(list.size(), REFERENCE);
+		}
+
+		/**
+		 * Returns the size of a map and its contents.
+		 *
+		 * @param map
+		 *        The map.
+		 *
+		 * @param mapSize
+		 *        The size of the map without its table and entries.
+		 *
+		 * @param entrySize
+		 *        The size of each entry.
+		 *
+		 * @return The size of the map.
+		 */
+		private long map(
+			final Map<?, ?> map,
+			final int mapSize,
+			final int entrySize) {
+
+			int capacity = 1;
+			while(capacity < ((map.size() / 0.75) + 1)) {
+				capacity <<= 1;
+			}
+
+			long result =
+				mapSize +
+				array(capacity, REFERENCE) +
+				((long) map.size() * entrySize);
+			for(Map.Entry<?, ?> entry : map.entrySet()) {
+				result += value(entry.getKey());
+				result += value(entry.getValue());
+			}
+			return result;
+		}
+
+		/**
+		 * Returns the size of an additional field's key or value, which
+		 * Jackson reads as a string, number, boolean, list, or map.
+		 *
+		 * @param value
+		 *        The value.
+		 *
+		 * @return The size of the value.
+		 */
+		private long value(final Object value) {
+			if(value instanceof String) {
+				return string((String) value);
+			}
+			if((value == null) || (visited.put(value, Boolean.TRUE) != null)) {
+				return 0;
+			}
+
+			if(value instanceof Map) {
+				return
+					map(
+						(Map<?, ?>) value,
+						LINKED_HASH_MAP,
+						LINKED_HASH_MAP_ENTRY);
+			}
+			else if(value instanceof Collection) {
+				Collection<?> collection = (Collection<?>) value;
+				long result =
+					align(OBJECT_HEADER + REFERENCE + 8) +
+					array(collection.size(), REFERENCE);
+				for(Object element : collection) {
+					result += value(element);
+				}
+				return result;
+			}
+			else if((value instanceof Long) || (value instanceof Double)) {
+				return align(OBJECT_HEADER + 8);
+			}
+			else if((value instanceof BigInteger) ||
+				(value instanceof BigDecimal)) {
+
+				return align(OBJECT_HEADER + 24) + array(2, 4);
+			}
+			else {
+				return align(OBJECT_HEADER + 4);
+			}
+		}
+
+		/**
+		 * Returns the size of a URL and its strings.
+		 *
+		 * @param url
+		 *        The URL.
+		 *
+		 * @return The size of the URL.
+		 */
+		private long url(final URL url) {
+			if((url == null) || (visited.put(url, Boolean.TRUE) != null)) {
+				return 0;
+			}
+			return
+				URL_OBJECT +
+				string(url.getHost()) +
+				string(url.getAuthority()) +
+				string(url.getFile()) +
+				string(url.getPath());
+		}
+
+		/**
+		 * Returns the size of a string.
+		 *
+		 * @param string
+		 *        The string.
+		 *
+		 * @return The size of the string, or zero if it is null or was
+		 *         already counted.
+		 */
+		private long string(final String string) {
+			if((string == null) ||
+				(visited.put(string, Boolean.TRUE) != null)) {
+
+				return 0;
+			}
+			return STRING + array(string.length(), 2);
+		}
+
+		/**
+		 * Returns the size of a schema without the objects it refers to.
+		 *
+		 * @param type
+		 *        The schema's class.
+		 *
+		 * @return The size of the schema's own fields.
+		 */
+		private int shallowSize(final Class<?> type) {
+			Integer result = shallowSizes.get(type);
+			if(result == null) {
+				int size = OBJECT_HEADER;
+				Class<?> c = type;
+				for(; c != Object.class; c = c.getSuperclass()) {
+					for(Field field : c.getDeclaredFields()) {
+						if(! Modifier.isStatic(field.getModifiers())) {
+							size += fieldSize(field.getType());
+						}
+					}
+				}
+				result = align(size);
+				shallowSizes.put(type, result);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Creates a report.
+	 *
+	 * @param walker
+	 *        The walker that measured the schema.
+	 */
+	private SchemaSizeReport(final Walker walker) {
+		nodes = walker.nodes;
+		sharedNodes = walker.sharedNodes;
+		bytes = walker.bytes;
+		sharedBytes = walker.sharedBytes;
+	}
+
+	/**
+	 * Measures a schema.
+	 *
+	 * @param schema
+	 *        The schema to measure.
+	 *
+	 * @return The report for the schema.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The schema is null.
+	 */
+	public static SchemaSizeReport measure(
+		final Schema schema)
+		throws IllegalArgumentException {
+
+		if(schema == null) {
+			throw new IllegalArgumentException("The schema is null.");
+		}
+
+		Walker walker = new Walker();
+		walker.schema(schema, false);
+		return new SchemaSizeReport(walker);
+	}
+
+	/**
+	 * Returns the number of distinct schema nodes.
+	 *
+	 * @return The number of distinct schema nodes.
+	 */
+	public int getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Returns the number of distinct schema nodes that may be shared with
+	 * other schemas.
+	 *
+	 * @return The number of distinct schema nodes that may be shared.
+	 */
+	public int getSharedNodes() {
+		return sharedNodes;
+	}
+
+	/**
+	 * Returns the estimated number of bytes the schema retains.
+	 *
+	 * @return The estimated number of bytes.
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Returns the estimated number of bytes that may be shared with other
+	 * schemas.
+	 *
+	 * @return The estimated number of bytes that may be shared.
+	 */
+	public long getSharedBytes() {
+		return sharedBytes;
+	}
+
+	/**
+	 * Returns the estimated number of bytes that only this schema retains.
+	 *
+	 * @return The estimated number of bytes that are not shared.
+	 */
+	public long getUnsharedBytes() {
+		return bytes - sharedBytes;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return
+			nodes + " nodes (" + sharedNodes + " shared), about " +
+				bytes + " bytes (" + sharedBytes + " shared)";
+	}
+
+	/**
+	 * Returns the sub-schemas of a schema without reading any referenced
+	 * schemas.
+	 *
+	 * @param schema
+	 *        The schema.
+	 *
+	 * @return The sub-schemas of the schema.
+	 */
+	private static List<Schema> getChildren(final Schema schema) {
+		if(schema instanceof ReferenceSchema) {
+			return Collections.emptyList();
+		}
+		return schema.getSubSchemas();
+	}
+
+	/**
+	 * Returns the size of a field of some type.
+	 *
+	 * @param type
+	 *        The field's type.
+	 *
+	 * @return The size of the field.
+	 */
+	private static int fieldSize(final Class<?> type) {
+		if((type == long.class) || (type == double.class)) {
+			return 8;
+		}
+		else if((type == int.class) || (type == float.class)) {
+			return 4;
+		}
+		else if((type == short.class) || (type == char.class)) {
+			return 2;
+		}
+		else if((type == byte.class) || (type == boolean.class)) {
+			return 1;
+		}
+		else {
+			return REFERENCE;
+		}
+	}
+
+	/**
+	 * Returns the size of an array.
+	 *
+	 * @param length
+	 *        The array's length.
+	 *
+	 * @param elementSize
+	 *        The size of each element.
+	 *
+	 * @return The size of the array.
+	 */
+	private static long array(final long length, final int elementSize) {
+		return align(ARRAY_HEADER + (length * elementSize));
+	}
+
+	/**
+	 * Rounds a size up to the alignment of objects.
+	 *
+	 * @param size
+	 *        The size.
+	 *
+	 * @return The aligned size.
+	 */
+	private static int align(final long size) {
+		return (int) ((size + 7) & ~7L);
+	}
+}
@@ -0,0 +1,1010 @@
+package name.jenkins.paul.john.concordia.schema;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.reference.ReferenceResolver;
+import name.jenkins.paul.john.concordia.validator.ValidationController;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * <p>
+ * A compact binary snapshot of a schema and every schema it refers to, so
+ * that a schema that has already been read, validated, and resolved can be
+ * loaded again without any of that work. A snapshot is:
+ * </p>
+ *
+ * <ul>
+ * <li>The 4-byte {@link #MAGIC magic number} and the 1-byte
+ * {@link #VERSION version}.</li>
+ * <li>The 8-byte
+ * {@link ValidationController#getSchemaValidatorDigest() digest} of the
+ * controller that validated every schema in the snapshot as it was written,
+ * or zero if they were not validated.</li>
+ * <li>The root schema followed by its 8-byte
+ * {@link Schema#fingerprint() fingerprint}.</li>
+ * <li>For each {@link ReferenceSchema}, in the order they were written, the
+ * schema it refers to followed by that schema's fingerprint.</li>
+ * </ul>
+ *
+ * <p>
+ * Every count, index, and length is an unsigned varint. Strings are an
+ * index: 0 for null, the index of a string that was already written, or
+ * one more than the number of strings so far for a new string, which is
+ * followed by its UTF-8 length and bytes. Schemas are indexed the same way,
+ * so a schema that appears many times is only written once. A new schema is
+ * a header byte, with the type in its lowest 3 bits, {@value #OPTIONAL} if
+ * it is optional, and {@value #ADDITIONAL} if it has additional fields. Its
+ * documentation and name follow and then, if it has any, its additional
+ * fields as a JSON string. Objects end with their fields, constant-type
+ * arrays with their type, constant-length arrays with their schemas, and
+ * references with their URL. The schema that a reference refers to is
+ * written after the rest of the tree, so a referenced schema that refers
+ * back to an enclosing schema can always be read.
+ * </p>
+ *
+ * <p>
+ * When a snapshot is read, the schemas are {@link SchemaInterner interned}
+ * and each reference is given the schema it refers to, so it is never read
+ * through the {@link name.jenkins.paul.john.concordia.reference.ReferenceCache}.
+ * Each fingerprint is checked against the schema that was read, and the
+ * digest against the controller that the snapshot is read for. If a
+ * referenced schema does not match, or the digest does not, it is dropped
+ * and read as usual the first time it is needed. If the root does not
+ * match, or the digest does not, the snapshot is not
+ * {@link #isVerified() verified} and should be validated again. The
+ * fingerprints cover the class of each reference's resolver, so a snapshot
+ * should be read with the same kind of resolver that it was written with.
+ * </p>
+ *
+ * <p>
+ * Neither the fingerprints nor the digest are cryptographic; they guard
+ * against mistakes, not tampering. Snapshots should only be read from
+ * trusted storage.
+ * </p>
+ *
+ * <p>
+ * Only the schema types defined by Concordia can be written.
+ * </p>
+ *
+ * <p>
+ * This class is immutable.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public final class SchemaSnapshot {
+	/**
+	 * The first 4 bytes of every snapshot, "CSNP".
+	 */
+	public static final int MAGIC = 0x43534E50;
+	/**
+	 * The version of the snapshot format.
+	 */
+	public static final int VERSION = 2;
+
+	/**
+	 * The header bit of a schema that is optional.
+	 */
+	public static final int OPTIONAL = 0x08;
+	/**
+	 * The header bit of a schema that has additional fields.
+	 */
+	public static final int ADDITIONAL = 0x10;
+
+	/**
+	 * The type of a {@link BooleanSchema}.
+	 */
+	private static final int TYPE_BOOLEAN = 0;
+	/**
+	 * The type of a {@link NumberSchema}.
+	 */
+	private static final int TYPE_NUMBER = 1;
+	/**
+	 * The type of a {@link StringSchema}.
+	 */
+	private static final int TYPE_STRING = 2;
+	/**
+	 * The type of an {@link ObjectSchema}.
+	 */
+	private static final int TYPE_OBJECT = 3;
+	/**
+	 * The type of a constant-type {@link ArraySchema}.
+	 */
+	private static final int TYPE_CONST_TYPE = 4;
+	/**
+	 * The type of a constant-length {@link ArraySchema}.
+	 */
+	private static final int TYPE_CONST_LENGTH = 5;
+	/**
+	 * The type of a {@link ReferenceSchema}.
+	 */
+	private static final int TYPE_REFERENCE = 6;
+	/**
+	 * The bits of the header that hold the type.
+	 */
+	private static final int TYPE_MASK = 0x07;
+
+	/**
+	 * The most bytes of a string that are read before any of them have
+	 * arrived.
+	 */
+	private static final int STRING_CHUNK_SIZE = 8 * 1024;
+
+	/**
+	 * The encoding of strings.
+	 */
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * The mapper for additional fields.
+	 */
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	/**
+	 * <p>
+	 * Writes one snapshot.
+	 * </p>
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class Writer {
+		/**
+		 * The output.
+		 */
+		private final DataOutputStream output;
+		/**
+		 * The controller that validates each schema before it is written or
+		 * null if they are not validated.
+		 */
+		private final ValidationController controller;
+		/**
+		 * The index of each schema that has been written.
+		 */
+		private final Map<Schema, Integer> schemas =
+			new IdentityHashMap<Schema, Integer>();
+		/**
+		 * The index of each string that has been written.
+		 */
+		private final Map<String, Integer> strings =
+			new HashMap<String, Integer>();
+		/**
+		 * The references whose schemas still need to be written.
+		 */
+		private final List<ReferenceSchema> pending =
+			new ArrayList<ReferenceSchema>();
+
+		/**
+		 * Creates a writer.
+		 *
+		 * @param output
+		 *        The output.
+		 *
+		 * @param controller
+		 *        The controller that validates each schema before it is
+		 *        written or null if they are not validated.
+		 */
+		private Writer(
+			final DataOutputStream output,
+			final ValidationController controller) {
+
+			this.output = output;
+			this.controller = controller;
+		}
+
+		/**
+		 * Writes a schema and everything it refers to.
+		 *
+		 * @param root
+		 *        The schema.
+		 *
+		 * @throws ConcordiaException
+		 *         The schema, or a schema it refers to, could not be read, is
+		 *         invalid, or cannot be written.
+		 *
+		 * @throws IOException
+		 *         The snapshot could not be written.
+		 */
+		private void write(
+			final Schema root)
+			throws ConcordiaException, IOException {
+
+			output.writeInt(MAGIC);
+			output.writeByte(VERSION);
+			output
+				.writeLong(
+					(controller == null) ?
+						0 :
+						controller.getSchemaValidatorDigest());
+			validate(root);
+			schema(root);
+			output.writeLong(root.fingerprint());
+
+			// Referenced schemas may add more references as they are written.
+			for(int i = 0; i < pending.size(); i++) {
+				Schema referenced = pending.get(i).getSchema();
+				validate(referenced);
+				schema(referenced);
+				output.writeLong(referenced.fingerprint());
+			}
+			output.flush();
+		}
+
+		/**
+		 * Validates a schema with the controller, if there is one.
+		 *
+		 * @param schema
+		 *        The schema.
+		 *
+		 * @throws ConcordiaException
+		 *         The schema is invalid.
+		 */
+		private void validate(final Schema schema) throws ConcordiaException {
+			if(controller != null) {
+				controller.validate(schema);
+			}
+		}
+
+		/**
+		 * Writes a schema or its index if it has already been written.
+		 *
+		 * @param schema
+		 *        The schema.
+		 *
+		 * @throws ConcordiaException
+		 *         The schema cannot be written.
+		 *
+		 * @throws IOException
+		 *         The schema could not be written.
+		 */
+		private void schema(
+			final Schema schema)
+			throws ConcordiaException, IOException {
+
+			if(schema == null) {
+				writeVarint(0);
+				return;
+			}
+			Integer index = schemas.get(schema);
+			if(index != null) {
+				writeVarint(index);
+				return;
+			}
+			index = schemas.size() + 1;
+			schemas.put(schema, index);
+			writeVarint(index);
+
+			int header = getType(schema);
+			if(schema.isOptional()) {
+				header |= OPTIONAL;
+			}
+			Map<String, Object> others = schema.getAdditionalFields();
+			if(! others.isEmpty()) {
+				header |= ADDITIONAL;
+			}
+			output.writeByte(header);
+			string(schema.getDoc());
+			string(schema.getName());
+			if(! others.isEmpty()) {
+				string(MAPPER.writeValueAsString(others));
+			}
+
+			switch(header & TYPE_MASK) {
+			case TYPE_OBJECT:
+				schemas(((ObjectSchema) schema).getFields());
+				break;
+
+			case TYPE_CONST_TYPE:
+				schema(((ArraySchema) schema).getConstType());
+				break;
+
+			case TYPE_CONST_LENGTH:
+				schemas(((ArraySchema) schema).getConstLength());
+				break;
+
+			case TYPE_REFERENCE:
+				ReferenceSchema reference = (ReferenceSchema) schema;
+				string(reference.getReference().toExternalForm());
+				pending.add(reference);
+				break;
+
+			default:
+				break;
+			}
+		}
+
+		/**
+		 * Writes a list of schemas.
+		 *
+		 * @param list
+		 *        The schemas.
+		 *
+		 * @throws ConcordiaException
+		 *         A schema cannot be written.
+		 *
+		 * @throws IOException
+		 *         A schema could not be written.
+		 */
+		private void schemas(
+			final List<Schema> list)
+			throws ConcordiaException, IOException {
+
+			writeVarint(list.size());
+			for(Schema schema : list) {
+				schema(schema);
+			}
+		}
+
+		/**
+		 * Writes a string or its index if it has already been written.
+		 *
+		 * @param string
+		 *        The string, which may be null.
+		 *
+		 * @throws IOException
+		 *         The string could not be written.
+		 */
+		private void string(final String string) throws IOException {
+			if(string == null) {
+				writeVarint(0);
+				return;
+			}
+			Integer index = strings.get(string);
+			if(index != null) {
+				writeVarint(index);
+				return;
+			}
+			index = strings.size() + 1;
+			strings.put(string, index);
+			writeVarint(index);
+
+			byte[] bytes = string.getBytes(UTF_8);
+			writeVarint(bytes.length);
+			output.write(bytes);
+		}
+
+		/**
+		 * Writes an unsigned varint.
+		 *
+		 * @param value
+		 *        The value, which must not be negative.
+		 *
+		 * @throws IOException
+		 *         The value could not be written.
+		 */
+		private void writeVarint(final int value) throws IOException {
+			int remaining = value;
+			while((remaining & ~0x7F) != 0) {
+				output.writeByte((remaining & 0x7F) | 0x80);
+				remaining >>>= 7;
+			}
+			output.writeByte(remaining);
+		}
+
+		/**
+		 * Returns the snapshot type of a schema.
+		 *
+		 * @param schema
+		 *        The schema.
+		 *
+		 * @return The schema's type.
+		 *
+		 * @throws ConcordiaException
+		 *         The schema's type is not defined by Concordia.
+		 */
+		private static int getType(
+			final Schema schema)
+			throws ConcordiaException {
+
+			Class<?> type = schema.getClass();
+			if(type == BooleanSchema.class) {
+				return TYPE_BOOLEAN;
+			}
+			else if(type == NumberSchema.class) {
+				return TYPE_NUMBER;
+			}
+			else if(type == StringSchema.class) {
+				return TYPE_STRING;
+			}
+			else if(type == ObjectSchema.class) {
+				return TYPE_OBJECT;
+			}
+			else if(type == ArraySchema.class) {
+				return
+					(((ArraySchema) schema).getConstType() == null) ?
+						TYPE_CONST_LENGTH :
+						TYPE_CONST_TYPE;
+			}
+			else if(type == ReferenceSchema.class) {
+				return TYPE_REFERENCE;
+			}
+			throw
+				new ConcordiaException(
+					"The schema type cannot be written to a snapshot: " +
+						type.getName());
+		}
+	}
+
+	/**
+	 * <p>
+	 * Reads one snapshot.
+	 * </p>
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class Reader {
+		/**
+		 * The input.
+		 */
+		private final DataInputStream input;
+		/**
+		 * The resolver to give to each {@link ReferenceSchema}.
+		 */
+		private final ReferenceResolver resolver;
+		/**
+		 * The digest of the controller that the snapshot is read for.
+		 */
+		private final long digest;
+		/**
+		 * The interner for the schemas.
+		 */
+		private final SchemaInterner interner = SchemaInterner.getInstance();
+		/**
+		 * The schemas that have been read, by their index minus one. A
+		 * schema that is still being read is null.
+		 */
+		private final List<Schema> schemas = new ArrayList<Schema>();
+		/**
+		 * The strings that have been read, by their index minus one.
+		 */
+		private final List<String> strings = new ArrayList<String>();
+		/**
+		 * The references whose schemas still need to be read.
+		 */
+		private final List<ReferenceSchema> pending =
+			new ArrayList<ReferenceSchema>();
+
+		/**
+		 * Creates a reader.
+		 *
+		 * @param input
+		 *        The input.
+		 *
+		 * @param resolver
+		 *        The resolver to give to each {@link ReferenceSchema}.
+		 *
+		 * @param digest
+		 *        The digest of the controller that the snapshot is read for.
+		 */
+		private Reader(
+			final DataInputStream input,
+			final ReferenceResolver resolver,
+			final long digest) {
+
+			this.input = input;
+			this.resolver = resolver;
+			this.digest = digest;
+		}
+
+		/**
+		 * Reads a snapshot.
+		 *
+		 * @return The snapshot.
+		 *
+		 * @throws ConcordiaException
+		 *         The snapshot is malformed.
+		 *
+		 * @throws IOException
+		 *         The snapshot could not be read.
+		 */
+		private SchemaSnapshot read() throws ConcordiaException, IOException {
+			if((input.readInt() != MAGIC) ||
+				(input.readUnsignedByte() != VERSION)) {
+
+				throw
+					new ConcordiaException(
+						"The data is not a schema snapshot of this version.");
+			}
+			// Only schemas that were validated by the same kind of controller
+			// may skip validation.
+			boolean validated = (input.readLong() == digest);
+
+			Schema root = schema();
+			if(root == null) {
+				throw new ConcordiaException("The snapshot has no schema.");
+			}
+			boolean verified =
+				(root.fingerprint() == input.readLong()) && validated;
+
+			for(int i = 0; i < pending.size(); i++) {
+				Schema referenced = schema();
+				if(referenced == null) {
+					throw
+						new ConcordiaException(
+							"The snapshot is missing a referenced schema.");
+				}
+				// A referenced schema that doesn't match is read as usual.
+				if((referenced.fingerprint() == input.readLong()) &&
+					validated) {
+
+					pending.get(i).setLoadedSchema(referenced);
+				}
+			}
+
+			return new SchemaSnapshot(root, verified);
+		}
+
+		/**
+		 * Reads a schema or a reference to one that was already read.
+		 *
+		 * @return The schema, which may be null.
+		 *
+		 * @throws ConcordiaException
+		 *         The schema is malformed.
+		 *
+		 * @throws IOException
+		 *         The schema could not be read.
+		 */
+		private Schema schema() throws ConcordiaException, IOException {
+			int index = readVarint();
+			if(index == 0) {
+				return null;
+			}
+			else if(index <= schemas.size()) {
+				Schema result = schemas.get(index - 1);
+				if(result == null) {
+					throw
+						new ConcordiaException(
+							"The snapshot has a schema that contains " +
+								"itself.");
+				}
+				return result;
+			}
+			else if(index != schemas.size() + 1) {
+				throw
+					new ConcordiaException(
+						"The snapshot refers to an unknown schema.");
+			}
+			schemas.add(null);
+
+			int header = input.readUnsignedByte();
+			boolean optional = (header & OPTIONAL) != 0;
+			String doc = string();
+			String name = string();
+			Map<String, Object> others = null;
+			if((header & ADDITIONAL) != 0) {
+				others = readOthers(string());
+			}
+
+			Schema result;
+			switch(header & TYPE_MASK) {
+			case TYPE_BOOLEAN:
+				result = new BooleanSchema(doc, optional, name, others);
+				break;
+
+			case TYPE_NUMBER:
+				result = new NumberSchema(doc, optional, name, others);
+				break;
+
+			case TYPE_STRING:
+				result = new StringSchema(doc, optional, name, others);
+				break;
+
+			case TYPE_OBJECT:
+				result =
+					new ObjectSchema(doc, optional, name, schemas(), others);
+				break;
+
+			case TYPE_CONST_TYPE:
+				result =
+					new ArraySchema(
+						doc,
+						optional,
+						name,
+						schema(),
+						null,
+						others);
+				break;
+
+			case TYPE_CONST_LENGTH:
+				result =
+					new ArraySchema(
+						doc,
+						optional,
+						name,
+						null,
+						schemas(),
+						others);
+				break;
+
+			case TYPE_REFERENCE:
+				ReferenceSchema reference;
+				try {
+					reference =
+						new ReferenceSchema(
+							doc,
+							optional,
+							name,
+							new URL(string()),
+							resolver,
+							others);
+				}
+				catch(MalformedURLException e) {
+					throw
+						new ConcordiaException(
+							"The snapshot has an invalid reference.",
+							e);
+				}
+				pending.add(reference);
+				result = reference;
+				break;
+
+			default:
+				throw
+					new ConcordiaException(
+						"The snapshot has an unknown schema type.");
+			}
+
+			result = interner.intern(result);
+			schemas.set(index - 1, result);
+			return result;
+		}
+
+		/**
+		 * Reads a list of schemas.
+		 *
+		 * @return The schemas.
+		 *
+		 * @throws ConcordiaException
+		 *         A schema is malformed.
+		 *
+		 * @throws IOException
+		 *         A schema could not be read.
+		 */
+		private List<Schema> schemas() throws ConcordiaException, IOException {
+			int size = readVarint();
+			List<Schema> result = new ArrayList<Schema>(Math.min(size, 64));
+			for(int i = 0; i < size; i++) {
+				result.add(schema());
+			}
+			return result;
+		}
+
+		/**
+		 * Reads a string or a reference to one that was already read.
+		 *
+		 * @return The string, which may be null.
+		 *
+		 * @throws ConcordiaException
+		 *         The string is malformed.
+		 *
+		 * @throws IOException
+		 *         The string could not be read.
+		 */
+		private String string() throws ConcordiaException, IOException {
+			int index = readVarint();
+			if(index == 0) {
+				return null;
+			}
+			else if(index <= strings.size()) {
+				return strings.get(index - 1);
+			}
+			else if(index != strings.size() + 1) {
+				throw
+					new ConcordiaException(
+						"The snapshot refers to an unknown string.");
+			}
+
+			// The buffer only grows as the bytes arrive, so a malformed
+			// length cannot allocate more than the snapshot holds.
+			int length = readVarint();
+			byte[] bytes = new byte[Math.min(length, STRING_CHUNK_SIZE)];
+			input.readFully(bytes);
+			while(bytes.length < length) {
+				int read = bytes.length;
+				bytes =
+					Arrays
+						.copyOf(bytes, (int) Math.min(length, 2L * read));
+				input.readFully(bytes, read, bytes.length - read);
+			}
+			String result = new String(bytes, UTF_8);
+			strings.add(result);
+			return result;
+		}
+
+		/**
+		 * Reads an unsigned varint.
+		 *
+		 * @return The value.
+		 *
+		 * @throws ConcordiaException
+		 *         The varint is too long.
+		 *
+		 * @throws IOException
+		 *         The varint could not be read.
+		 */
+		private int readVarint() throws ConcordiaException, IOException {
+			int result = 0;
+			for(int shift = 0; shift < 32; shift += 7) {
+				int next = input.readUnsignedByte();
+				result |= (next & 0x7F) << shift;
+				if((next & 0x80) == 0) {
+					if(result < 0) {
+						break;
+					}
+					return result;
+				}
+			}
+			throw new ConcordiaException("The snapshot has an invalid length.");
+		}
+
+		/**
+		 * Reads a schema's additional fields.
+		 *
+		 * @param json
+		 *        The fields as a JSON object.
+		 *
+		 * @return The fields.
+		 *
+		 * @throws ConcordiaException
+		 *         The fields are malformed.
+		 */
+		@SuppressWarnings("unchecked")
+		private static Map<String, Object> readOthers(
+			final String json)
+			throws ConcordiaException {
+
+			if(json == null) {
+				throw
+					new ConcordiaException(
+						"The snapshot is missing additional fields.");
+			}
+			try {
+				return MAPPER.readValue(json, Map.class);
+			}
+			catch(IOException e) {
+				throw
+					new ConcordiaException(
+						"The snapshot has invalid additional fields.",
+						e);
+			}
+		}
+	}
+
+	/**
+	 * The schema.
+	 */
+	private final Schema schema;
+	/**
+	 * Whether or not the schema matched the fingerprint it was written with.
+	 */
+	private final boolean verified;
+
+	/**
+	 * Creates a snapshot that was read.
+	 *
+	 * @param schema
+	 *        The schema.
+	 *
+	 * @param verified
+	 *        Whether or not the schema matched the fingerprint it was
+	 *        written with.
+	 */
+	private SchemaSnapshot(final Schema schema, final boolean verified) {
+		this.schema = schema;
+		this.verified = verified;
+	}
+
+	/**
+	 * Writes a snapshot of a schema and of every schema it refers to, reading
+	 * any of them that have not been read yet. The schemas are not
+	 * validated, so the snapshot is never {@link #isVerified() verified}
+	 * when it is read. The output is buffered and flushed, but it is not
+	 * closed.
+	 *
+	 * @param schema
+	 *        The schema.
+	 *
+	 * @param output
+	 *        The output.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The schema or output is null.
+	 *
+	 * @throws ConcordiaException
+	 *         A referenced schema could not be read, or a schema's type is
+	 *         not defined by Concordia.
+	 *
+	 * @throws IOException
+	 *         The snapshot could not be written.
+	 */
+	public static void write(
+		final Schema schema,
+		final OutputStream output)
+		throws IllegalArgumentException, ConcordiaException, IOException {
+
+		write(schema, null, output);
+	}
+
+	/**
+	 * Writes a snapshot of a schema and of every schema it refers to, reading
+	 * any of them that have not been read yet. Each schema is validated by
+	 * the controller before it is written, so the snapshot can be
+	 * {@link #isVerified() verified} when it is read for the same kind of
+	 * controller. If a schema is invalid, part of the snapshot may already
+	 * have been written. The output is buffered and flushed, but it is not
+	 * closed.
+	 *
+	 * @param schema
+	 *        The schema.
+	 *
+	 * @param controller
+	 *        The controller that validates the schemas or null if they should
+	 *        not be validated.
+	 *
+	 * @param output
+	 *        The output.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The schema or output is null.
+	 *
+	 * @throws ConcordiaException
+	 *         A schema is invalid, a referenced schema could not be read, or
+	 *         a schema's type is not defined by Concordia.
+	 *
+	 * @throws IOException
+	 *         The snapshot could not be written.
+	 */
+	public static void write(
+		final Schema schema,
+		final ValidationController controller,
+		final OutputStream output)
+		throws IllegalArgumentException, ConcordiaException, IOException {
+
+		if(schema == null) {
+			throw new IllegalArgumentException("The schema is null.");
+		}
+		if(output == null) {
+			throw new IllegalArgumentException("The output is null.");
+		}
+
+		Writer writer =
+			new Writer(
+				new DataOutputStream(new BufferedOutputStream(output)),
+				controller);
+		try {
+			writer.write(schema);
+		}
+		catch(JsonProcessingException e) {
+			throw
+				new ConcordiaException(
+					"A schema's additional fields could not be written.",
+					e);
+		}
+	}
+
+	/**
+	 * Reads a snapshot for the
+	 * {@link ValidationController#BASIC_CONTROLLER basic controller}.
+	 *
+	 * @param input
+	 *        The input.
+	 *
+	 * @param resolver
+	 *        The resolver to give to each {@link ReferenceSchema}, or null to
+	 *        use the default one.
+	 *
+	 * @return The snapshot.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The input is null.
+	 *
+	 * @throws ConcordiaException
+	 *         The snapshot is malformed or truncated.
+	 *
+	 * @throws IOException
+	 *         The snapshot could not be read.
+	 *
+	 * @see #read(InputStream, ReferenceResolver, ValidationController)
+	 */
+	public static SchemaSnapshot read(
+		final InputStream input,
+		final ReferenceResolver resolver)
+		throws IllegalArgumentException, ConcordiaException, IOException {
+
+		return read(input, resolver, null);
+	}
+
+	/**
+	 * Reads a snapshot. The input is read one byte at a time, so it should
+	 * be buffered, and it is read no further than the end of the snapshot.
+	 *
+	 * @param input
+	 *        The input.
+	 *
+	 * @param resolver
+	 *        The resolver to give to each {@link ReferenceSchema}, or null to
+	 *        use the default one.
+	 *
+	 * @param controller
+	 *        The controller that the schema will be used with, or null for
+	 *        the basic one. The snapshot is only verified, and its referenced
+	 *        schemas only used, if it was written by one with the same
+	 *        {@link ValidationController#getSchemaValidatorDigest() schema
+	 *        validators}.
+	 *
+	 * @return The snapshot.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The input is null.
+	 *
+	 * @throws ConcordiaException
+	 *         The snapshot is malformed or truncated.
+	 *
+	 * @throws IOException
+	 *         The snapshot could not be read.
+	 */
+	public static SchemaSnapshot read(
+		final InputStream input,
+		final ReferenceResolver resolver,
+		final ValidationController controller)
+		throws IllegalArgumentException, ConcordiaException, IOException {
+
+		if(input == null) {
+			throw new IllegalArgumentException("The input is null.");
+		}
+
+		long digest =
+			((controller == null) ?
+				ValidationController.BASIC_CONTROLLER :
+				controller)
+				.getSchemaValidatorDigest();
+		try {
+			return
+				(new Reader(new DataInputStream(input), resolver, digest))
+					.read();
+		}
+		catch(EOFException e) {
+			throw new ConcordiaException("The snapshot was truncated.", e);
+		}
+	}
+
+	/**
+	 * Returns the schema that was read.
+	 *
+	 * @return The schema that was read.
+	 */
+	public Schema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * Returns whether or not the schema that was read matched the
+	 * fingerprint it was written with and was validated, when it was
+	 * written, by a controller with the same schema validators as the one it
+	 * was read for. If so, it does not need to be validated again.
+	 *
+	 * @return Whether or not the schema matched its fingerprint and was
+	 *         validated by the same kind of controller.
+	 */
+	public boolean isVerified() {
+		return verified;
+	}
+}
@@ -47,11 +47,12 @@ public class StringSchema extends Schema {
         @Override
         public StringSchema build() throws ConcordiaException {
             return
-                new StringSchema(
-                    getDoc(),
-                    getOptional(),
-                    getName(),
-                    getOthers());
+                SchemaInterner.getInstance().intern(
+                    new StringSchema(
+                        getDoc(),
+                        getOptional(),
+                        getName(),
+                        getOthers()));
         }
     }
 
@@ -0,0 +1,432 @@
+package name.jenkins.paul.john.concordia.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import name.jenkins.paul.john.concordia.Concordia;
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.validator.BatchResult;
+import name.jenkins.paul.john.concordia.validator.CompiledValidator;
+import name.jenkins.paul.john.concordia.validator.ParallelTasks;
+import name.jenkins.paul.john.concordia.validator.ValidationResult;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * <p>
+ * Validates a document whose root is a large array without building a tree
+ * of the whole document. The schema must be an array schema without custom
+ * validators of its own, as those would need the whole array.
+ * </p>
+ *
+ * <p>
+ * The calling thread reads the array element by element, builds a tree of
+ * each element, and hands the elements to the executor in batches of
+ * {@link #getBatchSize() batch size} elements. At most
+ * {@link #getCapacity() capacity} batches are in flight at once. When that
+ * many have been read but not yet finished, the calling thread stops reading
+ * and waits for the oldest one, running it itself if the executor has not
+ * yet started it. Therefore, memory is proportional to the batch size and
+ * capacity rather than to the document.
+ * </p>
+ *
+ * <p>
+ * Violations are reported as they would be by
+ * {@link Concordia#validateData(JsonParser)}, in the order of the elements'
+ * indices. If the controller does not
+ * {@link name.jenkins.paul.john.concordia.validator.ValidationController#isCollectAllErrors()
+ * collect all errors}, reading stops at the first invalid element.
+ * </p>
+ *
+ * <p>
+ * This class is immutable.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public final class ArrayStreamValidator {
+	/**
+	 * The default number of elements in a batch.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 1024;
+	/**
+	 * The default number of batches that may be in flight at once for each
+	 * processor.
+	 */
+	public static final int DEFAULT_CAPACITY_PER_PROCESSOR = 2;
+
+	/**
+	 * The factory for parsers that read the document. It leaves the callers'
+	 * streams open.
+	 */
+	private static final JsonFactory FACTORY =
+		(new JsonFactory()).disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+	/**
+	 * The mapper used to build a tree of each element.
+	 */
+	private static final ObjectMapper MAPPER = new ObjectMapper(FACTORY);
+
+	/**
+	 * The compiled schema of the document.
+	 */
+	private final CompiledValidator validator;
+	/**
+	 * The executor that validates the batches.
+	 */
+	private final Executor executor;
+	/**
+	 * The number of elements in a batch.
+	 */
+	private final int batchSize;
+	/**
+	 * The number of batches that may be in flight at once.
+	 */
+	private final int capacity;
+
+	/**
+	 * Creates a new validator with the {@link #DEFAULT_BATCH_SIZE default
+	 * batch size} and {@link #DEFAULT_CAPACITY_PER_PROCESSOR default
+	 * capacity}.
+	 *
+	 * @param concordia
+	 *        The schema of the document.
+	 *
+	 * @param executor
+	 *        The executor that validates the batches. It may be bounded.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The schema or executor is null or the schema is not an array
+	 *         schema whose elements can be validated separately.
+	 */
+	public ArrayStreamValidator(
+		final Concordia concordia,
+		final Executor executor)
+		throws IllegalArgumentException {
+
+		this(
+			concordia,
+			executor,
+			DEFAULT_BATCH_SIZE,
+			DEFAULT_CAPACITY_PER_PROCESSOR *
+				Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a new validator.
+	 *
+	 * @param concordia
+	 *        The schema of the document.
+	 *
+	 * @param executor
+	 *        The executor that validates the batches. It may be bounded.
+	 *
+	 * @param batchSize
+	 *        The number of elements in a batch.
+	 *
+	 * @param capacity
+	 *        The number of batches that may be in flight at once.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The schema or executor is null, the schema is not an array
+	 *         schema whose elements can be validated separately, or the batch
+	 *         size or capacity is not positive.
+	 */
+	public ArrayStreamValidator(
+		final Concordia concordia,
+		final Executor executor,
+		final int batchSize,
+		final int capacity)
+		throws IllegalArgumentException {
+
+		if(concordia == null) {
+			throw new IllegalArgumentException("The schema is null.");
+		}
+		if(! concordia.getValidator().isElementwise()) {
+			throw
+				new IllegalArgumentException(
+					"The schema is not an array schema whose elements can " +
+						"be validated separately.");
+		}
+		if(executor == null) {
+			throw new IllegalArgumentException("The executor is null.");
+		}
+		if(batchSize < 1) {
+			throw
+				new IllegalArgumentException(
+					"The batch size must be positive.");
+		}
+		if(capacity < 1) {
+			throw
+				new IllegalArgumentException(
+					"The capacity must be positive.");
+		}
+
+		this.validator = concordia.getValidator();
+		this.executor = executor;
+		this.batchSize = batchSize;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns the number of elements in a batch.
+	 *
+	 * @return The number of elements in a batch.
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Returns the number of batches that may be in flight at once.
+	 *
+	 * @return The number of batches that may be in flight at once.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Validates a document from a stream. The document must be the only
+	 * value in the stream.
+	 *
+	 * @param input
+	 *        The stream, which is not closed.
+	 *
+	 * @return The result of validating the document, which is invalid if the
+	 *         document is followed by another value.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The stream is null.
+	 *
+	 * @throws IOException
+	 *         The stream could not be read or was not well-formed JSON.
+	 *
+	 * @throws InterruptedException
+	 *         The calling thread was interrupted while waiting for a batch to
+	 *         be validated.
+	 */
+	public ValidationResult validate(
+		final InputStream input)
+		throws IllegalArgumentException, IOException, InterruptedException {
+
+		if(input == null) {
+			throw new IllegalArgumentException("The stream is null.");
+		}
+
+		JsonParser parser = FACTORY.createParser(input);
+		try {
+			ValidationResult result = validate(parser);
+			if(result.isValid() && (parser.nextToken() != null)) {
+				return
+					ValidationResult
+						.invalid(
+							new ConcordiaException(
+								"The data has more than one value."));
+			}
+			return result;
+		}
+		finally {
+			parser.close();
+		}
+	}
+
+	/**
+	 * Validates a document from a parser.
+	 *
+	 * @param parser
+	 *        The parser that is either pointing to the document or just
+	 *        before it. When this returns a valid result, the parser's current
+	 *        token will be the last token of the document.
+	 *
+	 * @return The result of validating the document.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The parser is null.
+	 *
+	 * @throws IOException
+	 *         The document could not be read or was not well-formed JSON.
+	 *
+	 * @throws InterruptedException
+	 *         The calling thread was interrupted while waiting for a batch to
+	 *         be validated.
+	 */
+	public ValidationResult validate(
+		final JsonParser parser)
+		throws IllegalArgumentException, IOException, InterruptedException {
+
+		if(parser == null) {
+			throw new IllegalArgumentException("The parser is null.");
+		}
+
+		// If the document isn't an array, it's small, so check it directly.
+		JsonToken token = parser.getCurrentToken();
+		if(token == null) {
+			token = parser.nextToken();
+		}
+		if(token != JsonToken.START_ARRAY) {
+			JsonNode data = null;
+			if(token != null) {
+				data = MAPPER.readTree(parser);
+			}
+			return validator.check(data);
+		}
+
+		boolean collecting = validator.getController().isCollectAllErrors();
+		List<ConcordiaException> errors = new ArrayList<ConcordiaException>();
+		ArrayDeque<FutureTask<BatchResult>> window =
+			new ArrayDeque<FutureTask<BatchResult>>(capacity);
+		try {
+			// Read the elements into batches.
+			long size = 0;
+			List<JsonNode> batch = new ArrayList<JsonNode>(batchSize);
+			while((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+				if(token == null) {
+					throw
+						new JsonParseException(
+							"The array was not closed.",
+							parser.getCurrentLocation());
+				}
+
+				JsonNode element = MAPPER.readTree(parser);
+				batch.add(element);
+				size++;
+				if(batch.size() < batchSize) {
+					continue;
+				}
+
+				if(! makeRoom(window, errors)) {
+					return ValidationResult.invalid(errors);
+				}
+				window.addLast(submit(size - batch.size(), batch));
+				batch = new ArrayList<JsonNode>(batchSize);
+			}
+			if(! batch.isEmpty()) {
+				if(! makeRoom(window, errors)) {
+					return ValidationResult.invalid(errors);
+				}
+				window.addLast(submit(size - batch.size(), batch));
+			}
+
+			// Finish the remaining batches.
+			while(! window.isEmpty()) {
+				finish(window.removeFirst(), errors);
+				if((! collecting) && (! errors.isEmpty())) {
+					return ValidationResult.invalid(errors);
+				}
+			}
+
+			// Validate that a constant-length array had the right length.
+			errors.addAll(validator.checkLength(size).getErrors());
+		}
+		finally {
+			for(FutureTask<BatchResult> task : window) {
+				task.cancel(false);
+			}
+		}
+
+		if(errors.isEmpty()) {
+			return ValidationResult.VALID;
+		}
+		return ValidationResult.invalid(errors);
+	}
+
+	/**
+	 * Makes room in the window for another batch by finishing the oldest
+	 * one if the window is full.
+	 *
+	 * @param window
+	 *        The batches in flight.
+	 *
+	 * @param errors
+	 *        The violations found so far.
+	 *
+	 * @return False if a violation was found and violations are not being
+	 *         collected, in which case validation should stop; true
+	 *         otherwise.
+	 *
+	 * @throws InterruptedException
+	 *         This thread was interrupted while waiting.
+	 */
+	private boolean makeRoom(
+		final ArrayDeque<FutureTask<BatchResult>> window,
+		final List<ConcordiaException> errors)
+		throws InterruptedException {
+
+		if(window.size() < capacity) {
+			return true;
+		}
+
+		finish(window.removeFirst(), errors);
+		return
+			validator.getController().isCollectAllErrors() ||
+			errors.isEmpty();
+	}
+
+	/**
+	 * Gives a batch to the executor.
+	 *
+	 * @param offset
+	 *        The index of the batch's first element in the array.
+	 *
+	 * @param batch
+	 *        The batch's elements.
+	 *
+	 * @return The batch's task.
+	 */
+	private FutureTask<BatchResult> submit(
+		final long offset,
+		final List<JsonNode> batch) {
+
+		FutureTask<BatchResult> task =
+			new FutureTask<BatchResult>(
+				new Callable<BatchResult>() {
+					@Override
+					public BatchResult call() {
+						return validator.checkElements(offset, batch);
+					}
+				});
+
+		ParallelTasks.execute(executor, task);
+		return task;
+	}
+
+	/**
+	 * Waits for a batch to be validated, running it on this thread if it has
+	 * not been started, and adds its violations to the list.
+	 *
+	 * @param task
+	 *        The batch's task.
+	 *
+	 * @param errors
+	 *        The violations found so far. In fail-fast mode, only the first
+	 *        violation of the batch is added.
+	 *
+	 * @throws InterruptedException
+	 *         This thread was interrupted while waiting.
+	 */
+	private void finish(
+		final FutureTask<BatchResult> task,
+		final List<ConcordiaException> errors)
+		throws InterruptedException {
+
+		BatchResult result =
+			ParallelTasks.finish(task, RuntimeException.class);
+		for(int index : result.getInvalidIndices()) {
+			errors.addAll(result.getErrors(index));
+			if(! validator.getController().isCollectAllErrors()) {
+				return;
+			}
+		}
+	}
+}
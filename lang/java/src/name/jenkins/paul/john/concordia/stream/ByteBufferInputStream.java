@@ -0,0 +1,73 @@
+package name.jenkins.paul.john.concordia.stream;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ * Reads the remaining bytes of a {@link ByteBuffer} as a stream, which lets
+ * a parser read directly from a memory-mapped file without copying it onto
+ * the heap first. Reading advances the buffer's position.
+ * </p>
+ *
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+final class ByteBufferInputStream extends InputStream {
+	/**
+	 * The buffer being read.
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * Creates a new stream.
+	 *
+	 * @param buffer
+	 *        The buffer to read, from its position to its limit.
+	 */
+	ByteBufferInputStream(final ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.io.InputStream#read()
+	 */
+	@Override
+	public int read() {
+		if(! buffer.hasRemaining()) {
+			return -1;
+		}
+		return buffer.get() & 0xFF;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.io.InputStream#read(byte[], int, int)
+	 */
+	@Override
+	public int read(final byte[] bytes, final int offset, final int length) {
+		if(length == 0) {
+			return 0;
+		}
+
+		int count = Math.min(length, buffer.remaining());
+		if(count == 0) {
+			return -1;
+		}
+		buffer.get(bytes, offset, count);
+		return count;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.io.InputStream#available()
+	 */
+	@Override
+	public int available() {
+		return buffer.remaining();
+	}
+}
@@ -0,0 +1,131 @@
+package name.jenkins.paul.john.concordia.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <p>
+ * Splits a stream into lines of bytes. Lines are separated by "\n", and a
+ * "\r" immediately before the "\n" is dropped, so both Unix and Windows line
+ * endings are accepted. The last line need not be terminated.
+ * </p>
+ *
+ * <p>
+ * Only the current line and a fixed-size read buffer are held in memory, so
+ * the size of the stream does not matter.
+ * </p>
+ *
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+final class LineReader {
+	/**
+	 * The number of bytes read from the stream at a time.
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The stream being split.
+	 */
+	private final InputStream input;
+	/**
+	 * The bytes that have been read from the stream but not yet returned.
+	 */
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	/**
+	 * The position of the next unread byte in the buffer.
+	 */
+	private int position = 0;
+	/**
+	 * The number of valid bytes in the buffer.
+	 */
+	private int limit = 0;
+	/**
+	 * The line being assembled, which grows to fit the longest line.
+	 */
+	private byte[] line = new byte[256];
+	/**
+	 * The number of lines that have been returned.
+	 */
+	private long lineNumber = 0;
+
+	/**
+	 * Creates a new reader.
+	 *
+	 * @param input
+	 *        The stream to split, which is not closed by this reader.
+	 */
+	LineReader(final InputStream input) {
+		this.input = input;
+	}
+
+	/**
+	 * Reads the next line.
+	 *
+	 * @return The line without its terminator or null if the stream has
+	 *         ended.
+	 *
+	 * @throws IOException
+	 *         The stream could not be read.
+	 */
+	byte[] readLine() throws IOException {
+		int length = 0;
+		boolean terminated = false;
+		while(! terminated) {
+			if(position == limit) {
+				limit = input.read(buffer, 0, BUFFER_SIZE);
+				position = 0;
+				if(limit <= 0) {
+					limit = 0;
+					if(length == 0) {
+						return null;
+					}
+					break;
+				}
+			}
+
+			// Find the end of the line or the buffer.
+			int start = position;
+			while((position < limit) && (buffer[position] != '\n')) {
+				position++;
+			}
+			int count = position - start;
+			if(position < limit) {
+				terminated = true;
+				position++;
+			}
+
+			// Add what was found to the line.
+			if(length + count > line.length) {
+				byte[] newLine =
+					new byte[Math.max(length + count, line.length * 2)];
+				System.arraycopy(line, 0, newLine, 0, length);
+				line = newLine;
+			}
+			System.arraycopy(buffer, start, line, length, count);
+			length += count;
+		}
+
+		if((length > 0) && (line[length - 1] == '\r')) {
+			length--;
+		}
+
+		lineNumber++;
+		byte[] result = new byte[length];
+		System.arraycopy(line, 0, result, 0, length);
+		return result;
+	}
+
+	/**
+	 * Returns the number of the line that was most recently read.
+	 *
+	 * @return The number of the line, starting from 1, or 0 if no line has
+	 *         been read.
+	 */
+	long getLineNumber() {
+		return lineNumber;
+	}
+}
@@ -0,0 +1,459 @@
+package name.jenkins.paul.john.concordia.stream;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import name.jenkins.paul.john.concordia.Concordia;
+import name.jenkins.paul.john.concordia.validator.ParallelTasks;
+import name.jenkins.paul.john.concordia.validator.ValidationResult;
+
+import com.fasterxml.jackson.core.JsonFactory;
+
+/**
+ * <p>
+ * Validates a newline-delimited JSON file in parallel, for files that are
+ * too large for a single reader to keep up with. Blank lines are skipped.
+ * </p>
+ *
+ * <p>
+ * The file is split into byte ranges that begin and end on line boundaries,
+ * and each range is memory-mapped and validated by its own task. Each record
+ * is parsed directly from the mapped range, so the file is never copied onto
+ * the heap. Every range but the first is given to the executor, and the
+ * calling thread then works through the ranges in order, running any that
+ * the executor has not yet started.
+ * </p>
+ *
+ * <p>
+ * Each range counts its own lines, and the line numbers are made absolute
+ * once every range has finished, so the ranges never wait on each other.
+ * The result is an {@link NdjsonReport} of the invalid lines.
+ * </p>
+ *
+ * <p>
+ * The mappings are released when they are garbage collected, not when
+ * validation ends, so the file may remain open at the operating system's
+ * level until then.
+ * </p>
+ *
+ * <p>
+ * This class is immutable.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public final class NdjsonFileValidator {
+	/**
+	 * The validation of a single range of the file.
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class Range implements Callable<Range> {
+		/**
+		 * The schema that each record must conform to.
+		 */
+		private final Concordia concordia;
+		/**
+		 * The file's channel.
+		 */
+		private final FileChannel channel;
+		/**
+		 * The offset in the file of the first byte of this range.
+		 */
+		private final long start;
+		/**
+		 * The offset in the file after the last byte of this range.
+		 */
+		private final long end;
+
+		/**
+		 * The number of lines in this range.
+		 */
+		private long lineCount = 0;
+		/**
+		 * The number of records in this range.
+		 */
+		private long recordCount = 0;
+		/**
+		 * The numbers of the invalid lines, relative to this range, in
+		 * ascending order.
+		 */
+		private long[] invalidLines = new long[8];
+		/**
+		 * The results of the invalid lines in the same order as their
+		 * numbers.
+		 */
+		private ValidationResult[] invalidResults = new ValidationResult[8];
+		/**
+		 * The number of invalid lines.
+		 */
+		private int invalidCount = 0;
+
+		/**
+		 * Creates a new range.
+		 */
+		private Range(
+			final Concordia concordia,
+			final FileChannel channel,
+			final long start,
+			final long end) {
+
+			this.concordia = concordia;
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+		}
+
+		/**
+		 * Maps this range and validates each of its lines.
+		 *
+		 * @return This range.
+		 *
+		 * @throws IOException
+		 *         The range could not be mapped or read.
+		 */
+		@Override
+		public Range call() throws IOException {
+			MappedByteBuffer buffer =
+				channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+
+			int limit = buffer.limit();
+			int lineStart = 0;
+			boolean blank = true;
+			for(int i = 0; i < limit; i++) {
+				byte b = buffer.get(i);
+				if(b == '\n') {
+					line(buffer, lineStart, i, blank);
+					lineStart = i + 1;
+					blank = true;
+				}
+				else if(blank && (b != ' ') && (b != '\t') && (b != '\r')) {
+					blank = false;
+				}
+			}
+			if(lineStart < limit) {
+				line(buffer, lineStart, limit, blank);
+			}
+
+			return this;
+		}
+
+		/**
+		 * Validates a single line.
+		 *
+		 * @param buffer
+		 *        The mapped range.
+		 *
+		 * @param from
+		 *        The offset in the range of the line's first byte.
+		 *
+		 * @param to
+		 *        The offset in the range of the line's terminator.
+		 *
+		 * @param blank
+		 *        Whether or not the line has nothing but whitespace.
+		 *
+		 * @throws IOException
+		 *         The line could not be read.
+		 */
+		private void line(
+			final ByteBuffer buffer,
+			final int from,
+			final int to,
+			final boolean blank)
+			throws IOException {
+
+			lineCount++;
+			if(blank) {
+				return;
+			}
+			recordCount++;
+
+			ByteBuffer record = buffer.duplicate();
+			record.position(from);
+			record.limit(to);
+			ValidationResult result =
+				NdjsonValidator
+					.check(
+						concordia,
+						FACTORY
+							.createParser(new ByteBufferInputStream(record)));
+			if(result.isValid()) {
+				return;
+			}
+
+			if(invalidCount == invalidLines.length) {
+				invalidLines = Arrays.copyOf(invalidLines, invalidCount * 2);
+				invalidResults =
+					Arrays.copyOf(invalidResults, invalidCount * 2);
+			}
+			invalidLines[invalidCount] = lineCount;
+			invalidResults[invalidCount] = result;
+			invalidCount++;
+		}
+	}
+
+	/**
+	 * The smallest range that a file is split into, below which the cost of
+	 * mapping it and handing it to another thread outweighs the cost of
+	 * validating it.
+	 */
+	private static final long MIN_RANGE_SIZE = 1024 * 1024;
+	/**
+	 * The largest range that a file is split into before it is aligned to a
+	 * line boundary, which leaves room for long lines under the 2GB limit of
+	 * a single mapping.
+	 */
+	private static final long MAX_RANGE_SIZE = 1024 * 1024 * 1024;
+	/**
+	 * The number of ranges to make for each processor, so that a thread that
+	 * finishes early can pick up more work.
+	 */
+	private static final int RANGES_PER_PROCESSOR = 4;
+	/**
+	 * The number of bytes read at a time while looking for a line boundary.
+	 */
+	private static final int SCAN_SIZE = 8 * 1024;
+
+	/**
+	 * The factory for the parsers that read each record.
+	 */
+	private static final JsonFactory FACTORY = new JsonFactory();
+
+	/**
+	 * The schema that each record must conform to.
+	 */
+	private final Concordia concordia;
+	/**
+	 * The executor that validates the ranges.
+	 */
+	private final Executor executor;
+
+	/**
+	 * Creates a new validator.
+	 *
+	 * @param concordia
+	 *        The schema that each record must conform to.
+	 *
+	 * @param executor
+	 *        The executor that validates the ranges. It may be bounded.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The schema or executor is null.
+	 */
+	public NdjsonFileValidator(
+		final Concordia concordia,
+		final Executor executor)
+		throws IllegalArgumentException {
+
+		if(concordia == null) {
+			throw new IllegalArgumentException("The schema is null.");
+		}
+		if(executor == null) {
+			throw new IllegalArgumentException("The executor is null.");
+		}
+
+		this.concordia = concordia;
+		this.executor = executor;
+	}
+
+	/**
+	 * Validates every record in a file.
+	 *
+	 * @param file
+	 *        The file.
+	 *
+	 * @return The report of the file's invalid lines.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The file is null.
+	 *
+	 * @throws IOException
+	 *         The file could not be read.
+	 *
+	 * @throws InterruptedException
+	 *         The calling thread was interrupted while waiting for a range to
+	 *         be validated.
+	 */
+	public NdjsonReport validate(
+		final File file)
+		throws IllegalArgumentException, IOException, InterruptedException {
+
+		if(file == null) {
+			throw new IllegalArgumentException("The file is null.");
+		}
+
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = input.getChannel();
+			long[] bounds = split(channel, channel.size());
+
+			// Validate the ranges in parallel.
+			List<Range> ranges = new ArrayList<Range>(bounds.length - 1);
+			for(int i = 0; i < bounds.length - 1; i++) {
+				ranges
+					.add(
+						new Range(
+							concordia,
+							channel,
+							bounds[i],
+							bounds[i + 1]));
+			}
+
+			return
+				merge(
+					ParallelTasks.runAll(ranges, executor, IOException.class));
+		}
+		finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Splits a file into ranges that begin on line boundaries.
+	 *
+	 * @param channel
+	 *        The file's channel.
+	 *
+	 * @param size
+	 *        The size of the file.
+	 *
+	 * @return The offset of the start of each range followed by the size of
+	 *         the file, so range i is from bounds[i] to bounds[i + 1].
+	 *
+	 * @throws IOException
+	 *         The file could not be read.
+	 */
+	private static long[] split(
+		final FileChannel channel,
+		final long size)
+		throws IOException {
+
+		long count =
+			Math.min(
+				RANGES_PER_PROCESSOR *
+					Runtime.getRuntime().availableProcessors(),
+				size / MIN_RANGE_SIZE);
+		count = Math.max(count, (size + MAX_RANGE_SIZE - 1) / MAX_RANGE_SIZE);
+		count = Math.max(count, 1);
+		long rangeSize = (size + count - 1) / count;
+
+		List<Long> bounds = new ArrayList<Long>();
+		bounds.add(0L);
+		long last = 0;
+		ByteBuffer scan = ByteBuffer.allocate(SCAN_SIZE);
+		for(long i = 1; i < count; i++) {
+			long nominal = i * rangeSize;
+			if(nominal <= last) {
+				continue;
+			}
+
+			// Move the boundary to just after the next line terminator,
+			// which may be the byte just before the nominal boundary.
+			long bound = findLineStart(channel, size, nominal - 1, scan);
+			if(bound >= size) {
+				break;
+			}
+			bounds.add(bound);
+			last = bound;
+		}
+		bounds.add(size);
+
+		long[] result = new long[bounds.size()];
+		for(int i = 0; i < result.length; i++) {
+			result[i] = bounds.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the start of the first line that begins after an offset.
+	 *
+	 * @param channel
+	 *        The file's channel.
+	 *
+	 * @param size
+	 *        The size of the file.
+	 *
+	 * @param position
+	 *        The offset to search from.
+	 *
+	 * @param scan
+	 *        The buffer to read the file into.
+	 *
+	 * @return The offset just after the first line terminator at or after
+	 *         the position or the size of the file if there is none.
+	 *
+	 * @throws IOException
+	 *         The file could not be read.
+	 */
+	private static long findLineStart(
+		final FileChannel channel,
+		final long size,
+		final long position,
+		final ByteBuffer scan)
+		throws IOException {
+
+		long current = position;
+		while(current < size) {
+			scan.clear();
+			int read = channel.read(scan, current);
+			if(read <= 0) {
+				break;
+			}
+			for(int i = 0; i < read; i++) {
+				if(scan.get(i) == '\n') {
+					return current + i + 1;
+				}
+			}
+			current += read;
+		}
+		return size;
+	}
+
+	/**
+	 * Merges the ranges' results into a report with absolute line numbers.
+	 *
+	 * @param ranges
+	 *        The ranges in order.
+	 *
+	 * @return The report.
+	 */
+	private static NdjsonReport merge(final List<Range> ranges) {
+		int invalidCount = 0;
+		for(Range range : ranges) {
+			invalidCount += range.invalidCount;
+		}
+
+		long[] invalidLines = new long[invalidCount];
+		ValidationResult[] invalidResults = new ValidationResult[invalidCount];
+		long lineCount = 0;
+		long recordCount = 0;
+		int offset = 0;
+		for(Range range : ranges) {
+			for(int i = 0; i < range.invalidCount; i++) {
+				invalidLines[offset] = lineCount + range.invalidLines[i];
+				invalidResults[offset] = range.invalidResults[i];
+				offset++;
+			}
+			lineCount += range.lineCount;
+			recordCount += range.recordCount;
+		}
+
+		return
+			new NdjsonReport(
+				lineCount,
+				recordCount,
+				invalidLines,
+				invalidResults);
+	}
+}
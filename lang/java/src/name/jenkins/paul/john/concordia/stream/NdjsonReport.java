@@ -0,0 +1,169 @@
+package name.jenkins.paul.john.concordia.stream;
+
+import java.util.Arrays;
+
+import name.jenkins.paul.john.concordia.validator.ValidationResult;
+
+/**
+ * <p>
+ * The outcome of validating an NDJSON file with an
+ * {@link NdjsonFileValidator}: how many lines and records it had and which
+ * lines were invalid.
+ * </p>
+ *
+ * <p>
+ * Only the invalid lines are kept, so a mostly valid file has a small
+ * report no matter how large it is.
+ * </p>
+ *
+ * <p>
+ * This class is immutable.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public final class NdjsonReport {
+	/**
+	 * The number of lines, including blank lines.
+	 */
+	private final long lineCount;
+	/**
+	 * The number of records, i.e. lines that were not blank.
+	 */
+	private final long recordCount;
+	/**
+	 * The numbers of the invalid lines in ascending order.
+	 */
+	private final long[] invalidLines;
+	/**
+	 * The results of the invalid lines in the same order as their numbers.
+	 */
+	private final ValidationResult[] invalidResults;
+
+	/**
+	 * Creates a new report.
+	 *
+	 * @param lineCount
+	 *        The number of lines.
+	 *
+	 * @param recordCount
+	 *        The number of records.
+	 *
+	 * @param invalidLines
+	 *        The numbers of the invalid lines in ascending order, which is not
+	 *        copied.
+	 *
+	 * @param invalidResults
+	 *        The results of the invalid lines, which is not copied.
+	 */
+	NdjsonReport(
+		final long lineCount,
+		final long recordCount,
+		final long[] invalidLines,
+		final ValidationResult[] invalidResults) {
+
+		this.lineCount = lineCount;
+		this.recordCount = recordCount;
+		this.invalidLines = invalidLines;
+		this.invalidResults = invalidResults;
+	}
+
+	/**
+	 * Returns the number of lines in the file, including blank lines.
+	 *
+	 * @return The number of lines in the file.
+	 */
+	public long getLineCount() {
+		return lineCount;
+	}
+
+	/**
+	 * Returns the number of records in the file, i.e. lines that were not
+	 * blank.
+	 *
+	 * @return The number of records in the file.
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * Returns whether or not every record was valid.
+	 *
+	 * @return Whether or not every record was valid.
+	 */
+	public boolean isValid() {
+		return invalidLines.length == 0;
+	}
+
+	/**
+	 * Returns the number of records that were invalid.
+	 *
+	 * @return The number of records that were invalid.
+	 */
+	public int getInvalidCount() {
+		return invalidLines.length;
+	}
+
+	/**
+	 * Returns the numbers of the lines that were invalid.
+	 *
+	 * @return The numbers of the invalid lines, starting from 1, in ascending
+	 *         order.
+	 */
+	public long[] getInvalidLines() {
+		return invalidLines.clone();
+	}
+
+	/**
+	 * Returns the result of validating a line.
+	 *
+	 * @param lineNumber
+	 *        The number of the line, starting from 1.
+	 *
+	 * @return The line's result, which is {@link ValidationResult#VALID} if
+	 *         it was valid or blank.
+	 *
+	 * @throws IndexOutOfBoundsException
+	 *         The line is not in the file.
+	 */
+	public ValidationResult getResult(
+		final long lineNumber)
+		throws IndexOutOfBoundsException {
+
+		if((lineNumber < 1) || (lineNumber > lineCount)) {
+			throw
+				new IndexOutOfBoundsException(
+					"The line is not in the file: " + lineNumber);
+		}
+
+		int index = Arrays.binarySearch(invalidLines, lineNumber);
+		return (index < 0) ? ValidationResult.VALID : invalidResults[index];
+	}
+
+	/**
+	 * Returns a string representation of this report.
+	 *
+	 * @return "valid" or each invalid line's number followed by its
+	 *         violations.
+	 */
+	@Override
+	public String toString() {
+		if(isValid()) {
+			return "valid";
+		}
+
+		StringBuilder builder = new StringBuilder();
+		for(int i = 0; i < invalidLines.length; i++) {
+			if(i > 0) {
+				builder.append('\n');
+			}
+			builder
+				.append("line ")
+				.append(invalidLines[i])
+				.append(":\n")
+				.append(invalidResults[i]);
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,385 @@
+package name.jenkins.paul.john.concordia.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import name.jenkins.paul.john.concordia.Concordia;
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.validator.ParallelTasks;
+import name.jenkins.paul.john.concordia.validator.ValidationResult;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+
+/**
+ * <p>
+ * Validates newline-delimited JSON, i.e. NDJSON or JSON Lines, where each
+ * line of a stream is a separate record. Blank lines are skipped.
+ * </p>
+ *
+ * <p>
+ * The calling thread reads the stream and hands each record to the executor
+ * to be parsed and validated. Every record is then given to a
+ * {@link RecordSink} in the order it appeared, from the calling thread.
+ * </p>
+ *
+ * <p>
+ * At most {@link #getCapacity() capacity} records are in flight at once.
+ * When that many have been read but not yet given to the sink, the calling
+ * thread stops reading and waits for the oldest one, running it itself if
+ * the executor has not yet started it. Therefore, memory is bounded by the
+ * capacity and the longest line, no matter how large the stream is, and a
+ * slow sink slows the reading of the stream rather than letting records
+ * pile up.
+ * </p>
+ *
+ * <p>
+ * Each record is validated directly from its bytes, without building a
+ * tree. A record that is not well-formed JSON, or that has more than one
+ * value on its line, is reported to the sink as invalid.
+ * </p>
+ *
+ * <p>
+ * This class is immutable.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public final class NdjsonValidator {
+	/**
+	 * The default number of records that may be in flight at once.
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/**
+	 * The factory for the parsers that read each record.
+	 */
+	private static final JsonFactory FACTORY = new JsonFactory();
+
+	/**
+	 * The schema that each record must conform to.
+	 */
+	private final Concordia concordia;
+	/**
+	 * The executor that validates the records.
+	 */
+	private final Executor executor;
+	/**
+	 * The number of records that may be in flight at once.
+	 */
+	private final int capacity;
+
+	/**
+	 * Creates a new validator with the {@link #DEFAULT_CAPACITY default
+	 * capacity}.
+	 *
+	 * @param concordia
+	 *        The schema that each record must conform to.
+	 *
+	 * @param executor
+	 *        The executor that validates the records. It may be bounded.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The schema or executor is null.
+	 */
+	public NdjsonValidator(
+		final Concordia concordia,
+		final Executor executor)
+		throws IllegalArgumentException {
+
+		this(concordia, executor, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new validator.
+	 *
+	 * @param concordia
+	 *        The schema that each record must conform to.
+	 *
+	 * @param executor
+	 *        The executor that validates the records. It may be bounded.
+	 *
+	 * @param capacity
+	 *        The number of records that may be in flight at once.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The schema or executor is null or the capacity is not
+	 *         positive.
+	 */
+	public NdjsonValidator(
+		final Concordia concordia,
+		final Executor executor,
+		final int capacity)
+		throws IllegalArgumentException {
+
+		if(concordia == null) {
+			throw new IllegalArgumentException("The schema is null.");
+		}
+		if(executor == null) {
+			throw new IllegalArgumentException("The executor is null.");
+		}
+		if(capacity < 1) {
+			throw
+				new IllegalArgumentException(
+					"The capacity must be positive.");
+		}
+
+		this.concordia = concordia;
+		this.executor = executor;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns the number of records that may be in flight at once.
+	 *
+	 * @return The number of records that may be in flight at once.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Validates every record in a stream and gives each to a sink.
+	 *
+	 * @param input
+	 *        The stream, which is read to its end but not closed.
+	 *
+	 * @param sink
+	 *        The sink for the records.
+	 *
+	 * @return The number of records that were validated.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The stream or sink is null.
+	 *
+	 * @throws IOException
+	 *         The stream could not be read or the sink failed.
+	 *
+	 * @throws InterruptedException
+	 *         The calling thread was interrupted while waiting for a record
+	 *         to be validated.
+	 */
+	public long validate(
+		final InputStream input,
+		final RecordSink sink)
+		throws IllegalArgumentException, IOException, InterruptedException {
+
+		if(input == null) {
+			throw new IllegalArgumentException("The stream is null.");
+		}
+		if(sink == null) {
+			throw new IllegalArgumentException("The sink is null.");
+		}
+
+		LineReader reader = new LineReader(input);
+		ArrayDeque<Record> window = new ArrayDeque<Record>(capacity);
+		long records = 0;
+		try {
+			byte[] line;
+			while((line = reader.readLine()) != null) {
+				if(isBlank(line)) {
+					continue;
+				}
+
+				// Make room for the record by emitting the oldest one.
+				if(window.size() == capacity) {
+					window.removeFirst().emit(sink);
+				}
+
+				Record record = new Record(reader.getLineNumber(), line);
+				window.addLast(record);
+				records++;
+				ParallelTasks.execute(executor, record);
+			}
+
+			// Emit the remaining records.
+			while(! window.isEmpty()) {
+				window.removeFirst().emit(sink);
+			}
+		}
+		finally {
+			for(Record record : window) {
+				record.cancel(false);
+			}
+		}
+
+		return records;
+	}
+
+	/**
+	 * Validates every record in a channel and gives each to a sink.
+	 *
+	 * @param input
+	 *        The channel, which is read to its end but not closed.
+	 *
+	 * @param sink
+	 *        The sink for the records.
+	 *
+	 * @return The number of records that were validated.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The channel or sink is null.
+	 *
+	 * @throws IOException
+	 *         The channel could not be read or the sink failed.
+	 *
+	 * @throws InterruptedException
+	 *         The calling thread was interrupted while waiting for a record
+	 *         to be validated.
+	 *
+	 * @see #validate(InputStream, RecordSink)
+	 */
+	public long validate(
+		final ReadableByteChannel input,
+		final RecordSink sink)
+		throws IllegalArgumentException, IOException, InterruptedException {
+
+		if(input == null) {
+			throw new IllegalArgumentException("The channel is null.");
+		}
+
+		return validate(Channels.newInputStream(input), sink);
+	}
+
+	/**
+	 * Validates a single record from a parser over its bytes. The parser is
+	 * closed.
+	 *
+	 * @param concordia
+	 *        The schema that the record must conform to.
+	 *
+	 * @param parser
+	 *        The parser over the record, which has not been started.
+	 *
+	 * @return The result of validating the record.
+	 */
+	static ValidationResult check(
+		final Concordia concordia,
+		final JsonParser parser) {
+
+		try {
+			try {
+				if(parser.nextToken() == null) {
+					return
+						ValidationResult
+							.invalid(
+								new ConcordiaException("The record is empty."));
+				}
+
+				concordia.validateData(parser);
+
+				if(parser.nextToken() != null) {
+					return
+						ValidationResult
+							.invalid(
+								new ConcordiaException(
+									"The record has more than one value."));
+				}
+			}
+			finally {
+				parser.close();
+			}
+		}
+		catch(ConcordiaException e) {
+			return ValidationResult.invalid(e);
+		}
+		catch(IOException e) {
+			return
+				ValidationResult
+					.invalid(
+						new ConcordiaException(
+							"The record is not well-formed JSON.",
+							e));
+		}
+
+		return ValidationResult.VALID;
+	}
+
+	/**
+	 * Returns whether or not a line has nothing but whitespace.
+	 *
+	 * @param line
+	 *        The line.
+	 *
+	 * @return Whether or not the line is blank.
+	 */
+	static boolean isBlank(final byte[] line) {
+		for(byte b : line) {
+			if((b != ' ') && (b != '\t') && (b != '\r')) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * A record that is in flight.
+	 *
+	 * @author John Jenkins
+	 */
+	private final class Record extends FutureTask<ValidationResult> {
+		/**
+		 * The number of the record's line.
+		 */
+		private final long lineNumber;
+		/**
+		 * The record's bytes.
+		 */
+		private final byte[] bytes;
+
+		/**
+		 * Creates a new record.
+		 *
+		 * @param lineNumber
+		 *        The number of the record's line.
+		 *
+		 * @param bytes
+		 *        The record's bytes.
+		 */
+		private Record(final long lineNumber, final byte[] bytes) {
+			super(
+				new Callable<ValidationResult>() {
+					@Override
+					public ValidationResult call() throws IOException {
+						return check(concordia, FACTORY.createParser(bytes));
+					}
+				});
+
+			this.lineNumber = lineNumber;
+			this.bytes = bytes;
+		}
+
+		/**
+		 * Waits for this record to be validated, running it on this thread
+		 * if it has not been started, and gives it to a sink.
+		 *
+		 * @param sink
+		 *        The sink.
+		 *
+		 * @throws IOException
+		 *         The sink failed.
+		 *
+		 * @throws InterruptedException
+		 *         This thread was interrupted while waiting.
+		 */
+		private void emit(
+			final RecordSink sink)
+			throws IOException, InterruptedException {
+
+			ValidationResult result =
+				ParallelTasks.finish(this, IOException.class);
+			if(result.isValid()) {
+				sink.valid(lineNumber, bytes);
+			}
+			else {
+				sink.invalid(lineNumber, bytes, result);
+			}
+		}
+	}
+}
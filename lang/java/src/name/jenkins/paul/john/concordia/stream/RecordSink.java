@@ -0,0 +1,59 @@
+package name.jenkins.paul.john.concordia.stream;
+
+import java.io.IOException;
+
+import name.jenkins.paul.john.concordia.validator.ValidationResult;
+
+/**
+ * <p>
+ * Receives the records of a stream once they have been validated, e.g. to
+ * write the valid ones onward and the invalid ones to a dead-letter file.
+ * </p>
+ *
+ * <p>
+ * Records are given to a sink in the order they appear in the stream and
+ * from a single thread, so a sink need not be thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public interface RecordSink {
+	/**
+	 * Called for a record that conformed to the schema.
+	 *
+	 * @param lineNumber
+	 *        The number of the record's line, starting from 1.
+	 *
+	 * @param record
+	 *        The record's bytes without its line terminator.
+	 *
+	 * @throws IOException
+	 *         The record could not be written.
+	 */
+	public abstract void valid(
+		final long lineNumber,
+		final byte[] record)
+		throws IOException;
+
+	/**
+	 * Called for a record that did not conform to the schema or was not
+	 * well-formed JSON.
+	 *
+	 * @param lineNumber
+	 *        The number of the record's line, starting from 1.
+	 *
+	 * @param record
+	 *        The record's bytes without its line terminator.
+	 *
+	 * @param result
+	 *        The reason the record was invalid.
+	 *
+	 * @throws IOException
+	 *         The record could not be written.
+	 */
+	public abstract void invalid(
+		final long lineNumber,
+		final byte[] record,
+		final ValidationResult result)
+		throws IOException;
+}
@@ -0,0 +1,257 @@
+package name.jenkins.paul.john.concordia.validator;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.schema.ArraySchema;
+import name.jenkins.paul.john.concordia.schema.Schema;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+
+/**
+ * <p>
+ * The step for an {@link ArraySchema}.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+final class ArrayStep extends Step {
+	/**
+	 * The step for every element if this is a constant-type array,
+	 * otherwise null.
+	 */
+	private final Step constType;
+	/**
+	 * The step for each index if this is a constant-length array,
+	 * otherwise null.
+	 */
+	private final Step[] constLength;
+	/**
+	 * Validates the elements when the array is validated in parallel.
+	 */
+	private final ParallelArrayValidator.Element element =
+		new ParallelArrayValidator.Element() {
+			@Override
+			public void validate(
+				final int index,
+				final JsonNode element,
+				final ValidationContext context)
+				throws ConcordiaException {
+
+				if(constType == null) {
+					constLength[index].validate(element, context);
+				}
+				else {
+					constType.validate(element, context);
+				}
+			}
+		};
+
+	/**
+	 * Creates a new array step.
+	 */
+	ArrayStep(
+		final ArraySchema schema,
+		final ValidationController controller,
+		final List<DataValidator<? extends Schema>> validators,
+		final Step constType,
+		final Step[] constLength) {
+
+		super(schema, controller, validators);
+
+		this.constType = constType;
+		this.constLength = constLength;
+	}
+
+	@Override
+	protected boolean isRequired(
+		final DataValidator<? extends Schema> validator) {
+
+		return validator.getClass() == ArrayValidator.class;
+	}
+
+	@Override
+	protected void check(
+		final JsonNode data,
+		final ValidationContext context)
+		throws ConcordiaException {
+
+		if(!(data instanceof ArrayNode)) {
+			if((data == null) || (data instanceof NullNode)) {
+				checkNull(context);
+			}
+			else {
+				context.fail("The data was not a string value: ", data);
+			}
+			return;
+		}
+
+		// Validate the elements.
+		int size = data.size();
+		if(ParallelArrayValidator.isParallel(controller, size)) {
+			if(! checkLength(size, context)) {
+				return;
+			}
+
+			ParallelArrayValidator
+				.validate(controller, data, element, context);
+		}
+		else if(constType != null) {
+			for(int i = 0; i < size; i++) {
+				context.push(i);
+				constType.validate(data.get(i), context);
+				context.pop();
+			}
+		}
+		else {
+			if(! checkLength(size, context)) {
+				return;
+			}
+
+			for(int i = 0; i < size; i++) {
+				context.push(i);
+				constLength[i].validate(data.get(i), context);
+				context.pop();
+			}
+		}
+	}
+
+	@Override
+	protected void access(
+		final Object data,
+		final DataAccessor accessor,
+		final ValidationContext context)
+		throws ConcordiaException {
+
+		if(! accessor.isArray(data)) {
+			if(accessor.isNull(data)) {
+				checkNull(context);
+			}
+			else {
+				context
+					.fail(
+						"The data was not a string value: ",
+						describe(data, accessor));
+			}
+			return;
+		}
+
+		// Validate the elements.
+		int size = accessor.size(data);
+		if(! checkLength(size, context)) {
+			return;
+		}
+		Iterator<?> elements = accessor.getElements(data);
+		for(int i = 0; i < size; i++) {
+			context.push(i);
+			getElementStep(i).validate(elements.next(), accessor, context);
+			context.pop();
+		}
+	}
+
+	@Override
+	protected void stream(
+		final JsonParser parser,
+		final ValidationContext context)
+		throws ConcordiaException, IOException {
+
+		JsonToken token = parser.getCurrentToken();
+		if(token != JsonToken.START_ARRAY) {
+			if(token == JsonToken.VALUE_NULL) {
+				checkNull(context);
+			}
+			else {
+				context
+					.fail(
+						"The data was not a string value: ",
+						readTree(parser));
+			}
+			return;
+		}
+
+		// Validate each element as it is given.
+		int size = 0;
+		while(parser.nextToken() != JsonToken.END_ARRAY) {
+			if(constType != null) {
+				context.push(size);
+				constType.validate(parser, context);
+				context.pop();
+			}
+			else if(size < constLength.length) {
+				context.push(size);
+				constLength[size].validate(parser, context);
+				context.pop();
+			}
+			else {
+				// Skip the remaining elements.
+				parser.skipChildren();
+			}
+			size++;
+		}
+
+		// Validate that a constant-length array had the right length.
+		checkLength(size, context);
+	}
+
+	/**
+	 * Returns the step for an element.
+	 *
+	 * @param index
+	 *        The element's index.
+	 *
+	 * @return The step for the element or null if it is past the end of
+	 *         a constant-length array.
+	 */
+	Step getElementStep(final long index) {
+		if(constType != null) {
+			return constType;
+		}
+		return
+			(index < constLength.length) ?
+				constLength[(int) index] :
+				null;
+	}
+
+	/**
+	 * Validates that a constant-length array has the right length.
+	 *
+	 * @param size
+	 *        The number of elements in the array.
+	 *
+	 * @param context
+	 *        The context for the current document.
+	 *
+	 * @return Whether or not the array had the right length, which is
+	 *         always true for a constant-type array.
+	 *
+	 * @throws ConcordiaException
+	 *         The array had the wrong length and violations are not being
+	 *         collected.
+	 */
+	boolean checkLength(
+		final long size,
+		final ValidationContext context)
+		throws ConcordiaException {
+
+		if((constLength == null) || (constLength.length == size)) {
+			return true;
+		}
+
+		context
+			.fail(
+				"The schemas array and the data array are different " +
+					"lengths.",
+				null);
+		return false;
+	}
+}
@@ -4,6 +4,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.exception.InvalidDataException;
 import name.jenkins.paul.john.concordia.schema.ArraySchema;
 import name.jenkins.paul.john.concordia.schema.Schema;
 
@@ -68,21 +69,28 @@ public class ArrayValidator
 					return;
 				}
 				else {
-					throw new ConcordiaException(
-						"The value is null but not optional: " +
-							schema.toString());
+					throw new InvalidDataException(
+						"The value is null but not optional: ",
+						schema);
 				}
 			}
 			// Otherwise, it is invalid.
 			else {
-				throw new ConcordiaException(
-					"The data was not a string value: " + data.toString());
+				throw new InvalidDataException(
+					"The data was not a string value: ",
+					data);
 			}
 		}
 		
 		// Get the data as an array.
 		ArrayNode dataArray = (ArrayNode) data;
 		
+		// If it's large enough, validate its elements in parallel.
+		if(ParallelArrayValidator.isParallel(controller, dataArray.size())) {
+			validateParallel(schema, dataArray, controller);
+			return;
+		}
+		
 		// If it's a constant type array, validate that each index in the data
 		// array conforms to this schema.
 		if(schema.getConstType() != null) {
@@ -106,7 +114,7 @@ public class ArrayValidator
 			// Validate that the schemas are the same length.
 			if(subSchemas.size() != dataArray.size()) {
 				throw
-					new ConcordiaException(
+					new InvalidDataException(
 						"The schemas array and the data array are different " +
 							"lengths.");
 			}
@@ -121,4 +129,64 @@ public class ArrayValidator
 			}
 		}
 	}
+	
+	/**
+	 * Validates every data point in a large array in parallel.
+	 * 
+	 * @param schema
+	 *        The array's schema.
+	 * 
+	 * @param dataArray
+	 *        The array.
+	 * 
+	 * @param controller
+	 *        The controller, which has a parallel executor.
+	 * 
+	 * @throws ConcordiaException
+	 *         The array is not valid.
+	 */
+	private void validateParallel(
+		final ArraySchema schema,
+		final ArrayNode dataArray,
+		final ValidationController controller)
+		throws ConcordiaException {
+		
+		final Schema constType = schema.getConstType();
+		final Schema[] constLength =
+			(constType == null) ?
+				schema.getConstLength().toArray(new Schema[0]) :
+				null;
+		
+		// Validate that a constant length array has a schema for every index.
+		if((constLength != null) && (constLength.length != dataArray.size())) {
+			throw
+				new InvalidDataException(
+					"The schemas array and the data array are different " +
+						"lengths.");
+		}
+		
+		// Validate the indices. The controller doesn't track the location of
+		// the data, so the context is only used to divide the work.
+		ParallelArrayValidator
+			.validate(
+				controller,
+				dataArray,
+				new ParallelArrayValidator.Element() {
+					@Override
+					public void validate(
+						final int index,
+						final JsonNode element,
+						final ValidationContext context)
+						throws ConcordiaException {
+						
+						controller
+							.validate(
+								(constLength == null) ?
+									constType :
+									constLength[index],
+								element);
+					}
+				},
+				new ValidationContext(false));
+	}
 }
\ No newline at end of file
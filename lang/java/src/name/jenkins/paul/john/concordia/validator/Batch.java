@@ -0,0 +1,254 @@
+package name.jenkins.paul.john.concordia.validator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * <p>
+ * Gathers the results of checking part of a batch of records.
+ * </p>
+ *
+ * <p>
+ * A batch may also be {@link #checkAll(List, Executor, boolean, Checker)
+ * checked in parallel}. It is split into contiguous chunks, each a whole
+ * number of words of the shared bitmap, and each chunk is checked in order
+ * by a single task with its own {@link ValidationContext}. Every chunk but
+ * the first is given to the executor, and the calling thread then works
+ * through the chunks in order, running any that the executor has not yet
+ * started. Therefore, the executor may be bounded or saturated.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+final class Batch {
+	/**
+	 * Checks a single record of a batch.
+	 *
+	 * @author John Jenkins
+	 */
+	static interface Checker {
+		/**
+		 * Checks a record.
+		 *
+		 * @param record
+		 *        The record.
+		 *
+		 * @param context
+		 *        The context for the record's chunk, which may be reset and
+		 *        reused for the record.
+		 *
+		 * @return The result of checking the record.
+		 */
+		public abstract ValidationResult check(
+			final JsonNode record,
+			final ValidationContext context);
+	}
+
+	/**
+	 * The fewest records to check in one task of a parallel batch. This is a
+	 * multiple of 64, so that each task owns whole words of the bitmap.
+	 */
+	private static final int MIN_CHUNK_SIZE = 64;
+	/**
+	 * The number of tasks to make for each processor when checking a batch
+	 * in parallel, so that a thread that finishes early can pick up more
+	 * work.
+	 */
+	private static final int CHUNKS_PER_PROCESSOR = 4;
+
+	/**
+	 * The bitmap of valid records, which may be shared with the other
+	 * parts of the batch as long as each part owns whole words.
+	 */
+	private long[] valid;
+	/**
+	 * The indices of the invalid records in ascending order.
+	 */
+	private int[] invalidIndices = new int[8];
+	/**
+	 * The results of the invalid records in the same order as their
+	 * indices.
+	 */
+	private ValidationResult[] invalidResults = new ValidationResult[8];
+	/**
+	 * The number of invalid records.
+	 */
+	private int invalidCount = 0;
+
+	/**
+	 * Creates a new part of a batch.
+	 *
+	 * @param valid
+	 *        The bitmap of valid records, which is grown as needed.
+	 */
+	Batch(final long[] valid) {
+		this.valid = valid;
+	}
+
+	/**
+	 * Adds the result of checking a record.
+	 *
+	 * @param index
+	 *        The index of the record in the batch.
+	 *
+	 * @param result
+	 *        The result of checking the record.
+	 */
+	void add(final int index, final ValidationResult result) {
+		if(result.isValid()) {
+			int word = index >>> 6;
+			if(word >= valid.length) {
+				valid =
+					Arrays
+						.copyOf(
+							valid,
+							Math.max(word + 1, valid.length * 2));
+			}
+			valid[word] |= 1L << index;
+			return;
+		}
+
+		if(invalidCount == invalidIndices.length) {
+			invalidIndices =
+				Arrays.copyOf(invalidIndices, invalidCount * 2);
+			invalidResults =
+				Arrays.copyOf(invalidResults, invalidCount * 2);
+		}
+		invalidIndices[invalidCount] = index;
+		invalidResults[invalidCount] = result;
+		invalidCount++;
+	}
+
+	/**
+	 * Builds the result of a batch from its parts.
+	 *
+	 * @param size
+	 *        The number of records in the batch.
+	 *
+	 * @param parts
+	 *        The parts of the batch in order, which must all share the
+	 *        same bitmap.
+	 *
+	 * @return The result of the batch.
+	 */
+	static BatchResult merge(
+		final int size,
+		final List<Batch> parts) {
+
+		int invalidCount = 0;
+		for(Batch part : parts) {
+			invalidCount += part.invalidCount;
+		}
+
+		int[] invalidIndices = new int[invalidCount];
+		ValidationResult[] invalidResults =
+			new ValidationResult[invalidCount];
+		int offset = 0;
+		for(Batch part : parts) {
+			System
+				.arraycopy(
+					part.invalidIndices,
+					0,
+					invalidIndices,
+					offset,
+					part.invalidCount);
+			System
+				.arraycopy(
+					part.invalidResults,
+					0,
+					invalidResults,
+					offset,
+					part.invalidCount);
+			offset += part.invalidCount;
+		}
+
+		long[] valid =
+			(parts.isEmpty()) ? new long[0] : parts.get(0).valid;
+		return
+			new BatchResult(
+				size,
+				Arrays.copyOf(valid, (size + 63) >>> 6),
+				invalidIndices,
+				invalidResults);
+	}
+
+	/**
+	 * Checks each record in a batch, splitting the batch across an executor.
+	 *
+	 * @param records
+	 *        The records to check, which must not be modified until this
+	 *        returns.
+	 *
+	 * @param executor
+	 *        The executor to check the chunks on.
+	 *
+	 * @param collect
+	 *        Whether each record's context should collect all of its
+	 *        violations.
+	 *
+	 * @param checker
+	 *        Checks each record.
+	 *
+	 * @return The result of checking every record.
+	 *
+	 * @throws InterruptedException
+	 *         The calling thread was interrupted while waiting for a chunk to
+	 *         be checked.
+	 */
+	static BatchResult checkAll(
+		final List<? extends JsonNode> records,
+		final Executor executor,
+		final boolean collect,
+		final Checker checker)
+		throws InterruptedException {
+
+		// Decide how to divide the batch. Each chunk is a whole number of
+		// words of the bitmap, so that the chunks never write to the same
+		// word.
+		int size = records.size();
+		int chunks =
+			CHUNKS_PER_PROCESSOR *
+				Runtime.getRuntime().availableProcessors();
+		int chunkSize = (size + chunks - 1) / chunks;
+		chunkSize =
+			Math.max(MIN_CHUNK_SIZE, ((chunkSize + 63) >>> 6) << 6);
+
+		// Create a chunk of records for each part of the batch.
+		long[] valid = new long[(size + 63) >>> 6];
+		List<Callable<Batch>> tasks = new ArrayList<Callable<Batch>>();
+		for(int from = 0; from < size; from += chunkSize) {
+			final int start = from;
+			final int end = Math.min(from + chunkSize, size);
+			final Batch batch = new Batch(valid);
+			tasks
+				.add(
+					new Callable<Batch>() {
+						@Override
+						public Batch call() {
+							ValidationContext context =
+								new ValidationContext(collect);
+							for(int i = start; i < end; i++) {
+								batch
+									.add(
+										i,
+										checker.check(records.get(i), context));
+							}
+							return batch;
+						}
+					});
+		}
+
+		List<Batch> parts =
+			ParallelTasks.runAll(tasks, executor, RuntimeException.class);
+		return Batch.merge(size, parts);
+	}
+}
@@ -0,0 +1,196 @@
+package name.jenkins.paul.john.concordia.validator;
+
+import java.util.Arrays;
+import java.util.List;
+
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+
+/**
+ * <p>
+ * The outcome of checking a batch of records against a schema with
+ * {@link CompiledValidator#checkAll(Iterable)} or
+ * {@link CompiledValidator#checkAll(List, java.util.concurrent.Executor)}.
+ * </p>
+ *
+ * <p>
+ * Whether each record was valid is kept as a bitmap, one bit per record, so
+ * a batch that is mostly valid costs little more than its size in bits. The
+ * {@link ValidationResult} is only kept for the records that were invalid.
+ * </p>
+ *
+ * <p>
+ * This class is immutable.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public final class BatchResult {
+	/**
+	 * The number of records in the batch.
+	 */
+	private final int size;
+	/**
+	 * The bitmap of valid records, where bit (i % 64) of word (i / 64) is set
+	 * if record i was valid.
+	 */
+	private final long[] valid;
+	/**
+	 * The indices of the invalid records in ascending order.
+	 */
+	private final int[] invalidIndices;
+	/**
+	 * The results of the invalid records in the same order as their indices.
+	 */
+	private final ValidationResult[] invalidResults;
+
+	/**
+	 * Creates a new result.
+	 *
+	 * @param size
+	 *        The number of records in the batch.
+	 *
+	 * @param valid
+	 *        The bitmap of valid records, which is not copied.
+	 *
+	 * @param invalidIndices
+	 *        The indices of the invalid records in ascending order, which is
+	 *        not copied.
+	 *
+	 * @param invalidResults
+	 *        The results of the invalid records, which is not copied.
+	 */
+	BatchResult(
+		final int size,
+		final long[] valid,
+		final int[] invalidIndices,
+		final ValidationResult[] invalidResults) {
+
+		this.size = size;
+		this.valid = valid;
+		this.invalidIndices = invalidIndices;
+		this.invalidResults = invalidResults;
+	}
+
+	/**
+	 * Returns the number of records in the batch.
+	 *
+	 * @return The number of records in the batch.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns whether or not every record in the batch was valid.
+	 *
+	 * @return Whether or not every record in the batch was valid.
+	 */
+	public boolean isValid() {
+		return invalidIndices.length == 0;
+	}
+
+	/**
+	 * Returns whether or not a record was valid.
+	 *
+	 * @param index
+	 *        The index of the record in the batch.
+	 *
+	 * @return Whether or not the record was valid.
+	 *
+	 * @throws IndexOutOfBoundsException
+	 *         The index is not in the batch.
+	 */
+	public boolean isValid(final int index) throws IndexOutOfBoundsException {
+		if((index < 0) || (index >= size)) {
+			throw
+				new IndexOutOfBoundsException(
+					"The index is not in the batch: " + index);
+		}
+
+		return (valid[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Returns the number of records that were invalid.
+	 *
+	 * @return The number of records that were invalid.
+	 */
+	public int getInvalidCount() {
+		return invalidIndices.length;
+	}
+
+	/**
+	 * Returns the indices of the records that were invalid.
+	 *
+	 * @return The indices of the invalid records in ascending order.
+	 */
+	public int[] getInvalidIndices() {
+		return invalidIndices.clone();
+	}
+
+	/**
+	 * Returns the result of checking a record.
+	 *
+	 * @param index
+	 *        The index of the record in the batch.
+	 *
+	 * @return The record's result, which is {@link ValidationResult#VALID} if
+	 *         it was valid.
+	 *
+	 * @throws IndexOutOfBoundsException
+	 *         The index is not in the batch.
+	 */
+	public ValidationResult getResult(
+		final int index)
+		throws IndexOutOfBoundsException {
+
+		if(isValid(index)) {
+			return ValidationResult.VALID;
+		}
+		return invalidResults[Arrays.binarySearch(invalidIndices, index)];
+	}
+
+	/**
+	 * Returns every violation that was found in a record.
+	 *
+	 * @param index
+	 *        The index of the record in the batch.
+	 *
+	 * @return Every violation in the record, which is empty if it was valid.
+	 *
+	 * @throws IndexOutOfBoundsException
+	 *         The index is not in the batch.
+	 */
+	public List<ConcordiaException> getErrors(
+		final int index)
+		throws IndexOutOfBoundsException {
+
+		return getResult(index).getErrors();
+	}
+
+	/**
+	 * Returns a string representation of this result.
+	 *
+	 * @return "valid" or each invalid record's index followed by its
+	 *         violations.
+	 */
+	@Override
+	public String toString() {
+		if(isValid()) {
+			return "valid";
+		}
+
+		StringBuilder builder = new StringBuilder();
+		for(int i = 0; i < invalidIndices.length; i++) {
+			if(i > 0) {
+				builder.append('\n');
+			}
+			builder
+				.append('[')
+				.append(invalidIndices[i])
+				.append("]\n")
+				.append(invalidResults[i]);
+		}
+		return builder.toString();
+	}
+}
@@ -1,6 +1,7 @@
 package name.jenkins.paul.john.concordia.validator;
 
 import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.exception.InvalidDataException;
 import name.jenkins.paul.john.concordia.schema.BooleanSchema;
 
 import com.fasterxml.jackson.databind.JsonNode;
@@ -46,15 +47,16 @@ public final class BooleanValidator
 					return;
 				}
 				else {
-					throw new ConcordiaException(
-						"The value is null but not optional: " +
-							schema.toString());
+					throw new InvalidDataException(
+						"The value is null but not optional: ",
+						schema);
 				}
 			}
 			// Otherwise, it is invalid.
 			else {
-				throw new ConcordiaException(
-					"The data was not a boolean value: " + data.toString());
+				throw new InvalidDataException(
+					"The data was not a boolean value: ",
+					data);
 			}
 		}
 	}
@@ -0,0 +1,196 @@
+package name.jenkins.paul.john.concordia.validator;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * <p>
+ * The {@link DataAccessor} for data that is held in the standard Java
+ * types, as it is by most parsers other than Jackson's tree model:
+ * </p>
+ *
+ * <ul>
+ * <li>Objects are {@link Map}s whose keys are the field names.</li>
+ * <li>Arrays are {@link List}s, Java arrays, or any other
+ * {@link Collection}, whose elements are read in iteration order.</li>
+ * <li>Strings are {@link CharSequence}s, {@link Character}s, or
+ * {@link Enum}s.</li>
+ * <li>Numbers are {@link Number}s and booleans are {@link Boolean}s.</li>
+ * </ul>
+ *
+ * <p>
+ * {@link JsonNode}s may appear anywhere in the data and are read as trees.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public class CollectionAccessor implements DataAccessor {
+	/**
+	 * <p>
+	 * Iterates over the elements of a Java array of any component type.
+	 * </p>
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class ArrayIterator implements Iterator<Object> {
+		/**
+		 * The array.
+		 */
+		private final Object array;
+		/**
+		 * The length of the array.
+		 */
+		private final int length;
+		/**
+		 * The index of the next element.
+		 */
+		private int index = 0;
+
+		/**
+		 * Creates a new iterator.
+		 *
+		 * @param array
+		 *        The array.
+		 */
+		private ArrayIterator(final Object array) {
+			this.array = array;
+			length = Array.getLength(array);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return index < length;
+		}
+
+		@Override
+		public Object next() {
+			if(index >= length) {
+				throw new NoSuchElementException();
+			}
+			return Array.get(array, index++);
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * The shared instance of this accessor.
+	 */
+	public static final CollectionAccessor INSTANCE = new CollectionAccessor();
+
+	/**
+	 * The mapper used to convert values into trees.
+	 */
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	/**
+	 * Creates a new accessor.
+	 */
+	protected CollectionAccessor() {
+		// Nothing to do.
+	}
+
+	@Override
+	public boolean isNull(final Object value) {
+		return
+			(value == null) ||
+			((value instanceof JsonNode) && ((JsonNode) value).isNull());
+	}
+
+	@Override
+	public boolean isBoolean(final Object value) {
+		if(value instanceof JsonNode) {
+			return ((JsonNode) value).isBoolean();
+		}
+		return value instanceof Boolean;
+	}
+
+	@Override
+	public boolean isNumber(final Object value) {
+		if(value instanceof JsonNode) {
+			return ((JsonNode) value).isNumber();
+		}
+		return value instanceof Number;
+	}
+
+	@Override
+	public boolean isString(final Object value) {
+		if(value instanceof JsonNode) {
+			return ((JsonNode) value).isTextual();
+		}
+		return
+			(value instanceof CharSequence) ||
+			(value instanceof Character) ||
+			(value instanceof Enum);
+	}
+
+	@Override
+	public boolean isObject(final Object value) {
+		if(value instanceof JsonNode) {
+			return ((JsonNode) value).isObject();
+		}
+		return value instanceof Map;
+	}
+
+	@Override
+	public boolean isArray(final Object value) {
+		if(value instanceof JsonNode) {
+			return ((JsonNode) value).isArray();
+		}
+		return
+			(value instanceof Collection) ||
+			((value != null) && value.getClass().isArray());
+	}
+
+	@Override
+	public Object getField(final Object object, final String name) {
+		if(object instanceof JsonNode) {
+			return ((JsonNode) object).get(name);
+		}
+		return ((Map<?, ?>) object).get(name);
+	}
+
+	@Override
+	public int size(final Object array) {
+		if(array instanceof JsonNode) {
+			return ((JsonNode) array).size();
+		}
+		else if(array instanceof Collection) {
+			return ((Collection<?>) array).size();
+		}
+		return Array.getLength(array);
+	}
+
+	@Override
+	public Iterator<?> getElements(final Object array) {
+		if(array instanceof JsonNode) {
+			return ((JsonNode) array).elements();
+		}
+		else if(array instanceof Collection) {
+			return ((Collection<?>) array).iterator();
+		}
+		return new ArrayIterator(array);
+	}
+
+	@Override
+	public JsonNode toTree(final Object value) {
+		if((value == null) || (value instanceof JsonNode)) {
+			return (JsonNode) value;
+		}
+		return MAPPER.valueToTree(value);
+	}
+}
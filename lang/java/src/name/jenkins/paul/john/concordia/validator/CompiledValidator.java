@@ -0,0 +1,696 @@
+package name.jenkins.paul.john.concordia.validator;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.exception.InvalidDataException;
+import name.jenkins.paul.john.concordia.schema.Schema;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * <p>
+ * A pre-resolved validation plan for a single {@link Schema}. This is created
+ * by {@link ValidationController#compile(Schema)}.
+ * </p>
+ *
+ * <p>
+ * When a schema is compiled, each of its nodes is paired with the data
+ * validators that the controller would have looked up for it, and the
+ * required validators are replaced with equivalent, type-specific steps that
+ * call their children directly. Validating data with this object therefore
+ * performs no map lookups and no generic dispatch for the required
+ * validators. Custom validators are still called, in the same order and with
+ * the same arguments, as they would have been by the controller.
+ * </p>
+ *
+ * <p>
+ * Data may also be {@link #validate(JsonParser) validated directly from a
+ * parser}. In that case, the token stream is walked alongside the plan and no
+ * tree is built except for the sub-trees whose schemas have custom
+ * validators, because those validators require a {@link JsonNode}. Fields
+ * that the schema does not define are skipped without being read.
+ * </p>
+ *
+ * <p>
+ * Finally, a parser may be {@link #validatingParser(JsonParser) wrapped} so
+ * that its tokens are validated as any other consumer, e.g. an
+ * {@link ObjectMapper}, reads them, and a generator may be
+ * {@link #validatingGenerator(JsonGenerator) wrapped} so that the tokens
+ * written to it are validated as they are written. Either way, each token is
+ * checked as it passes through, so the data is never parsed twice.
+ * </p>
+ *
+ * <p>
+ * A referenced schema is compiled the first time data reaches it, as it may
+ * not have been read yet and may refer back to the schema that refers to it.
+ * Each referenced schema is compiled once per plan, so recursive references
+ * share their steps. The only exception is an object that extends another
+ * object, which is compiled with the extending object. Because a referenced
+ * schema's steps are shared, their schema paths are relative to it, and the
+ * path of the reference that the data came through is prepended when they
+ * are reported.
+ * </p>
+ *
+ * <p>
+ * If the controller has a {@link ValidationListener}, every value, custom
+ * validator, and document is reported to it. Otherwise, validation does no
+ * extra work.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public final class CompiledValidator {
+	/**
+	 * The schema that was compiled.
+	 */
+	private final Schema schema;
+	/**
+	 * The controller that compiled the schema.
+	 */
+	private final ValidationController controller;
+	/**
+	 * The root of the validation plan.
+	 */
+	private final Step root;
+
+	/**
+	 * Compiles a schema using a controller's data validators.
+	 *
+	 * @param schema
+	 *        The schema to compile.
+	 *
+	 * @param controller
+	 *        The controller whose data validators should be used.
+	 *
+	 * @throws ConcordiaException
+	 *         The schema could not be compiled.
+	 */
+	CompiledValidator(
+		final Schema schema,
+		final ValidationController controller)
+		throws ConcordiaException {
+
+		this.schema = schema;
+		this.controller = controller;
+		root =
+			Step
+				.compile(
+					schema,
+					controller,
+					new IdentityHashMap<Schema, Step>(),
+					"");
+	}
+
+	/**
+	 * Returns the schema that this plan validates.
+	 *
+	 * @return The schema that this plan validates.
+	 */
+	public Schema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * Returns the controller that compiled this plan.
+	 *
+	 * @return The controller that compiled this plan.
+	 */
+	public ValidationController getController() {
+		return controller;
+	}
+
+	/**
+	 * Returns whether or not the elements of an array that this plan
+	 * validates can be {@link #checkElements(long, List) checked} separately
+	 * from the array, i.e. whether the schema is an array schema without any
+	 * custom validators of its own, which would need the whole array.
+	 *
+	 * @return Whether or not the elements can be checked separately.
+	 */
+	public boolean isElementwise() {
+		return (root instanceof ArrayStep) && (! root.hasCustomValidators());
+	}
+
+	/**
+	 * Checks some consecutive elements of an array against the compiled
+	 * array schema, independently of the rest of the array. Violations are
+	 * located as if the array was the root of the data. Elements past the
+	 * end of a constant-length array are not checked, as that is reported
+	 * by {@link #checkLength(long)}. The scratch state is reused from one
+	 * element to the next.
+	 *
+	 * @param offset
+	 *        The index of the first element in the array.
+	 *
+	 * @param elements
+	 *        The elements.
+	 *
+	 * @return The result of checking each element, where an element's index
+	 *         in the result is its index in the list, not the array.
+	 *
+	 * @throws IllegalStateException
+	 *         The elements cannot be
+	 *         {@link #isElementwise() checked separately}.
+	 */
+	public BatchResult checkElements(
+		final long offset,
+		final List<? extends JsonNode> elements)
+		throws IllegalStateException {
+
+		if(! isElementwise()) {
+			throw
+				new IllegalStateException(
+					"The elements cannot be checked separately.");
+		}
+
+		ArrayStep array = (ArrayStep) root;
+		ValidationContext context =
+			new ValidationContext(controller.isCollectAllErrors());
+		Batch batch = new Batch(new long[(elements.size() + 63) >>> 6]);
+		int i = 0;
+		for(JsonNode element : elements) {
+			Step step = array.getElementStep(offset + i);
+			if(step == null) {
+				batch.add(i, ValidationResult.VALID);
+			}
+			else {
+				context.reset();
+				context.push(offset + i);
+				try {
+					step.validate(element, context);
+					List<InvalidDataException> errors = context.getErrors();
+					batch
+						.add(
+							i,
+							(errors.isEmpty()) ?
+								ValidationResult.VALID :
+								ValidationResult.invalid(errors));
+				}
+				catch(ConcordiaException e) {
+					batch.add(i, ValidationResult.invalid(e));
+				}
+			}
+			i++;
+		}
+
+		return Batch.merge(elements.size(), Collections.singletonList(batch));
+	}
+
+	/**
+	 * Checks that an array whose elements were
+	 * {@link #checkElements(long, List) checked separately} had the right
+	 * number of elements.
+	 *
+	 * @param size
+	 *        The number of elements in the array.
+	 *
+	 * @return The result of the check, which is always valid for a
+	 *         constant-type array.
+	 *
+	 * @throws IllegalStateException
+	 *         The elements cannot be
+	 *         {@link #isElementwise() checked separately}.
+	 */
+	public ValidationResult checkLength(
+		final long size)
+		throws IllegalStateException {
+
+		if(! isElementwise()) {
+			throw
+				new IllegalStateException(
+					"The elements cannot be checked separately.");
+		}
+
+		ValidationContext context = new ValidationContext(true);
+		try {
+			((ArrayStep) root).checkLength(size, context);
+		}
+		catch(ConcordiaException e) {
+			// Violations are collected, so this cannot happen.
+			return ValidationResult.invalid(e);
+		}
+		List<InvalidDataException> errors = context.getErrors();
+		if(errors.isEmpty()) {
+			return ValidationResult.VALID;
+		}
+		return ValidationResult.invalid(errors);
+	}
+
+	/**
+	 * Validates some data against the compiled schema. This is equivalent to
+	 * {@link ValidationController#validate(Schema, JsonNode)}.
+	 *
+	 * @param data
+	 *        The data to validate.
+	 *
+	 * @throws ConcordiaException
+	 *         The data is not valid.
+	 */
+	public void validate(final JsonNode data) throws ConcordiaException {
+		ValidationListener listener = controller.getListener();
+		if(listener == null) {
+			root.validate(data, new ValidationContext(false));
+			return;
+		}
+
+		long start = System.nanoTime();
+		boolean passed = false;
+		try {
+			root.validate(data, new ValidationContext(false));
+			passed = true;
+		}
+		finally {
+			listener.documentCompleted(System.nanoTime() - start, passed);
+		}
+	}
+
+	/**
+	 * Checks some data against the compiled schema without throwing an
+	 * exception if it is invalid. If the controller
+	 * {@link ValidationController#isCollectAllErrors() collects all errors},
+	 * then every violation is reported. Otherwise, only the first violation
+	 * is reported.
+	 *
+	 * @param data
+	 *        The data to check.
+	 *
+	 * @return The result of the check.
+	 */
+	public ValidationResult check(final JsonNode data) {
+		return
+			check(
+				data,
+				new ValidationContext(controller.isCollectAllErrors()));
+	}
+
+	/**
+	 * Validates some data in place, reading it through an accessor rather
+	 * than converting it into a tree. Only the values that custom validators
+	 * are given, and those that are rendered in a violation's message, are
+	 * converted.
+	 *
+	 * @param data
+	 *        The data to validate.
+	 *
+	 * @param accessor
+	 *        The accessor that reads the data.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The accessor is null.
+	 *
+	 * @throws ConcordiaException
+	 *         The data is not valid.
+	 */
+	public void validate(
+		final Object data,
+		final DataAccessor accessor)
+		throws IllegalArgumentException, ConcordiaException {
+
+		if(accessor == null) {
+			throw new IllegalArgumentException("The accessor is null.");
+		}
+
+		ValidationListener listener = controller.getListener();
+		if(listener == null) {
+			root.validate(data, accessor, new ValidationContext(false));
+			return;
+		}
+
+		long start = System.nanoTime();
+		boolean passed = false;
+		try {
+			root.validate(data, accessor, new ValidationContext(false));
+			passed = true;
+		}
+		finally {
+			listener.documentCompleted(System.nanoTime() - start, passed);
+		}
+	}
+
+	/**
+	 * Checks some data in place, reading it through an accessor, without
+	 * throwing an exception if it is invalid. This is to
+	 * {@link #validate(Object, DataAccessor)} as {@link #check(JsonNode)} is
+	 * to {@link #validate(JsonNode)}.
+	 *
+	 * @param data
+	 *        The data to check.
+	 *
+	 * @param accessor
+	 *        The accessor that reads the data.
+	 *
+	 * @return The result of the check.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The accessor is null.
+	 */
+	public ValidationResult check(
+		final Object data,
+		final DataAccessor accessor)
+		throws IllegalArgumentException {
+
+		if(accessor == null) {
+			throw new IllegalArgumentException("The accessor is null.");
+		}
+
+		ValidationContext context =
+			new ValidationContext(controller.isCollectAllErrors());
+		ValidationListener listener = controller.getListener();
+		long start = (listener == null) ? 0 : System.nanoTime();
+		ValidationResult result = null;
+		try {
+			try {
+				root.validate(data, accessor, context);
+			}
+			catch(ConcordiaException e) {
+				result = ValidationResult.invalid(e);
+				return result;
+			}
+
+			List<InvalidDataException> errors = context.getErrors();
+			result =
+				(errors.isEmpty()) ?
+					ValidationResult.VALID :
+					ValidationResult.invalid(errors);
+			return result;
+		}
+		finally {
+			if(listener != null) {
+				listener
+					.documentCompleted(
+						System.nanoTime() - start,
+						(result != null) && result.isValid());
+			}
+		}
+	}
+
+	/**
+	 * Checks each record in a batch against the compiled schema on the
+	 * calling thread. This is equivalent to calling {@link #check(JsonNode)}
+	 * for each record, except that the scratch state is reused from one
+	 * record to the next.
+	 *
+	 * @param records
+	 *        The records to check.
+	 *
+	 * @return The result of checking every record.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The records are null.
+	 */
+	public BatchResult checkAll(
+		final Iterable<? extends JsonNode> records)
+		throws IllegalArgumentException {
+
+		if(records == null) {
+			throw new IllegalArgumentException("The records are null.");
+		}
+
+		ValidationContext context =
+			new ValidationContext(controller.isCollectAllErrors());
+		Batch batch = new Batch(new long[1]);
+		int size = 0;
+		for(JsonNode record : records) {
+			batch.add(size, check(record, context));
+			size++;
+		}
+
+		return Batch.merge(size, Collections.singletonList(batch));
+	}
+
+	/**
+	 * <p>
+	 * Checks each record in a batch against the compiled schema, splitting
+	 * the batch across an executor. This is equivalent to calling
+	 * {@link #check(JsonNode)} for each record.
+	 * </p>
+	 *
+	 * <p>
+	 * The batch is split into contiguous chunks and each chunk is checked by
+	 * a single task, which reuses its scratch state from one record to the
+	 * next. Every chunk but the first is given to the executor, and the
+	 * calling thread then works through the chunks in order, running any
+	 * that the executor has not yet started. Therefore, the executor may be
+	 * bounded or saturated.
+	 * </p>
+	 *
+	 * @param records
+	 *        The records to check. This should support fast random access,
+	 *        and it must not be modified until this returns.
+	 *
+	 * @param executor
+	 *        The executor to check the chunks on.
+	 *
+	 * @return The result of checking every record.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The records or the executor are null.
+	 *
+	 * @throws InterruptedException
+	 *         The calling thread was interrupted while waiting for a chunk to
+	 *         be checked.
+	 */
+	public BatchResult checkAll(
+		final List<? extends JsonNode> records,
+		final Executor executor)
+		throws IllegalArgumentException, InterruptedException {
+
+		if(records == null) {
+			throw new IllegalArgumentException("The records are null.");
+		}
+		if(executor == null) {
+			throw new IllegalArgumentException("The executor is null.");
+		}
+
+		return
+			Batch
+				.checkAll(
+					records,
+					executor,
+					controller.isCollectAllErrors(),
+					new Batch.Checker() {
+						@Override
+						public ValidationResult check(
+							final JsonNode record,
+							final ValidationContext context) {
+
+							return
+								CompiledValidator.this.check(record, context);
+						}
+					});
+	}
+
+	/**
+	 * Validates some data directly from a parser without building a tree.
+	 * This is equivalent to reading the value into a tree and calling
+	 * {@link #validate(JsonNode)}, except that any violations may be reported
+	 * in the order they appear in the data rather than the order they are
+	 * defined in the schema.
+	 *
+	 * @param parser
+	 *        The parser that is either pointing to the value to validate or
+	 *        just before it. When this returns successfully, the parser's
+	 *        current token will be the last token of the value.
+	 *
+	 * @throws ConcordiaException
+	 *         The data is not valid.
+	 *
+	 * @throws IOException
+	 *         The data could not be read or was not well-formed JSON.
+	 */
+	public void validate(
+		final JsonParser parser)
+		throws ConcordiaException, IOException {
+
+		ValidationListener listener = controller.getListener();
+		if(listener == null) {
+			run(parser);
+			return;
+		}
+
+		long start = System.nanoTime();
+		boolean passed = false;
+		try {
+			run(parser);
+			passed = true;
+		}
+		finally {
+			listener.documentCompleted(System.nanoTime() - start, passed);
+		}
+	}
+
+	/**
+	 * Wraps a parser so that its tokens are validated as they are read. Any
+	 * consumer, e.g. an {@link ObjectMapper} binding the data to an object,
+	 * may read the returned parser, and a violation will be thrown from it as
+	 * a {@link ValidationParseException} at the token where it was found.
+	 * The data is therefore only parsed once to both bind and validate it.
+	 *
+	 * @param parser
+	 *        The parser to wrap, which should not be read directly while the
+	 *        returned parser is in use.
+	 *
+	 * @return A parser that returns the same tokens as the given parser.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The parser is null.
+	 */
+	public JsonParser validatingParser(
+		final JsonParser parser)
+		throws IllegalArgumentException {
+
+		if(parser == null) {
+			throw new IllegalArgumentException("The parser is null.");
+		}
+
+		return
+			new ValidatingParser(
+				parser,
+				new TokenChecker(controller, root));
+	}
+
+	/**
+	 * Wraps a generator so that the tokens written to it are validated
+	 * before they are written. Any producer, e.g. an {@link ObjectMapper}
+	 * serializing an object, may write to the returned generator, and a
+	 * violation will be thrown from it as a
+	 * {@link ValidationGenerationException} at the write where it was found.
+	 * The output is therefore checked without being parsed again or buffered
+	 * as a whole.
+	 *
+	 * @param generator
+	 *        The generator to wrap, which should not be written to directly
+	 *        while the returned generator is in use.
+	 *
+	 * @return A generator that writes the same tokens to the given
+	 *         generator.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The generator is null.
+	 */
+	public JsonGenerator validatingGenerator(
+		final JsonGenerator generator)
+		throws IllegalArgumentException {
+
+		if(generator == null) {
+			throw new IllegalArgumentException("The generator is null.");
+		}
+
+		return
+			new ValidatingGenerator(
+				generator,
+				new TokenChecker(controller, root));
+	}
+
+	/**
+	 * Checks some data against the compiled schema and reports it to the
+	 * listener, if any.
+	 *
+	 * @param data
+	 *        The data to check.
+	 *
+	 * @param context
+	 *        The scratch state, which is reset before it is used.
+	 *
+	 * @return The result of the check.
+	 *
+	 * @see #check(JsonNode)
+	 */
+	private ValidationResult check(
+		final JsonNode data,
+		final ValidationContext context) {
+
+		ValidationListener listener = controller.getListener();
+		if(listener == null) {
+			return run(data, context);
+		}
+
+		long start = System.nanoTime();
+		ValidationResult result = null;
+		try {
+			result = run(data, context);
+		}
+		finally {
+			listener
+				.documentCompleted(
+					System.nanoTime() - start,
+					(result != null) && result.isValid());
+		}
+		return result;
+	}
+
+	/**
+	 * Checks some data against the compiled schema.
+	 *
+	 * @param data
+	 *        The data to check.
+	 *
+	 * @param context
+	 *        The scratch state, which is reset before it is used.
+	 *
+	 * @return The result of the check.
+	 */
+	private ValidationResult run(
+		final JsonNode data,
+		final ValidationContext context) {
+
+		context.reset();
+		try {
+			root.validate(data, context);
+		}
+		catch(ConcordiaException e) {
+			return ValidationResult.invalid(e);
+		}
+
+		List<InvalidDataException> errors = context.getErrors();
+		if(errors.isEmpty()) {
+			return ValidationResult.VALID;
+		}
+		return ValidationResult.invalid(errors);
+	}
+
+	/**
+	 * Validates some data directly from a parser.
+	 *
+	 * @param parser
+	 *        The parser that is either pointing to the value to validate or
+	 *        just before it.
+	 *
+	 * @throws ConcordiaException
+	 *         The data is not valid.
+	 *
+	 * @throws IOException
+	 *         The data could not be read or was not well-formed JSON.
+	 *
+	 * @see #validate(JsonParser)
+	 */
+	private void run(
+		final JsonParser parser)
+		throws ConcordiaException, IOException {
+
+		ValidationContext context = new ValidationContext(false);
+
+		// If the parser hasn't been started, move it to the first token.
+		if((parser.getCurrentToken() == null) &&
+			(parser.nextToken() == null)) {
+
+			// There is no data.
+			root.validate((JsonNode) null, context);
+		}
+		else {
+			root.validate(parser, context);
+		}
+	}
+}
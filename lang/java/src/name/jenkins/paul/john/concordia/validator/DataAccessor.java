@@ -0,0 +1,138 @@
+package name.jenkins.paul.john.concordia.validator;
+
+import java.util.Iterator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * <p>
+ * Reads data of some in-memory representation, so that it can be
+ * {@link CompiledValidator#validate(Object, DataAccessor) validated in place}
+ * without first being converted into a {@link JsonNode}.
+ * </p>
+ *
+ * <p>
+ * The built-in accessors are {@link JsonNodeAccessor} for trees,
+ * {@link CollectionAccessor} for {@link java.util.Map}s, {@link java.util.List}s,
+ * and boxed values, and {@link PojoAccessor}, which additionally reads the
+ * properties of plain Java objects.
+ * </p>
+ *
+ * <p>
+ * Accessors are shared by every thread that validates data, so they must be
+ * thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public interface DataAccessor {
+	/**
+	 * Returns whether or not a value is missing, i.e. it is null or
+	 * represents a JSON null.
+	 *
+	 * @param value
+	 *        The value.
+	 *
+	 * @return Whether or not the value is missing.
+	 */
+	public abstract boolean isNull(final Object value);
+
+	/**
+	 * Returns whether or not a value is a boolean.
+	 *
+	 * @param value
+	 *        The value.
+	 *
+	 * @return Whether or not the value is a boolean.
+	 */
+	public abstract boolean isBoolean(final Object value);
+
+	/**
+	 * Returns whether or not a value is a number.
+	 *
+	 * @param value
+	 *        The value.
+	 *
+	 * @return Whether or not the value is a number.
+	 */
+	public abstract boolean isNumber(final Object value);
+
+	/**
+	 * Returns whether or not a value is a string.
+	 *
+	 * @param value
+	 *        The value.
+	 *
+	 * @return Whether or not the value is a string.
+	 */
+	public abstract boolean isString(final Object value);
+
+	/**
+	 * Returns whether or not a value is an object, i.e. it has named fields.
+	 *
+	 * @param value
+	 *        The value.
+	 *
+	 * @return Whether or not the value is an object.
+	 */
+	public abstract boolean isObject(final Object value);
+
+	/**
+	 * Returns whether or not a value is an array.
+	 *
+	 * @param value
+	 *        The value.
+	 *
+	 * @return Whether or not the value is an array.
+	 */
+	public abstract boolean isArray(final Object value);
+
+	/**
+	 * Returns the value of an object's field.
+	 *
+	 * @param object
+	 *        The object, for which {@link #isObject(Object)} is true.
+	 *
+	 * @param name
+	 *        The field's name.
+	 *
+	 * @return The field's value or null if the object doesn't have the
+	 *         field.
+	 */
+	public abstract Object getField(final Object object, final String name);
+
+	/**
+	 * Returns the number of elements in an array.
+	 *
+	 * @param array
+	 *        The array, for which {@link #isArray(Object)} is true.
+	 *
+	 * @return The number of elements in the array.
+	 */
+	public abstract int size(final Object array);
+
+	/**
+	 * Returns the elements of an array in order. The array is only walked
+	 * once, so arrays without fast random access, e.g. linked lists and
+	 * sets, are validated in linear time.
+	 *
+	 * @param array
+	 *        The array, for which {@link #isArray(Object)} is true.
+	 *
+	 * @return An iterator over the array's {@link #size(Object) size}
+	 *         elements.
+	 */
+	public abstract Iterator<?> getElements(final Object array);
+
+	/**
+	 * Converts a value into a tree. This is only called for the values that
+	 * custom validators are given and for the values that are rendered in
+	 * the message of a violation.
+	 *
+	 * @param value
+	 *        The value.
+	 *
+	 * @return The value as a tree or null if the value is null.
+	 */
+	public abstract JsonNode toTree(final Object value);
+}
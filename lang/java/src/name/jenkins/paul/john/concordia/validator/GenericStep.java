@@ -0,0 +1,47 @@
+package name.jenkins.paul.john.concordia.validator;
+
+import java.util.List;
+
+import name.jenkins.paul.john.concordia.schema.Schema;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * <p>
+ * The step for any other type of {@link Schema}. All of its validators are
+ * treated as custom validators.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+final class GenericStep extends Step {
+	/**
+	 * Creates a new generic step.
+	 */
+	GenericStep(
+		final Schema schema,
+		final ValidationController controller,
+		final List<DataValidator<? extends Schema>> validators) {
+
+		super(schema, controller, validators);
+	}
+
+	@Override
+	protected boolean isRequired(
+		final DataValidator<? extends Schema> validator) {
+
+		return false;
+	}
+
+	@Override
+	protected void check(
+		final JsonNode data,
+		final ValidationContext context) {
+
+		// There is no required validator for unknown types.
+	}
+}
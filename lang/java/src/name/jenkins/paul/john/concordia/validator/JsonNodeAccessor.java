@@ -0,0 +1,82 @@
+package name.jenkins.paul.john.concordia.validator;
+
+import java.util.Iterator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * <p>
+ * The {@link DataAccessor} for {@link JsonNode} trees. Validating a tree
+ * through this accessor is equivalent to
+ * {@link CompiledValidator#validate(JsonNode)}.
+ * </p>
+ *
+ * <p>
+ * This class is immutable.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public final class JsonNodeAccessor implements DataAccessor {
+	/**
+	 * The only instance of this accessor.
+	 */
+	public static final JsonNodeAccessor INSTANCE = new JsonNodeAccessor();
+
+	/**
+	 * Creates the accessor.
+	 */
+	private JsonNodeAccessor() {
+		// Nothing to do.
+	}
+
+	@Override
+	public boolean isNull(final Object value) {
+		return (value == null) || ((JsonNode) value).isNull();
+	}
+
+	@Override
+	public boolean isBoolean(final Object value) {
+		return (value != null) && ((JsonNode) value).isBoolean();
+	}
+
+	@Override
+	public boolean isNumber(final Object value) {
+		return (value != null) && ((JsonNode) value).isNumber();
+	}
+
+	@Override
+	public boolean isString(final Object value) {
+		return (value != null) && ((JsonNode) value).isTextual();
+	}
+
+	@Override
+	public boolean isObject(final Object value) {
+		return (value != null) && ((JsonNode) value).isObject();
+	}
+
+	@Override
+	public boolean isArray(final Object value) {
+		return (value != null) && ((JsonNode) value).isArray();
+	}
+
+	@Override
+	public Object getField(final Object object, final String name) {
+		return ((JsonNode) object).get(name);
+	}
+
+	@Override
+	public int size(final Object array) {
+		return ((JsonNode) array).size();
+	}
+
+	@Override
+	public Iterator<?> getElements(final Object array) {
+		return ((JsonNode) array).elements();
+	}
+
+	@Override
+	public JsonNode toTree(final Object value) {
+		return (JsonNode) value;
+	}
+}
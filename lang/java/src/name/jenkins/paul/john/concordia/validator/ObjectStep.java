@@ -0,0 +1,361 @@
+package name.jenkins.paul.john.concordia.validator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.schema.ObjectSchema;
+import name.jenkins.paul.john.concordia.schema.Schema;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * <p>
+ * The step for an {@link ObjectSchema}.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+final class ObjectStep extends Step {
+	/**
+	 * The name of each field or null if the field extends this object via
+	 * a reference.
+	 */
+	private final String[] names;
+	/**
+	 * The step for each field.
+	 */
+	private final Step[] fields;
+	/**
+	 * The step for each named field when streaming, including the fields
+	 * of any objects this object extends, or null if this object cannot
+	 * be streamed and must be read into a tree instead.
+	 */
+	final Step[] streamFields;
+	/**
+	 * The name of each field in {@link #streamFields}.
+	 */
+	final String[] streamNames;
+	/**
+	 * The schema path of the extension that each field in
+	 * {@link #streamFields} came from, relative to this object's, or null
+	 * if it is one of this object's own fields.
+	 */
+	final String[] streamPaths;
+	/**
+	 * The index into {@link #streamFields} for each field name.
+	 */
+	final Map<String, Integer> streamIndices;
+
+	/**
+	 * Creates a new object step.
+	 */
+	ObjectStep(
+		final ObjectSchema schema,
+		final ValidationController controller,
+		final List<DataValidator<? extends Schema>> validators,
+		final String[] names,
+		final Step[] fields) {
+
+		super(schema, controller, validators);
+
+		this.names = names;
+		this.fields = fields;
+
+		// Flatten the fields for streaming. If any extension cannot be
+		// flattened, then this object must be read as a tree.
+		List<Step> flattened = new ArrayList<Step>(fields.length);
+		List<String> paths = new ArrayList<String>(fields.length);
+		Map<String, Integer> indices = new HashMap<String, Integer>();
+		if(flatten(flattened, paths, indices, null)) {
+			streamFields = flattened.toArray(new Step[flattened.size()]);
+			streamPaths = paths.toArray(new String[paths.size()]);
+			streamNames = new String[streamFields.length];
+			for(Map.Entry<String, Integer> entry : indices.entrySet()) {
+				streamNames[entry.getValue()] = entry.getKey();
+			}
+			streamIndices = indices;
+		}
+		else {
+			streamFields = null;
+			streamPaths = null;
+			streamNames = null;
+			streamIndices = null;
+		}
+	}
+
+	/**
+	 * Adds this object's named fields and the named fields of any object
+	 * it extends to a streaming field table.
+	 *
+	 * @param flattened
+	 *        The list of field steps to add to.
+	 *
+	 * @param paths
+	 *        The list of the schema paths of the extensions that the
+	 *        fields came from to add to.
+	 *
+	 * @param indices
+	 *        The map of field names to their index in the list.
+	 *
+	 * @param path
+	 *        The schema path of the extension that this object is, relative
+	 *        to the object being flattened, or null if it is that object.
+	 *
+	 * @return Whether or not every field could be added. An extension can
+	 *         only be added when neither the reference nor the referenced
+	 *         object have custom validators, as those validators must be
+	 *         given the entire object.
+	 */
+	private boolean flatten(
+		final List<Step> flattened,
+		final List<String> paths,
+		final Map<String, Integer> indices,
+		final String path) {
+
+		for(int i = 0; i < fields.length; i++) {
+			// Named fields are added directly.
+			if(names[i] != null) {
+				indices.put(names[i], flattened.size());
+				flattened.add(fields[i]);
+				paths.add(path);
+				continue;
+			}
+
+			// Extensions are added by adding the referenced object's
+			// fields.
+			if(!(fields[i] instanceof ReferenceStep) ||
+				fields[i].hasCustomValidators()) {
+
+				return false;
+			}
+			Step target = ((ReferenceStep) fields[i]).getLoadedTarget();
+			if(!(target instanceof ObjectStep) ||
+				target.hasCustomValidators()) {
+
+				return false;
+			}
+			String targetPath =
+				(path == null) ?
+					fields[i].getPath() :
+					path + fields[i].getPath();
+			if(!((ObjectStep) target)
+				.flatten(flattened, paths, indices, targetPath)) {
+
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	@Override
+	protected boolean isRequired(
+		final DataValidator<? extends Schema> validator) {
+
+		return validator.getClass() == ObjectValidator.class;
+	}
+
+	@Override
+	protected void check(
+		final JsonNode data,
+		final ValidationContext context)
+		throws ConcordiaException {
+
+		if(!(data instanceof ObjectNode)) {
+			if((data == null) || (data instanceof NullNode)) {
+				checkNull(context);
+			}
+			else {
+				context.fail("The data was not an object value: ", data);
+			}
+			return;
+		}
+
+		// Validate each of the fields. Fields without a name extend this
+		// object, so they are given the entire object.
+		for(int i = 0; i < fields.length; i++) {
+			if(names[i] == null) {
+				fields[i].validate(data, context);
+			}
+			else {
+				context.push(names[i]);
+				fields[i].validate(data.get(names[i]), context);
+				context.pop();
+			}
+		}
+	}
+
+	@Override
+	protected void access(
+		final Object data,
+		final DataAccessor accessor,
+		final ValidationContext context)
+		throws ConcordiaException {
+
+		if(! accessor.isObject(data)) {
+			if(accessor.isNull(data)) {
+				checkNull(context);
+			}
+			else {
+				context
+					.fail(
+						"The data was not an object value: ",
+						describe(data, accessor));
+			}
+			return;
+		}
+
+		// Validate each of the fields. Fields without a name extend this
+		// object, so they are given the entire object.
+		for(int i = 0; i < fields.length; i++) {
+			if(names[i] == null) {
+				fields[i].validate(data, accessor, context);
+			}
+			else {
+				context.push(names[i]);
+				fields[i]
+					.validate(
+						accessor.getField(data, names[i]),
+						accessor,
+						context);
+				context.pop();
+			}
+		}
+	}
+
+	@Override
+	protected void stream(
+		final JsonParser parser,
+		final ValidationContext context)
+		throws ConcordiaException, IOException {
+
+		// If the fields couldn't be flattened, read the object as a tree.
+		if(streamFields == null) {
+			check(readTree(parser), context);
+			return;
+		}
+
+		JsonToken token = parser.getCurrentToken();
+		if(token != JsonToken.START_OBJECT) {
+			if(token == JsonToken.VALUE_NULL) {
+				checkNull(context);
+			}
+			else {
+				context
+					.fail(
+						"The data was not an object value: ",
+						readTree(parser));
+			}
+			return;
+		}
+
+		// Track which fields were given, using a bit mask for the common
+		// case of small objects.
+		long seenMask = 0;
+		boolean[] seen =
+			(streamFields.length > 64) ?
+				new boolean[streamFields.length] :
+				null;
+
+		// Validate each field as it is given and skip the rest.
+		while(parser.nextToken() == JsonToken.FIELD_NAME) {
+			Integer index = streamIndices.get(parser.getCurrentName());
+			parser.nextToken();
+
+			if(index == null) {
+				parser.skipChildren();
+				continue;
+			}
+
+			int i = index;
+			if(seen == null) {
+				seenMask |= (1L << i);
+			}
+			else {
+				seen[i] = true;
+			}
+			context.push(streamNames[i]);
+			String schemaPath = enter(i, context);
+			streamFields[i].validate(parser, context);
+			context.setSchemaPath(schemaPath);
+			context.pop();
+		}
+
+		validateMissing(seenMask, seen, context);
+	}
+
+	/**
+	 * Validates the fields that were not given when streaming.
+	 *
+	 * @param seenMask
+	 *        The bit mask of the fields that were given, if there are no
+	 *        more than 64 of them.
+	 *
+	 * @param seen
+	 *        Whether or not each field was given, if there are more than
+	 *        64 of them, otherwise null.
+	 *
+	 * @param context
+	 *        The context for the current document.
+	 *
+	 * @throws ConcordiaException
+	 *         A missing field was not optional and violations are not
+	 *         being collected.
+	 */
+	void validateMissing(
+		final long seenMask,
+		final boolean[] seen,
+		final ValidationContext context)
+		throws ConcordiaException {
+
+		for(int i = 0; i < streamFields.length; i++) {
+			boolean given =
+				(seen == null) ?
+					((seenMask & (1L << i)) != 0) :
+					seen[i];
+
+			if(!given) {
+				context.push(streamNames[i]);
+				String schemaPath = enter(i, context);
+				streamFields[i].validate((JsonNode) null, context);
+				context.setSchemaPath(schemaPath);
+				context.pop();
+			}
+		}
+	}
+
+	/**
+	 * Starts validating a field when streaming, entering the extension it
+	 * came from, if any.
+	 *
+	 * @param index
+	 *        The index of the field in {@link #streamFields}.
+	 *
+	 * @param context
+	 *        The context for the current document.
+	 *
+	 * @return The schema path to restore once the field is validated.
+	 */
+	private String enter(
+		final int index,
+		final ValidationContext context) {
+
+		String path = streamPaths[index];
+		return
+			(path == null) ?
+				context.getSchemaPath() :
+				enter(path, context);
+	}
+}
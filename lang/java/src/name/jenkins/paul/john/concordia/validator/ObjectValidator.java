@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.Set;
 
 import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.exception.InvalidDataException;
 import name.jenkins.paul.john.concordia.schema.ObjectSchema;
 import name.jenkins.paul.john.concordia.schema.ReferenceSchema;
 import name.jenkins.paul.john.concordia.schema.Schema;
@@ -115,15 +116,16 @@ public class ObjectValidator
 					return;
 				}
 				else {
-					throw new ConcordiaException(
-						"The value is null but not optional: " +
-							schema.toString());
+					throw new InvalidDataException(
+						"The value is null but not optional: ",
+						schema);
 				}
 			}
 			// Otherwise, it is invalid.
 			else {
-				throw new ConcordiaException(
-					"The data was not an object value: " + data.toString());
+				throw new InvalidDataException(
+					"The data was not an object value: ",
+					data);
 			}
 		}
 
@@ -0,0 +1,283 @@
+package name.jenkins.paul.john.concordia.validator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * <p>
+ * Validates the elements of a large array in parallel on the
+ * {@link ValidationController.Builder#setParallelExecutor(Executor) parallel
+ * executor} of a controller.
+ * </p>
+ *
+ * <p>
+ * The array is split into contiguous chunks, and each chunk is validated in
+ * order by a single task with its own {@link ValidationContext}. Every chunk
+ * but the first is given to the executor, and the calling thread then works
+ * through the chunks in order, running any that the executor has not yet
+ * started and waiting for the rest. This means that validation always
+ * finishes, even if the executor is saturated or is itself the one
+ * validating the enclosing document.
+ * </p>
+ *
+ * <p>
+ * Violations are reported exactly as they would be sequentially. When they
+ * are collected, each chunk's are appended in chunk order. Otherwise, the
+ * violation from the earliest failing chunk is thrown, which is the one with
+ * the lowest index, and the chunks after it are abandoned.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+final class ParallelArrayValidator {
+	/**
+	 * Validates a single element of an array.
+	 *
+	 * @author John Jenkins
+	 */
+	static interface Element {
+		/**
+		 * Validates an element.
+		 *
+		 * @param index
+		 *        The element's index.
+		 *
+		 * @param element
+		 *        The element.
+		 *
+		 * @param context
+		 *        The context for the element's chunk, which is already
+		 *        located at the element.
+		 *
+		 * @throws ConcordiaException
+		 *         The element was invalid.
+		 */
+		public abstract void validate(
+			final int index,
+			final JsonNode element,
+			final ValidationContext context)
+			throws ConcordiaException;
+	}
+
+	/**
+	 * Validates one chunk of an array.
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class Chunk implements Callable<ValidationContext> {
+		/**
+		 * The position of this chunk in the array.
+		 */
+		private final int chunk;
+		/**
+		 * The index of the first element in this chunk.
+		 */
+		private final int from;
+		/**
+		 * The index after the last element in this chunk.
+		 */
+		private final int to;
+		/**
+		 * The array.
+		 */
+		private final JsonNode array;
+		/**
+		 * The validator for each element.
+		 */
+		private final Element element;
+		/**
+		 * The context for this chunk.
+		 */
+		private final ValidationContext context;
+		/**
+		 * The position of the earliest chunk that has failed, which is shared
+		 * by every chunk of the array.
+		 */
+		private final AtomicInteger firstFailure;
+
+		/**
+		 * Creates a new chunk.
+		 */
+		private Chunk(
+			final int chunk,
+			final int from,
+			final int to,
+			final JsonNode array,
+			final Element element,
+			final ValidationContext context,
+			final AtomicInteger firstFailure) {
+
+			this.chunk = chunk;
+			this.from = from;
+			this.to = to;
+			this.array = array;
+			this.element = element;
+			this.context = context;
+			this.firstFailure = firstFailure;
+		}
+
+		/**
+		 * Validates every element in this chunk unless an earlier chunk
+		 * fails first, in which case this chunk's result no longer matters.
+		 *
+		 * @return This chunk's context.
+		 */
+		@Override
+		public ValidationContext call() throws ConcordiaException {
+			for(int i = from; i < to; i++) {
+				if(firstFailure.get() < chunk) {
+					break;
+				}
+
+				context.push(i);
+				try {
+					element.validate(i, array.get(i), context);
+				}
+				catch(ConcordiaException e) {
+					fail();
+					throw e;
+				}
+				catch(RuntimeException e) {
+					fail();
+					throw e;
+				}
+				context.pop();
+			}
+
+			return context;
+		}
+
+		/**
+		 * Records that this chunk has failed.
+		 */
+		private void fail() {
+			int current = firstFailure.get();
+			while(
+				(chunk < current) &&
+				(! firstFailure.compareAndSet(current, chunk))) {
+
+				current = firstFailure.get();
+			}
+		}
+	}
+
+	/**
+	 * The fewest elements to put in a chunk, below which the cost of handing
+	 * it to another thread outweighs the cost of validating it.
+	 */
+	private static final int MIN_CHUNK_SIZE = 512;
+	/**
+	 * The number of chunks to make for each processor, so that a thread that
+	 * finishes early can pick up more work.
+	 */
+	private static final int CHUNKS_PER_PROCESSOR = 4;
+
+	/**
+	 * Prevents instantiation.
+	 */
+	private ParallelArrayValidator() {
+		// Do nothing.
+	}
+
+	/**
+	 * Returns whether or not an array should be validated in parallel.
+	 *
+	 * @param controller
+	 *        The controller that is validating the array.
+	 *
+	 * @param size
+	 *        The number of elements in the array.
+	 *
+	 * @return Whether or not the controller has a parallel executor and the
+	 *         array is at least as large as its threshold.
+	 */
+	static boolean isParallel(
+		final ValidationController controller,
+		final int size) {
+
+		return
+			(controller.getParallelExecutor() != null) &&
+			(size >= controller.getParallelThreshold());
+	}
+
+	/**
+	 * Validates every element of an array in parallel.
+	 *
+	 * @param controller
+	 *        The controller whose executor should be used.
+	 *
+	 * @param array
+	 *        The array.
+	 *
+	 * @param element
+	 *        The validator for each element.
+	 *
+	 * @param context
+	 *        The context, which must be located at the array. Any collected
+	 *        violations are added to it.
+	 *
+	 * @throws ConcordiaException
+	 *         An element was invalid or validation was interrupted.
+	 */
+	static void validate(
+		final ValidationController controller,
+		final JsonNode array,
+		final Element element,
+		final ValidationContext context)
+		throws ConcordiaException {
+
+		Executor executor = controller.getParallelExecutor();
+		int size = array.size();
+
+		// Decide how to divide the array.
+		int chunks =
+			Math.min(
+				(size + MIN_CHUNK_SIZE - 1) / MIN_CHUNK_SIZE,
+				CHUNKS_PER_PROCESSOR *
+					Runtime.getRuntime().availableProcessors());
+		int chunkSize = (size + chunks - 1) / chunks;
+
+		// Create a chunk of elements for each part of the array, each with
+		// its own context.
+		AtomicInteger firstFailure = new AtomicInteger(Integer.MAX_VALUE);
+		List<Chunk> tasks = new ArrayList<Chunk>(chunks);
+		for(int i = 0; i < chunks; i++) {
+			int from = i * chunkSize;
+			tasks
+				.add(
+					new Chunk(
+						i,
+						from,
+						Math.min(from + chunkSize, size),
+						array,
+						element,
+						context.fork(),
+						firstFailure));
+		}
+
+		// Gather the chunks' violations in order.
+		try {
+			for(ValidationContext child :
+				ParallelTasks
+					.runAll(tasks, executor, ConcordiaException.class)) {
+
+				context.join(child);
+			}
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConcordiaException("Validation was interrupted.", e);
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package name.jenkins.paul.john.concordia.validator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * <p>
+ * Runs tasks on an executor that may be bounded or saturated, with the
+ * calling thread running any task that the executor has not started by the
+ * time its result is needed. This is shared by everything that splits
+ * validation across an executor, so that each does so in the same way.
+ * </p>
+ *
+ * <p>
+ * A task is {@link #execute(Executor, FutureTask) given} to the executor,
+ * and a rejected task is left for the caller. Later, the caller
+ * {@link #finish(FutureTask, Class) finishes} the task, which runs it on the
+ * calling thread if it has not been started and waits for it otherwise, so
+ * the caller never waits on a task that nobody will run. A failure of the
+ * task is rethrown as it was thrown.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public final class ParallelTasks {
+	/**
+	 * Utility class.
+	 */
+	private ParallelTasks() {
+		// Do nothing.
+	}
+
+	/**
+	 * Gives a task to an executor. If the executor rejects it, it is left to
+	 * be run by the caller when it is {@link #finish(FutureTask, Class)
+	 * finished}.
+	 *
+	 * @param executor
+	 *        The executor.
+	 *
+	 * @param task
+	 *        The task.
+	 */
+	public static void execute(
+		final Executor executor,
+		final FutureTask<?> task) {
+
+		try {
+			executor.execute(task);
+		}
+		catch(RejectedExecutionException e) {
+			// The task will be run by the caller when it is finished.
+		}
+	}
+
+	/**
+	 * Runs a task on the calling thread if it has not been started and
+	 * waits for its result.
+	 *
+	 * @param task
+	 *        The task.
+	 *
+	 * @param failure
+	 *        The type of checked exception that the task may throw, which is
+	 *        rethrown as it is. Runtime exceptions and errors are also
+	 *        rethrown as they are.
+	 *
+	 * @return The task's result.
+	 *
+	 * @throws E
+	 *         The task threw this exception.
+	 *
+	 * @throws IllegalStateException
+	 *         The task threw some other checked exception or was cancelled.
+	 *
+	 * @throws InterruptedException
+	 *         The calling thread was interrupted while waiting.
+	 */
+	public static <T, E extends Exception> T finish(
+		final FutureTask<T> task,
+		final Class<E> failure)
+		throws E, IllegalStateException, InterruptedException {
+
+		task.run();
+
+		try {
+			return task.get();
+		}
+		catch(ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(failure.isInstance(cause)) {
+				throw failure.cast(cause);
+			}
+			else if(cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			else if(cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException("The task failed.", cause);
+		}
+	}
+
+	/**
+	 * Runs chunks of work in parallel and returns their results in order.
+	 * Every chunk but the first is given to the executor, and the calling
+	 * thread then works through the chunks in order, running any that the
+	 * executor has not yet started. If a chunk fails or the calling thread
+	 * is interrupted, the chunks that have not been started are cancelled.
+	 *
+	 * @param chunks
+	 *        The chunks.
+	 *
+	 * @param executor
+	 *        The executor.
+	 *
+	 * @param failure
+	 *        The type of checked exception that the chunks may throw.
+	 *
+	 * @return The result of each chunk in the same order as the chunks.
+	 *
+	 * @throws E
+	 *         A chunk threw this exception. It is the earliest chunk that
+	 *         failed.
+	 *
+	 * @throws IllegalStateException
+	 *         A chunk threw some other checked exception.
+	 *
+	 * @throws InterruptedException
+	 *         The calling thread was interrupted while waiting for a chunk.
+	 *
+	 * @see #finish(FutureTask, Class)
+	 */
+	public static <T, E extends Exception> List<T> runAll(
+		final List<? extends Callable<T>> chunks,
+		final Executor executor,
+		final Class<E> failure)
+		throws E, IllegalStateException, InterruptedException {
+
+		// Create a task for each chunk and give all but the first to the
+		// executor.
+		List<FutureTask<T>> tasks = new ArrayList<FutureTask<T>>(chunks.size());
+		for(Callable<T> chunk : chunks) {
+			FutureTask<T> task = new FutureTask<T>(chunk);
+			if(! tasks.isEmpty()) {
+				execute(executor, task);
+			}
+			tasks.add(task);
+		}
+
+		// Work through the chunks in order, running any that have not been
+		// started and gathering their results.
+		List<T> results = new ArrayList<T>(tasks.size());
+		try {
+			for(FutureTask<T> task : tasks) {
+				results.add(finish(task, failure));
+			}
+		}
+		finally {
+			for(FutureTask<T> task : tasks) {
+				task.cancel(false);
+			}
+		}
+		return results;
+	}
+}
@@ -0,0 +1,239 @@
+package name.jenkins.paul.john.concordia.validator;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * <p>
+ * The {@link DataAccessor} for plain Java objects. Everything that
+ * {@link CollectionAccessor} reads is read the same way, and any other
+ * object is an object whose fields are its bean properties, i.e. its public
+ * getters, and its public fields.
+ * </p>
+ *
+ * <p>
+ * The properties of each class are found once, the first time an instance of
+ * it is read, and their accessors are cached for the life of this accessor.
+ * Jackson annotations that rename or hide properties are not consulted, so
+ * the field names in the schema must be the Java property names.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public class PojoAccessor extends CollectionAccessor {
+	/**
+	 * The shared instance of this accessor.
+	 */
+	public static final PojoAccessor INSTANCE = new PojoAccessor();
+
+	/**
+	 * <p>
+	 * Reads a single property of a class.
+	 * </p>
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class Property {
+		/**
+		 * The property's getter or null if it is a field.
+		 */
+		private final Method getter;
+		/**
+		 * The property's field or null if it has a getter.
+		 */
+		private final Field field;
+
+		/**
+		 * Creates a new property.
+		 *
+		 * @param getter
+		 *        The property's getter or null if it is a field.
+		 *
+		 * @param field
+		 *        The property's field or null if it has a getter.
+		 */
+		private Property(final Method getter, final Field field) {
+			this.getter = getter;
+			this.field = field;
+		}
+
+		/**
+		 * Reads the property.
+		 *
+		 * @param object
+		 *        The object to read the property from.
+		 *
+		 * @return The property's value.
+		 *
+		 * @throws IllegalStateException
+		 *         The property could not be read.
+		 */
+		private Object get(final Object object) throws IllegalStateException {
+			try {
+				if(getter != null) {
+					return getter.invoke(object);
+				}
+				return field.get(object);
+			}
+			catch(IllegalAccessException e) {
+				throw
+					new IllegalStateException(
+						"The property could not be read.",
+						e);
+			}
+			catch(InvocationTargetException e) {
+				throw
+					new IllegalStateException(
+						"The property's getter failed.",
+						e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * The properties of each class that has been read, keyed by their name.
+	 */
+	private final ConcurrentMap<Class<?>, Map<String, Property>> properties =
+		new ConcurrentHashMap<Class<?>, Map<String, Property>>();
+
+	/**
+	 * Creates a new accessor with its own cache of properties.
+	 */
+	public PojoAccessor() {
+		// Nothing to do.
+	}
+
+	@Override
+	public boolean isObject(final Object value) {
+		if(super.isObject(value)) {
+			return true;
+		}
+		return (value != null) && isBean(value);
+	}
+
+	@Override
+	public Object getField(final Object object, final String name) {
+		if((object instanceof JsonNode) || (object instanceof Map)) {
+			return super.getField(object, name);
+		}
+
+		Property property = getProperties(object.getClass()).get(name);
+		return (property == null) ? null : property.get(object);
+	}
+
+	/**
+	 * Returns whether or not a value is read as a bean, i.e. it is not any
+	 * of the types that {@link CollectionAccessor} reads.
+	 *
+	 * @param value
+	 *        The value, which is not null.
+	 *
+	 * @return Whether or not the value is a bean.
+	 */
+	private boolean isBean(final Object value) {
+		return
+			!((value instanceof JsonNode) ||
+				(value instanceof Boolean) ||
+				(value instanceof Number) ||
+				(value instanceof CharSequence) ||
+				(value instanceof Character) ||
+				(value instanceof Enum) ||
+				(value instanceof Collection) ||
+				value.getClass().isArray());
+	}
+
+	/**
+	 * Returns the properties of a class, finding them if this is the first
+	 * time the class has been read.
+	 *
+	 * @param type
+	 *        The class.
+	 *
+	 * @return The properties of the class, keyed by their name.
+	 *
+	 * @throws IllegalStateException
+	 *         The class could not be introspected.
+	 */
+	private Map<String, Property> getProperties(
+		final Class<?> type)
+		throws IllegalStateException {
+
+		Map<String, Property> result = properties.get(type);
+		if(result != null) {
+			return result;
+		}
+
+		result = new HashMap<String, Property>();
+		// The public members of classes that aren't public can't be used
+		// without being made accessible.
+		boolean hidden = ! Modifier.isPublic(type.getModifiers());
+
+		// Public fields are added first, so that getters replace them.
+		for(Field field : type.getFields()) {
+			if(Modifier.isStatic(field.getModifiers()) ||
+				(hidden && (! makeAccessible(field)))) {
+
+				continue;
+			}
+			result.put(field.getName(), new Property(null, field));
+		}
+
+		try {
+			for(PropertyDescriptor descriptor :
+				Introspector
+					.getBeanInfo(type, Object.class)
+					.getPropertyDescriptors()) {
+
+				Method getter = descriptor.getReadMethod();
+				if((getter == null) || (hidden && (! makeAccessible(getter)))) {
+					continue;
+				}
+				result.put(descriptor.getName(), new Property(getter, null));
+			}
+		}
+		catch(IntrospectionException e) {
+			throw
+				new IllegalStateException(
+					"The class could not be introspected: " + type.getName(),
+					e);
+		}
+
+		Map<String, Property> existing = properties.putIfAbsent(type, result);
+		return (existing == null) ? result : existing;
+	}
+
+	/**
+	 * Makes a member accessible, if the security manager allows it.
+	 *
+	 * @param member
+	 *        The member.
+	 *
+	 * @return Whether or not the member was made accessible.
+	 */
+	private static boolean makeAccessible(final AccessibleObject member) {
+		try {
+			member.setAccessible(true);
+			return true;
+		}
+		catch(SecurityException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package name.jenkins.paul.john.concordia.validator;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.schema.ReferenceSchema;
+import name.jenkins.paul.john.concordia.schema.Schema;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+
+/**
+ * <p>
+ * The step for a {@link ReferenceSchema}.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+final class ReferenceStep extends Step {
+	/**
+	 * The steps for every referenced schema in the plan, keyed by the
+	 * schema's identity. All access must be synchronized on this map.
+	 */
+	private final Map<Schema, Step> compiled;
+	/**
+	 * The step for the referenced schema or null if it has not yet been
+	 * compiled.
+	 */
+	private volatile Step target;
+
+	/**
+	 * Creates a new reference step.
+	 */
+	ReferenceStep(
+		final ReferenceSchema schema,
+		final ValidationController controller,
+		final List<DataValidator<? extends Schema>> validators,
+		final Map<Schema, Step> compiled) {
+
+		super(schema, controller, validators);
+
+		this.compiled = compiled;
+	}
+
+	/**
+	 * Returns the step for the referenced schema, reading and compiling
+	 * it if this is the first time it has been needed.
+	 *
+	 * @return The step for the referenced schema.
+	 *
+	 * @throws ConcordiaException
+	 *         The referenced schema could not be read or compiled.
+	 */
+	Step getTarget() throws ConcordiaException {
+		Step result = target;
+		if(result == null) {
+			Schema referenced = ((ReferenceSchema) schema).getSchema();
+			synchronized(compiled) {
+				result = compiled.get(referenced);
+				if(result == null) {
+					result = compile(referenced, controller, compiled, "");
+					compiled.put(referenced, result);
+				}
+			}
+			target = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the step for the referenced schema if it has already been
+	 * compiled.
+	 *
+	 * @return The step for the referenced schema or null if it has not been
+	 *         compiled yet.
+	 */
+	Step getLoadedTarget() {
+		return target;
+	}
+
+	@Override
+	protected boolean isRequired(
+		final DataValidator<? extends Schema> validator) {
+
+		return validator.getClass() == ReferenceValidator.class;
+	}
+
+	@Override
+	protected void check(
+		final JsonNode data,
+		final ValidationContext context)
+		throws ConcordiaException {
+
+		if((data == null) || (data instanceof NullNode)) {
+			checkMissing(context);
+			return;
+		}
+
+		String schemaPath = enter(getPath(), context);
+		try {
+			getTarget().validate(data, context);
+		}
+		finally {
+			context.setSchemaPath(schemaPath);
+		}
+	}
+
+	@Override
+	protected void access(
+		final Object data,
+		final DataAccessor accessor,
+		final ValidationContext context)
+		throws ConcordiaException {
+
+		if(accessor.isNull(data)) {
+			checkMissing(context);
+			return;
+		}
+
+		String schemaPath = enter(getPath(), context);
+		try {
+			getTarget().validate(data, accessor, context);
+		}
+		finally {
+			context.setSchemaPath(schemaPath);
+		}
+	}
+
+	@Override
+	protected void stream(
+		final JsonParser parser,
+		final ValidationContext context)
+		throws ConcordiaException, IOException {
+
+		if(parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+			checkMissing(context);
+			return;
+		}
+
+		String schemaPath = enter(getPath(), context);
+		try {
+			getTarget().validate(parser, context);
+		}
+		finally {
+			context.setSchemaPath(schemaPath);
+		}
+	}
+
+	/**
+	 * Validates a reference that was given as a JSON null or not at all.
+	 *
+	 * @param context
+	 *        The context for the current document.
+	 *
+	 * @throws ConcordiaException
+	 *         The reference is not optional and violations are not being
+	 *         collected.
+	 */
+	void checkMissing(
+		final ValidationContext context)
+		throws ConcordiaException {
+
+		if(!schema.isOptional()) {
+			context
+				.fail("The data is missing and not optional: ", schema);
+		}
+	}
+}
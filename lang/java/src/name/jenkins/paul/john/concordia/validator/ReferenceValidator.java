@@ -1,6 +1,7 @@
 package name.jenkins.paul.john.concordia.validator;
 
 import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.exception.InvalidDataException;
 import name.jenkins.paul.john.concordia.schema.ReferenceSchema;
 
 import com.fasterxml.jackson.databind.JsonNode;
@@ -46,9 +47,9 @@ public class ReferenceValidator
 				return;
 			}
 			else {
-				throw new ConcordiaException(
-					"The data is missing and not optional: " +
-						schema.toString());
+				throw new InvalidDataException(
+					"The data is missing and not optional: ",
+					schema);
 			}
 		}
 
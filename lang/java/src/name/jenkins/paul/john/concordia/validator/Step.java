@@ -0,0 +1,693 @@
+package name.jenkins.paul.john.concordia.validator;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.schema.ArraySchema;
+import name.jenkins.paul.john.concordia.schema.BooleanSchema;
+import name.jenkins.paul.john.concordia.schema.NumberSchema;
+import name.jenkins.paul.john.concordia.schema.ObjectSchema;
+import name.jenkins.paul.john.concordia.schema.ReferenceSchema;
+import name.jenkins.paul.john.concordia.schema.Schema;
+import name.jenkins.paul.john.concordia.schema.StringSchema;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * <p>
+ * A single node in the validation plan of a {@link CompiledValidator}.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+abstract class Step {
+	/**
+	 * The mapper used to read sub-trees from a parser when they are needed.
+	 */
+	static final ObjectMapper MAPPER = new ObjectMapper();
+
+	/**
+	 * The schema that this step validates.
+	 */
+	protected final Schema schema;
+	/**
+	 * The controller that built this step, which is passed to any custom
+	 * validators.
+	 */
+	protected final ValidationController controller;
+	/**
+	 * The data validators for this step in the order they were registered
+	 * or null if the only validator is the required one. A null element
+	 * marks the position of the required validator, which is replaced by
+	 * {@link #check(JsonNode, ValidationContext)}.
+	 */
+	@SuppressWarnings("rawtypes")
+	private final DataValidator[] validators;
+	/**
+	 * The controller's listener or null if it doesn't have one.
+	 */
+	private final ValidationListener listener;
+	/**
+	 * The schema path of this step relative to the referenced schema that
+	 * it was compiled for, which is reported to the {@link #listener}
+	 * after the path of the reference. This is set once when the step is
+	 * compiled.
+	 */
+	private String path = "";
+
+	/**
+	 * Creates a new step.
+	 *
+	 * @param schema
+	 *        The schema that this step validates.
+	 *
+	 * @param controller
+	 *        The controller that is building this step.
+	 *
+	 * @param validators
+	 *        The data validators for the schema as they were registered
+	 *        with the controller.
+	 */
+	@SuppressWarnings("rawtypes")
+	protected Step(
+		final Schema schema,
+		final ValidationController controller,
+		final List<DataValidator<? extends Schema>> validators) {
+
+		this.schema = schema;
+		this.controller = controller;
+		listener = controller.getListener();
+
+		// Replace the required validator(s) with a null marker.
+		DataValidator[] steps = new DataValidator[validators.size()];
+		boolean custom = false;
+		int i = 0;
+		for(DataValidator<? extends Schema> validator : validators) {
+			if(isRequired(validator)) {
+				steps[i] = null;
+			}
+			else {
+				steps[i] = validator;
+				custom = true;
+			}
+			i++;
+		}
+
+		// If there are only required validators, don't bother keeping the
+		// array.
+		this.validators = (custom) ? steps : null;
+	}
+
+	/**
+	 * Validates some data against this step.
+	 *
+	 * @param data
+	 *        The data to validate.
+	 *
+	 * @param context
+	 *        The context for the current document.
+	 *
+	 * @throws ConcordiaException
+	 *         The data is invalid and violations are not being collected.
+	 */
+	final void validate(
+		final JsonNode data,
+		final ValidationContext context)
+		throws ConcordiaException {
+
+		// If there is a listener, report the outcome to it.
+		if(listener != null) {
+			int errors = context.getErrorCount();
+			boolean passed = false;
+			try {
+				run(data, context);
+				passed = (context.getErrorCount() == errors);
+			}
+			finally {
+				listener
+					.valueChecked(
+						context.getSchemaPath(path),
+						schema,
+						passed);
+			}
+		}
+		else {
+			run(data, context);
+		}
+	}
+
+	/**
+	 * Runs every validator for some data.
+	 *
+	 * @param data
+	 *        The data to validate.
+	 *
+	 * @param context
+	 *        The context for the current document.
+	 *
+	 * @throws ConcordiaException
+	 *         The data is invalid and violations are not being collected.
+	 */
+	private void run(
+		final JsonNode data,
+		final ValidationContext context)
+		throws ConcordiaException {
+
+		// If there are no custom validators, only run the required check.
+		if(validators == null) {
+			check(data, context);
+			return;
+		}
+
+		// Otherwise, run every validator in its registered order.
+		for(int i = 0; i < validators.length; i++) {
+			if(validators[i] == null) {
+				check(data, context);
+			}
+			else if(context.isCollecting()) {
+				try {
+					runCustom(i, data);
+				}
+				catch(ConcordiaException e) {
+					context.fail(e);
+				}
+			}
+			else {
+				runCustom(i, data);
+			}
+		}
+	}
+
+	/**
+	 * Runs a custom validator and, if there is a listener, reports how
+	 * long it took.
+	 *
+	 * @param index
+	 *        The index of the validator.
+	 *
+	 * @param data
+	 *        The data to validate.
+	 *
+	 * @throws ConcordiaException
+	 *         The data is invalid.
+	 */
+	@SuppressWarnings("unchecked")
+	private void runCustom(
+		final int index,
+		final JsonNode data)
+		throws ConcordiaException {
+
+		if(listener == null) {
+			validators[index].validate(schema, data, controller);
+			return;
+		}
+
+		long start = System.nanoTime();
+		try {
+			validators[index].validate(schema, data, controller);
+		}
+		finally {
+			listener
+				.validatorCompleted(
+					validators[index],
+					schema,
+					System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Validates the value at the parser's current token against this
+	 * step. When this returns, the parser's current token will be the
+	 * last token of the value.
+	 *
+	 * @param parser
+	 *        The parser whose current token is the first token of the
+	 *        value.
+	 *
+	 * @param context
+	 *        The context for the current document.
+	 *
+	 * @throws ConcordiaException
+	 *         The data is invalid and violations are not being collected.
+	 *
+	 * @throws IOException
+	 *         The data could not be read.
+	 */
+	final void validate(
+		final JsonParser parser,
+		final ValidationContext context)
+		throws ConcordiaException, IOException {
+
+		// Custom validators need the value as a tree.
+		if(validators != null) {
+			validate(readTree(parser), context);
+		}
+		// If there is a listener, report the outcome to it.
+		else if(listener != null) {
+			int errors = context.getErrorCount();
+			boolean passed = false;
+			try {
+				stream(parser, context);
+				passed = (context.getErrorCount() == errors);
+			}
+			finally {
+				listener
+					.valueChecked(
+						context.getSchemaPath(path),
+						schema,
+						passed);
+			}
+		}
+		else {
+			stream(parser, context);
+		}
+	}
+
+	/**
+	 * Validates a value that is read through an accessor against this
+	 * step.
+	 *
+	 * @param data
+	 *        The data to validate, which may be null.
+	 *
+	 * @param accessor
+	 *        The accessor that reads the data.
+	 *
+	 * @param context
+	 *        The context for the current document.
+	 *
+	 * @throws ConcordiaException
+	 *         The data is invalid and violations are not being collected.
+	 */
+	final void validate(
+		final Object data,
+		final DataAccessor accessor,
+		final ValidationContext context)
+		throws ConcordiaException {
+
+		// Custom validators need the value as a tree.
+		if(validators != null) {
+			validate(accessor.toTree(data), context);
+		}
+		// If there is a listener, report the outcome to it.
+		else if(listener != null) {
+			int errors = context.getErrorCount();
+			boolean passed = false;
+			try {
+				access(data, accessor, context);
+				passed = (context.getErrorCount() == errors);
+			}
+			finally {
+				listener
+					.valueChecked(
+						context.getSchemaPath(path),
+						schema,
+						passed);
+			}
+		}
+		else {
+			access(data, accessor, context);
+		}
+	}
+
+	/**
+	 * Returns whether or not this step has any custom validators.
+	 *
+	 * @return Whether or not this step has any custom validators.
+	 */
+	final boolean hasCustomValidators() {
+		return validators != null;
+	}
+
+	/**
+	 * Returns the schema path of this step relative to the referenced schema
+	 * that it was compiled for.
+	 *
+	 * @return The schema path of this step.
+	 */
+	final String getPath() {
+		return path;
+	}
+
+	/**
+	 * Starts running the steps of a referenced schema. The schema path is
+	 * only read when values are reported to the listener, so it is only
+	 * extended if there is one.
+	 *
+	 * @param path
+	 *        The schema path of the reference or extension, relative to the
+	 *        referenced schema whose steps are running.
+	 *
+	 * @param context
+	 *        The context for the current document.
+	 *
+	 * @return The schema path to restore once the referenced schema's steps
+	 *         are done.
+	 */
+	final String enter(final String path, final ValidationContext context) {
+		return
+			(listener == null) ?
+				context.getSchemaPath() :
+				context.enter(path);
+	}
+
+	/**
+	 * Determines whether a validator is the required validator for this
+	 * step.
+	 *
+	 * @param validator
+	 *        The validator to check.
+	 *
+	 * @return Whether or not the validator is the required validator that
+	 *         {@link #check(JsonNode, ValidationContext)} replaces.
+	 */
+	protected abstract boolean isRequired(
+		final DataValidator<? extends Schema> validator);
+
+	/**
+	 * Performs the same validation as the required validator for this
+	 * step's type.
+	 *
+	 * @param data
+	 *        The data to validate.
+	 *
+	 * @param context
+	 *        The context for the current document.
+	 *
+	 * @throws ConcordiaException
+	 *         The data is invalid and violations are not being collected.
+	 */
+	protected abstract void check(
+		final JsonNode data,
+		final ValidationContext context)
+		throws ConcordiaException;
+
+	/**
+	 * Performs the same validation as
+	 * {@link #check(JsonNode, ValidationContext)} but reads the value
+	 * from a parser. The default implementation reads the value into a
+	 * tree.
+	 *
+	 * @param parser
+	 *        The parser whose current token is the first token of the
+	 *        value.
+	 *
+	 * @param context
+	 *        The context for the current document.
+	 *
+	 * @throws ConcordiaException
+	 *         The data is invalid and violations are not being collected.
+	 *
+	 * @throws IOException
+	 *         The data could not be read.
+	 */
+	protected void stream(
+		final JsonParser parser,
+		final ValidationContext context)
+		throws ConcordiaException, IOException {
+
+		check(readTree(parser), context);
+	}
+
+	/**
+	 * Performs the same validation as
+	 * {@link #check(JsonNode, ValidationContext)} but reads the value
+	 * through an accessor. The default implementation converts the value
+	 * into a tree.
+	 *
+	 * @param data
+	 *        The data to validate, which may be null.
+	 *
+	 * @param accessor
+	 *        The accessor that reads the data.
+	 *
+	 * @param context
+	 *        The context for the current document.
+	 *
+	 * @throws ConcordiaException
+	 *         The data is invalid and violations are not being collected.
+	 */
+	protected void access(
+		final Object data,
+		final DataAccessor accessor,
+		final ValidationContext context)
+		throws ConcordiaException {
+
+		check(accessor.toTree(data), context);
+	}
+
+	/**
+	 * Validates a value that was given as a JSON null or not at all.
+	 *
+	 * @param context
+	 *        The context for the current document.
+	 *
+	 * @throws ConcordiaException
+	 *         This step is not optional and violations are not being
+	 *         collected.
+	 */
+	protected final void checkNull(
+		final ValidationContext context)
+		throws ConcordiaException {
+
+		if(!schema.isOptional()) {
+			context.fail("The value is null but not optional: ", schema);
+		}
+	}
+
+	/**
+	 * Builds the step for a schema and, recursively, its sub-schemas.
+	 *
+	 * @param schema
+	 *        The schema to compile.
+	 *
+	 * @param controller
+	 *        The controller whose data validators should be used.
+	 *
+	 * @param compiled
+	 *        The steps for the referenced schemas that have been compiled,
+	 *        which is shared by every reference step in the plan.
+	 *
+	 * @param path
+	 *        The schema path of the schema.
+	 *
+	 * @return The step for the schema.
+	 *
+	 * @throws ConcordiaException
+	 *         The schema could not be compiled.
+	 */
+	static Step compile(
+		final Schema schema,
+		final ValidationController controller,
+		final Map<Schema, Step> compiled,
+		final String path)
+		throws ConcordiaException {
+
+		// Look up the validators once.
+		List<DataValidator<? extends Schema>> validators =
+			controller.getDataValidators(schema.getClass());
+		if(validators == null) {
+			throw
+				new ConcordiaException(
+					"There are no data validators for the schema type: " +
+						schema.getClass().getName());
+		}
+
+		Step result;
+
+		// Boolean schemas.
+		if(schema instanceof BooleanSchema) {
+			result =
+				new BooleanStep(
+					(BooleanSchema) schema,
+					controller,
+					validators);
+		}
+		// Number schemas.
+		else if(schema instanceof NumberSchema) {
+			result =
+				new NumberStep((NumberSchema) schema, controller, validators);
+		}
+		// String schemas.
+		else if(schema instanceof StringSchema) {
+			result =
+				new StringStep((StringSchema) schema, controller, validators);
+		}
+		// Object schemas compile each of their fields.
+		else if(schema instanceof ObjectSchema) {
+			List<Schema> fieldSchemas = ((ObjectSchema) schema).getFields();
+
+			String[] names = new String[fieldSchemas.size()];
+			Step[] fields = new Step[fieldSchemas.size()];
+			int i = 0;
+			for(Schema field : fieldSchemas) {
+				names[i] = field.getName();
+				fields[i] =
+					compile(
+						field,
+						controller,
+						compiled,
+						(names[i] == null) ?
+							path :
+							getFieldPath(path, names[i]));
+				// Extensions are compiled now, as the object needs their
+				// fields.
+				if((names[i] == null) && (fields[i] instanceof ReferenceStep)) {
+					((ReferenceStep) fields[i]).getTarget();
+				}
+				i++;
+			}
+
+			result =
+				new ObjectStep(
+					(ObjectSchema) schema,
+					controller,
+					validators,
+					names,
+					fields);
+		}
+		// Array schemas compile either their constant type or each of their
+		// indices.
+		else if(schema instanceof ArraySchema) {
+			ArraySchema arraySchema = (ArraySchema) schema;
+
+			Step constType = null;
+			Step[] constLength = null;
+			if(arraySchema.getConstType() != null) {
+				constType =
+					compile(
+						arraySchema.getConstType(),
+						controller,
+						compiled,
+						path + "/*");
+			}
+			else {
+				List<Schema> indexSchemas = arraySchema.getConstLength();
+
+				constLength = new Step[indexSchemas.size()];
+				int i = 0;
+				for(Schema indexSchema : indexSchemas) {
+					constLength[i] =
+						compile(
+							indexSchema,
+							controller,
+							compiled,
+							path + "/" + i);
+					i++;
+				}
+			}
+
+			result =
+				new ArrayStep(
+					arraySchema,
+					controller,
+					validators,
+					constType,
+					constLength);
+		}
+		// Reference schemas compile their referenced schema when it is first
+		// needed.
+		else if(schema instanceof ReferenceSchema) {
+			result =
+				new ReferenceStep(
+					(ReferenceSchema) schema,
+					controller,
+					validators,
+					compiled);
+		}
+		// Anything else is left to its validators.
+		else {
+			result = new GenericStep(schema, controller, validators);
+		}
+
+		result.path = path;
+		return result;
+	}
+
+	/**
+	 * Returns the schema path of an object's field.
+	 *
+	 * @param path
+	 *        The schema path of the object.
+	 *
+	 * @param name
+	 *        The name of the field.
+	 *
+	 * @return The schema path of the field.
+	 */
+	private static String getFieldPath(final String path, final String name) {
+		StringBuilder builder = new StringBuilder(path).append('/');
+
+		// Escape the reserved characters as in a JSON Pointer.
+		for(int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if(c == '~') {
+				builder.append("~0");
+			}
+			else if(c == '/') {
+				builder.append("~1");
+			}
+			else {
+				builder.append(c);
+			}
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Returns the detail of a violation for a value that was read through an
+	 * accessor. The value is only converted into a tree if the violation's
+	 * message is rendered.
+	 *
+	 * @param data
+	 *        The value.
+	 *
+	 * @param accessor
+	 *        The accessor that read the value.
+	 *
+	 * @return The detail of the violation.
+	 */
+	static Object describe(
+		final Object data,
+		final DataAccessor accessor) {
+
+		if(data instanceof JsonNode) {
+			return data;
+		}
+
+		return
+			new Object() {
+				@Override
+				public String toString() {
+					return String.valueOf(accessor.toTree(data));
+				}
+			};
+	}
+
+	/**
+	 * Reads the value at the parser's current token into a tree.
+	 *
+	 * @param parser
+	 *        The parser whose current token is the first token of the value.
+	 *
+	 * @return The value as a tree.
+	 *
+	 * @throws IOException
+	 *         The value could not be read.
+	 */
+	static JsonNode readTree(
+		final JsonParser parser)
+		throws IOException {
+
+		return MAPPER.readTree(parser);
+	}
+}
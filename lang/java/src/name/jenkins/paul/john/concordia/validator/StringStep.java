@@ -0,0 +1,102 @@
+package name.jenkins.paul.john.concordia.validator;
+
+import java.io.IOException;
+import java.util.List;
+
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.schema.Schema;
+import name.jenkins.paul.john.concordia.schema.StringSchema;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+/**
+ * <p>
+ * The step for a {@link StringSchema}.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+final class StringStep extends Step {
+	/**
+	 * Creates a new string step.
+	 */
+	StringStep(
+		final StringSchema schema,
+		final ValidationController controller,
+		final List<DataValidator<? extends Schema>> validators) {
+
+		super(schema, controller, validators);
+	}
+
+	@Override
+	protected boolean isRequired(
+		final DataValidator<? extends Schema> validator) {
+
+		return validator.getClass() == StringValidator.class;
+	}
+
+	@Override
+	protected void check(
+		final JsonNode data,
+		final ValidationContext context)
+		throws ConcordiaException {
+
+		if(!(data instanceof TextNode)) {
+			if((data == null) || (data instanceof NullNode)) {
+				checkNull(context);
+			}
+			else {
+				context.fail("The data was not a number value: ", data);
+			}
+		}
+	}
+
+	@Override
+	protected void access(
+		final Object data,
+		final DataAccessor accessor,
+		final ValidationContext context)
+		throws ConcordiaException {
+
+		if(! accessor.isString(data)) {
+			if(accessor.isNull(data)) {
+				checkNull(context);
+			}
+			else {
+				context
+					.fail(
+						"The data was not a number value: ",
+						describe(data, accessor));
+			}
+		}
+	}
+
+	@Override
+	protected void stream(
+		final JsonParser parser,
+		final ValidationContext context)
+		throws ConcordiaException, IOException {
+
+		JsonToken token = parser.getCurrentToken();
+		if(token == JsonToken.VALUE_STRING) {
+			return;
+		}
+		else if(token == JsonToken.VALUE_NULL) {
+			checkNull(context);
+		}
+		else {
+			context
+				.fail(
+					"The data was not a number value: ",
+					readTree(parser));
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package name.jenkins.paul.john.concordia.validator;
 
 import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.exception.InvalidDataException;
 import name.jenkins.paul.john.concordia.schema.StringSchema;
 
 import com.fasterxml.jackson.databind.JsonNode;
@@ -45,15 +46,16 @@ public class StringValidator
 					return;
 				}
 				else {
-					throw new ConcordiaException(
-						"The value is null but not optional: " +
-							schema.toString());
+					throw new InvalidDataException(
+						"The value is null but not optional: ",
+						schema);
 				}
 			}
 			// Otherwise, it is invalid.
 			else {
-				throw new ConcordiaException(
-					"The data was not a number value: " + data.toString());
+				throw new InvalidDataException(
+					"The data was not a number value: ",
+					data);
 			}
 		}
 	}
@@ -0,0 +1,663 @@
+package name.jenkins.paul.john.concordia.validator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.exception.InvalidDataException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * <p>
+ * Validates a stream of tokens that is pushed to it, one token at a time,
+ * rather than pulled from a parser. The steps are the same as when
+ * {@link CompiledValidator#validate(JsonParser) streaming}, but they are
+ * driven by the caller rather than by the steps themselves, so the open
+ * objects and arrays are kept on an explicit stack.
+ * </p>
+ *
+ * <p>
+ * The caller gives each token to {@link #accept(JsonToken, String)}.
+ * Afterwards, if {@link #getCapture()} is not null, the caller must copy
+ * the same token into it and then call {@link #captured(JsonToken)}.
+ * Values that must be validated as a tree, i.e. those with custom
+ * validators or of the wrong type, are captured this way until they end,
+ * so their violations are found at their last token rather than their
+ * first.
+ * </p>
+ *
+ * <p>
+ * If the controller does not collect all errors, the first violation is
+ * thrown as soon as it is found. Otherwise, every violation is thrown
+ * together at the end of each document. Either way, the exception should
+ * be given to {@link #fail(ConcordiaException)}. Consecutive documents in
+ * the same stream are validated separately.
+ * </p>
+ *
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+final class TokenChecker {
+	/**
+	 * An object or array that a {@link TokenChecker} is in the middle of.
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class Frame {
+		/**
+		 * The step for the object or null if this is an array.
+		 */
+		private final ObjectStep object;
+		/**
+		 * The step for the array or null if this is an object.
+		 */
+		private final ArrayStep array;
+		/**
+		 * The number of violations before the value started, which is used
+		 * to report whether it passed.
+		 */
+		private final int errors;
+		/**
+		 * The schema path to restore when the value ends.
+		 */
+		private final String schemaPath;
+		/**
+		 * The index of the field whose value is next or -1 if that field is
+		 * not defined by the schema.
+		 */
+		private int field = -1;
+		/**
+		 * The bit mask of the fields that were given, if there are no more
+		 * than 64 of them.
+		 */
+		private long seenMask = 0;
+		/**
+		 * Whether or not each field was given, if there are more than 64 of
+		 * them, otherwise null.
+		 */
+		private final boolean[] seen;
+		/**
+		 * The number of elements of the array that have been read.
+		 */
+		private int size = 0;
+
+		/**
+		 * Creates a new frame.
+		 *
+		 * @param object
+		 *        The step for the object or null if this is an array.
+		 *
+		 * @param array
+		 *        The step for the array or null if this is an object.
+		 *
+		 * @param errors
+		 *        The number of violations before the value started.
+		 *
+		 * @param schemaPath
+		 *        The schema path to restore when the value ends.
+		 */
+		private Frame(
+			final ObjectStep object,
+			final ArrayStep array,
+			final int errors,
+			final String schemaPath) {
+
+			this.object = object;
+			this.array = array;
+			this.errors = errors;
+			this.schemaPath = schemaPath;
+			seen =
+				((object != null) && (object.streamFields.length > 64)) ?
+					new boolean[object.streamFields.length] :
+					null;
+		}
+	}
+
+	/**
+	 * The exception used to hand every violation of a document that a
+	 * {@link TokenChecker} collected to its caller.
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class DocumentException extends ConcordiaException {
+		/**
+		 * The version of this exception class.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The violations of the document.
+		 */
+		private final transient ValidationResult result;
+
+		/**
+		 * Creates a new exception.
+		 *
+		 * @param result
+		 *        The violations of the document.
+		 */
+		private DocumentException(final ValidationResult result) {
+			super(result.getMessage());
+
+			this.result = result;
+		}
+	}
+
+	/**
+	 * The controller that compiled the plan.
+	 */
+	private final ValidationController controller;
+	/**
+	 * The root of the validation plan.
+	 */
+	private final Step root;
+	/**
+	 * The context for the current document.
+	 */
+	private final ValidationContext context;
+	/**
+	 * The objects and arrays that are open, innermost first.
+	 */
+	private final ArrayDeque<Frame> frames = new ArrayDeque<Frame>();
+	/**
+	 * The value that is being captured to be validated as a tree or null
+	 * if no value is being captured.
+	 */
+	private TokenBuffer capture = null;
+	/**
+	 * The step for the value that is being captured.
+	 */
+	private Step captureStep = null;
+	/**
+	 * The schema path to restore once the value that is being captured
+	 * is validated.
+	 */
+	private String captureSchemaPath = null;
+	/**
+	 * Whether or not a value that the schema does not define is being
+	 * skipped.
+	 */
+	private boolean skipping = false;
+	/**
+	 * The number of open objects and arrays in the value that is being
+	 * captured or skipped.
+	 */
+	private int depth = 0;
+	/**
+	 * Whether or not no document has been started yet.
+	 */
+	private boolean empty = true;
+	/**
+	 * Whether or not a violation has been thrown in fail-fast mode, after
+	 * which no more tokens are validated.
+	 */
+	private boolean failed = false;
+	/**
+	 * When the current document was started, if there is a listener.
+	 */
+	private long start;
+
+	/**
+	 * Creates a new checker.
+	 *
+	 * @param controller
+	 *        The controller that compiled the plan.
+	 *
+	 * @param root
+	 *        The root of the validation plan.
+	 */
+	TokenChecker(final ValidationController controller, final Step root) {
+		this.controller = controller;
+		this.root = root;
+		context = new ValidationContext(controller.isCollectAllErrors());
+	}
+
+	/**
+	 * Returns whether or not a violation has been thrown in fail-fast
+	 * mode, after which no more tokens are validated.
+	 *
+	 * @return Whether or not this checker has stopped validating.
+	 */
+	boolean isFailed() {
+		return failed;
+	}
+
+	/**
+	 * Returns the buffer that the current token must be copied into.
+	 *
+	 * @return The buffer that the current token must be copied into or
+	 *         null if the token is not being captured.
+	 */
+	TokenBuffer getCapture() {
+		return capture;
+	}
+
+	/**
+	 * Validates the next token. If it is being captured, it is validated
+	 * by {@link #captured(JsonToken)} instead.
+	 *
+	 * @param token
+	 *        The token or null if there are no more.
+	 *
+	 * @param name
+	 *        The field's name if the token is a field name, otherwise
+	 *        ignored.
+	 *
+	 * @throws ConcordiaException
+	 *         The data is invalid.
+	 */
+	void accept(
+		final JsonToken token,
+		final String name)
+		throws ConcordiaException {
+
+		if(failed || (capture != null)) {
+			return;
+		}
+		if(skipping) {
+			if(isValueEnd(token)) {
+				skipping = false;
+				completed();
+			}
+			return;
+		}
+
+		// If there was no data at all, validate it as missing.
+		if(token == null) {
+			if(empty && frames.isEmpty()) {
+				beginDocument();
+				root.validate((JsonNode) null, context);
+				endDocument();
+			}
+			return;
+		}
+
+		Frame frame = frames.peekFirst();
+		if(frame == null) {
+			beginDocument();
+			value(root, null, token);
+		}
+		else if(frame.object != null) {
+			ObjectStep object = frame.object;
+			if(token == JsonToken.FIELD_NAME) {
+				Integer index = object.streamIndices.get(name);
+				if(index == null) {
+					frame.field = -1;
+					return;
+				}
+
+				int i = index;
+				frame.field = i;
+				if(frame.seen == null) {
+					frame.seenMask |= (1L << i);
+				}
+				else {
+					frame.seen[i] = true;
+				}
+				context.push(object.streamNames[i]);
+			}
+			else if(token == JsonToken.END_OBJECT) {
+				frames.removeFirst();
+				object.validateMissing(frame.seenMask, frame.seen, context);
+				report(object, frame.errors);
+				context.setSchemaPath(frame.schemaPath);
+				completed();
+			}
+			else if(frame.field < 0) {
+				skip(token);
+			}
+			else {
+				value(
+					object.streamFields[frame.field],
+					object.streamPaths[frame.field],
+					token);
+			}
+		}
+		else {
+			ArrayStep array = frame.array;
+			if(token == JsonToken.END_ARRAY) {
+				frames.removeFirst();
+				array.checkLength(frame.size, context);
+				report(array, frame.errors);
+				context.setSchemaPath(frame.schemaPath);
+				completed();
+				return;
+			}
+
+			Step element = array.getElementStep(frame.size);
+			if(element == null) {
+				skip(token);
+			}
+			else {
+				context.push(frame.size);
+				value(element, null, token);
+			}
+		}
+	}
+
+	/**
+	 * Validates a token that was copied into the {@link #getCapture()
+	 * capture} and, if it was the captured value's last token, the value.
+	 *
+	 * @param token
+	 *        The token.
+	 *
+	 * @throws ConcordiaException
+	 *         The data is invalid.
+	 *
+	 * @throws IOException
+	 *         The captured value could not be read.
+	 */
+	void captured(
+		final JsonToken token)
+		throws ConcordiaException, IOException {
+
+		if(! isValueEnd(token)) {
+			return;
+		}
+
+		JsonNode data = Step.readTree(capture.asParser());
+		Step step = captureStep;
+		capture = null;
+		captureStep = null;
+
+		step.validate(data, context);
+		context.setSchemaPath(captureSchemaPath);
+		captureSchemaPath = null;
+		completed();
+	}
+
+	/**
+	 * Handles an exception that was thrown by this checker and returns
+	 * the violations that it describes. If it was thrown in fail-fast
+	 * mode, this checker stops validating.
+	 *
+	 * @param e
+	 *        The exception.
+	 *
+	 * @return The violations.
+	 */
+	ValidationResult fail(final ConcordiaException e) {
+		// Every violation of a complete document.
+		if(e instanceof DocumentException) {
+			return ((DocumentException) e).result;
+		}
+
+		failed = true;
+		frames.clear();
+		capture = null;
+		captureStep = null;
+		captureSchemaPath = null;
+
+		ValidationListener listener = controller.getListener();
+		if(listener != null) {
+			listener.documentCompleted(System.nanoTime() - start, false);
+		}
+		return ValidationResult.invalid(e);
+	}
+
+	/**
+	 * Validates the first token of a value.
+	 *
+	 * @param step
+	 *        The step for the value.
+	 *
+	 * @param path
+	 *        The schema path of the extension that the value's field came
+	 *        from or null if it did not come from one.
+	 *
+	 * @param token
+	 *        The value's first token.
+	 *
+	 * @throws ConcordiaException
+	 *         The data is invalid.
+	 */
+	private void value(
+		final Step step,
+		final String path,
+		final JsonToken token)
+		throws ConcordiaException {
+
+		String schemaPath =
+			(path == null) ?
+				context.getSchemaPath() :
+				step.enter(path, context);
+
+		// Follow references until a concrete step.
+		Step current = step;
+		while((current instanceof ReferenceStep) &&
+			(! current.hasCustomValidators())) {
+
+			if(token == JsonToken.VALUE_NULL) {
+				((ReferenceStep) current).checkMissing(context);
+				context.setSchemaPath(schemaPath);
+				completed();
+				return;
+			}
+			current.enter(current.getPath(), context);
+			current = ((ReferenceStep) current).getTarget();
+		}
+
+		// Custom validators and unknown types need a tree.
+		if(current.hasCustomValidators() ||
+			(current instanceof ReferenceStep) ||
+			(current instanceof GenericStep)) {
+
+			startCapture(current, schemaPath);
+			return;
+		}
+
+		int errors = context.getErrorCount();
+		if(token == JsonToken.VALUE_NULL) {
+			current.checkNull(context);
+		}
+		else if((token == JsonToken.START_OBJECT) &&
+			(current instanceof ObjectStep) &&
+			(((ObjectStep) current).streamFields != null)) {
+
+			frames
+				.addFirst(
+					new Frame(
+						(ObjectStep) current,
+						null,
+						errors,
+						schemaPath));
+			return;
+		}
+		else if((token == JsonToken.START_ARRAY) &&
+			(current instanceof ArrayStep)) {
+
+			frames
+				.addFirst(
+					new Frame(
+						null,
+						(ArrayStep) current,
+						errors,
+						schemaPath));
+			return;
+		}
+		else if(! isScalarOf(current, token)) {
+			// Build the value's tree for the violation's message.
+			startCapture(current, schemaPath);
+			return;
+		}
+
+		report(current, errors);
+		context.setSchemaPath(schemaPath);
+		completed();
+	}
+
+	/**
+	 * Starts capturing a value, beginning with the current token.
+	 *
+	 * @param step
+	 *        The step for the value.
+	 *
+	 * @param schemaPath
+	 *        The schema path to restore once the value is validated.
+	 */
+	private void startCapture(final Step step, final String schemaPath) {
+		captureStep = step;
+		captureSchemaPath = schemaPath;
+		capture = new TokenBuffer(Step.MAPPER);
+	}
+
+	/**
+	 * Starts skipping a value that the schema does not define.
+	 *
+	 * @param token
+	 *        The value's first token.
+	 *
+	 * @throws ConcordiaException
+	 *         The value was the last of a document that was invalid and
+	 *         violations are being collected.
+	 */
+	private void skip(final JsonToken token) throws ConcordiaException {
+		if(! isValueEnd(token)) {
+			skipping = true;
+		}
+		else {
+			completed();
+		}
+	}
+
+	/**
+	 * Tracks the open objects and arrays of a value that is being
+	 * captured or skipped.
+	 *
+	 * @param token
+	 *        The value's next token.
+	 *
+	 * @return Whether or not the token was the value's last.
+	 */
+	private boolean isValueEnd(final JsonToken token) {
+		if((token == JsonToken.START_OBJECT) ||
+			(token == JsonToken.START_ARRAY)) {
+
+			depth++;
+		}
+		else if((token == JsonToken.END_OBJECT) ||
+			(token == JsonToken.END_ARRAY)) {
+
+			depth--;
+		}
+		return depth == 0;
+	}
+
+	/**
+	 * Moves past a value that has been completely validated.
+	 *
+	 * @throws ConcordiaException
+	 *         The value was the last of a document that was invalid and
+	 *         violations are being collected.
+	 */
+	private void completed() throws ConcordiaException {
+		Frame frame = frames.peekFirst();
+		if(frame == null) {
+			endDocument();
+		}
+		else if(frame.object != null) {
+			if(frame.field >= 0) {
+				context.pop();
+				frame.field = -1;
+			}
+		}
+		else {
+			if(frame.array.getElementStep(frame.size) != null) {
+				context.pop();
+			}
+			frame.size++;
+		}
+	}
+
+	/**
+	 * Starts validating a new document.
+	 */
+	private void beginDocument() {
+		empty = false;
+		context.reset();
+		if(controller.getListener() != null) {
+			start = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Finishes validating a document.
+	 *
+	 * @throws ConcordiaException
+	 *         The document was invalid and violations are being
+	 *         collected.
+	 */
+	private void endDocument() throws ConcordiaException {
+		List<InvalidDataException> errors = context.getErrors();
+
+		ValidationListener listener = controller.getListener();
+		if(listener != null) {
+			listener
+				.documentCompleted(
+					System.nanoTime() - start,
+					errors.isEmpty());
+		}
+
+		if(! errors.isEmpty()) {
+			throw new DocumentException(ValidationResult.invalid(errors));
+		}
+	}
+
+	/**
+	 * Determines whether a token is a complete value of a step's type.
+	 *
+	 * @param step
+	 *        The step.
+	 *
+	 * @param token
+	 *        The token.
+	 *
+	 * @return Whether or not the token is a scalar of the step's type.
+	 */
+	private boolean isScalarOf(final Step step, final JsonToken token) {
+		if(step instanceof BooleanStep) {
+			return
+				(token == JsonToken.VALUE_TRUE) ||
+				(token == JsonToken.VALUE_FALSE);
+		}
+		else if(step instanceof NumberStep) {
+			return
+				(token == JsonToken.VALUE_NUMBER_INT) ||
+				(token == JsonToken.VALUE_NUMBER_FLOAT);
+		}
+		else if(step instanceof StringStep) {
+			return token == JsonToken.VALUE_STRING;
+		}
+		return false;
+	}
+
+	/**
+	 * Reports a value that was validated without a tree to the
+	 * listener, if any.
+	 *
+	 * @param step
+	 *        The value's step.
+	 *
+	 * @param errors
+	 *        The number of violations before the value started.
+	 */
+	private void report(final Step step, final int errors) {
+		ValidationListener listener = controller.getListener();
+		if(listener != null) {
+			listener
+				.valueChecked(
+					context.getSchemaPath(step.getPath()),
+					step.schema,
+					context.getErrorCount() == errors);
+		}
+	}
+}
@@ -0,0 +1,691 @@
+package name.jenkins.paul.john.concordia.validator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.JsonGenerationException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * <p>
+ * A generator that validates each token before it is written to another
+ * generator. This is created by
+ * {@link CompiledValidator#validatingGenerator(JsonGenerator)}.
+ * </p>
+ *
+ * <p>
+ * A token is validated before it is written, so in fail-fast mode the token
+ * that violates the schema is never written. Once a violation has been
+ * thrown in fail-fast mode, the rest of the data is passed through without
+ * being validated. Raw values are parsed to be validated, while raw content
+ * that isn't a value, e.g. whitespace, is passed through as-is.
+ * </p>
+ *
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+final class ValidatingGenerator extends JsonGeneratorDelegate {
+	/**
+	 * The encoding of the UTF-8 strings that may be written.
+	 */
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	/**
+	 * The mapper used to parse raw values.
+	 */
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	/**
+	 * The checker that validates the tokens.
+	 */
+	private final TokenChecker checker;
+
+	/**
+	 * Creates a new validating generator.
+	 *
+	 * @param generator
+	 *        The generator that the tokens are written to.
+	 *
+	 * @param checker
+	 *        The checker that validates the tokens.
+	 */
+	ValidatingGenerator(
+		final JsonGenerator generator,
+		final TokenChecker checker) {
+
+		super(generator);
+
+		this.checker = checker;
+	}
+
+	@Override
+	public void writeStartArray() throws IOException, JsonGenerationException {
+		TokenBuffer capture = accept(JsonToken.START_ARRAY, null);
+		if(capture != null) {
+			capture.writeStartArray();
+			captured(JsonToken.START_ARRAY);
+		}
+		delegate.writeStartArray();
+	}
+
+	@Override
+	public void writeEndArray() throws IOException, JsonGenerationException {
+		TokenBuffer capture = accept(JsonToken.END_ARRAY, null);
+		if(capture != null) {
+			capture.writeEndArray();
+			captured(JsonToken.END_ARRAY);
+		}
+		delegate.writeEndArray();
+	}
+
+	@Override
+	public void writeStartObject()
+		throws IOException, JsonGenerationException {
+
+		TokenBuffer capture = accept(JsonToken.START_OBJECT, null);
+		if(capture != null) {
+			capture.writeStartObject();
+			captured(JsonToken.START_OBJECT);
+		}
+		delegate.writeStartObject();
+	}
+
+	@Override
+	public void writeEndObject() throws IOException, JsonGenerationException {
+		TokenBuffer capture = accept(JsonToken.END_OBJECT, null);
+		if(capture != null) {
+			capture.writeEndObject();
+			captured(JsonToken.END_OBJECT);
+		}
+		delegate.writeEndObject();
+	}
+
+	@Override
+	public void writeFieldName(
+		final String name)
+		throws IOException, JsonGenerationException {
+
+		TokenBuffer capture = accept(JsonToken.FIELD_NAME, name);
+		if(capture != null) {
+			capture.writeFieldName(name);
+			captured(JsonToken.FIELD_NAME);
+		}
+		delegate.writeFieldName(name);
+	}
+
+	@Override
+	public void writeFieldName(
+		final SerializableString name)
+		throws IOException, JsonGenerationException {
+
+		TokenBuffer capture = accept(JsonToken.FIELD_NAME, name.getValue());
+		if(capture != null) {
+			capture.writeFieldName(name);
+			captured(JsonToken.FIELD_NAME);
+		}
+		delegate.writeFieldName(name);
+	}
+
+	@Override
+	public void writeString(
+		final String text)
+		throws IOException, JsonGenerationException {
+
+		if(text == null) {
+			writeNull();
+			return;
+		}
+
+		TokenBuffer capture = accept(JsonToken.VALUE_STRING, null);
+		if(capture != null) {
+			capture.writeString(text);
+			captured(JsonToken.VALUE_STRING);
+		}
+		delegate.writeString(text);
+	}
+
+	@Override
+	public void writeString(
+		final char[] text,
+		final int offset,
+		final int length)
+		throws IOException, JsonGenerationException {
+
+		TokenBuffer capture = accept(JsonToken.VALUE_STRING, null);
+		if(capture != null) {
+			capture.writeString(text, offset, length);
+			captured(JsonToken.VALUE_STRING);
+		}
+		delegate.writeString(text, offset, length);
+	}
+
+	@Override
+	public void writeString(
+		final SerializableString text)
+		throws IOException, JsonGenerationException {
+
+		TokenBuffer capture = accept(JsonToken.VALUE_STRING, null);
+		if(capture != null) {
+			capture.writeString(text);
+			captured(JsonToken.VALUE_STRING);
+		}
+		delegate.writeString(text);
+	}
+
+	@Override
+	public void writeRawUTF8String(
+		final byte[] text,
+		final int offset,
+		final int length)
+		throws IOException, JsonGenerationException {
+
+		TokenBuffer capture = accept(JsonToken.VALUE_STRING, null);
+		if(capture != null) {
+			capture.writeString(new String(text, offset, length, UTF_8));
+			captured(JsonToken.VALUE_STRING);
+		}
+		delegate.writeRawUTF8String(text, offset, length);
+	}
+
+	@Override
+	public void writeUTF8String(
+		final byte[] text,
+		final int offset,
+		final int length)
+		throws IOException, JsonGenerationException {
+
+		TokenBuffer capture = accept(JsonToken.VALUE_STRING, null);
+		if(capture != null) {
+			capture.writeString(new String(text, offset, length, UTF_8));
+			captured(JsonToken.VALUE_STRING);
+		}
+		delegate.writeUTF8String(text, offset, length);
+	}
+
+	@Override
+	public void writeRawValue(
+		final String text)
+		throws IOException, JsonGenerationException {
+
+		acceptRaw(text);
+		delegate.writeRawValue(text);
+	}
+
+	@Override
+	public void writeRawValue(
+		final String text,
+		final int offset,
+		final int length)
+		throws IOException, JsonGenerationException {
+
+		acceptRaw(text.substring(offset, offset + length));
+		delegate.writeRawValue(text, offset, length);
+	}
+
+	@Override
+	public void writeRawValue(
+		final char[] text,
+		final int offset,
+		final int length)
+		throws IOException, JsonGenerationException {
+
+		acceptRaw(new String(text, offset, length));
+		delegate.writeRawValue(text, offset, length);
+	}
+
+	@Override
+	public void writeBinary(
+		final Base64Variant variant,
+		final byte[] data,
+		final int offset,
+		final int length)
+		throws IOException, JsonGenerationException {
+
+		// Binary data is written as a string.
+		TokenBuffer capture = accept(JsonToken.VALUE_STRING, null);
+		if(capture != null) {
+			byte[] bytes = new byte[length];
+			System.arraycopy(data, offset, bytes, 0, length);
+			capture.writeString(variant.encode(bytes));
+			captured(JsonToken.VALUE_STRING);
+		}
+		delegate.writeBinary(variant, data, offset, length);
+	}
+
+	@Override
+	public int writeBinary(
+		final Base64Variant variant,
+		final InputStream data,
+		final int length)
+		throws IOException, JsonGenerationException {
+
+		// Read the data, so that it can be validated before it is written.
+		ByteArrayOutputStream bytes =
+			new ByteArrayOutputStream((length < 0) ? 1024 : length);
+		byte[] chunk = new byte[4096];
+		int remaining = (length < 0) ? Integer.MAX_VALUE : length;
+		int read;
+		while((remaining > 0) &&
+			((read = data.read(chunk, 0, Math.min(chunk.length, remaining)))
+				!= -1)) {
+
+			bytes.write(chunk, 0, read);
+			remaining -= read;
+		}
+
+		writeBinary(variant, bytes.toByteArray(), 0, bytes.size());
+		return bytes.size();
+	}
+
+	@Override
+	public void writeNumber(
+		final short value)
+		throws IOException, JsonGenerationException {
+
+		TokenBuffer capture = accept(JsonToken.VALUE_NUMBER_INT, null);
+		if(capture != null) {
+			capture.writeNumber(value);
+			captured(JsonToken.VALUE_NUMBER_INT);
+		}
+		delegate.writeNumber(value);
+	}
+
+	@Override
+	public void writeNumber(
+		final int value)
+		throws IOException, JsonGenerationException {
+
+		TokenBuffer capture = accept(JsonToken.VALUE_NUMBER_INT, null);
+		if(capture != null) {
+			capture.writeNumber(value);
+			captured(JsonToken.VALUE_NUMBER_INT);
+		}
+		delegate.writeNumber(value);
+	}
+
+	@Override
+	public void writeNumber(
+		final long value)
+		throws IOException, JsonGenerationException {
+
+		TokenBuffer capture = accept(JsonToken.VALUE_NUMBER_INT, null);
+		if(capture != null) {
+			capture.writeNumber(value);
+			captured(JsonToken.VALUE_NUMBER_INT);
+		}
+		delegate.writeNumber(value);
+	}
+
+	@Override
+	public void writeNumber(
+		final BigInteger value)
+		throws IOException, JsonGenerationException {
+
+		if(value == null) {
+			writeNull();
+			return;
+		}
+
+		TokenBuffer capture = accept(JsonToken.VALUE_NUMBER_INT, null);
+		if(capture != null) {
+			capture.writeNumber(value);
+			captured(JsonToken.VALUE_NUMBER_INT);
+		}
+		delegate.writeNumber(value);
+	}
+
+	@Override
+	public void writeNumber(
+		final double value)
+		throws IOException, JsonGenerationException {
+
+		TokenBuffer capture = accept(JsonToken.VALUE_NUMBER_FLOAT, null);
+		if(capture != null) {
+			capture.writeNumber(value);
+			captured(JsonToken.VALUE_NUMBER_FLOAT);
+		}
+		delegate.writeNumber(value);
+	}
+
+	@Override
+	public void writeNumber(
+		final float value)
+		throws IOException, JsonGenerationException {
+
+		TokenBuffer capture = accept(JsonToken.VALUE_NUMBER_FLOAT, null);
+		if(capture != null) {
+			capture.writeNumber(value);
+			captured(JsonToken.VALUE_NUMBER_FLOAT);
+		}
+		delegate.writeNumber(value);
+	}
+
+	@Override
+	public void writeNumber(
+		final BigDecimal value)
+		throws IOException, JsonGenerationException {
+
+		if(value == null) {
+			writeNull();
+			return;
+		}
+
+		TokenBuffer capture = accept(JsonToken.VALUE_NUMBER_FLOAT, null);
+		if(capture != null) {
+			capture.writeNumber(value);
+			captured(JsonToken.VALUE_NUMBER_FLOAT);
+		}
+		delegate.writeNumber(value);
+	}
+
+	@Override
+	public void writeNumber(
+		final String encodedValue)
+		throws IOException, JsonGenerationException {
+
+		TokenBuffer capture = accept(JsonToken.VALUE_NUMBER_FLOAT, null);
+		if(capture != null) {
+			capture.writeNumber(new BigDecimal(encodedValue));
+			captured(JsonToken.VALUE_NUMBER_FLOAT);
+		}
+		delegate.writeNumber(encodedValue);
+	}
+
+	@Override
+	public void writeBoolean(
+		final boolean state)
+		throws IOException, JsonGenerationException {
+
+		JsonToken token =
+			(state) ? JsonToken.VALUE_TRUE : JsonToken.VALUE_FALSE;
+		TokenBuffer capture = accept(token, null);
+		if(capture != null) {
+			capture.writeBoolean(state);
+			captured(token);
+		}
+		delegate.writeBoolean(state);
+	}
+
+	@Override
+	public void writeNull() throws IOException, JsonGenerationException {
+		TokenBuffer capture = accept(JsonToken.VALUE_NULL, null);
+		if(capture != null) {
+			capture.writeNull();
+			captured(JsonToken.VALUE_NULL);
+		}
+		delegate.writeNull();
+	}
+
+	@Override
+	public void writeObject(
+		final Object value)
+		throws IOException, JsonProcessingException {
+
+		// The delegate's version would bypass the validation.
+		if(value == null) {
+			writeNull();
+		}
+		else {
+			getRequiredCodec().writeValue(this, value);
+		}
+	}
+
+	@Override
+	public void writeTree(
+		final TreeNode tree)
+		throws IOException, JsonProcessingException {
+
+		// The delegate's version would bypass the validation.
+		if(tree == null) {
+			writeNull();
+		}
+		else {
+			getRequiredCodec().writeValue(this, tree);
+		}
+	}
+
+	@Override
+	public void copyCurrentEvent(
+		final JsonParser parser)
+		throws IOException, JsonProcessingException {
+
+		// The delegate's version would bypass the validation.
+		JsonToken token = parser.getCurrentToken();
+		if(token == null) {
+			throw new JsonGenerationException("There is no event to copy.");
+		}
+		else if(token == JsonToken.START_OBJECT) {
+			writeStartObject();
+		}
+		else if(token == JsonToken.END_OBJECT) {
+			writeEndObject();
+		}
+		else if(token == JsonToken.START_ARRAY) {
+			writeStartArray();
+		}
+		else if(token == JsonToken.END_ARRAY) {
+			writeEndArray();
+		}
+		else if(token == JsonToken.FIELD_NAME) {
+			writeFieldName(parser.getCurrentName());
+		}
+		else if(token == JsonToken.VALUE_STRING) {
+			if(parser.hasTextCharacters()) {
+				writeString(
+					parser.getTextCharacters(),
+					parser.getTextOffset(),
+					parser.getTextLength());
+			}
+			else {
+				writeString(parser.getText());
+			}
+		}
+		else if(token == JsonToken.VALUE_NUMBER_INT) {
+			JsonParser.NumberType type = parser.getNumberType();
+			if(type == JsonParser.NumberType.INT) {
+				writeNumber(parser.getIntValue());
+			}
+			else if(type == JsonParser.NumberType.BIG_INTEGER) {
+				writeNumber(parser.getBigIntegerValue());
+			}
+			else {
+				writeNumber(parser.getLongValue());
+			}
+		}
+		else if(token == JsonToken.VALUE_NUMBER_FLOAT) {
+			JsonParser.NumberType type = parser.getNumberType();
+			if(type == JsonParser.NumberType.BIG_DECIMAL) {
+				writeNumber(parser.getDecimalValue());
+			}
+			else if(type == JsonParser.NumberType.FLOAT) {
+				writeNumber(parser.getFloatValue());
+			}
+			else {
+				writeNumber(parser.getDoubleValue());
+			}
+		}
+		else if(token == JsonToken.VALUE_TRUE) {
+			writeBoolean(true);
+		}
+		else if(token == JsonToken.VALUE_FALSE) {
+			writeBoolean(false);
+		}
+		else if(token == JsonToken.VALUE_NULL) {
+			writeNull();
+		}
+		else {
+			writeObject(parser.getEmbeddedObject());
+		}
+	}
+
+	@Override
+	public void copyCurrentStructure(
+		final JsonParser parser)
+		throws IOException, JsonProcessingException {
+
+		// The delegate's version would bypass the validation.
+		JsonToken token = parser.getCurrentToken();
+		if(token == JsonToken.FIELD_NAME) {
+			writeFieldName(parser.getCurrentName());
+			token = parser.nextToken();
+		}
+
+		if(token == JsonToken.START_OBJECT) {
+			writeStartObject();
+			while(parser.nextToken() != JsonToken.END_OBJECT) {
+				copyCurrentStructure(parser);
+			}
+			writeEndObject();
+		}
+		else if(token == JsonToken.START_ARRAY) {
+			writeStartArray();
+			while(parser.nextToken() != JsonToken.END_ARRAY) {
+				copyCurrentStructure(parser);
+			}
+			writeEndArray();
+		}
+		else {
+			copyCurrentEvent(parser);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		// Validate that something was written.
+		try {
+			accept(null, null);
+		}
+		finally {
+			delegate.close();
+		}
+	}
+
+	/**
+	 * Validates a token before it is written.
+	 *
+	 * @param token
+	 *        The token or null if nothing more will be written.
+	 *
+	 * @param name
+	 *        The field's name if the token is a field name, otherwise null.
+	 *
+	 * @return The buffer that the token must be copied into before calling
+	 *         {@link #captured(JsonToken)} or null if it is not being
+	 *         captured.
+	 *
+	 * @throws ValidationGenerationException
+	 *         The data is invalid.
+	 */
+	private TokenBuffer accept(
+		final JsonToken token,
+		final String name)
+		throws ValidationGenerationException {
+
+		if(checker.isFailed()) {
+			return null;
+		}
+
+		try {
+			checker.accept(token, name);
+		}
+		catch(ConcordiaException e) {
+			throw new ValidationGenerationException(checker.fail(e));
+		}
+		return (token == null) ? null : checker.getCapture();
+	}
+
+	/**
+	 * Validates a token that was copied into the capture.
+	 *
+	 * @param token
+	 *        The token.
+	 *
+	 * @throws ValidationGenerationException
+	 *         The data is invalid.
+	 *
+	 * @throws IOException
+	 *         The captured value could not be read.
+	 */
+	private void captured(
+		final JsonToken token)
+		throws ValidationGenerationException, IOException {
+
+		try {
+			checker.captured(token);
+		}
+		catch(ConcordiaException e) {
+			throw new ValidationGenerationException(checker.fail(e));
+		}
+	}
+
+	/**
+	 * Validates a raw value by parsing it.
+	 *
+	 * @param text
+	 *        The raw value.
+	 *
+	 * @throws IOException
+	 *         The value is invalid or is not well-formed JSON.
+	 */
+	private void acceptRaw(final String text) throws IOException {
+		if(checker.isFailed()) {
+			return;
+		}
+
+		JsonParser parser = MAPPER.getFactory().createParser(text);
+		try {
+			JsonToken token;
+			while((token = parser.nextToken()) != null) {
+				TokenBuffer capture =
+					accept(
+						token,
+						(token == JsonToken.FIELD_NAME) ?
+							parser.getCurrentName() :
+							null);
+				if(capture != null) {
+					capture.copyCurrentEvent(parser);
+					captured(token);
+				}
+			}
+		}
+		finally {
+			parser.close();
+		}
+	}
+
+	/**
+	 * Returns the codec that serializes objects and trees.
+	 *
+	 * @return The codec.
+	 *
+	 * @throws IllegalStateException
+	 *         The generator does not have a codec.
+	 */
+	private ObjectCodec getRequiredCodec() throws IllegalStateException {
+		ObjectCodec codec = getCodec();
+		if(codec == null) {
+			throw
+				new IllegalStateException(
+					"The generator does not have a codec to write objects.");
+		}
+		return codec;
+	}
+}
@@ -0,0 +1,121 @@
+package name.jenkins.paul.john.concordia.validator;
+
+import java.io.IOException;
+
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * <p>
+ * A parser that validates each token of another parser as it is read. This
+ * is created by {@link CompiledValidator#validatingParser(JsonParser)}.
+ * </p>
+ *
+ * <p>
+ * Once a violation has been thrown in fail-fast mode, the rest of the data
+ * is passed through without being validated.
+ * </p>
+ *
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+final class ValidatingParser extends JsonParserDelegate {
+	/**
+	 * The checker that validates the tokens.
+	 */
+	private final TokenChecker checker;
+
+	/**
+	 * Creates a new validating parser.
+	 *
+	 * @param parser
+	 *        The parser whose tokens are validated.
+	 *
+	 * @param checker
+	 *        The checker that validates the tokens.
+	 */
+	ValidatingParser(
+		final JsonParser parser,
+		final TokenChecker checker) {
+
+		super(parser);
+
+		this.checker = checker;
+	}
+
+	@Override
+	public JsonToken nextToken() throws IOException, JsonParseException {
+		JsonToken token = delegate.nextToken();
+		if(checker.isFailed()) {
+			return token;
+		}
+
+		try {
+			checker
+				.accept(
+					token,
+					(token == JsonToken.FIELD_NAME) ?
+						delegate.getCurrentName() :
+						null);
+
+			TokenBuffer capture = checker.getCapture();
+			if((capture != null) && (token != null)) {
+				capture.copyCurrentEvent(delegate);
+				checker.captured(token);
+			}
+		}
+		catch(ConcordiaException e) {
+			throw
+				new ValidationParseException(
+					checker.fail(e),
+					delegate.getCurrentLocation());
+		}
+		return token;
+	}
+
+	@Override
+	public JsonToken nextValue() throws IOException, JsonParseException {
+		// The delegate's version would bypass the validation.
+		JsonToken token = nextToken();
+		if(token == JsonToken.FIELD_NAME) {
+			token = nextToken();
+		}
+		return token;
+	}
+
+	@Override
+	public JsonParser skipChildren() throws IOException, JsonParseException {
+		// The delegate's version would bypass the validation.
+		JsonToken token = getCurrentToken();
+		if((token != JsonToken.START_OBJECT) &&
+			(token != JsonToken.START_ARRAY)) {
+
+			return this;
+		}
+
+		int open = 1;
+		while((token = nextToken()) != null) {
+			if((token == JsonToken.START_OBJECT) ||
+				(token == JsonToken.START_ARRAY)) {
+
+				open++;
+			}
+			else if((token == JsonToken.END_OBJECT) ||
+				(token == JsonToken.END_ARRAY)) {
+
+				if(--open == 0) {
+					break;
+				}
+			}
+		}
+		return this;
+	}
+}
@@ -0,0 +1,324 @@
+package name.jenkins.paul.john.concordia.validator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.exception.InvalidDataException;
+
+/**
+ * <p>
+ * The scratch state for validating a single document with a
+ * {@link CompiledValidator}.
+ * </p>
+ *
+ * <p>
+ * This tracks the location of the value currently being validated as a
+ * stack of field names and array indices. The stack is reused for every
+ * value, and a location is only copied out of it when a violation is found.
+ * </p>
+ *
+ * <p>
+ * This also tracks the schema path of the referenced schema whose steps are
+ * running. Each step's own schema path is relative to the referenced schema
+ * that it was compiled for, because that schema's steps are shared by every
+ * reference to it, so this path is prepended when a step is reported.
+ * </p>
+ *
+ * <p>
+ * When collecting, violations are recorded and validation continues.
+ * Otherwise, the first violation is thrown.
+ * </p>
+ *
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+final class ValidationContext {
+	/**
+	 * The initial depth of the location stack.
+	 */
+	private static final int INITIAL_DEPTH = 16;
+
+	/**
+	 * The field name at each depth or null if the value at that depth is an
+	 * array element.
+	 */
+	private String[] names = new String[INITIAL_DEPTH];
+	/**
+	 * The array index at each depth, which is only meaningful if there is no
+	 * field name at that depth.
+	 */
+	private long[] indices = new long[INITIAL_DEPTH];
+	/**
+	 * The current depth of the location stack.
+	 */
+	private int depth = 0;
+	/**
+	 * The schema path of the referenced schema whose steps are running or
+	 * the empty string for the root schema.
+	 */
+	private String schemaPath = "";
+	/**
+	 * The violations that have been found or null if the first violation
+	 * should be thrown.
+	 */
+	private List<InvalidDataException> errors;
+
+	/**
+	 * Creates a new context.
+	 *
+	 * @param collect
+	 *        Whether violations should be collected rather than thrown.
+	 */
+	ValidationContext(final boolean collect) {
+		errors = (collect) ? new ArrayList<InvalidDataException>() : null;
+	}
+
+	/**
+	 * Returns whether or not violations are being collected.
+	 *
+	 * @return Whether or not violations are being collected.
+	 */
+	boolean isCollecting() {
+		return errors != null;
+	}
+
+	/**
+	 * Returns the violations that have been collected.
+	 *
+	 * @return The violations that have been collected, which will be empty if
+	 *         there were none or if violations are not being collected.
+	 */
+	List<InvalidDataException> getErrors() {
+		if(errors == null) {
+			return new ArrayList<InvalidDataException>(0);
+		}
+		return errors;
+	}
+
+	/**
+	 * Returns the number of violations that have been collected.
+	 *
+	 * @return The number of violations that have been collected, which is
+	 *         always zero if violations are not being collected.
+	 */
+	int getErrorCount() {
+		return (errors == null) ? 0 : errors.size();
+	}
+
+	/**
+	 * Clears the location and any collected violations so that this context
+	 * can be reused for another document.
+	 */
+	void reset() {
+		depth = 0;
+		schemaPath = "";
+		if(errors != null) {
+			errors.clear();
+		}
+	}
+
+	/**
+	 * Creates a new context that starts at this context's current location
+	 * and collects violations if this context does. This is used to validate
+	 * part of the data on another thread.
+	 *
+	 * @return The new context.
+	 */
+	ValidationContext fork() {
+		ValidationContext result = new ValidationContext(errors != null);
+		result.names = new String[names.length];
+		System.arraycopy(names, 0, result.names, 0, depth);
+		result.indices = new long[indices.length];
+		System.arraycopy(indices, 0, result.indices, 0, depth);
+		result.depth = depth;
+		result.schemaPath = schemaPath;
+		return result;
+	}
+
+	/**
+	 * Returns the schema path of the referenced schema whose steps are
+	 * running.
+	 *
+	 * @return The schema path of the referenced schema whose steps are
+	 *         running or the empty string for the root schema.
+	 */
+	String getSchemaPath() {
+		return schemaPath;
+	}
+
+	/**
+	 * Returns the full schema path of a step.
+	 *
+	 * @param path
+	 *        The step's schema path, which is relative to the referenced
+	 *        schema whose steps are running.
+	 *
+	 * @return The full schema path of the step.
+	 */
+	String getSchemaPath(final String path) {
+		return (schemaPath.length() == 0) ? path : schemaPath + path;
+	}
+
+	/**
+	 * Starts running the steps of a referenced schema.
+	 *
+	 * @param path
+	 *        The reference's schema path, which is relative to the referenced
+	 *        schema whose steps are running.
+	 *
+	 * @return The previous schema path, which must be given to
+	 *         {@link #setSchemaPath(String)} once the referenced schema's
+	 *         steps are done.
+	 */
+	String enter(final String path) {
+		String result = schemaPath;
+		schemaPath = getSchemaPath(path);
+		return result;
+	}
+
+	/**
+	 * Restores the schema path of the referenced schema whose steps are
+	 * running.
+	 *
+	 * @param path
+	 *        The schema path that was returned by {@link #enter(String)}.
+	 */
+	void setSchemaPath(final String path) {
+		schemaPath = path;
+	}
+
+	/**
+	 * Adds the violations that were collected by a {@link #fork() forked}
+	 * context to this context's.
+	 *
+	 * @param child
+	 *        The forked context.
+	 */
+	void join(final ValidationContext child) {
+		if((errors != null) && (child.errors != null)) {
+			errors.addAll(child.errors);
+		}
+	}
+
+	/**
+	 * Enters a field of an object.
+	 *
+	 * @param name
+	 *        The field's name.
+	 */
+	void push(final String name) {
+		ensureCapacity();
+		names[depth] = name;
+		depth++;
+	}
+
+	/**
+	 * Enters an element of an array.
+	 *
+	 * @param index
+	 *        The element's index.
+	 */
+	void push(final long index) {
+		ensureCapacity();
+		names[depth] = null;
+		indices[depth] = index;
+		depth++;
+	}
+
+	/**
+	 * Leaves the most recently entered field or element.
+	 */
+	void pop() {
+		depth--;
+	}
+
+	/**
+	 * Reports a violation at the current location. If violations are being
+	 * collected, it is recorded and this returns normally. Otherwise, it is
+	 * thrown.
+	 *
+	 * @param reason
+	 *        The reason the data is invalid.
+	 *
+	 * @param detail
+	 *        The offending schema or value, which is appended to the reason
+	 *        when the message is rendered, or null.
+	 *
+	 * @throws InvalidDataException
+	 *         Violations are not being collected.
+	 */
+	void fail(
+		final String reason,
+		final Object detail)
+		throws InvalidDataException {
+
+		InvalidDataException error =
+			new InvalidDataException(reason, detail, getPath());
+
+		if(errors == null) {
+			throw error;
+		}
+		errors.add(error);
+	}
+
+	/**
+	 * Records a violation that was reported by a custom validator at the
+	 * current location. This should only be called when violations are being
+	 * collected.
+	 *
+	 * @param cause
+	 *        The exception thrown by the custom validator.
+	 */
+	void fail(final ConcordiaException cause) {
+		if(cause instanceof InvalidDataException) {
+			errors.add((InvalidDataException) cause);
+		}
+		else {
+			errors.add(new InvalidDataException(cause, getPath()));
+		}
+	}
+
+	/**
+	 * Copies the current location out of the stack.
+	 *
+	 * @return The field names and array indices from the root of the data to
+	 *         the current location.
+	 */
+	private Object[] getPath() {
+		Object[] path = new Object[depth];
+		for(int i = 0; i < depth; i++) {
+			if(names[i] == null) {
+				long index = indices[i];
+				if(index <= Integer.MAX_VALUE) {
+					path[i] = Integer.valueOf((int) index);
+				}
+				else {
+					path[i] = Long.valueOf(index);
+				}
+			}
+			else {
+				path[i] = names[i];
+			}
+		}
+		return path;
+	}
+
+	/**
+	 * Grows the stack if it is full.
+	 */
+	private void ensureCapacity() {
+		if(depth == names.length) {
+			String[] newNames = new String[depth * 2];
+			System.arraycopy(names, 0, newNames, 0, depth);
+			names = newNames;
+
+			long[] newIndices = new long[depth * 2];
+			System.arraycopy(indices, 0, newIndices, 0, depth);
+			indices = newIndices;
+		}
+	}
+}
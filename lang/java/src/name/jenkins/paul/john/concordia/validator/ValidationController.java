@@ -5,6 +5,8 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
 
 import name.jenkins.paul.john.concordia.exception.ConcordiaException;
 import name.jenkins.paul.john.concordia.schema.ArraySchema;
@@ -32,7 +34,9 @@ import com.fasterxml.jackson.databind.JsonNode;
  * <p>
  * Once constructed, it has two public methods for {@link #validate(Schema)
  * validating a schema} and
- * {@link #validate(Schema, JsonNode) validating data}.
+ * {@link #validate(Schema, JsonNode) validating data}. Data that will be
+ * validated repeatedly against the same schema should instead use a
+ * {@link #compile(Schema) compiled} validator.
  * </p>
  * 
  * <p>
@@ -65,6 +69,25 @@ public final class ValidationController {
 		 */
 		private final Map<Class<? extends Schema>, List<DataValidator<? extends Schema>>> dataValidators =
 			new HashMap<Class<? extends Schema>, List<DataValidator<? extends Schema>>>();
+		/**
+		 * Whether or not checking data should report every violation rather
+		 * than only the first.
+		 */
+		private boolean collectAllErrors = false;
+		/**
+		 * The listener that observes data validation or null if there is
+		 * none.
+		 */
+		private ValidationListener listener = null;
+		/**
+		 * The executor used to validate large arrays in parallel or null if
+		 * they should be validated by the calling thread.
+		 */
+		private Executor parallelExecutor = null;
+		/**
+		 * The number of elements at which an array is validated in parallel.
+		 */
+		private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
 
 		/**
 		 * Creates a new, empty {@link Builder}.
@@ -177,6 +200,80 @@ public final class ValidationController {
 			}
 		}
 
+		/**
+		 * Sets whether or not {@link CompiledValidator#check(JsonNode)
+		 * checking data} should continue after the first violation and
+		 * report every violation. The default is to stop at the first
+		 * violation.
+		 * 
+		 * @param collectAllErrors
+		 *        Whether or not to report every violation.
+		 */
+		public void setCollectAllErrors(final boolean collectAllErrors) {
+			this.collectAllErrors = collectAllErrors;
+		}
+
+		/**
+		 * Sets the listener that observes data validation by every
+		 * {@link CompiledValidator} that the controller builds, e.g. a
+		 * {@link name.jenkins.paul.john.concordia.metrics.ValidationMetrics}.
+		 * The default is to have no listener, in which case validation does
+		 * no extra work.
+		 * 
+		 * @param listener
+		 *        The listener or null to not have one.
+		 */
+		public void setListener(final ValidationListener listener) {
+			this.listener = listener;
+		}
+
+		/**
+		 * <p>
+		 * Sets the executor used to validate large arrays in parallel. When
+		 * a constant-type array, or a constant-length array, has at least the
+		 * {@link #setParallelThreshold(int) threshold} number of elements, it
+		 * is split into chunks that are validated concurrently on this
+		 * executor. Violations are still reported as they would be
+		 * sequentially, i.e. in order of their index.
+		 * </p>
+		 * 
+		 * <p>
+		 * The default is to have no executor, in which case every array is
+		 * validated by the calling thread. Data that is validated while it is
+		 * being streamed is always validated by the calling thread.
+		 * </p>
+		 * 
+		 * @param parallelExecutor
+		 *        The executor or null to not validate in parallel. It is not
+		 *        shut down by Concordia.
+		 */
+		public void setParallelExecutor(final Executor parallelExecutor) {
+			this.parallelExecutor = parallelExecutor;
+		}
+
+		/**
+		 * Sets the number of elements at which an array is validated in
+		 * parallel if there is a
+		 * {@link #setParallelExecutor(Executor) parallel executor}. The
+		 * default is {@value ValidationController#DEFAULT_PARALLEL_THRESHOLD}.
+		 * 
+		 * @param parallelThreshold
+		 *        The threshold, which must be positive.
+		 * 
+		 * @throws IllegalArgumentException
+		 *         The threshold is not positive.
+		 */
+		public void setParallelThreshold(final int parallelThreshold)
+			throws IllegalArgumentException {
+
+			if(parallelThreshold < 1) {
+				throw
+					new IllegalArgumentException(
+						"The parallel threshold must be positive.");
+			}
+			this.parallelThreshold = parallelThreshold;
+		}
+
 		/**
 		 * Builds the {@link ValidationController} based on this builder's
 		 * configuration.
@@ -193,6 +290,12 @@ public final class ValidationController {
 		}
 	}
 
+	/**
+	 * The default number of elements at which an array is validated in
+	 * parallel.
+	 */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 10000;
+
 	/**
 	 * A default, pre-built controller that uses only the required validators.
 	 */
@@ -211,6 +314,29 @@ public final class ValidationController {
 	private final
 		Map<Class<? extends Schema>, List<DataValidator<? extends Schema>>>
 			dataValidators;
+	/**
+	 * Whether or not checking data reports every violation rather than only
+	 * the first.
+	 */
+	private final boolean collectAllErrors;
+	/**
+	 * The listener that observes data validation or null if there is none.
+	 */
+	private final ValidationListener listener;
+	/**
+	 * The executor used to validate large arrays in parallel or null if they
+	 * are validated by the calling thread.
+	 */
+	private final Executor parallelExecutor;
+	/**
+	 * The number of elements at which an array is validated in parallel.
+	 */
+	private final int parallelThreshold;
+	/**
+	 * The {@link #getSchemaValidatorDigest() digest} of the schema
+	 * validators.
+	 */
+	private final long schemaValidatorDigest;
 
 	/**
 	 * <p>
@@ -253,6 +379,11 @@ public final class ValidationController {
 			Collections.unmodifiableMap(builder.schemaValidators);
 		this.dataValidators =
 			Collections.unmodifiableMap(builder.dataValidators);
+		this.collectAllErrors = builder.collectAllErrors;
+		this.listener = builder.listener;
+		this.parallelExecutor = builder.parallelExecutor;
+		this.parallelThreshold = builder.parallelThreshold;
+		this.schemaValidatorDigest = digest(schemaValidators);
 	}
 
 	/**
@@ -308,6 +439,161 @@ public final class ValidationController {
 		}
 	}
 
+	/**
+	 * Compiles a schema into a {@link CompiledValidator}, which pre-resolves
+	 * the data validators for every node in the schema. Validating data with
+	 * the result is equivalent to calling {@link #validate(Schema, JsonNode)}
+	 * with the same schema, but it is cheaper when the same schema is used
+	 * many times.
+	 * 
+	 * @param schema
+	 *        The schema to compile. This should already have been
+	 *        {@link #validate(Schema) validated}.
+	 * 
+	 * @return The compiled validator for the schema.
+	 * 
+	 * @throws ConcordiaException
+	 *         The schema could not be compiled.
+	 */
+	public CompiledValidator compile(
+		final Schema schema)
+		throws ConcordiaException {
+
+		return new CompiledValidator(schema, this);
+	}
+
+	/**
+	 * Returns whether or not {@link CompiledValidator#check(JsonNode) checking
+	 * data} reports every violation rather than only the first.
+	 * 
+	 * @return Whether or not checking data reports every violation.
+	 */
+	public boolean isCollectAllErrors() {
+		return collectAllErrors;
+	}
+
+	/**
+	 * Returns the listener that observes data validation by
+	 * {@link CompiledValidator}s.
+	 * 
+	 * @return The listener or null if there is none.
+	 */
+	public ValidationListener getListener() {
+		return listener;
+	}
+
+	/**
+	 * Returns the executor used to validate large arrays in parallel.
+	 * 
+	 * @return The executor or null if arrays are validated by the calling
+	 *         thread.
+	 */
+	public Executor getParallelExecutor() {
+		return parallelExecutor;
+	}
+
+	/**
+	 * Returns the number of elements at which an array is validated in
+	 * parallel if there is a {@link #getParallelExecutor() parallel
+	 * executor}.
+	 * 
+	 * @return The threshold.
+	 */
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	/**
+	 * Returns a 64-bit digest of the classes of the schema validators and the
+	 * types of schema they were registered for. Controllers whose digests
+	 * are equal validate schemas with the same kinds of validators, so a
+	 * schema that one accepted would very likely be accepted by the other.
+	 * The digest is the same in every JVM, so it can be stored, e.g. in a
+	 * {@link name.jenkins.paul.john.concordia.schema.SchemaSnapshot}. It is
+	 * never zero.
+	 * 
+	 * @return The digest of the schema validators.
+	 */
+	public long getSchemaValidatorDigest() {
+		return schemaValidatorDigest;
+	}
+
+	/**
+	 * Returns the data validators that were registered for a specific type of
+	 * schema.
+	 * 
+	 * @param clazz
+	 *        The type of schema.
+	 * 
+	 * @return The data validators, in the order they were registered, or null
+	 *         if there are none.
+	 */
+	List<DataValidator<? extends Schema>> getDataValidators(
+		final Class<? extends Schema> clazz) {
+
+		return dataValidators.get(clazz);
+	}
+
+	/**
+	 * Computes the {@link #getSchemaValidatorDigest() digest} of some schema
+	 * validators.
+	 * 
+	 * @param validators
+	 *        The schema validators keyed by the type of schema they were
+	 *        registered for.
+	 * 
+	 * @return The digest.
+	 */
+	private static long digest(
+		final
+			Map<Class<? extends Schema>, List<SchemaValidator<? extends Schema>>>
+				validators) {
+
+		// The map's order is not stable, so the types are sorted by name.
+		Map<String, List<SchemaValidator<? extends Schema>>> byName =
+			new TreeMap<String, List<SchemaValidator<? extends Schema>>>();
+		for(Class<? extends Schema> type : validators.keySet()) {
+			byName.put(type.getName(), validators.get(type));
+		}
+
+		// FNV-1a over the names, with a separator after each.
+		long result = 0xCBF29CE484222325L;
+		for(Map.Entry<String, List<SchemaValidator<? extends Schema>>> entry :
+			byName.entrySet()) {
+
+			result = digest(result, entry.getKey());
+			for(SchemaValidator<? extends Schema> validator :
+				entry.getValue()) {
+
+				result = digest(result, validator.getClass().getName());
+			}
+			result = digest(result, "");
+		}
+		return (result == 0) ? 1 : result;
+	}
+
+	/**
+	 * Adds a name and a separator to an FNV-1a digest.
+	 * 
+	 * @param digest
+	 *        The digest so far.
+	 * 
+	 * @param name
+	 *        The name to add.
+	 * 
+	 * @return The digest with the name added.
+	 */
+	private static long digest(final long digest, final String name) {
+		long result = digest;
+		for(int i = 0; i < name.length(); i++) {
+			result ^= name.charAt(i);
+			result *= 0x100000001B3L;
+		}
+		// The separator is not a valid character in a class name.
+		result ^= ';';
+		return result * 0x100000001B3L;
+	}
+
 	/* (non-Javadoc)
 	 * @see java.lang.Object#hashCode()
 	 */
@@ -323,6 +609,16 @@ public final class ValidationController {
 			prime *
 				result +
 				((schemaValidators == null) ? 0 : schemaValidators.hashCode());
+		result = prime * result + (collectAllErrors ? 1231 : 1237);
+		result =
+			prime * result + ((listener == null) ? 0 : listener.hashCode());
+		result =
+			prime *
+				result +
+				((parallelExecutor == null) ?
+					0 :
+					parallelExecutor.hashCode());
+		result = prime * result + parallelThreshold;
 		return result;
 	}
 
@@ -357,6 +653,28 @@ public final class ValidationController {
 		else if(!schemaValidators.equals(other.schemaValidators)) {
 			return false;
 		}
+		if(collectAllErrors != other.collectAllErrors) {
+			return false;
+		}
+		if(listener == null) {
+			if(other.listener != null) {
+				return false;
+			}
+		}
+		else if(!listener.equals(other.listener)) {
+			return false;
+		}
+		if(parallelExecutor == null) {
+			if(other.parallelExecutor != null) {
+				return false;
+			}
+		}
+		else if(!parallelExecutor.equals(other.parallelExecutor)) {
+			return false;
+		}
+		if(parallelThreshold != other.parallelThreshold) {
+			return false;
+		}
 		return true;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+package name.jenkins.paul.john.concordia.validator;
+
+import com.fasterxml.jackson.core.JsonGenerationException;
+
+/**
+ * <p>
+ * The exception thrown by a
+ * {@link CompiledValidator#validatingGenerator(com.fasterxml.jackson.core.JsonGenerator)
+ * validating generator} when the data written to it does not conform to its
+ * schema. It is a {@link JsonGenerationException}, so it passes through any
+ * Jackson producer that writes to the generator unchanged.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public class ValidationGenerationException extends JsonGenerationException {
+	/**
+	 * The version of this exception class.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The violations that were found.
+	 */
+	private final transient ValidationResult result;
+
+	/**
+	 * Creates an exception for some violations.
+	 *
+	 * @param result
+	 *        The violations that were found.
+	 */
+	public ValidationGenerationException(final ValidationResult result) {
+		super(result.getMessage(), result.getException());
+
+		this.result = result;
+	}
+
+	/**
+	 * Returns the violations that were found.
+	 *
+	 * @return The violations that were found, in the order they were found.
+	 */
+	public ValidationResult getResult() {
+		return result;
+	}
+}
@@ -0,0 +1,80 @@
+package name.jenkins.paul.john.concordia.validator;
+
+import name.jenkins.paul.john.concordia.schema.Schema;
+
+/**
+ * <p>
+ * Observes data validation, e.g. to gather metrics. A listener is given to
+ * {@link ValidationController.Builder#setListener(ValidationListener)}, and
+ * every {@link CompiledValidator} built by that controller reports to it.
+ * </p>
+ *
+ * <p>
+ * Each value is identified by its schema path, which is the location of its
+ * schema in terms of the data, written as a JSON Pointer: the root is the
+ * empty string, object fields are their name, constant-length array indices
+ * are their index, and the elements of a constant-type array are "*", e.g.
+ * "/readings/*&#47;value". A schema that is referenced from multiple
+ * locations is reported under each location that reaches it, so a schema
+ * that refers to itself is reported under a longer path at each depth.
+ * </p>
+ *
+ * <p>
+ * Listeners are called from every thread that validates data, so they must
+ * be thread-safe, and they are called for every value, so they should be
+ * cheap.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public interface ValidationListener {
+	/**
+	 * Called after a value has been checked against its schema, including
+	 * all of its children.
+	 *
+	 * @param path
+	 *        The schema path of the value.
+	 *
+	 * @param schema
+	 *        The schema of the value.
+	 *
+	 * @param passed
+	 *        Whether or not the value conformed to its schema.
+	 */
+	public abstract void valueChecked(
+		final String path,
+		final Schema schema,
+		final boolean passed);
+
+	/**
+	 * Called after a custom {@link DataValidator} has been run. The required
+	 * validators are not reported, as their work is part of checking each
+	 * value.
+	 *
+	 * @param validator
+	 *        The validator that was run.
+	 *
+	 * @param schema
+	 *        The schema it was given.
+	 *
+	 * @param nanos
+	 *        The number of nanoseconds it ran for.
+	 */
+	public abstract void validatorCompleted(
+		final DataValidator<? extends Schema> validator,
+		final Schema schema,
+		final long nanos);
+
+	/**
+	 * Called after an entire document has been validated.
+	 *
+	 * @param nanos
+	 *        The number of nanoseconds validation took.
+	 *
+	 * @param passed
+	 *        Whether or not the document was valid.
+	 */
+	public abstract void documentCompleted(
+		final long nanos,
+		final boolean passed);
+}
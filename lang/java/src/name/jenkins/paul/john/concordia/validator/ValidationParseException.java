@@ -0,0 +1,54 @@
+package name.jenkins.paul.john.concordia.validator;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParseException;
+
+/**
+ * <p>
+ * The exception thrown by a
+ * {@link CompiledValidator#validatingParser(com.fasterxml.jackson.core.JsonParser)
+ * validating parser} when the data it has read does not conform to its
+ * schema. It is a {@link JsonParseException}, so it passes through any
+ * Jackson consumer of the parser unchanged.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public class ValidationParseException extends JsonParseException {
+	/**
+	 * The version of this exception class.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The violations that were found.
+	 */
+	private final transient ValidationResult result;
+
+	/**
+	 * Creates an exception for some violations.
+	 *
+	 * @param result
+	 *        The violations that were found.
+	 *
+	 * @param location
+	 *        The location of the token at which the violations were found.
+	 */
+	public ValidationParseException(
+		final ValidationResult result,
+		final JsonLocation location) {
+
+		super(result.getMessage(), location, result.getException());
+
+		this.result = result;
+	}
+
+	/**
+	 * Returns the violations that were found.
+	 *
+	 * @return The violations that were found, in the order they were found.
+	 */
+	public ValidationResult getResult() {
+		return result;
+	}
+}
@@ -0,0 +1,184 @@
+package name.jenkins.paul.john.concordia.validator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.exception.InvalidDataException;
+
+/**
+ * <p>
+ * The outcome of checking some data against a schema without throwing an
+ * exception for invalid data.
+ * </p>
+ *
+ * <p>
+ * The details of a failure are not rendered until they are requested, so a
+ * caller that only needs {@link #isValid()} pays nothing for them.
+ * </p>
+ *
+ * <p>
+ * A result may hold more than one violation if it was created by a
+ * controller that {@link ValidationController#isCollectAllErrors() collects
+ * all errors}. In that case, {@link #getException()} and
+ * {@link #getMessage()} describe the first violation and
+ * {@link #getErrors()} returns all of them.
+ * </p>
+ *
+ * <p>
+ * This class is immutable.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public final class ValidationResult {
+	/**
+	 * The result for all valid data.
+	 */
+	public static final ValidationResult VALID =
+		new ValidationResult(
+			null,
+			Collections.<ConcordiaException>emptyList());
+
+	/**
+	 * The first reason the data was invalid or null if it was valid.
+	 */
+	private final ConcordiaException error;
+	/**
+	 * Every reason the data was invalid, which is empty if it was valid.
+	 */
+	private final List<ConcordiaException> errors;
+
+	/**
+	 * Creates a new result.
+	 *
+	 * @param error
+	 *        The first reason the data was invalid or null if it was valid.
+	 *
+	 * @param errors
+	 *        Every reason the data was invalid.
+	 */
+	private ValidationResult(
+		final ConcordiaException error,
+		final List<ConcordiaException> errors) {
+
+		this.error = error;
+		this.errors = errors;
+	}
+
+	/**
+	 * Creates a result for invalid data.
+	 *
+	 * @param error
+	 *        The reason the data was invalid.
+	 *
+	 * @return The result for the invalid data.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The error is null.
+	 */
+	public static ValidationResult invalid(
+		final ConcordiaException error)
+		throws IllegalArgumentException {
+
+		if(error == null) {
+			throw new IllegalArgumentException("The error is null.");
+		}
+
+		return new ValidationResult(error, Collections.singletonList(error));
+	}
+
+	/**
+	 * Creates a result for data with one or more violations.
+	 *
+	 * @param errors
+	 *        The violations in the order they were found.
+	 *
+	 * @return The result for the invalid data.
+	 *
+	 * @throws IllegalArgumentException
+	 *         The list of violations is null or empty.
+	 */
+	public static ValidationResult invalid(
+		final List<? extends ConcordiaException> errors)
+		throws IllegalArgumentException {
+
+		if((errors == null) || errors.isEmpty()) {
+			throw new IllegalArgumentException("The errors are empty.");
+		}
+
+		List<ConcordiaException> copy =
+			new ArrayList<ConcordiaException>(errors);
+		return
+			new ValidationResult(
+				copy.get(0),
+				Collections.unmodifiableList(copy));
+	}
+
+	/**
+	 * Returns whether or not the data was valid.
+	 *
+	 * @return Whether or not the data was valid.
+	 */
+	public boolean isValid() {
+		return error == null;
+	}
+
+	/**
+	 * Returns the reason the data was invalid.
+	 *
+	 * @return The reason the data was invalid or null if it was valid.
+	 */
+	public String getMessage() {
+		return (error == null) ? null : error.getMessage();
+	}
+
+	/**
+	 * Returns the exception describing why the data was invalid.
+	 *
+	 * @return The exception describing why the data was invalid or null if it
+	 *         was valid.
+	 */
+	public ConcordiaException getException() {
+		return error;
+	}
+
+	/**
+	 * Returns every violation that was found.
+	 *
+	 * @return Every violation in the order it was found, which is empty if
+	 *         the data was valid.
+	 */
+	public List<ConcordiaException> getErrors() {
+		return errors;
+	}
+
+	/**
+	 * Returns a string representation of this result.
+	 *
+	 * @return "valid" or each reason the data was invalid, on its own line
+	 *         and prefixed by its location if it is known.
+	 */
+	@Override
+	public String toString() {
+		if(error == null) {
+			return "valid";
+		}
+
+		StringBuilder builder = new StringBuilder();
+		for(ConcordiaException e : errors) {
+			if(builder.length() > 0) {
+				builder.append('\n');
+			}
+			if(e instanceof InvalidDataException) {
+				String pointer = ((InvalidDataException) e).getPointer();
+				if(pointer != null) {
+					builder.append(pointer).append(": ");
+				}
+			}
+			builder.append(e.getMessage());
+		}
+		return builder.toString();
+	}
+}
@@ -15,6 +15,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.reference.ReferenceCache;
 import name.jenkins.paul.john.concordia.schema.ArraySchema;
 import name.jenkins.paul.john.concordia.schema.BooleanSchema;
 import name.jenkins.paul.john.concordia.schema.NumberSchema;
@@ -25,6 +26,7 @@ import name.jenkins.paul.john.concordia.validator.CustomValidator;
 import name.jenkins.paul.john.concordia.validator.ValidationController;
 
 import org.junit.AfterClass;
+import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -128,6 +130,17 @@ public class ConcordiaTest {
 		server.shutdown();
 	}
 
+	/**
+	 * Discard any schemas that were cached from the server by another test.
+	 * Every test reuses the server's URL for different content, and so do
+	 * the steps of {@link #testReferences()}, which clear the cache each
+	 * time they change the response.
+	 */
+	@Before
+	public void clearCache() {
+		ReferenceCache.getInstance().clear();
+	}
+
 	/**
 	 * Tests the valid schemas to ensure that a proper object is created.
 	 */
@@ -270,6 +283,7 @@ public class ConcordiaTest {
 			.setResponse(
 				getFileContents(
 					"./test/definition/reference/base_remote.json"));
+		ReferenceCache.getInstance().clear();
 		try {
 			new Concordia(
 				new FileInputStream(
@@ -289,6 +303,7 @@ public class ConcordiaTest {
 		server
 			.setResponse(
 				getFileContents("./test/definition/reference/base_remote.json"));
+		ReferenceCache.getInstance().clear();
         try {
             new Concordia(
             	new FileInputStream(
@@ -309,6 +324,7 @@ public class ConcordiaTest {
 			.setResponse(
 				getFileContents(
 					"./test/definition/reference/object_extend_remote.json"));
+        ReferenceCache.getInstance().clear();
         try {
         	new Concordia(
             	new FileInputStream(
@@ -329,6 +345,7 @@ public class ConcordiaTest {
 			.setResponse(
 				getFileContents(
                     "./test/definition/reference/object_extend_remote_duplicate_name.json"));
+        ReferenceCache.getInstance().clear();
         try {
             new Concordia(
             	new FileInputStream(
@@ -350,6 +367,7 @@ public class ConcordiaTest {
 			.setResponse(
 				getFileContents(
                     "./test/definition/reference/object_extend_remote_not_object.json"));
+        ReferenceCache.getInstance().clear();
         try { 
             new Concordia(
             	new FileInputStream(
@@ -370,6 +388,7 @@ public class ConcordiaTest {
         server
 			.setResponse(
 				getFileContents("./test/definition/reference/base_remote.json"));
+        ReferenceCache.getInstance().clear();
         try { 
             new Concordia(
             	new FileInputStream(
@@ -389,6 +408,7 @@ public class ConcordiaTest {
         server
 			.setResponse(
 				getFileContents("./test/definition/reference/base_remote.json"));
+        ReferenceCache.getInstance().clear();
         try { 
             new Concordia(
             	new FileInputStream(
@@ -731,6 +751,14 @@ public class ConcordiaTest {
 							schema.toString() +
 							"').");
 				}
+				
+				// The data should also pass when it is streamed.
+				if(!passesStreaming(schema, dataFile)) {
+					fail(
+						"Valid data ('" +
+							dataFile.getAbsolutePath() +
+							"') failed streaming validation.");
+				}
 			}
 			// There is a bug in a test regarding the syntax of some data.
 			catch(JsonParseException e) {
@@ -768,8 +796,55 @@ public class ConcordiaTest {
 							"'): " +
 							e.toString());
 				}
+				
+				// The data should also fail when it is streamed.
+				if(passesStreaming(schema, dataFile)) {
+					fail(
+						"Invalid data ('" +
+							dataFile.getAbsolutePath() +
+							"') passed streaming validation.");
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Validates a data file by streaming it rather than reading it as a tree.
+	 * 
+	 * @param schema
+	 *        The schema to use to validate the data.
+	 * 
+	 * @param dataFile
+	 *        The data file.
+	 * 
+	 * @return Whether or not the data passed validation.
+	 */
+	@Ignore
+	private boolean passesStreaming(
+		final Concordia schema,
+		final File dataFile) {
+		
+		try {
+			FileInputStream input = new FileInputStream(dataFile);
+			try {
+				schema.validateData(input);
+				return true;
+			}
+			finally {
+				input.close();
 			}
 		}
+		catch(IOException e) {
+			fail(
+				"Error streaming the data file ('" +
+					dataFile.getAbsolutePath() +
+					"'): " +
+					e.toString());
+			return false;
+		}
+		catch(ConcordiaException e) {
+			return false;
+		}
 	}
 	
 	/**
@@ -0,0 +1,329 @@
+package name.jenkins.paul.john.concordia.codec;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import name.jenkins.paul.john.concordia.Concordia;
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.schema.ObjectSchema;
+import name.jenkins.paul.john.concordia.schema.Schema;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * <p>
+ * This class is responsible for testing the {@link BinaryCodec}.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public class BinaryCodecTest {
+	/**
+	 * <p>
+	 * A schema of a type that the codec does not know.
+	 * </p>
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class UnknownSchema extends Schema {
+		/**
+		 * The version of this class for serialization purposes.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Creates a new schema.
+		 *
+		 * @param name
+		 *        The name of this field.
+		 */
+		private UnknownSchema(final String name) {
+			super(null, false, name, null);
+		}
+
+		@Override
+		public String getType() {
+			return "unknown";
+		}
+
+		@Override
+		public List<Schema> getSubSchemas() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public Schema.Builder getBuilder() {
+			return null;
+		}
+	}
+
+	/**
+	 * The mapper to use to read the data.
+	 */
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	/**
+	 * The data directories that don't require a remote schema.
+	 */
+	private static final String[] DIRECTORIES = {
+		"./test/data/boolean/",
+		"./test/data/number/",
+		"./test/data/string/",
+		"./test/data/object/",
+		"./test/data/optional/",
+		"./test/data/const_length_array/",
+		"./test/data/const_type_array_boolean/",
+		"./test/data/const_type_array_number/",
+		"./test/data/const_type_array_string/",
+		"./test/data/const_type_array_object/",
+		"./test/data/const_type_array_array/"
+	};
+
+	/**
+	 * Test that every valid data file round-trips and that, altogether, they
+	 * are smaller than their JSON.
+	 */
+	@Test
+	public void testRoundTrip() throws ConcordiaException, IOException {
+		long binarySize = 0;
+		long jsonSize = 0;
+		for(String directory : DIRECTORIES) {
+			BinaryCodec codec =
+				new BinaryCodec(
+					new Concordia(
+						new FileInputStream(
+							new File(directory + "definition.json"))));
+
+			File[] files = (new File(directory + "valid")).listFiles();
+			for(File file : files) {
+				JsonNode data = MAPPER.readTree(file);
+				byte[] encoded = codec.encode(data);
+
+				JsonNode decoded = codec.decode(encoded);
+				if(data.isObject()) {
+					// Null optional fields are not decoded.
+					Assert.assertEquals(
+						file.getPath(),
+						MAPPER.readTree(
+							data.toString().replace(",\"optional\":null", "")
+								.replace("\"optional\":null", "")),
+						decoded);
+				}
+				else {
+					Assert.assertEquals(file.getPath(), data, decoded);
+				}
+				binarySize += encoded.length;
+				jsonSize += MAPPER.writeValueAsBytes(data).length;
+			}
+		}
+		Assert.assertTrue(binarySize < jsonSize);
+	}
+
+	/**
+	 * Test that numbers of every kind, many optional fields, and optional
+	 * array elements round-trip, including through a direct buffer.
+	 */
+	@Test
+	public void testEncoding() throws ConcordiaException, IOException {
+		StringBuilder schema =
+			new StringBuilder("{\"type\":\"object\",\"fields\":[");
+		for(int i = 0; i < 10; i++) {
+			schema
+				.append("{\"name\":\"f")
+				.append(i)
+				.append("\",\"type\":\"number\",\"optional\":true},");
+		}
+		schema
+			.append("{\"name\":\"n\",\"type\":\"array\",\"constType\":")
+			.append("{\"type\":\"number\",\"optional\":true}},")
+			.append("{\"name\":\"s\",\"type\":\"string\"}]}");
+		BinaryCodec codec = new BinaryCodec(new Concordia(schema.toString()));
+
+		JsonNode data =
+			MAPPER.readTree(
+				"{\"f0\":0,\"f3\":-1,\"f8\":9223372036854775807," +
+					"\"f9\":1.5," +
+					"\"n\":[1,null,-2147483649,123456789012345678901234567890]," +
+					"\"s\":\"café\"}");
+		Assert.assertEquals(data, codec.decode(codec.encode(data)));
+
+		// A direct buffer that is too small is left where it was.
+		ByteBuffer small = ByteBuffer.allocateDirect(8);
+		small.put((byte) 7);
+		try {
+			codec.encode(data, small);
+			Assert.fail("The data fit in a buffer that was too small.");
+		}
+		catch(BufferOverflowException e) {
+			Assert.assertEquals(1, small.position());
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocateDirect(256);
+		codec.encode(data, buffer);
+		codec.encode(data, buffer);
+		buffer.flip();
+		Assert.assertEquals(data, codec.decode(buffer));
+		Assert.assertEquals(data, codec.decode(buffer));
+		Assert.assertFalse(buffer.hasRemaining());
+
+		// Truncated data is rejected.
+		byte[] encoded = codec.encode(data);
+		byte[] truncated = new byte[encoded.length - 1];
+		System.arraycopy(encoded, 0, truncated, 0, truncated.length);
+		try {
+			codec.decode(truncated);
+			Assert.fail("Truncated data was decoded.");
+		}
+		catch(ConcordiaException e) {
+			// Expected.
+		}
+
+		// A missing required field is rejected.
+		try {
+			codec.encode(MAPPER.readTree("{\"n\":[]}"));
+			Assert.fail("A missing required field was encoded.");
+		}
+		catch(ConcordiaException e) {
+			// Expected.
+		}
+	}
+
+	/**
+	 * Test that a schema of an unknown type is rejected, whether it is the
+	 * root or is only reached while encoding.
+	 */
+	@Test
+	public void testUnknownType() throws ConcordiaException, IOException {
+		try {
+			new BinaryCodec(new UnknownSchema(null));
+			Assert.fail("A schema of an unknown type was accepted.");
+		}
+		catch(ConcordiaException e) {
+			// Expected.
+		}
+
+		BinaryCodec codec =
+			new BinaryCodec(
+				new ObjectSchema(
+					null,
+					false,
+					null,
+					Arrays.<Schema>asList(new UnknownSchema("x"))));
+		try {
+			codec.encode(MAPPER.readTree("{\"x\":1}"));
+			Assert.fail("A schema of an unknown type was encoded.");
+		}
+		catch(ConcordiaException e) {
+			// Expected.
+		}
+		try {
+			codec.decode(new byte[0]);
+			Assert.fail("A schema of an unknown type was decoded.");
+		}
+		catch(ConcordiaException e) {
+			// Expected.
+		}
+	}
+
+	/**
+	 * Test that an array's length is not trusted beyond what the encoded data
+	 * could hold.
+	 */
+	@Test
+	public void testArrayLength() throws ConcordiaException, IOException {
+		// A length of 2^31 - 1 followed by a single element.
+		byte[] encoded =
+			{ (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0x01 };
+
+		BinaryCodec booleans =
+			new BinaryCodec(
+				new Concordia(
+					"{\"type\":\"array\",\"constType\":" +
+						"{\"type\":\"boolean\"}}"));
+		try {
+			booleans.decode(encoded);
+			Assert.fail("An array longer than its data was decoded.");
+		}
+		catch(ConcordiaException e) {
+			// Expected.
+		}
+
+		// Empty elements cannot be bounded by the data, so they are bounded
+		// by a fixed limit.
+		BinaryCodec empty =
+			new BinaryCodec(
+				new Concordia(
+					"{\"type\":\"array\",\"constType\":" +
+						"{\"type\":\"array\",\"constLength\":[]}}"));
+		try {
+			empty.decode(new byte[] { (byte) 0xFF, (byte) 0xFF, 0x7F });
+			Assert.fail("An array of empty elements was too long.");
+		}
+		catch(ConcordiaException e) {
+			// Expected.
+		}
+		Assert.assertEquals(3, empty.decode(new byte[] { 0x03 }).size());
+	}
+
+	/**
+	 * Test that a string whose length is negative is rejected, including
+	 * the strings that hold big numbers.
+	 */
+	@Test
+	public void testStringLength() throws ConcordiaException, IOException {
+		// A length of -1, i.e. a varint with all 64 bits set. Each schema is
+		// a single value in an array with a constant length, which has no
+		// header of its own.
+		byte[] length =
+			{
+				(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+				(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+				(byte) 0xFF, 0x01
+			};
+
+		BinaryCodec strings =
+			new BinaryCodec(
+				new Concordia(
+					"{\"type\":\"array\",\"constLength\":[" +
+						"{\"type\":\"string\"}]}"));
+		try {
+			strings.decode(length);
+			Assert.fail("A string with a negative length was decoded.");
+		}
+		catch(ConcordiaException e) {
+			// Expected.
+		}
+
+		BinaryCodec numbers =
+			new BinaryCodec(
+				new Concordia(
+					"{\"type\":\"array\",\"constLength\":[" +
+						"{\"type\":\"number\"}]}"));
+		for(int kind :
+			new int[] {
+				BinaryCodec.NUMBER_BIG_INTEGER,
+				BinaryCodec.NUMBER_DECIMAL }) {
+
+			byte[] encoded = new byte[length.length + 1];
+			encoded[0] = (byte) ((kind << 1) | 1);
+			System.arraycopy(length, 0, encoded, 1, length.length);
+			try {
+				numbers.decode(encoded);
+				Assert.fail("A number with a negative length was decoded.");
+			}
+			catch(ConcordiaException e) {
+				// Expected.
+			}
+		}
+	}
+}
@@ -0,0 +1,288 @@
+package name.jenkins.paul.john.concordia.metrics;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import name.jenkins.paul.john.concordia.Concordia;
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.reference.ReferenceResolver;
+import name.jenkins.paul.john.concordia.schema.NumberSchema;
+import name.jenkins.paul.john.concordia.validator.DataValidator;
+import name.jenkins.paul.john.concordia.validator.ValidationController;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * <p>
+ * This class is responsible for testing the metrics that are gathered by a
+ * {@link ValidationMetrics} listener.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public class ValidationMetricsTest {
+	/**
+	 * <p>
+	 * A resolver that serves the referenced schemas from memory.
+	 * </p>
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class TestResolver implements ReferenceResolver {
+		/*
+		 * (non-Javadoc)
+		 * @see name.jenkins.paul.john.concordia.reference.ReferenceResolver#resolve(java.net.URL)
+		 */
+		@Override
+		public InputStream resolve(final URL reference) throws IOException {
+			String name = reference.getPath();
+			if(name.endsWith("/point.json")) {
+				return
+					new ByteArrayInputStream(
+						("{\"type\":\"object\",\"fields\":[" +
+							"{\"name\":\"x\",\"type\":\"number\"}]}")
+							.getBytes());
+			}
+			else if(name.endsWith("/base.json")) {
+				return
+					new ByteArrayInputStream(
+						("{\"type\":\"object\",\"fields\":[" +
+							"{\"name\":\"y\",\"type\":\"number\"}]}")
+							.getBytes());
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * The mapper to use to read the data.
+	 */
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	/**
+	 * The schema to validate against.
+	 */
+	private static final String SCHEMA =
+		"{\"type\":\"object\",\"fields\":[" +
+			"{\"name\":\"a\",\"type\":\"number\"}," +
+			"{\"name\":\"arr\",\"type\":\"array\"," +
+				"\"constType\":{\"type\":\"number\"}}]}";
+
+	/**
+	 * Test that values, validators, and documents are counted.
+	 */
+	@Test
+	public void testMetrics() throws ConcordiaException, IOException {
+		DataValidator<NumberSchema> validator =
+			new DataValidator<NumberSchema>() {
+				@Override
+				public void validate(
+					final NumberSchema schema,
+					final JsonNode data,
+					final ValidationController controller) {
+
+					// Accept everything.
+				}
+			};
+
+		ValidationMetrics metrics = new ValidationMetrics();
+		ValidationController.Builder builder =
+			new ValidationController.Builder();
+		builder.addDataValidator(NumberSchema.class, validator);
+		builder.setListener(metrics);
+		Concordia concordia = load(builder.build());
+
+		concordia.validateData(MAPPER.readTree("{\"a\":1,\"arr\":[1,2]}"));
+		try {
+			concordia.validateData(MAPPER.readTree("{\"a\":\"x\",\"arr\":[]}"));
+			Assert.fail("Invalid data was accepted.");
+		}
+		catch(ConcordiaException e) {
+			// Pass.
+		}
+
+		assertPath(metrics, "", 2, 1);
+		assertPath(metrics, "/a", 2, 1);
+		assertPath(metrics, "/arr", 1, 0);
+		assertPath(metrics, "/arr/*", 2, 0);
+
+		Assert.assertEquals(
+			4,
+			metrics.getValidators().get(validator).getCount());
+		Assert.assertEquals(2, metrics.getDocuments().getCount());
+		Assert.assertEquals(1, metrics.getFailedDocuments());
+	}
+
+	/**
+	 * Test that values are counted when data is streamed.
+	 */
+	@Test
+	public void testStreaming() throws ConcordiaException, IOException {
+		ValidationMetrics metrics = new ValidationMetrics();
+		ValidationController.Builder builder =
+			new ValidationController.Builder();
+		builder.setListener(metrics);
+		Concordia concordia = load(builder.build());
+
+		concordia.validateData("{\"a\":1,\"arr\":[1,2,3]}".getBytes());
+		try {
+			concordia.validateData("{\"a\":1,\"arr\":[1,\"x\"]}".getBytes());
+			Assert.fail("Invalid data was accepted.");
+		}
+		catch(ConcordiaException e) {
+			// Pass.
+		}
+
+		assertPath(metrics, "", 2, 1);
+		assertPath(metrics, "/arr", 2, 1);
+		assertPath(metrics, "/arr/*", 5, 1);
+		Assert.assertEquals(1, metrics.getFailedDocuments());
+	}
+
+	/**
+	 * Test that a schema that is referenced from multiple locations is
+	 * counted under each of them, whether the data is a tree or is streamed.
+	 */
+	@Test
+	public void testReferences() throws ConcordiaException, IOException {
+		String prefix = "http://example.invalid/";
+		String schema =
+			"{\"type\":\"object\",\"fields\":[" +
+				"{\"$ref\":\"" + prefix + "base.json\"}," +
+				"{\"name\":\"a\",\"$ref\":\"" + prefix + "point.json\"}," +
+				"{\"name\":\"b\",\"$ref\":\"" + prefix + "point.json\"}]}";
+
+		ValidationMetrics metrics = new ValidationMetrics();
+		ValidationController.Builder builder =
+			new ValidationController.Builder();
+		builder.setListener(metrics);
+		Concordia concordia =
+			new Concordia(
+				new ByteArrayInputStream(schema.getBytes()),
+				builder.build(),
+				new TestResolver());
+
+		String data = "{\"y\":2,\"a\":{\"x\":1},\"b\":{\"x\":\"x\"}}";
+		for(int i = 0; i < 2; i++) {
+			try {
+				if(i == 0) {
+					concordia.validateData(MAPPER.readTree(data));
+				}
+				else {
+					concordia.validateData(data.getBytes());
+				}
+				Assert.fail("Invalid data was accepted.");
+			}
+			catch(ConcordiaException e) {
+				// Pass.
+			}
+		}
+
+		assertPath(metrics, "/a/x", 2, 0);
+		assertPath(metrics, "/b/x", 2, 2);
+		assertPath(metrics, "/y", 2, 0);
+	}
+
+	/**
+	 * Test that the histogram's percentiles are the upper bounds of their
+	 * buckets.
+	 */
+	@Test
+	public void testHistogram() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for(long nanos : new long[] { 0, 1, 2, 3, 1000 }) {
+			histogram.record(nanos);
+		}
+
+		Assert.assertEquals(5, histogram.getCount());
+		Assert.assertEquals(1006, histogram.getTotalNanos());
+		Assert.assertEquals(0, histogram.getPercentile(0));
+		Assert.assertEquals(3, histogram.getPercentile(50));
+		Assert.assertEquals(1023, histogram.getPercentile(100));
+	}
+
+	/**
+	 * Test that concurrent increments are not lost.
+	 */
+	@Test
+	public void testStripedCounter() throws InterruptedException {
+		final StripedCounter counter = new StripedCounter();
+		final int increments = 10000;
+		int threads = 8;
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		for(int i = 0; i < threads; i++) {
+			executor.execute(
+				new Runnable() {
+					@Override
+					public void run() {
+						for(int j = 0; j < increments; j++) {
+							counter.increment();
+						}
+					}
+				});
+		}
+		executor.shutdown();
+		Assert.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+		Assert.assertEquals(threads * increments, counter.get());
+	}
+
+	/**
+	 * Builds the Concordia object for the schema.
+	 *
+	 * @param controller
+	 *        The controller to use.
+	 *
+	 * @return The Concordia object.
+	 */
+	@Ignore
+	private static Concordia load(
+		final ValidationController controller)
+		throws ConcordiaException, IOException {
+
+		return
+			new Concordia(
+				new ByteArrayInputStream(SCHEMA.getBytes()),
+				controller);
+	}
+
+	/**
+	 * Asserts the counts for a schema path.
+	 *
+	 * @param metrics
+	 *        The metrics.
+	 *
+	 * @param path
+	 *        The schema path.
+	 *
+	 * @param checked
+	 *        The expected number of values that were checked.
+	 *
+	 * @param failed
+	 *        The expected number of values that failed.
+	 */
+	@Ignore
+	private static void assertPath(
+		final ValidationMetrics metrics,
+		final String path,
+		final long checked,
+		final long failed) {
+
+		ValidationMetrics.PathMetrics counts = metrics.getPath(path);
+		Assert.assertNotNull(path, counts);
+		Assert.assertEquals(path, checked, counts.getChecked());
+		Assert.assertEquals(path, failed, counts.getFailed());
+		Assert.assertEquals(path, checked - failed, counts.getPassed());
+	}
+}
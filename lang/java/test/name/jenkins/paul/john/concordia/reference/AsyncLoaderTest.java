@@ -0,0 +1,216 @@
+package name.jenkins.paul.john.concordia.reference;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import name.jenkins.paul.john.concordia.Concordia;
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * <p>
+ * This class is responsible for testing that schemas are loaded with their
+ * references fetched concurrently.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public class AsyncLoaderTest {
+	/**
+	 * <p>
+	 * A resolver that serves schemas from memory and counts its fetches. The
+	 * fetches of "a" and "b" each wait for the other to start, so they can
+	 * only succeed if they are run concurrently.
+	 * </p>
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class TestResolver implements ReferenceResolver {
+		/**
+		 * The schemas keyed by their URL.
+		 */
+		private final Map<String, String> schemas =
+			new HashMap<String, String>();
+		/**
+		 * The number of times each schema was fetched.
+		 */
+		private final Map<String, AtomicInteger> counts =
+			new ConcurrentHashMap<String, AtomicInteger>();
+		/**
+		 * Counted down when either "a" or "b" starts being fetched.
+		 */
+		private final CountDownLatch started = new CountDownLatch(2);
+
+		/*
+		 * (non-Javadoc)
+		 * @see name.jenkins.paul.john.concordia.reference.ReferenceResolver#resolve(java.net.URL)
+		 */
+		@Override
+		public InputStream resolve(final URL reference) throws IOException {
+			String url = reference.toString();
+			String schema = schemas.get(url);
+			if(schema == null) {
+				return null;
+			}
+
+			AtomicInteger count = counts.get(url);
+			if(count == null) {
+				counts.put(url, new AtomicInteger(1));
+			}
+			else {
+				count.incrementAndGet();
+			}
+
+			if(url.endsWith("/a") || url.endsWith("/b")) {
+				started.countDown();
+				try {
+					if(!started.await(10, TimeUnit.SECONDS)) {
+						throw new IOException("The fetches were sequential.");
+					}
+				}
+				catch(InterruptedException e) {
+					throw new IOException("Interrupted.");
+				}
+			}
+
+			return new ByteArrayInputStream(schema.getBytes());
+		}
+	}
+
+	/**
+	 * The prefix of the URLs of the schemas.
+	 */
+	private static final String PREFIX = "http://example.invalid/";
+
+	/**
+	 * Test that references are fetched concurrently and only once each.
+	 */
+	@Test
+	public void testLoadAsync() throws Exception {
+		TestResolver resolver = new TestResolver();
+		resolver.schemas.put(PREFIX + "a", object(field("c", PREFIX + "c")));
+		resolver.schemas.put(PREFIX + "b", object(field("c", PREFIX + "c")));
+		resolver.schemas
+			.put(PREFIX + "c", "{\"type\":\"array\",\"constType\":" +
+				"{\"type\":\"number\"}}");
+
+		byte[] root =
+			object(
+				field("a", PREFIX + "a") + "," +
+				field("b", PREFIX + "b")).getBytes();
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Concordia concordia =
+				Concordia
+					.loadAsync(
+						new ByteArrayInputStream(root),
+						null,
+						resolver,
+						executor)
+					.get(30, TimeUnit.SECONDS);
+
+			concordia
+				.validateData(
+					(new ObjectMapper())
+						.readTree(
+							"{\"a\":{\"c\":[1]},\"b\":{\"c\":[2,3]}}"));
+
+			for(String url : new String[] { "a", "b", "c" }) {
+				Assert.assertEquals(
+					url,
+					1,
+					resolver.counts.get(PREFIX + url).get());
+			}
+
+			// The fetched schemas were cached under the given resolver, so
+			// loading the same schema directly is equal and fetches nothing.
+			Assert
+				.assertEquals(
+					new Concordia(
+						new ByteArrayInputStream(root),
+						null,
+						resolver),
+					concordia);
+			for(String url : new String[] { "a", "b", "c" }) {
+				Assert.assertEquals(
+					url,
+					1,
+					resolver.counts.get(PREFIX + url).get());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Test that a missing reference fails the load.
+	 */
+	@Test
+	public void testMissingReference() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Concordia
+				.loadAsync(
+					new ByteArrayInputStream(
+						object(field("a", PREFIX + "missing")).getBytes()),
+					null,
+					new TestResolver(),
+					executor)
+				.get(30, TimeUnit.SECONDS);
+			Assert.fail("A missing reference was loaded.");
+		}
+		catch(ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof ConcordiaException);
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Builds an object schema.
+	 *
+	 * @param fields
+	 *        The fields of the object.
+	 *
+	 * @return The object schema.
+	 */
+	@Ignore
+	private static String object(final String fields) {
+		return "{\"type\":\"object\",\"fields\":[" + fields + "]}";
+	}
+
+	/**
+	 * Builds a field that refers to another schema.
+	 *
+	 * @param name
+	 *        The name of the field.
+	 *
+	 * @param reference
+	 *        The URL of the schema.
+	 *
+	 * @return The field.
+	 */
+	@Ignore
+	private static String field(final String name, final String reference) {
+		return "{\"name\":\"" + name + "\",\"$ref\":\"" + reference + "\"}";
+	}
+}
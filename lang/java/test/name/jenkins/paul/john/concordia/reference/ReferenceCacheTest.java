@@ -0,0 +1,229 @@
+package name.jenkins.paul.john.concordia.reference;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.schema.Schema;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * <p>
+ * This class is responsible for testing the {@link ReferenceCache}.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public class ReferenceCacheTest {
+	/**
+	 * The directory that holds the schemas.
+	 */
+	private static File directory;
+
+	/**
+	 * Create the schemas.
+	 */
+	@BeforeClass
+	public static void init() throws IOException {
+		directory = File.createTempFile("concordia", "");
+		directory.delete();
+		directory.mkdir();
+
+		write(
+			"a.json",
+			"{\"type\":\"object\",\"fields\":[" +
+				"{\"name\":\"a\",\"type\":\"number\"}]}");
+		write(
+			"b.json",
+			"{\"type\":\"array\",\"constType\":{\"type\":\"string\"}}");
+	}
+
+	/**
+	 * Delete the schemas.
+	 */
+	@AfterClass
+	public static void shutdown() {
+		for(File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	/**
+	 * Test that different spellings of the same URL share one entry.
+	 */
+	@Test
+	public void testNormalizedKey() throws ConcordiaException, IOException {
+		ReferenceCache cache = new ReferenceCache(10, 60000);
+
+		Schema first = cache.get(getUrl("a.json"));
+		Schema second =
+			cache
+				.get(
+					new URL(
+						"FILE",
+						"",
+						directory.getAbsolutePath() +
+							"/./sub/../a.json"));
+
+		Assert.assertSame(first, second);
+		Assert.assertEquals(1, cache.size());
+	}
+
+	/**
+	 * Test that the least recently used schema is evicted.
+	 */
+	@Test
+	public void testEviction() throws ConcordiaException, IOException {
+		ReferenceCache cache = new ReferenceCache(1, 60000);
+
+		write(
+			"evicted.json",
+			"{\"type\":\"array\",\"constType\":" +
+				"{\"type\":\"number\"}}");
+		Schema evicted = cache.get(getUrl("evicted.json"));
+		cache.get(getUrl("b.json"));
+
+		// Identical schemas are interned, so the schema is changed to show
+		// that it was read again.
+		Assert.assertEquals(1, cache.size());
+		write(
+			"evicted.json",
+			"{\"type\":\"array\",\"constType\":" +
+				"{\"type\":\"boolean\"}}");
+		Assert
+			.assertFalse(evicted.equals(cache.get(getUrl("evicted.json"))));
+	}
+
+	/**
+	 * Test that expired schemas are read again.
+	 */
+	@Test
+	public void testExpiration()
+		throws ConcordiaException, IOException, InterruptedException {
+
+		ReferenceCache cache = new ReferenceCache(10, 1);
+
+		write(
+			"expired.json",
+			"{\"type\":\"array\",\"constType\":" +
+				"{\"type\":\"number\"}}");
+		Schema expired = cache.get(getUrl("expired.json"));
+		Thread.sleep(10);
+
+		// Identical schemas are interned, so the schema is changed to show
+		// that it was read again.
+		write(
+			"expired.json",
+			"{\"type\":\"array\",\"constType\":" +
+				"{\"type\":\"boolean\"}}");
+		Assert
+			.assertFalse(expired.equals(cache.get(getUrl("expired.json"))));
+	}
+
+	/**
+	 * Test that failures are not cached.
+	 */
+	@Test
+	public void testFailureNotCached() throws IOException {
+		ReferenceCache cache = new ReferenceCache(10, 60000);
+
+		try {
+			cache.get(getUrl("missing.json"));
+			Assert.fail("A missing schema was read.");
+		}
+		catch(ConcordiaException e) {
+			// Pass.
+		}
+
+		Assert.assertEquals(0, cache.size());
+	}
+
+	/**
+	 * Test that concurrent requests for the same schema share one result.
+	 */
+	@Test
+	public void testCoalescing() throws Exception {
+		final ReferenceCache cache = new ReferenceCache(10, 60000);
+		final URL url = getUrl("b.json");
+		final CountDownLatch start = new CountDownLatch(1);
+
+		int threads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Schema>> results = new ArrayList<Future<Schema>>();
+			for(int i = 0; i < threads; i++) {
+				results
+					.add(
+						executor.submit(
+							new Callable<Schema>() {
+								@Override
+								public Schema call() throws Exception {
+									start.await();
+									return cache.get(url);
+								}
+							}));
+			}
+			start.countDown();
+
+			Schema first = results.get(0).get();
+			for(Future<Schema> result : results) {
+				Assert.assertSame(first, result.get());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Writes a schema to the directory.
+	 *
+	 * @param name
+	 *        The file's name.
+	 *
+	 * @param contents
+	 *        The schema.
+	 */
+	@Ignore
+	private static void write(
+		final String name,
+		final String contents)
+		throws IOException {
+
+		FileWriter writer = new FileWriter(new File(directory, name));
+		try {
+			writer.write(contents);
+		}
+		finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Returns the URL for a schema in the directory.
+	 *
+	 * @param name
+	 *        The file's name.
+	 *
+	 * @return The URL for the schema.
+	 */
+	@Ignore
+	private static URL getUrl(final String name) throws IOException {
+		return new File(directory, name).toURI().toURL();
+	}
+}
@@ -0,0 +1,290 @@
+package name.jenkins.paul.john.concordia.reference;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import name.jenkins.paul.john.concordia.Concordia;
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.schema.ReferenceSchema;
+import name.jenkins.paul.john.concordia.schema.Schema;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * <p>
+ * This class is responsible for testing the built-in
+ * {@link ReferenceResolver}s.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public class ReferenceResolverTest {
+	/**
+	 * The prefix of the URLs of the schemas.
+	 */
+	private static final String PREFIX = "http://example.invalid/schemas/";
+
+	/**
+	 * A schema that refers to the remote schema.
+	 */
+	private static final String LOCAL =
+		"{\"type\":\"object\",\"fields\":[" +
+			"{\"name\":\"person\",\"$ref\":\"" + PREFIX + "person.json\"}]}";
+
+	/**
+	 * The remote schema.
+	 */
+	private static final String REMOTE =
+		"{\"type\":\"object\",\"fields\":[" +
+			"{\"name\":\"age\",\"type\":\"number\"}]}";
+
+	/**
+	 * The mapper to use to read the data.
+	 */
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	/**
+	 * The directory that holds the remote schema.
+	 */
+	private static File directory;
+	/**
+	 * The catalog that holds the remote schema.
+	 */
+	private static File catalog;
+
+	/**
+	 * Create the remote schema in a directory and a catalog.
+	 */
+	@BeforeClass
+	public static void init() throws IOException {
+		directory = File.createTempFile("concordia", "");
+		directory.delete();
+		directory.mkdir();
+
+		File schemas = new File(directory, "schemas");
+		schemas.mkdir();
+		FileWriter writer = new FileWriter(new File(schemas, "person.json"));
+		try {
+			writer.write(REMOTE);
+		}
+		finally {
+			writer.close();
+		}
+
+		catalog = File.createTempFile("concordia", ".zip");
+		ZipOutputStream zip =
+			new ZipOutputStream(new FileOutputStream(catalog));
+		try {
+			zip.putNextEntry(new ZipEntry("a/person.json"));
+			zip.write(REMOTE.getBytes());
+			zip.closeEntry();
+
+			zip.putNextEntry(new ZipEntry(CatalogReferenceResolver.INDEX_ENTRY));
+			zip.write(("a/person.json=" + PREFIX + "person.json").getBytes());
+			zip.closeEntry();
+		}
+		finally {
+			zip.close();
+		}
+	}
+
+	/**
+	 * Delete the remote schemas.
+	 */
+	@AfterClass
+	public static void shutdown() {
+		new File(new File(directory, "schemas"), "person.json").delete();
+		new File(directory, "schemas").delete();
+		directory.delete();
+		catalog.delete();
+	}
+
+	/**
+	 * Test that references can be read from a directory.
+	 */
+	@Test
+	public void testDirectory() throws ConcordiaException, IOException {
+		ReferenceResolver resolver =
+			new DirectoryReferenceResolver(
+				PREFIX,
+				new File(directory, "schemas"));
+
+		assertResolves(resolver);
+	}
+
+	/**
+	 * Test that references can be read from the class path.
+	 */
+	@Test
+	public void testClasspath() throws ConcordiaException, IOException {
+		URLClassLoader classLoader =
+			new URLClassLoader(new URL[] { directory.toURI().toURL() });
+		ReferenceResolver resolver =
+			new ClasspathReferenceResolver(PREFIX, "schemas", classLoader);
+
+		assertResolves(resolver);
+	}
+
+	/**
+	 * Test that references can be read from a catalog.
+	 */
+	@Test
+	public void testCatalog() throws ConcordiaException, IOException {
+		CatalogReferenceResolver resolver =
+			new CatalogReferenceResolver(catalog);
+		try {
+			assertResolves(resolver);
+			Assert.assertNull(resolver.resolve(new URL(PREFIX + "other.json")));
+		}
+		finally {
+			resolver.close();
+		}
+	}
+
+	/**
+	 * Test that a composite uses the first resolver that knows the schema.
+	 */
+	@Test
+	public void testComposite() throws ConcordiaException, IOException {
+		ReferenceResolver resolver =
+			new CompositeReferenceResolver(
+				Arrays
+					.asList(
+						new DirectoryReferenceResolver(
+							"http://example.invalid/other/",
+							directory),
+						new DirectoryReferenceResolver(
+							PREFIX,
+							new File(directory, "schemas"))));
+
+		assertResolves(resolver);
+	}
+
+	/**
+	 * Test that references outside of the resolver's prefix or directory are
+	 * not read.
+	 */
+	@Test
+	public void testOutsideRoot() throws ConcordiaException, IOException {
+		ReferenceResolver resolver =
+			new DirectoryReferenceResolver(
+				PREFIX,
+				new File(directory, "schemas"));
+
+		Assert.assertNull(
+			resolver.resolve(new URL(PREFIX + "../person.json")));
+		Assert.assertNull(
+			resolver.resolve(new URL("http://example.invalid/person.json")));
+		Assert.assertNull(resolver.resolve(new URL(PREFIX + "missing.json")));
+
+		// The reference is only read when data reaches it.
+		Concordia concordia =
+			new Concordia(
+				new ByteArrayInputStream(
+					LOCAL.replace("person.json", "missing.json").getBytes()),
+				null,
+				resolver);
+		try {
+			concordia.validateData(MAPPER.readTree("{\"person\":{}}"));
+			Assert.fail("A missing reference was resolved.");
+		}
+		catch(ConcordiaException e) {
+			// Pass.
+		}
+	}
+
+	/**
+	 * Test that the prefix only matches whole path segments and that
+	 * percent-encoded paths are decoded.
+	 */
+	@Test
+	public void testPrefixPaths() throws IOException {
+		File schemas = new File(directory, "schemas");
+		ReferenceResolver resolver =
+			new DirectoryReferenceResolver(
+				PREFIX.substring(0, PREFIX.length() - 1),
+				schemas);
+
+		Assert.assertNull(
+			resolver
+				.resolve(
+					new URL("http://example.invalid/schemas-old/person.json")));
+		assertReadable(resolver.resolve(new URL(PREFIX + "person.json")));
+
+		File spaced = new File(schemas, "a b.json");
+		FileWriter writer = new FileWriter(spaced);
+		try {
+			writer.write(REMOTE);
+		}
+		finally {
+			writer.close();
+		}
+		try {
+			assertReadable(resolver.resolve(new URL(PREFIX + "a%20b.json")));
+			assertReadable(
+				resolver.resolve(new URL(PREFIX + "a%20b.json?v=1#x")));
+		}
+		finally {
+			spaced.delete();
+		}
+	}
+
+	/**
+	 * Asserts that a stream was opened and closes it.
+	 *
+	 * @param input
+	 *        The stream or null.
+	 */
+	@Ignore
+	private static void assertReadable(
+		final InputStream input)
+		throws IOException {
+
+		Assert.assertNotNull(input);
+		input.close();
+	}
+
+	/**
+	 * Asserts that a resolver can build and use the local schema.
+	 *
+	 * @param resolver
+	 *        The resolver to use.
+	 */
+	@Ignore
+	private static void assertResolves(
+		final ReferenceResolver resolver)
+		throws ConcordiaException, IOException {
+
+		InputStream input = new ByteArrayInputStream(LOCAL.getBytes());
+		Concordia concordia = new Concordia(input, null, resolver);
+
+		Schema field = concordia.getSchema().getSubSchemas().get(0);
+		Assert.assertTrue(field instanceof ReferenceSchema);
+		Assert.assertEquals(resolver, ((ReferenceSchema) field).getResolver());
+
+		concordia.validateData(MAPPER.readTree("{\"person\":{\"age\":1}}"));
+		try {
+			concordia
+				.validateData(MAPPER.readTree("{\"person\":{\"age\":\"a\"}}"));
+			Assert.fail("Invalid data was accepted.");
+		}
+		catch(ConcordiaException e) {
+			// Pass.
+		}
+	}
+}
@@ -0,0 +1,296 @@
+package name.jenkins.paul.john.concordia.reference;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import name.jenkins.paul.john.concordia.Concordia;
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * <p>
+ * This class is responsible for testing the {@link SchemaRegistry}.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public class SchemaRegistryTest {
+	/**
+	 * The prefix of the references to the schemas.
+	 */
+	private static final String PREFIX = "http://example.invalid/registry/";
+
+	/**
+	 * The directory that holds the schemas.
+	 */
+	private File directory;
+	/**
+	 * The registry being tested.
+	 */
+	private SchemaRegistry registry;
+
+	/**
+	 * Create the schemas and the registry.
+	 */
+	@Before
+	public void init() throws IOException {
+		directory = File.createTempFile("concordia", "");
+		directory.delete();
+		directory.mkdir();
+		new File(directory, "sub").mkdir();
+
+		write(
+			"a.json",
+			"{\"type\":\"object\",\"fields\":[" +
+				"{\"name\":\"b\",\"$ref\":\"" + PREFIX + "b.json\"}]}");
+		write(
+			"b.json",
+			"{\"type\":\"object\",\"fields\":[" +
+				"{\"name\":\"n\",\"type\":\"number\"}]}");
+		write(
+			"sub/c.json",
+			"{\"type\":\"array\",\"constType\":{\"type\":\"string\"}}");
+		write("ignored.txt", "Not a schema.");
+
+		registry = new SchemaRegistry(PREFIX, directory, null);
+	}
+
+	/**
+	 * Stop the registry and delete the schemas.
+	 */
+	@After
+	public void shutdown() {
+		registry.stop();
+		delete(directory);
+		ReferenceCache.getInstance().clear();
+	}
+
+	/**
+	 * Test that the schemas are loaded and that nothing is reloaded when
+	 * nothing has changed.
+	 */
+	@Test
+	public void testLoad() throws ConcordiaException, IOException {
+		Assert
+			.assertEquals(
+				new HashSet<String>(
+					Arrays.asList("a.json", "b.json", "sub/c.json")),
+				registry.getSchemas().keySet());
+		Assert.assertTrue(registry.getErrors().isEmpty());
+
+		registry.get("a.json").validateData("{\"b\":{\"n\":1}}".getBytes());
+		Assert.assertEquals(Collections.emptySet(), registry.refresh());
+	}
+
+	/**
+	 * Test that changing a schema reloads it and the schemas that refer to
+	 * it, and nothing else.
+	 */
+	@Test
+	public void testDependents() throws ConcordiaException, IOException {
+		Concordia c = registry.get("sub/c.json");
+
+		write(
+			"b.json",
+			"{\"type\":\"object\",\"fields\":[" +
+				"{\"name\":\"n\",\"type\":\"number\"}," +
+				"{\"name\":\"s\",\"type\":\"string\"}]}");
+		Assert
+			.assertEquals(
+				new HashSet<String>(Arrays.asList("a.json", "b.json")),
+				registry.refresh());
+		Assert.assertSame(c, registry.get("sub/c.json"));
+
+		try {
+			registry
+				.get("a.json")
+				.validateData("{\"b\":{\"n\":1}}".getBytes());
+			Assert.fail("The old version of the reference was used.");
+		}
+		catch(ConcordiaException e) {
+			// Pass.
+		}
+		registry
+			.get("a.json")
+			.validateData("{\"b\":{\"n\":1,\"s\":\"s\"}}".getBytes());
+	}
+
+	/**
+	 * Test that an edit that keeps the length and modification time is
+	 * found by the file's contents.
+	 */
+	@Test
+	public void testSameStamp() throws ConcordiaException, IOException {
+		File file = new File(directory, "b.json");
+		long modified = file.lastModified();
+		write(
+			"b.json",
+			"{\"type\":\"object\",\"fields\":[" +
+				"{\"name\":\"m\",\"type\":\"number\"}]}");
+		file.setLastModified(modified);
+
+		Assert
+			.assertEquals(
+				new HashSet<String>(Arrays.asList("a.json", "b.json")),
+				registry.refresh());
+		registry.get("a.json").validateData("{\"b\":{\"m\":1}}".getBytes());
+		Assert.assertEquals(Collections.emptySet(), registry.refresh());
+	}
+
+	/**
+	 * Test that a schema that cannot be loaded keeps its previous version
+	 * until it is fixed.
+	 */
+	@Test
+	public void testInvalid() throws ConcordiaException, IOException {
+		Concordia a = registry.get("a.json");
+		Concordia b = registry.get("b.json");
+
+		write("b.json", "{\"type\":\"object\"}");
+		Assert.assertEquals(Collections.emptySet(), registry.refresh());
+		Assert.assertSame(a, registry.get("a.json"));
+		Assert.assertSame(b, registry.get("b.json"));
+		Assert
+			.assertEquals(
+				new HashSet<String>(Arrays.asList("a.json", "b.json")),
+				registry.getErrors().keySet());
+
+		write(
+			"b.json",
+			"{\"type\":\"object\",\"fields\":[" +
+				"{\"name\":\"m\",\"type\":\"number\"}]}");
+		Assert
+			.assertEquals(
+				new HashSet<String>(Arrays.asList("a.json", "b.json")),
+				registry.refresh());
+		Assert.assertTrue(registry.getErrors().isEmpty());
+		registry.get("a.json").validateData("{\"b\":{\"m\":1}}".getBytes());
+	}
+
+	/**
+	 * Test that added and removed schemas are found.
+	 */
+	@Test
+	public void testAddedAndRemoved() throws IOException {
+		write(
+			"sub/d.json",
+			"{\"type\":\"array\",\"constType\":{\"type\":\"number\"}}");
+		new File(directory, "sub/c.json").delete();
+
+		Assert
+			.assertEquals(
+				new HashSet<String>(Arrays.asList("sub/c.json", "sub/d.json")),
+				registry.refresh());
+		Assert.assertNull(registry.get("sub/c.json"));
+		Assert.assertNotNull(registry.get("sub/d.json"));
+	}
+
+	/**
+	 * Test that percent-encoded references are matched to the files they
+	 * name.
+	 */
+	@Test
+	public void testEncodedReferences()
+		throws ConcordiaException, IOException {
+
+		write(
+			"sub/c d.json",
+			"{\"type\":\"object\",\"fields\":[" +
+				"{\"name\":\"n\",\"type\":\"number\"}]}");
+		write(
+			"e.json",
+			"{\"type\":\"object\",\"fields\":[" +
+				"{\"name\":\"c\",\"$ref\":\"" + PREFIX +
+					"sub/c%20d.json\"}]}");
+		Assert
+			.assertEquals(
+				new HashSet<String>(Arrays.asList("e.json", "sub/c d.json")),
+				registry.refresh());
+		Assert.assertTrue(registry.getErrors().isEmpty());
+
+		write(
+			"sub/c d.json",
+			"{\"type\":\"object\",\"fields\":[" +
+				"{\"name\":\"m\",\"type\":\"number\"}]}");
+		Assert
+			.assertEquals(
+				new HashSet<String>(Arrays.asList("e.json", "sub/c d.json")),
+				registry.refresh());
+		registry.get("e.json").validateData("{\"c\":{\"m\":1}}".getBytes());
+	}
+
+	/**
+	 * Test that polling finds changes.
+	 */
+	@Test
+	public void testPolling() throws IOException, InterruptedException {
+		Concordia c = registry.get("sub/c.json");
+		registry.start(10, TimeUnit.MILLISECONDS);
+		try {
+			registry.start(10, TimeUnit.MILLISECONDS);
+			Assert.fail("The directory was polled twice.");
+		}
+		catch(IllegalStateException e) {
+			// Pass.
+		}
+
+		write(
+			"sub/c.json",
+			"{\"type\":\"array\",\"constType\":{\"type\":\"boolean\"}}");
+		for(int i = 0; (i < 500) && (registry.get("sub/c.json") == c); i++) {
+			Thread.sleep(10);
+		}
+		Assert.assertNotSame(c, registry.get("sub/c.json"));
+	}
+
+	/**
+	 * Writes a schema to the directory.
+	 *
+	 * @param name
+	 *        The file's path relative to the directory.
+	 *
+	 * @param contents
+	 *        The schema.
+	 */
+	@Ignore
+	private void write(
+		final String name,
+		final String contents)
+		throws IOException {
+
+		FileWriter writer = new FileWriter(new File(directory, name));
+		try {
+			writer.write(contents);
+		}
+		finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Deletes a file or directory tree.
+	 *
+	 * @param file
+	 *        The file or directory.
+	 */
+	@Ignore
+	private static void delete(final File file) {
+		File[] children = file.listFiles();
+		if(children != null) {
+			for(File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
@@ -1,5 +1,6 @@
 package name.jenkins.paul.john.concordia.schema;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import name.jenkins.paul.john.concordia.exception.ConcordiaException;
@@ -152,4 +153,55 @@ public class ObjectSchemaTest {
 		Assert.assertEquals(fields.get(0), SchemaTest.TEST_NAME_OPTIONAL);
 		Assert.assertEquals(fields.get(1), SchemaTest.TEST_NAME_NOT_OPTIONAL);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Test that equal schemas have the same fingerprint and that schemas that
+	 * differ anywhere, including in a nested field or only in their type, do
+	 * not.
+	 * 
+	 * @throws ConcordiaException This should not be thrown.
+	 */
+	@Test
+	public void testFingerprint() throws ConcordiaException {
+		ObjectSchema schema =
+			new ObjectSchema(
+				SchemaTest.TEST_DOC,
+				false,
+				null,
+				SchemaTest.TEST_SCHEMA_LIST_BOTH);
+		ObjectSchema copy =
+			new ObjectSchema(
+				SchemaTest.TEST_DOC,
+				false,
+				null,
+				new ArrayList<Schema>(SchemaTest.TEST_SCHEMA_LIST_BOTH));
+		Assert.assertEquals(schema.fingerprint(), copy.fingerprint());
+		Assert.assertEquals(schema.hashCode(), copy.hashCode());
+		Assert.assertEquals(schema, copy);
+
+		List<Schema> fields =
+			new ArrayList<Schema>(SchemaTest.TEST_SCHEMA_LIST_BOTH);
+		fields
+			.set(
+				1,
+				new BooleanSchema(
+					"other",
+					SchemaTest.TEST_OPTIONAL_FALSE,
+					SchemaTest.TEST_NAME_NOT_OPTIONAL));
+		ObjectSchema nested =
+			new ObjectSchema(SchemaTest.TEST_DOC, false, null, fields);
+		Assert.assertFalse(schema.fingerprint() == nested.fingerprint());
+		Assert.assertFalse(schema.equals(nested));
+
+		Schema number =
+			new NumberSchema(
+				SchemaTest.TEST_DOC,
+				SchemaTest.TEST_OPTIONAL_TRUE,
+				SchemaTest.TEST_NAME_OPTIONAL);
+		Assert
+			.assertFalse(
+				SchemaTest.TEST_SCHEMA_OPTIONAL.fingerprint() ==
+					number.fingerprint());
+		Assert.assertFalse(SchemaTest.TEST_SCHEMA_OPTIONAL.equals(number));
+	}
+}
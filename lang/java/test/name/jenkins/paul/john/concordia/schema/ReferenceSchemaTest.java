@@ -0,0 +1,354 @@
+package name.jenkins.paul.john.concordia.schema;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.URL;
+
+import name.jenkins.paul.john.concordia.Concordia;
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.reference.DirectoryReferenceResolver;
+import name.jenkins.paul.john.concordia.reference.ReferenceCache;
+import name.jenkins.paul.john.concordia.reference.ReferenceResolver;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * <p>
+ * This class is responsible for testing everything specific to
+ * {@link ReferenceSchema}s, particularly schemas that refer to themselves.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public class ReferenceSchemaTest {
+	/**
+	 * The prefix of the URLs of the schemas.
+	 */
+	private static final String PREFIX = "http://example.invalid/schemas/";
+
+	/**
+	 * <p>
+	 * A resolver that does not override {@link Object#hashCode()}, so it is
+	 * only equal to itself.
+	 * </p>
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class IdentityResolver implements ReferenceResolver {
+		/*
+		 * (non-Javadoc)
+		 * @see name.jenkins.paul.john.concordia.reference.ReferenceResolver#resolve(java.net.URL)
+		 */
+		@Override
+		public InputStream resolve(final URL reference) {
+			return null;
+		}
+	}
+
+	/**
+	 * The directory that holds the schemas.
+	 */
+	private static File directory;
+	/**
+	 * The resolver that reads the schemas from the directory.
+	 */
+	private static ReferenceResolver resolver;
+
+	/**
+	 * Create the schemas.
+	 */
+	@BeforeClass
+	public static void init() throws ConcordiaException, IOException {
+		directory = File.createTempFile("concordia", "");
+		directory.delete();
+		directory.mkdir();
+
+		resolver = new DirectoryReferenceResolver(PREFIX, directory);
+
+		// A linked list.
+		write(
+			"list.json",
+			"{\"type\":\"object\",\"fields\":[" +
+				"{\"name\":\"value\",\"type\":\"number\"}," +
+				"{\"name\":\"next\",\"optional\":true," +
+					"\"$ref\":\"" + PREFIX + "list.json\"}]}");
+
+		// Arrays of arrays.
+		write(
+			"nested.json",
+			"{\"type\":\"array\",\"constType\":" +
+				"{\"$ref\":\"" + PREFIX + "nested.json\"}}");
+
+		// Two objects that refer to each other.
+		write(
+			"a.json",
+			"{\"type\":\"object\",\"fields\":[" +
+				"{\"name\":\"b\",\"optional\":true," +
+					"\"$ref\":\"" + PREFIX + "b.json\"}]}");
+		write(
+			"b.json",
+			"{\"type\":\"object\",\"fields\":[" +
+				"{\"name\":\"n\",\"type\":\"number\"}," +
+				"{\"name\":\"a\",\"optional\":true," +
+					"\"$ref\":\"" + PREFIX + "a.json\"}]}");
+
+		// Two objects that extend each other.
+		write(
+			"x.json",
+			"{\"type\":\"object\",\"fields\":[" +
+				"{\"$ref\":\"" + PREFIX + "y.json\"}]}");
+		write(
+			"y.json",
+			"{\"type\":\"object\",\"fields\":[" +
+				"{\"name\":\"y\",\"type\":\"number\"}," +
+				"{\"$ref\":\"" + PREFIX + "x.json\"}]}");
+	}
+
+	/**
+	 * Delete the schemas.
+	 */
+	@AfterClass
+	public static void shutdown() {
+		for(File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	/**
+	 * Start every test without any cached schemas.
+	 */
+	@Before
+	public void clearCache() {
+		ReferenceCache.getInstance().clear();
+	}
+
+	/**
+	 * Test that a schema may refer to itself.
+	 */
+	@Test
+	public void testSelfReference() throws ConcordiaException, IOException {
+		Concordia concordia = load("list.json");
+
+		concordia
+			.validateData(
+				"{\"value\":1,\"next\":{\"value\":2,\"next\":{\"value\":3}}}"
+					.getBytes());
+		try {
+			concordia
+				.validateData(
+					("{\"value\":1,\"next\":{\"value\":2," +
+						"\"next\":{\"value\":\"a\"}}}")
+						.getBytes());
+			Assert.fail("Invalid data was accepted.");
+		}
+		catch(ConcordiaException e) {
+			// Pass.
+		}
+	}
+
+	/**
+	 * Test that an array may refer to itself.
+	 */
+	@Test
+	public void testArraySelfReference()
+		throws ConcordiaException, IOException {
+
+		Concordia concordia = load("nested.json");
+
+		concordia.validateData("[[[],[[]]],[]]".getBytes());
+		try {
+			concordia.validateData("[[[],[[1]]],[]]".getBytes());
+			Assert.fail("Invalid data was accepted.");
+		}
+		catch(ConcordiaException e) {
+			// Pass.
+		}
+	}
+
+	/**
+	 * Test that schemas may refer to each other.
+	 */
+	@Test
+	public void testMutualReference() throws ConcordiaException, IOException {
+		Concordia concordia = load("a.json");
+
+		concordia
+			.validateData("{\"b\":{\"n\":1,\"a\":{\"b\":{\"n\":2}}}}".getBytes());
+		try {
+			concordia
+				.validateData(
+					"{\"b\":{\"n\":1,\"a\":{\"b\":{\"n\":\"a\"}}}}".getBytes());
+			Assert.fail("Invalid data was accepted.");
+		}
+		catch(ConcordiaException e) {
+			// Pass.
+		}
+	}
+
+	/**
+	 * Test that objects that extend each other are rejected.
+	 */
+	@Test(expected = ConcordiaException.class)
+	public void testExtensionCycle() throws ConcordiaException, IOException {
+		load("x.json");
+	}
+
+	/**
+	 * Test that references are not read until they are needed and are
+	 * compared by their normalized URL.
+	 */
+	@Test
+	public void testLazy() throws ConcordiaException, IOException {
+		ReferenceSchema first =
+			new ReferenceSchema(
+				null,
+				false,
+				"a",
+				new URL(PREFIX + "missing.json"),
+				resolver);
+		ReferenceSchema second =
+			new ReferenceSchema(
+				null,
+				false,
+				"a",
+				new URL("HTTP://EXAMPLE.invalid/schemas/x/../missing.json"),
+				resolver);
+
+		Assert.assertEquals(first, second);
+		Assert.assertEquals(first.hashCode(), second.hashCode());
+
+		try {
+			first.getSchema();
+			Assert.fail("A missing schema was read.");
+		}
+		catch(ConcordiaException e) {
+			// Pass.
+		}
+	}
+
+	/**
+	 * Test that a reference's fingerprint does not depend on the identity of
+	 * its resolver, so it is the same in every JVM.
+	 */
+	@Test
+	public void testStableFingerprint() throws ConcordiaException, IOException {
+		URL url = new URL(PREFIX + "missing.json");
+		ReferenceSchema first =
+			new ReferenceSchema(null, false, "a", url, new IdentityResolver());
+		ReferenceSchema second =
+			new ReferenceSchema(null, false, "a", url, new IdentityResolver());
+
+		Assert.assertFalse(first.equals(second));
+		Assert.assertEquals(first.fingerprint(), second.fingerprint());
+	}
+
+	/**
+	 * Test that a reference can be compared and hashed after it has been
+	 * serialized, which drops its resolver.
+	 */
+	@Test
+	public void testSerialization()
+		throws ClassNotFoundException, ConcordiaException, IOException {
+
+		ReferenceSchema original =
+			new ReferenceSchema(
+				null,
+				false,
+				"a",
+				new URL(PREFIX + "missing.json"),
+				new IdentityResolver());
+		ReferenceSchema first = copy(original);
+		ReferenceSchema second = copy(original);
+
+		Assert.assertNull(first.getResolver());
+		Assert.assertEquals(first, second);
+		Assert.assertEquals(first.hashCode(), second.hashCode());
+		Assert.assertFalse(first.equals(original));
+		Assert.assertFalse(original.equals(first));
+	}
+
+	/**
+	 * Loads one of the schemas as the root schema.
+	 *
+	 * @param name
+	 *        The schema's file name.
+	 *
+	 * @return The Concordia object for the schema.
+	 */
+	@Ignore
+	private static Concordia load(
+		final String name)
+		throws ConcordiaException, IOException {
+
+		return
+			new Concordia(
+				resolver.resolve(new URL(PREFIX + name)),
+				null,
+				resolver);
+	}
+
+	/**
+	 * Writes a schema to the directory.
+	 *
+	 * @param name
+	 *        The file's name.
+	 *
+	 * @param contents
+	 *        The schema.
+	 */
+	@Ignore
+	private static void write(
+		final String name,
+		final String contents)
+		throws IOException {
+
+		FileWriter writer = new FileWriter(new File(directory, name));
+		try {
+			writer.write(contents);
+		}
+		finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Copies a schema with Java serialization.
+	 *
+	 * @param schema
+	 *        The schema to copy.
+	 *
+	 * @return The copy.
+	 */
+	@Ignore
+	private static ReferenceSchema copy(
+		final ReferenceSchema schema)
+		throws ClassNotFoundException, IOException {
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(schema);
+		out.close();
+
+		ObjectInputStream in =
+			new ObjectInputStream(
+				new ByteArrayInputStream(bytes.toByteArray()));
+		try {
+			return (ReferenceSchema) in.readObject();
+		}
+		finally {
+			in.close();
+		}
+	}
+}
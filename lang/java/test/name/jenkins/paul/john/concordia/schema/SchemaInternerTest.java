@@ -0,0 +1,105 @@
+package name.jenkins.paul.john.concordia.schema;
+
+import java.io.IOException;
+
+import name.jenkins.paul.john.concordia.Concordia;
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>
+ * This class is responsible for testing the {@link SchemaInterner}.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public class SchemaInternerTest {
+	/**
+	 * A sub-tree that is shared by the test schemas.
+	 */
+	private static final String SHARED =
+		"{\"name\":\"location\",\"type\":\"object\",\"fields\":[" +
+			"{\"name\":\"latitude\",\"type\":\"number\"}," +
+			"{\"name\":\"longitude\",\"type\":\"number\"}," +
+			"{\"name\":\"tags\",\"type\":\"array\"," +
+				"\"constType\":{\"type\":\"string\"}}]}";
+
+	/**
+	 * Test that schemas that are read separately share their identical
+	 * sub-trees and keep their differences.
+	 */
+	@Test
+	public void testRead() throws ConcordiaException, IOException {
+		Concordia first =
+			new Concordia(
+				"{\"type\":\"object\",\"fields\":[" + SHARED + "," +
+					"{\"name\":\"id\",\"type\":\"number\"}]}");
+		Concordia second =
+			new Concordia(
+				"{\"type\":\"object\",\"fields\":[" + SHARED + "," +
+					"{\"name\":\"id\",\"type\":\"string\"}]}");
+		Concordia third =
+			new Concordia(
+				"{\"type\":\"object\",\"fields\":[" + SHARED + "," +
+					"{\"name\":\"id\",\"type\":\"number\"}]}");
+
+		ObjectSchema firstSchema = (ObjectSchema) first.getSchema();
+		ObjectSchema secondSchema = (ObjectSchema) second.getSchema();
+		Assert.assertNotSame(firstSchema, secondSchema);
+		Assert
+			.assertSame(
+				firstSchema.getFields().get(0),
+				secondSchema.getFields().get(0));
+		Assert.assertSame(firstSchema, third.getSchema());
+
+		// Additional fields are part of a schema's identity.
+		Concordia extra =
+			new Concordia(
+				"{\"type\":\"object\",\"fields\":[" + SHARED + "," +
+					"{\"name\":\"id\",\"type\":\"number\",\"unit\":\"s\"}]}");
+		ObjectSchema extraSchema = (ObjectSchema) extra.getSchema();
+		Assert.assertNotSame(firstSchema, extraSchema);
+		Assert
+			.assertSame(
+				firstSchema.getFields().get(0),
+				extraSchema.getFields().get(0));
+		Assert
+			.assertEquals(
+				"s",
+				extraSchema.getFields().get(1).getAdditionalFields()
+					.get("unit"));
+	}
+
+	/**
+	 * Test that built schemas are interned and that schemas created directly
+	 * are shared once they are interned.
+	 */
+	@Test
+	public void testBuild() throws ConcordiaException {
+		ObjectSchema schema =
+			new ObjectSchema(
+				SchemaTest.TEST_DOC,
+				false,
+				null,
+				SchemaTest.TEST_SCHEMA_LIST_BOTH);
+		ObjectSchema built = (new ObjectSchema.Builder(schema)).build();
+		Assert.assertEquals(schema, built);
+		Assert.assertSame(built, (new ObjectSchema.Builder(schema)).build());
+		Assert.assertSame(built, SchemaInterner.getInstance().intern(schema));
+
+		SchemaInterner interner = new SchemaInterner();
+		Schema field =
+			new BooleanSchema(
+				SchemaTest.TEST_DOC,
+				SchemaTest.TEST_OPTIONAL_TRUE,
+				SchemaTest.TEST_NAME_OPTIONAL);
+		Schema canonical = interner.intern(field);
+		ObjectSchema interned = interner.intern(schema);
+		Assert.assertEquals(schema, interned);
+		Assert.assertSame(canonical, interned.getFields().get(0));
+		Assert.assertEquals(3, interner.size());
+		Assert.assertNull(interner.intern(null));
+	}
+}
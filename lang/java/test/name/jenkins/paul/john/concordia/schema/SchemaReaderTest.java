@@ -0,0 +1,269 @@
+package name.jenkins.paul.john.concordia.schema;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import name.jenkins.paul.john.concordia.Concordia;
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.jackson.StrictBooleanDeserializer;
+import name.jenkins.paul.john.concordia.jackson.StrictStringDeserializer;
+import name.jenkins.paul.john.concordia.reference.UrlReferenceResolver;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.InjectableValues;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+/**
+ * <p>
+ * This class is responsible for testing the {@link SchemaReader} against
+ * Jackson's data binding of {@link Schema}s.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public class SchemaReaderTest {
+	/**
+	 * Schemas that exercise the type, strictness, and additional field
+	 * rules, including ones that cannot be read.
+	 */
+	private static final String[] SCHEMAS = {
+		"{\"type\":\"boolean\"}",
+		"{\"type\":\"number\",\"doc\":\"d\",\"optional\":true,\"name\":\"n\"}",
+		"{\"type\":\"string\",\"optional\":null,\"doc\":null}",
+		"{\"type\":\"boolean\",\"optional\":1}",
+		"{\"type\":\"boolean\",\"optional\":\"true\"}",
+		"{\"type\":\"boolean\",\"doc\":5}",
+		"{\"type\":\"boolean\",\"name\":[\"x\"]}",
+		"{\"type\":\"boolean\",\"doc\":\"a\",\"doc\":\"b\"}",
+		"{\"type\":\"string\",\"optional\":true,\"optional\":null}",
+		"{\"type\":\"boolean\",\"x\":1,\"y\":2,\"x\":3}",
+		"{\"type\":\"boolean\",\"a\":1.5,\"b\":12345678901234," +
+			"\"c\":123456789012345678901234567890,\"d\":-0.0,\"e\":null," +
+			"\"f\":{\"g\":[1,null,\"s\",true,{}],\"g\":[]},\"h\":false}",
+		"{\"type\":\"boolean\",\"fields\":[{\"type\":\"x\"}]}",
+		"{\"type\":\"number\",\"constType\":{\"type\":\"x\"}}",
+		"{\"type\":\"boolean\",\"type\":\"number\"}",
+		"{\"doc\":\"a\",\"x\":[1],\"type\":\"boolean\",\"y\":2}",
+		"{\"fields\":[{\"name\":\"a\",\"type\":\"number\"}],\"type\":\"object\"}",
+		"{\"type\":\"foo\"}",
+		"{\"type\":5}",
+		"{\"type\":{\"a\":1},\"$ref\":\"http://example.invalid/a\"}",
+		"{}",
+		"{\"$ref\":\"http://example.invalid/a\",\"x\":1}",
+		"{\"type\":\"foo\",\"$ref\":\"http://example.invalid/a\"}",
+		"{\"type\":null,\"$ref\":\" http://example.invalid/a \"}",
+		"{\"$ref\":\"http://example.invalid/a\",\"type\":\"boolean\"}",
+		"{\"doc\":\"d\",\"$ref\":\"http://example.invalid/a\"}",
+		"{\"$ref\":\"\"}",
+		"{\"$ref\":null}",
+		"{\"$ref\":\"nope\"}",
+		"{\"$ref\":{\"a\":1}}",
+		"{\"type\":\"object\"}",
+		"{\"type\":\"object\",\"fields\":null}",
+		"{\"type\":\"object\",\"fields\":[]}",
+		"{\"type\":\"object\",\"fields\":{}}",
+		"{\"type\":\"object\",\"fields\":[5]}",
+		"{\"type\":\"object\",\"fields\":[{\"type\":\"number\",\"name\":\"a\"}]," +
+			"\"fields\":[{\"type\":\"string\",\"name\":\"b\"}]}",
+		"{\"type\":\"object\",\"fields\":[" +
+			"{\"name\":\"a\",\"$ref\":\"http://example.invalid/a\"}," +
+			"{\"name\":\"b\",\"type\":\"array\"," +
+				"\"constLength\":[{\"type\":\"number\"}]}]}",
+		"{\"type\":\"array\"}",
+		"{\"type\":\"array\",\"constType\":{\"type\":\"string\"}}",
+		"{\"type\":\"array\",\"constType\":null}",
+		"{\"type\":\"array\",\"constType\":{\"type\":\"string\"}," +
+			"\"constLength\":[]}",
+		"{\"type\":\"array\",\"constType\":null,\"constLength\":[]}",
+		"{\"type\":\"array\",\"constLength\":{\"type\":\"string\"}}",
+		"{\"type\":\"array\",\"constType\":\"x\"}",
+		"{\"type\":\"array\",\"constType\":[{\"type\":\"string\"}]}",
+		"[]",
+		"\"x\"",
+		"5",
+		""
+	};
+
+	/**
+	 * The data binding that the reader must agree with.
+	 */
+	private static final ObjectReader JSON_READER;
+	static {
+		ObjectMapper mapper = new ObjectMapper();
+		mapper
+			.registerModule(
+				(new SimpleModule())
+					.addDeserializer(
+						boolean.class,
+						new StrictBooleanDeserializer())
+					.addDeserializer(
+						Boolean.class,
+						new StrictBooleanDeserializer())
+					.addDeserializer(
+						String.class,
+						new StrictStringDeserializer()));
+		mapper
+			.setInjectableValues(
+				(new InjectableValues.Std())
+					.addValue(
+						Concordia.JACKSON_INJECTABLE_REFERENCE_RESOLVER,
+						UrlReferenceResolver.DEFAULT_RESOLVER));
+		JSON_READER = mapper.reader(Schema.class);
+	}
+
+	/**
+	 * Test that the reader agrees with the data binding.
+	 */
+	@Test
+	public void testSchemas() throws IOException {
+		for(String schema : SCHEMAS) {
+			compare(schema);
+		}
+	}
+
+	/**
+	 * Test that the reader agrees with the data binding on the test data.
+	 */
+	@Test
+	public void testDefinitions() throws IOException {
+		for(File directory : (new File("./test/data/")).listFiles()) {
+			File definition = new File(directory, "definition.json");
+			if(! definition.isFile()) {
+				continue;
+			}
+
+			byte[] bytes = new byte[(int) definition.length()];
+			FileInputStream input = new FileInputStream(definition);
+			try {
+				int offset = 0;
+				while(offset < bytes.length) {
+					offset += input.read(bytes, offset, bytes.length - offset);
+				}
+			}
+			finally {
+				input.close();
+			}
+			compare(new String(bytes, "UTF-8"));
+		}
+	}
+
+	/**
+	 * Test that a parser is left at the end of the schema, even when its
+	 * keys were buffered to find its type.
+	 */
+	@Test
+	public void testParser() throws ConcordiaException, IOException {
+		JsonParser parser =
+			(new JsonFactory())
+				.createParser(
+					"[{\"doc\":\"a\",\"type\":\"boolean\"},{\"doc\":\"b\"," +
+						"\"$ref\":\"http://example.invalid/a\"}," +
+						"{\"type\":\"number\"}]");
+		Assert.assertEquals(JsonToken.START_ARRAY, parser.nextToken());
+
+		parser.nextToken();
+		Assert
+			.assertTrue(
+				SchemaReader.read(parser, null) instanceof BooleanSchema);
+		Assert.assertEquals(JsonToken.END_OBJECT, parser.getCurrentToken());
+
+		parser.nextToken();
+		Assert
+			.assertTrue(
+				SchemaReader.read(parser, null) instanceof ReferenceSchema);
+		Assert.assertEquals(JsonToken.END_OBJECT, parser.getCurrentToken());
+
+		parser.nextToken();
+		Assert
+			.assertTrue(
+				SchemaReader.read(parser, null) instanceof NumberSchema);
+		Assert.assertEquals(JsonToken.END_ARRAY, parser.nextToken());
+	}
+
+	/**
+	 * Test that the schemas that are read are interned.
+	 */
+	@Test
+	public void testInterned() throws ConcordiaException, IOException {
+		String schema =
+			"{\"type\":\"object\",\"fields\":[" +
+				"{\"name\":\"a\",\"type\":\"number\"}," +
+				"{\"name\":\"b\",\"$ref\":\"http://example.invalid/a\"}]}";
+
+		ObjectSchema first = (ObjectSchema) read(schema);
+		ObjectSchema second = (ObjectSchema) read(schema);
+		Assert.assertSame(first.getFields().get(0), second.getFields().get(0));
+		Assert
+			.assertTrue(
+				SchemaInterner
+					.getInstance()
+					.isInterned(first.getFields().get(0)));
+		Assert.assertFalse(SchemaInterner.getInstance().isInterned(first));
+	}
+
+	/**
+	 * Reads a schema with both the reader and the data binding and checks
+	 * that they agree.
+	 *
+	 * @param schema
+	 *        The schema.
+	 */
+	@Ignore
+	private static void compare(final String schema) throws IOException {
+		Schema expected;
+		try {
+			expected = JSON_READER.readValue(schema);
+		}
+		catch(IOException e) {
+			expected = null;
+		}
+
+		Schema actual;
+		try {
+			actual = read(schema);
+		}
+		catch(ConcordiaException e) {
+			actual = null;
+		}
+
+		if(expected == null) {
+			Assert.assertNull(schema, actual);
+		}
+		else {
+			Assert.assertEquals(schema, expected, actual);
+			Assert
+				.assertEquals(
+					schema,
+					expected.getAdditionalFields(),
+					actual.getAdditionalFields());
+		}
+	}
+
+	/**
+	 * Reads a schema with the reader.
+	 *
+	 * @param schema
+	 *        The schema.
+	 *
+	 * @return The schema that was read.
+	 */
+	@Ignore
+	private static Schema read(
+		final String schema)
+		throws ConcordiaException, IOException {
+
+		return
+			SchemaReader
+				.read(new ByteArrayInputStream(schema.getBytes("UTF-8")), null);
+	}
+}
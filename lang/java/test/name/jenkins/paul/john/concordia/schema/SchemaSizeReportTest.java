@@ -0,0 +1,111 @@
+package name.jenkins.paul.john.concordia.schema;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import name.jenkins.paul.john.concordia.Concordia;
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>
+ * This class is responsible for testing the {@link SchemaSizeReport} and the
+ * compact representation it measures.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public class SchemaSizeReportTest {
+	/**
+	 * Test that the collections of a schema are created once and that
+	 * schemas without additional fields share one map.
+	 */
+	@Test
+	public void testCompact() throws ConcordiaException {
+		ObjectSchema schema =
+			new ObjectSchema(
+				null,
+				false,
+				null,
+				SchemaTest.TEST_SCHEMA_LIST_BOTH);
+		Assert.assertSame(schema.getFields(), schema.getFields());
+		Assert.assertSame(schema.getFields(), schema.getSubSchemas());
+		Assert
+			.assertSame(
+				SchemaTest.TEST_SCHEMA_OPTIONAL.getAdditionalFields(),
+				schema.getAdditionalFields());
+
+		try {
+			schema.getFields().clear();
+			Assert.fail("The fields were modified.");
+		}
+		catch(UnsupportedOperationException e) {
+			// Pass.
+		}
+
+		// Changing the list a schema was built from does not change it.
+		List<Schema> fields =
+			new ArrayList<Schema>(SchemaTest.TEST_SCHEMA_LIST_BOTH);
+		ArraySchema array = new ArraySchema(null, false, null, fields);
+		fields.clear();
+		Assert.assertEquals(2, array.getConstLength().size());
+		Assert.assertSame(array.getConstLength(), array.getSubSchemas());
+	}
+
+	/**
+	 * Test that nodes are counted once and that interned nodes are reported
+	 * as shared.
+	 */
+	@Test
+	public void testMeasure() throws ConcordiaException, IOException {
+		Schema field =
+			new StringSchema("A field that is used twice.", false, "a");
+		List<Schema> fields = new ArrayList<Schema>();
+		fields.add(field);
+		fields.add(new ArraySchema(null, false, "b", field));
+		ObjectSchema schema = new ObjectSchema(null, false, null, fields);
+
+		SchemaSizeReport report = SchemaSizeReport.measure(schema);
+		Assert.assertEquals(3, report.getNodes());
+		Assert.assertEquals(0, report.getSharedNodes());
+		Assert.assertEquals(0, report.getSharedBytes());
+		Assert.assertEquals(report.getBytes(), report.getUnsharedBytes());
+
+		// Documentation adds to the size.
+		ObjectSchema documented =
+			new ObjectSchema("Some documentation.", false, null, fields);
+		Assert
+			.assertTrue(
+				SchemaSizeReport.measure(documented).getBytes() >
+					report.getBytes());
+
+		// Interned nodes may be shared, even when other nodes are not.
+		Assert.assertSame(field, SchemaInterner.getInstance().intern(field));
+		report = SchemaSizeReport.measure(schema);
+		Assert.assertEquals(3, report.getNodes());
+		Assert.assertEquals(1, report.getSharedNodes());
+		Assert.assertTrue(report.getSharedBytes() > 0);
+		Assert.assertTrue(report.getUnsharedBytes() > 0);
+
+		// Schemas that are read are interned.
+		Concordia concordia =
+			new Concordia(
+				"{\"type\":\"object\",\"fields\":[" +
+					"{\"name\":\"a\",\"type\":\"string\",\"unit\":\"s\"}]}");
+		report = concordia.getSizeReport();
+		Assert.assertEquals(2, report.getNodes());
+		Assert.assertEquals(2, report.getSharedNodes());
+		Assert.assertEquals(report.getBytes(), report.getSharedBytes());
+	}
+
+	/**
+	 * Test that a null schema is rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testMeasureNull() {
+		SchemaSizeReport.measure(null);
+	}
+}
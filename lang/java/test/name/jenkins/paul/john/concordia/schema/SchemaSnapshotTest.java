@@ -0,0 +1,384 @@
+package name.jenkins.paul.john.concordia.schema;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import name.jenkins.paul.john.concordia.Concordia;
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.reference.DirectoryReferenceResolver;
+import name.jenkins.paul.john.concordia.reference.ReferenceCache;
+import name.jenkins.paul.john.concordia.reference.ReferenceResolver;
+import name.jenkins.paul.john.concordia.validator.ArrayValidator;
+import name.jenkins.paul.john.concordia.validator.SchemaValidator;
+import name.jenkins.paul.john.concordia.validator.ValidationController;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * <p>
+ * This class is responsible for testing the {@link SchemaSnapshot}.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public class SchemaSnapshotTest {
+	/**
+	 * <p>
+	 * A schema validator that counts the schemas it validates.
+	 * </p>
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class CountingValidator
+		implements SchemaValidator<ObjectSchema> {
+
+		/**
+		 * The number of schemas that were validated.
+		 */
+		private int count = 0;
+
+		/*
+		 * (non-Javadoc)
+		 * @see name.jenkins.paul.john.concordia.validator.SchemaValidator#validate(name.jenkins.paul.john.concordia.schema.Schema, name.jenkins.paul.john.concordia.validator.ValidationController)
+		 */
+		@Override
+		public void validate(
+			final ObjectSchema schema,
+			final ValidationController controller) {
+
+			count++;
+		}
+	}
+
+	/**
+	 * The prefix of the URLs of the schemas.
+	 */
+	private static final String PREFIX = "http://example.invalid/snapshot/";
+
+	/**
+	 * The data directories that don't require a remote schema.
+	 */
+	private static final String[] DIRECTORIES = {
+		"./test/data/boolean/",
+		"./test/data/number/",
+		"./test/data/string/",
+		"./test/data/object/",
+		"./test/data/optional/",
+		"./test/data/const_length_array/",
+		"./test/data/const_type_array_boolean/",
+		"./test/data/const_type_array_number/",
+		"./test/data/const_type_array_string/",
+		"./test/data/const_type_array_object/",
+		"./test/data/const_type_array_array/"
+	};
+
+	/**
+	 * Test that every test schema round-trips and is verified.
+	 */
+	@Test
+	public void testRoundTrip() throws ConcordiaException, IOException {
+		for(String directory : DIRECTORIES) {
+			Concordia concordia =
+				new Concordia(
+					new FileInputStream(
+						new File(directory + "definition.json")));
+
+			Concordia read =
+				Concordia
+					.readSnapshot(
+						new ByteArrayInputStream(write(concordia)),
+						null,
+						null);
+			Assert.assertEquals(directory, concordia.getSchema(), read.getSchema());
+			Assert
+				.assertTrue(
+					directory,
+					SchemaSnapshot
+						.read(new ByteArrayInputStream(write(concordia)), null)
+						.isVerified());
+		}
+	}
+
+	/**
+	 * Test that schemas that refer to each other are read from the snapshot
+	 * rather than resolved again.
+	 */
+	@Test
+	public void testReferences() throws ConcordiaException, IOException {
+		File directory = File.createTempFile("concordia", "");
+		directory.delete();
+		directory.mkdir();
+		ReferenceResolver resolver =
+			new DirectoryReferenceResolver(PREFIX, directory);
+
+		byte[] snapshot;
+		try {
+			write(
+				directory,
+				"a.json",
+				"{\"type\":\"object\",\"doc\":\"A\",\"fields\":[" +
+					"{\"name\":\"b\",\"optional\":true," +
+						"\"$ref\":\"" + PREFIX + "b.json\"}]}");
+			write(
+				directory,
+				"b.json",
+				"{\"type\":\"object\",\"fields\":[" +
+					"{\"name\":\"n\",\"type\":\"number\",\"unit\":\"m\"}," +
+					"{\"name\":\"a\",\"optional\":true," +
+						"\"$ref\":\"" + PREFIX + "a.json\"}]}");
+
+			Concordia concordia =
+				new Concordia(
+					new FileInputStream(new File(directory, "a.json")),
+					null,
+					resolver);
+			snapshot = write(concordia);
+		}
+		finally {
+			for(File file : directory.listFiles()) {
+				file.delete();
+			}
+			directory.delete();
+		}
+		ReferenceCache.getInstance().clear();
+
+		// The files are gone, so the references must come from the snapshot.
+		SchemaSnapshot read =
+			SchemaSnapshot.read(new ByteArrayInputStream(snapshot), resolver);
+		Assert.assertTrue(read.isVerified());
+		Concordia concordia = new Concordia(read.getSchema());
+		concordia
+			.validateData(
+				"{\"b\":{\"n\":1,\"a\":{\"b\":{\"n\":2}}}}".getBytes());
+		try {
+			concordia
+				.validateData("{\"b\":{\"n\":1,\"a\":{\"b\":{}}}}".getBytes());
+			Assert.fail("Data without a required field was valid.");
+		}
+		catch(ConcordiaException e) {
+			// Pass.
+		}
+	}
+
+	/**
+	 * Test that a snapshot whose fingerprint does not match is not verified
+	 * and that malformed snapshots are rejected.
+	 */
+	@Test
+	public void testCorrupt() throws ConcordiaException, IOException {
+		Concordia concordia =
+			new Concordia(
+				"{\"type\":\"object\",\"fields\":[" +
+					"{\"name\":\"a\",\"type\":\"string\"}]}");
+		byte[] snapshot = write(concordia);
+
+		// The root's fingerprint is last, as there are no references.
+		snapshot[snapshot.length - 1] ^= 1;
+		SchemaSnapshot read =
+			SchemaSnapshot.read(new ByteArrayInputStream(snapshot), null);
+		Assert.assertFalse(read.isVerified());
+		Assert.assertEquals(concordia.getSchema(), read.getSchema());
+		Concordia.readSnapshot(new ByteArrayInputStream(snapshot), null, null);
+
+		byte[] truncated = new byte[snapshot.length - 9];
+		System.arraycopy(snapshot, 0, truncated, 0, truncated.length);
+		try {
+			SchemaSnapshot.read(new ByteArrayInputStream(truncated), null);
+			Assert.fail("A truncated snapshot was read.");
+		}
+		catch(ConcordiaException e) {
+			// Pass.
+		}
+
+		try {
+			SchemaSnapshot
+				.read(
+					new ByteArrayInputStream("{\"type\":\"object\"}".getBytes()),
+					null);
+			Assert.fail("JSON was read as a snapshot.");
+		}
+		catch(ConcordiaException e) {
+			// Pass.
+		}
+	}
+
+	/**
+	 * Test that a string whose length is larger than the snapshot is
+	 * rejected without allocating the length.
+	 */
+	@Test
+	public void testStringLength() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream output = new DataOutputStream(bytes);
+		output.writeInt(SchemaSnapshot.MAGIC);
+		output.writeByte(SchemaSnapshot.VERSION);
+		output.writeLong(0);
+		// The first schema, its header, and its documentation, which is the
+		// first string and claims to be 2^31 - 1 bytes long.
+		output.write(new byte[] { 0x01, 0x00, 0x01 });
+		output.write(new byte[] { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF });
+		output.write(new byte[] { (byte) 0xFF, 0x07, 'a', 'b', 'c' });
+		output.close();
+
+		try {
+			SchemaSnapshot
+				.read(new ByteArrayInputStream(bytes.toByteArray()), null);
+			Assert.fail("A string longer than the snapshot was read.");
+		}
+		catch(ConcordiaException e) {
+			// Pass.
+		}
+	}
+
+	/**
+	 * Test that a schema that was not validated when it was written is
+	 * validated when it is read, and that one that is invalid cannot be
+	 * written as validated.
+	 */
+	@Test
+	public void testUnvalidated() throws ConcordiaException, IOException {
+		List<Schema> fields = new ArrayList<Schema>();
+		fields.add(new NumberSchema(null, false, "x"));
+		fields.add(new StringSchema(null, false, "x"));
+		Schema duplicated = new ObjectSchema(null, false, null, fields);
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		SchemaSnapshot.write(duplicated, output);
+		byte[] snapshot = output.toByteArray();
+		Assert
+			.assertFalse(
+				SchemaSnapshot
+					.read(new ByteArrayInputStream(snapshot), null)
+					.isVerified());
+		try {
+			Concordia
+				.readSnapshot(new ByteArrayInputStream(snapshot), null, null);
+			Assert.fail("An invalid snapshot was not validated.");
+		}
+		catch(ConcordiaException e) {
+			// Pass.
+		}
+
+		try {
+			SchemaSnapshot
+				.write(
+					duplicated,
+					ValidationController.BASIC_CONTROLLER,
+					new ByteArrayOutputStream());
+			Assert.fail("An invalid schema was written as validated.");
+		}
+		catch(ConcordiaException e) {
+			// Pass.
+		}
+	}
+
+	/**
+	 * Test that a snapshot is only verified for a controller with the same
+	 * schema validators as the one that wrote it.
+	 */
+	@Test
+	public void testController() throws ConcordiaException, IOException {
+		CountingValidator counter = new CountingValidator();
+		ValidationController.Builder builder =
+			new ValidationController.Builder();
+		builder.addSchemaValidator(ObjectSchema.class, counter);
+		ValidationController controller = builder.build();
+
+		Concordia concordia =
+			new Concordia(
+				new ByteArrayInputStream(
+					("{\"type\":\"object\",\"fields\":[" +
+						"{\"name\":\"a\",\"type\":\"string\"}]}")
+						.getBytes()),
+				controller,
+				null);
+		byte[] snapshot = write(concordia);
+
+		Assert
+			.assertFalse(
+				SchemaSnapshot
+					.read(new ByteArrayInputStream(snapshot), null)
+					.isVerified());
+
+		// An equivalent controller does not validate the schema again.
+		CountingValidator reader = new CountingValidator();
+		builder = new ValidationController.Builder();
+		builder.addSchemaValidator(ObjectSchema.class, reader);
+		Concordia read =
+			Concordia
+				.readSnapshot(
+					new ByteArrayInputStream(snapshot),
+					builder.build(),
+					null);
+		Assert.assertEquals(concordia.getSchema(), read.getSchema());
+		Assert.assertEquals(0, reader.count);
+
+		// Any other controller does.
+		Assert.assertTrue(counter.count > 0);
+		counter.count = 0;
+		builder = new ValidationController.Builder();
+		builder.addSchemaValidator(ObjectSchema.class, counter);
+		builder.addSchemaValidator(ArraySchema.class, new ArrayValidator());
+		Concordia
+			.readSnapshot(
+				new ByteArrayInputStream(snapshot),
+				builder.build(),
+				null);
+		Assert.assertEquals(1, counter.count);
+	}
+
+	/**
+	 * Writes a snapshot of a Concordia object.
+	 *
+	 * @param concordia
+	 *        The Concordia object.
+	 *
+	 * @return The snapshot.
+	 */
+	@Ignore
+	private static byte[] write(
+		final Concordia concordia)
+		throws ConcordiaException, IOException {
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		concordia.writeSnapshot(output);
+		return output.toByteArray();
+	}
+
+	/**
+	 * Writes a schema to a directory.
+	 *
+	 * @param directory
+	 *        The directory.
+	 *
+	 * @param name
+	 *        The file's name.
+	 *
+	 * @param contents
+	 *        The schema.
+	 */
+	@Ignore
+	private static void write(
+		final File directory,
+		final String name,
+		final String contents)
+		throws IOException {
+
+		FileWriter writer = new FileWriter(new File(directory, name));
+		try {
+			writer.write(contents);
+		}
+		finally {
+			writer.close();
+		}
+	}
+}
@@ -0,0 +1,264 @@
+package name.jenkins.paul.john.concordia.stream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+import name.jenkins.paul.john.concordia.Concordia;
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.exception.InvalidDataException;
+import name.jenkins.paul.john.concordia.validator.ValidationController;
+import name.jenkins.paul.john.concordia.validator.ValidationResult;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * <p>
+ * This class is responsible for testing the {@link ArrayStreamValidator}.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public class ArrayStreamValidatorTest {
+	/**
+	 * The mapper to use to read the data.
+	 */
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	/**
+	 * The schema of an array of objects.
+	 */
+	private static final String SCHEMA =
+		"{\"type\":\"array\",\"constType\":" +
+			"{\"type\":\"object\",\"fields\":[" +
+				"{\"name\":\"id\",\"type\":\"number\"}]}}";
+
+	/**
+	 * Test that the violations in a large array are the same as when the
+	 * whole document is validated at once, with and without collecting every
+	 * violation.
+	 */
+	@Test
+	public void testMatchesTree()
+		throws ConcordiaException, IOException, InterruptedException {
+
+		StringBuilder builder = new StringBuilder("[");
+		for(int i = 0; i < 10000; i++) {
+			if(i > 0) {
+				builder.append(',');
+			}
+			if((i == 1234) || (i == 5678) || (i == 9999)) {
+				builder.append("{\"id\":\"x\"}");
+			}
+			else {
+				builder.append("{\"id\":").append(i).append('}');
+			}
+		}
+		byte[] data = builder.append(']').toString().getBytes("UTF-8");
+
+		ValidationController.Builder collecting =
+			new ValidationController.Builder();
+		collecting.setCollectAllErrors(true);
+		ValidationController[] controllers = {
+			ValidationController.BASIC_CONTROLLER,
+			collecting.build() };
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for(ValidationController controller : controllers) {
+				Concordia concordia = new Concordia(SCHEMA, controller);
+				ValidationResult expected =
+					concordia.check(MAPPER.readTree(data));
+
+				for(int batchSize : new int[] { 1, 100, 100000 }) {
+					ValidationResult result =
+						new ArrayStreamValidator(
+							concordia,
+							executor,
+							batchSize,
+							2)
+							.validate(new ByteArrayInputStream(data));
+					assertSame(expected, result);
+				}
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Test that a constant-length array, a document that isn't an array, and
+	 * a schema that isn't an array are handled.
+	 */
+	@Test
+	public void testEdges()
+		throws ConcordiaException, IOException, InterruptedException {
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Concordia concordia =
+				new Concordia(
+					"{\"type\":\"array\",\"constLength\":[" +
+						"{\"type\":\"number\"},{\"type\":\"string\"}]}");
+			ArrayStreamValidator validator =
+				new ArrayStreamValidator(concordia, executor, 1, 1);
+
+			for(String data : new String[] {
+				"[1,\"a\"]",
+				"[1,\"a\",3]",
+				"[1]",
+				"[\"a\",1]",
+				"{}",
+				"" }) {
+
+				assertSame(
+					concordia
+						.check(
+							(data.length() == 0) ?
+								null :
+								MAPPER.readTree(data)),
+					validator
+						.validate(
+							new ByteArrayInputStream(
+								data.getBytes("UTF-8"))));
+			}
+
+			try {
+				new ArrayStreamValidator(
+					new Concordia(
+						"{\"type\":\"object\",\"fields\":[" +
+							"{\"name\":\"id\",\"type\":\"number\"}]}"),
+					executor);
+				Assert.fail("A schema that isn't an array was accepted.");
+			}
+			catch(IllegalArgumentException e) {
+				// Expected.
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Test that a document followed by more content is rejected.
+	 */
+	@Test
+	public void testTrailingContent()
+		throws ConcordiaException, IOException, InterruptedException {
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			ArrayStreamValidator validator =
+				new ArrayStreamValidator(
+					new Concordia(
+						"{\"type\":\"array\",\"constType\":" +
+							"{\"type\":\"number\"}}"),
+					executor,
+					1,
+					1);
+
+			Assert
+				.assertFalse(
+					validator
+						.validate(
+							new ByteArrayInputStream(
+								"[1,2] [\"x\"]".getBytes("UTF-8")))
+						.isValid());
+
+			try {
+				validator
+					.validate(
+						new ByteArrayInputStream(
+							"[1,2] garbage".getBytes("UTF-8")));
+				Assert.fail("Trailing content that isn't JSON was accepted.");
+			}
+			catch(IOException e) {
+				// Expected.
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Test that no more than the capacity of batches are in flight at once,
+	 * including the final, partial batch.
+	 */
+	@Test
+	public void testCapacity()
+		throws ConcordiaException, IOException, InterruptedException {
+
+		// Queue the batches without running them, so they are only run when
+		// the validator finishes them.
+		final List<FutureTask<?>> queued = new ArrayList<FutureTask<?>>();
+		final int[] maximum = new int[1];
+		Executor executor =
+			new Executor() {
+				@Override
+				public void execute(final Runnable task) {
+					queued.add((FutureTask<?>) task);
+					int pending = 0;
+					for(FutureTask<?> queuedTask : queued) {
+						if(! queuedTask.isDone()) {
+							pending++;
+						}
+					}
+					maximum[0] = Math.max(maximum[0], pending);
+				}
+			};
+
+		ArrayStreamValidator validator =
+			new ArrayStreamValidator(new Concordia(SCHEMA), executor, 2, 2);
+		ValidationResult result =
+			validator
+				.validate(
+					new ByteArrayInputStream(
+						("[{\"id\":1},{\"id\":2},{\"id\":3}," +
+							"{\"id\":4},{\"id\":5}]")
+							.getBytes("UTF-8")));
+
+		Assert.assertTrue(result.isValid());
+		Assert.assertEquals(3, queued.size());
+		Assert.assertEquals(2, maximum[0]);
+	}
+
+	/**
+	 * Asserts that two results have the same violations at the same
+	 * locations.
+	 *
+	 * @param expected
+	 *        The expected result.
+	 *
+	 * @param actual
+	 *        The actual result.
+	 */
+	@Ignore
+	private static void assertSame(
+		final ValidationResult expected,
+		final ValidationResult actual) {
+
+		Assert.assertEquals(expected.isValid(), actual.isValid());
+		Assert.assertEquals(expected.getMessage(), actual.getMessage());
+
+		List<ConcordiaException> expectedErrors = expected.getErrors();
+		List<ConcordiaException> actualErrors = actual.getErrors();
+		Assert.assertEquals(expectedErrors.size(), actualErrors.size());
+		for(int i = 0; i < expectedErrors.size(); i++) {
+			Assert.assertEquals(
+				((InvalidDataException) expectedErrors.get(i)).getPointer(),
+				((InvalidDataException) actualErrors.get(i)).getPointer());
+		}
+	}
+}
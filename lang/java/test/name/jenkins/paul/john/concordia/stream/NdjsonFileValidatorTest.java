@@ -0,0 +1,139 @@
+package name.jenkins.paul.john.concordia.stream;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import name.jenkins.paul.john.concordia.Concordia;
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * <p>
+ * This class is responsible for testing the {@link NdjsonFileValidator}.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public class NdjsonFileValidatorTest {
+	/**
+	 * The schema that every record must conform to.
+	 */
+	private static final String SCHEMA =
+		"{\"type\":\"object\",\"fields\":[" +
+			"{\"name\":\"id\",\"type\":\"number\"}]}";
+
+	/**
+	 * Test that a small file, which is a single range, is reported
+	 * correctly.
+	 */
+	@Test
+	public void testSmallFile()
+		throws ConcordiaException, IOException, InterruptedException {
+
+		File file =
+			write(
+				"{\"id\":1}\n" +
+					"\n" +
+					"{\"id\":\"x\"}\r\n" +
+					"{\"id\":3\n" +
+					"{\"id\":5}");
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			NdjsonReport report =
+				new NdjsonFileValidator(new Concordia(SCHEMA), executor)
+					.validate(file);
+
+			Assert.assertEquals(5, report.getLineCount());
+			Assert.assertEquals(4, report.getRecordCount());
+			Assert.assertArrayEquals(
+				new long[] { 3, 4 },
+				report.getInvalidLines());
+			Assert.assertEquals(
+				"The data was not a number value: \"x\"",
+				report.getResult(3).getMessage());
+			Assert.assertTrue(report.getResult(5).isValid());
+		}
+		finally {
+			executor.shutdown();
+			file.delete();
+		}
+	}
+
+	/**
+	 * Test that a file that is split into many ranges reports absolute line
+	 * numbers.
+	 */
+	@Test
+	public void testLargeFile()
+		throws ConcordiaException, IOException, InterruptedException {
+
+		// Write enough lines to make several ranges.
+		int lines = 300000;
+		StringBuilder builder = new StringBuilder();
+		for(int i = 1; i <= lines; i++) {
+			if(i % 1000 == 0) {
+				builder.append("{\"id\":\"x").append(i).append("\"}\n");
+			}
+			else if(i % 777 == 0) {
+				builder.append('\n');
+			}
+			else {
+				builder.append("{\"id\":").append(i).append("}\n");
+			}
+		}
+		File file = write(builder.toString());
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			NdjsonReport report =
+				new NdjsonFileValidator(new Concordia(SCHEMA), executor)
+					.validate(file);
+
+			Assert.assertEquals(lines, report.getLineCount());
+			Assert.assertEquals(
+				lines - (lines / 777) + (lines / (777 * 1000)),
+				report.getRecordCount());
+
+			long[] invalid = report.getInvalidLines();
+			Assert.assertEquals(lines / 1000, invalid.length);
+			for(int i = 0; i < invalid.length; i++) {
+				Assert.assertEquals((i + 1) * 1000, invalid[i]);
+			}
+		}
+		finally {
+			executor.shutdown();
+			file.delete();
+		}
+	}
+
+	/**
+	 * Writes some data to a temporary file.
+	 *
+	 * @param data
+	 *        The data.
+	 *
+	 * @return The file.
+	 *
+	 * @throws IOException
+	 *         The file could not be written.
+	 */
+	@Ignore
+	private static File write(final String data) throws IOException {
+		File file = File.createTempFile("concordia", ".ndjson");
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write(data.getBytes("UTF-8"));
+		}
+		finally {
+			output.close();
+		}
+		return file;
+	}
+}
@@ -0,0 +1,161 @@
+package name.jenkins.paul.john.concordia.stream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import name.jenkins.paul.john.concordia.Concordia;
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.validator.ValidationResult;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>
+ * This class is responsible for testing the {@link NdjsonValidator}.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public class NdjsonValidatorTest {
+	/**
+	 * The schema that every record must conform to.
+	 */
+	private static final String SCHEMA =
+		"{\"type\":\"object\",\"fields\":[" +
+			"{\"name\":\"id\",\"type\":\"number\"}]}";
+
+	/**
+	 * A sink that remembers everything it was given.
+	 *
+	 * @author John Jenkins
+	 */
+	private static final class Recorder implements RecordSink {
+		/**
+		 * Each record's line number, negated if it was invalid.
+		 */
+		private final List<Long> lines = new ArrayList<Long>();
+		/**
+		 * The reasons that each invalid record was invalid.
+		 */
+		private final List<String> reasons = new ArrayList<String>();
+
+		/*
+		 * (non-Javadoc)
+		 * @see name.jenkins.paul.john.concordia.stream.RecordSink#valid(long, byte[])
+		 */
+		@Override
+		public void valid(final long lineNumber, final byte[] record) {
+			lines.add(lineNumber);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see name.jenkins.paul.john.concordia.stream.RecordSink#invalid(long, byte[], name.jenkins.paul.john.concordia.validator.ValidationResult)
+		 */
+		@Override
+		public void invalid(
+			final long lineNumber,
+			final byte[] record,
+			final ValidationResult result) {
+
+			lines.add(-lineNumber);
+			reasons.add(result.getMessage());
+		}
+	}
+
+	/**
+	 * Test that records are validated and given to the sink in order, with
+	 * the right line numbers, regardless of the capacity.
+	 */
+	@Test
+	public void testValidate()
+		throws ConcordiaException, IOException, InterruptedException {
+
+		Concordia concordia = new Concordia(SCHEMA);
+		byte[] data =
+			("{\"id\":1}\n" +
+				"\n" +
+				"{\"id\":\"x\"}\r\n" +
+				"{\"id\":3\n" +
+				"{\"id\":4} {\"id\":5}\n" +
+				"   \n" +
+				"{\"id\":7}").getBytes("UTF-8");
+		Long[] expected = { 1L, -3L, -4L, -5L, 7L };
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for(int capacity : new int[] { 1, 2, 1024 }) {
+				NdjsonValidator validator =
+					new NdjsonValidator(concordia, executor, capacity);
+
+				Recorder recorder = new Recorder();
+				Assert.assertEquals(
+					5,
+					validator
+						.validate(new ByteArrayInputStream(data), recorder));
+				Assert.assertArrayEquals(
+					expected,
+					recorder.lines.toArray(new Long[0]));
+				Assert.assertEquals(
+					"The data was not a number value: \"x\"",
+					recorder.reasons.get(0));
+				Assert.assertEquals(
+					"The record is not well-formed JSON.",
+					recorder.reasons.get(1));
+				Assert.assertEquals(
+					"The record has more than one value.",
+					recorder.reasons.get(2));
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Test that a large stream is kept in order and that a channel may be
+	 * read.
+	 */
+	@Test
+	public void testOrder()
+		throws ConcordiaException, IOException, InterruptedException {
+
+		StringBuilder builder = new StringBuilder();
+		for(int i = 1; i <= 10000; i++) {
+			if(i % 10 == 0) {
+				builder.append("{\"id\":\"x").append(i).append("\"}\n");
+			}
+			else {
+				builder.append("{\"id\":").append(i).append("}\n");
+			}
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Recorder recorder = new Recorder();
+			new NdjsonValidator(new Concordia(SCHEMA), executor, 16)
+				.validate(
+					Channels
+						.newChannel(
+							new ByteArrayInputStream(
+								builder.toString().getBytes("UTF-8"))),
+					recorder);
+
+			Assert.assertEquals(10000, recorder.lines.size());
+			for(int i = 1; i <= 10000; i++) {
+				Assert.assertEquals(
+					(i % 10 == 0) ? -i : i,
+					recorder.lines.get(i - 1).longValue());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+}
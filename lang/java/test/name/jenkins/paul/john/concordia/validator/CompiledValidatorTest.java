@@ -0,0 +1,760 @@
+package name.jenkins.paul.john.concordia.validator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import name.jenkins.paul.john.concordia.Concordia;
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.exception.InvalidDataException;
+import name.jenkins.paul.john.concordia.schema.NumberSchema;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * <p>
+ * This class is responsible for testing that a {@link CompiledValidator}
+ * behaves exactly like its {@link ValidationController}.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public class CompiledValidatorTest {
+	/**
+	 * The mapper to use to read the data.
+	 */
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	/**
+	 * The data directories that don't require a remote schema.
+	 */
+	private static final String[] DIRECTORIES = {
+		"./test/data/boolean/",
+		"./test/data/number/",
+		"./test/data/string/",
+		"./test/data/object/",
+		"./test/data/const_length_array/",
+		"./test/data/const_type_array_boolean/",
+		"./test/data/const_type_array_number/",
+		"./test/data/const_type_array_string/",
+		"./test/data/const_type_array_object/",
+		"./test/data/const_type_array_array/"
+	};
+
+	/**
+	 * Test that the compiled and interpreted validation agree on every data
+	 * file.
+	 */
+	@Test
+	public void testCompiledMatchesController()
+		throws ConcordiaException, IOException {
+
+		for(String directory : DIRECTORIES) {
+			Concordia concordia =
+				new Concordia(
+					new FileInputStream(
+						new File(directory + "definition.json")));
+			CompiledValidator compiled =
+				ValidationController
+					.BASIC_CONTROLLER
+					.compile(concordia.getSchema());
+
+			for(String kind : new String[] { "valid", "invalid" }) {
+				File[] files = (new File(directory + kind)).listFiles();
+				for(File file : files) {
+					JsonNode data = MAPPER.readTree(file);
+
+					String expected = null;
+					try {
+						ValidationController
+							.BASIC_CONTROLLER
+							.validate(concordia.getSchema(), data);
+					}
+					catch(ConcordiaException e) {
+						expected = e.getMessage();
+					}
+
+					String actual = null;
+					try {
+						compiled.validate(data);
+					}
+					catch(ConcordiaException e) {
+						actual = e.getMessage();
+					}
+
+					Assert.assertEquals(file.getPath(), expected, actual);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test that validating from a parser agrees with validating a tree on
+	 * every data file.
+	 */
+	@Test
+	public void testStreamingMatchesTree()
+		throws ConcordiaException, IOException {
+
+		for(String directory : DIRECTORIES) {
+			Concordia concordia =
+				new Concordia(
+					new FileInputStream(
+						new File(directory + "definition.json")));
+
+			for(String kind : new String[] { "valid", "invalid" }) {
+				File[] files = (new File(directory + kind)).listFiles();
+				for(File file : files) {
+					boolean treeValid = true;
+					try {
+						concordia.validateData(MAPPER.readTree(file));
+					}
+					catch(ConcordiaException e) {
+						treeValid = false;
+					}
+
+					boolean streamValid = true;
+					FileInputStream input = new FileInputStream(file);
+					try {
+						concordia.validateData(input);
+					}
+					catch(ConcordiaException e) {
+						streamValid = false;
+					}
+					finally {
+						input.close();
+					}
+
+					Assert.assertEquals(file.getPath(), treeValid, streamValid);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test that undefined fields are skipped when streaming.
+	 */
+	@Test
+	public void testStreamingSkipsUndefinedFields()
+		throws ConcordiaException, IOException {
+
+		Concordia concordia =
+			new Concordia(
+				"{\"type\":\"object\",\"fields\":[" +
+					"{\"name\":\"a\",\"type\":\"number\"}]}");
+
+		concordia
+			.validateData(
+				"{\"x\":{\"y\":[1,{\"z\":null}]},\"a\":1}".getBytes());
+
+		try {
+			concordia.validateData("{\"x\":[1,2,3]}".getBytes());
+			Assert.fail("A missing field was not caught.");
+		}
+		catch(ConcordiaException e) {
+			// Pass.
+		}
+	}
+
+	/**
+	 * Test that content after the data is rejected when validating a whole
+	 * document.
+	 */
+	@Test
+	public void testStreamingTrailingContent()
+		throws ConcordiaException, IOException {
+
+		Concordia concordia =
+			new Concordia(
+				"{\"type\":\"object\",\"fields\":[" +
+					"{\"name\":\"x\",\"type\":\"number\"}]}");
+
+		concordia.validateData("{\"x\":1} \n".getBytes());
+
+		try {
+			concordia.validateData("{\"x\":1}{\"x\":\"str\"}".getBytes());
+			Assert.fail("A second value was not caught.");
+		}
+		catch(ConcordiaException e) {
+			// Pass.
+		}
+		try {
+			concordia
+				.validateData(
+					new ByteArrayInputStream(
+						"{\"x\":1} garbage ]]".getBytes()));
+			Assert.fail("Trailing garbage was not caught.");
+		}
+		catch(IOException e) {
+			// Pass.
+		}
+	}
+
+	/**
+	 * Test that checking data reports the result without throwing and that
+	 * invalid data is reported without a stack trace.
+	 */
+	@Test
+	public void testCheck() throws ConcordiaException, IOException {
+		Concordia concordia =
+			new Concordia(
+				"{\"type\":\"object\",\"fields\":[" +
+					"{\"name\":\"a\",\"type\":\"number\"}]}");
+
+		ValidationResult valid = concordia.check(MAPPER.readTree("{\"a\":1}"));
+		Assert.assertTrue(valid.isValid());
+		Assert.assertNull(valid.getMessage());
+
+		ValidationResult invalid =
+			concordia.check(MAPPER.readTree("{\"a\":\"b\"}"));
+		Assert.assertFalse(invalid.isValid());
+		Assert.assertEquals(
+			"The data was not a number value: \"b\"",
+			invalid.getMessage());
+		Assert.assertTrue(
+			invalid.getException() instanceof InvalidDataException);
+		Assert.assertEquals(
+			0,
+			invalid.getException().getStackTrace().length);
+	}
+
+	/**
+	 * Test that a data exception keeps its offending value in its message
+	 * when it is serialized before the message was ever requested.
+	 */
+	@Test
+	public void testExceptionSerialization()
+		throws ClassNotFoundException, IOException {
+
+		ObjectNode detail = MAPPER.createObjectNode();
+		detail.put("a", "b");
+		InvalidDataException exception =
+			new InvalidDataException(
+				"The data was invalid: ",
+				detail,
+				new Object[] { "a" });
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(exception);
+		out.close();
+
+		// Changing the detail after serialization must not affect the copy.
+		detail.put("a", "c");
+
+		ObjectInputStream in =
+			new ObjectInputStream(
+				new ByteArrayInputStream(bytes.toByteArray()));
+		InvalidDataException copy;
+		try {
+			copy = (InvalidDataException) in.readObject();
+		}
+		finally {
+			in.close();
+		}
+
+		Assert.assertEquals(
+			"The data was invalid: {\"a\":\"b\"}",
+			copy.getMessage());
+		Assert.assertEquals("/a", copy.getPointer());
+	}
+
+	/**
+	 * Test that every violation is reported, with its location, when the
+	 * controller collects all errors.
+	 */
+	@Test
+	public void testCollectAllErrors() throws ConcordiaException, IOException {
+		ValidationController.Builder builder =
+			new ValidationController.Builder();
+		builder.setCollectAllErrors(true);
+		ValidationController controller = builder.build();
+
+		Concordia concordia =
+			new Concordia(
+				"{\"type\":\"object\",\"fields\":[" +
+					"{\"name\":\"a\",\"type\":\"number\"}," +
+					"{\"name\":\"b/c\",\"type\":\"boolean\"}," +
+					"{\"name\":\"arr\",\"type\":\"array\"," +
+						"\"constType\":{\"type\":\"string\"}}]}",
+				controller);
+
+		ValidationResult result =
+			concordia
+				.check(
+					MAPPER
+						.readTree(
+							"{\"a\":\"x\",\"arr\":[\"y\",1,\"z\",true]}"));
+		Assert.assertFalse(result.isValid());
+
+		List<ConcordiaException> errors = result.getErrors();
+		Assert.assertEquals(4, errors.size());
+		String[] pointers = { "/a", "/b~1c", "/arr/1", "/arr/3" };
+		for(int i = 0; i < pointers.length; i++) {
+			Assert.assertEquals(
+				pointers[i],
+				((InvalidDataException) errors.get(i)).getPointer());
+		}
+		Assert.assertEquals(
+			"The data was not a number value: \"x\"",
+			result.getMessage());
+
+		// Without collecting, only the first violation is reported.
+		result =
+			ValidationController
+				.BASIC_CONTROLLER
+				.compile(concordia.getSchema())
+				.check(MAPPER.readTree("{\"a\":\"x\",\"arr\":[1]}"));
+		Assert.assertEquals(1, result.getErrors().size());
+		Assert.assertEquals(
+			"/a",
+			((InvalidDataException) result.getException()).getPointer());
+	}
+
+	/**
+	 * Test that large arrays validated in parallel report the same
+	 * violations, in the same order, as they would sequentially.
+	 */
+	@Test
+	public void testParallelArray() throws ConcordiaException, IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			ValidationController.Builder builder =
+				new ValidationController.Builder();
+			builder.setParallelExecutor(executor);
+			builder.setParallelThreshold(1000);
+			ValidationController controller = builder.build();
+
+			builder.setCollectAllErrors(true);
+			ValidationController collecting = builder.build();
+
+			Concordia concordia =
+				new Concordia(
+					"{\"type\":\"object\",\"fields\":[" +
+						"{\"name\":\"arr\",\"type\":\"array\"," +
+							"\"constType\":{\"type\":\"number\"}}]}",
+					controller);
+
+			int[] invalid = { 1234, 4321, 4999 };
+			StringBuilder valid = new StringBuilder("{\"arr\":[");
+			StringBuilder data = new StringBuilder("{\"arr\":[");
+			for(int i = 0, next = 0; i < 5000; i++) {
+				if(i > 0) {
+					valid.append(',');
+					data.append(',');
+				}
+				valid.append(i);
+				if((next < invalid.length) && (invalid[next] == i)) {
+					data.append("\"x").append(i).append('"');
+					next++;
+				}
+				else {
+					data.append(i);
+				}
+			}
+			JsonNode validTree =
+				MAPPER.readTree(valid.append("]}").toString());
+			JsonNode tree = MAPPER.readTree(data.append("]}").toString());
+
+			concordia.validateData(validTree);
+			controller.validate(concordia.getSchema(), validTree);
+
+			// The lowest index is always the one that is reported.
+			for(int i = 0; i < 10; i++) {
+				try {
+					concordia.validateData(tree);
+					Assert.fail("The invalid element was not caught.");
+				}
+				catch(InvalidDataException e) {
+					Assert.assertEquals("/arr/1234", e.getPointer());
+				}
+
+				try {
+					controller.validate(concordia.getSchema(), tree);
+					Assert.fail("The invalid element was not caught.");
+				}
+				catch(InvalidDataException e) {
+					Assert.assertTrue(e.getMessage().endsWith("\"x1234\""));
+				}
+			}
+
+			// Every violation is collected in order.
+			List<ConcordiaException> errors =
+				collecting
+					.compile(concordia.getSchema())
+					.check(tree)
+					.getErrors();
+			Assert.assertEquals(invalid.length, errors.size());
+			for(int i = 0; i < invalid.length; i++) {
+				Assert.assertEquals(
+					"/arr/" + invalid[i],
+					((InvalidDataException) errors.get(i)).getPointer());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Test that checking a batch, both sequentially and in parallel, agrees
+	 * with checking each record on its own.
+	 */
+	@Test
+	public void testCheckAll()
+		throws ConcordiaException, IOException, InterruptedException {
+
+		Concordia concordia =
+			new Concordia(
+				"{\"type\":\"object\",\"fields\":[" +
+					"{\"name\":\"id\",\"type\":\"number\"}]}");
+
+		List<JsonNode> records = new ArrayList<JsonNode>();
+		for(int i = 0; i < 1000; i++) {
+			records
+				.add(
+					MAPPER
+						.readTree(
+							(i % 7 == 0) ?
+								"{\"id\":\"x" + i + "\"}" :
+								"{\"id\":" + i + "}"));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			BatchResult[] results = {
+				concordia.validateAll(records),
+				concordia.validateAll(records, executor) };
+
+			for(BatchResult result : results) {
+				Assert.assertEquals(records.size(), result.size());
+				Assert.assertFalse(result.isValid());
+				Assert.assertEquals(143, result.getInvalidCount());
+
+				int[] invalid = result.getInvalidIndices();
+				for(int i = 0; i < invalid.length; i++) {
+					Assert.assertEquals(i * 7, invalid[i]);
+				}
+
+				for(int i = 0; i < records.size(); i++) {
+					ValidationResult expected = concordia.check(records.get(i));
+					Assert.assertEquals(expected.isValid(), result.isValid(i));
+					Assert.assertEquals(
+						expected.getMessage(),
+						result.getResult(i).getMessage());
+					Assert.assertEquals(
+						expected.getErrors().size(),
+						result.getErrors(i).size());
+				}
+			}
+
+			// An empty batch is valid.
+			Assert.assertTrue(
+				concordia
+					.validateAll(new ArrayList<JsonNode>(), executor)
+					.isValid());
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Test that a violation found while streaming is located.
+	 */
+	@Test
+	public void testStreamingPointer() throws ConcordiaException, IOException {
+		Concordia concordia =
+			new Concordia(
+				"{\"type\":\"object\",\"fields\":[" +
+					"{\"name\":\"arr\",\"type\":\"array\"," +
+						"\"constType\":{\"type\":\"number\"}}]}");
+
+		try {
+			concordia.validateData("{\"arr\":[1,2,\"x\"]}".getBytes());
+			Assert.fail("The invalid element was not caught.");
+		}
+		catch(InvalidDataException e) {
+			Assert.assertEquals("/arr/2", e.getPointer());
+		}
+	}
+
+	/**
+	 * Test that reading through a validating parser agrees with validating a
+	 * tree on every data file.
+	 */
+	@Test
+	public void testValidatingParserMatchesTree()
+		throws ConcordiaException, IOException {
+
+		for(String directory : DIRECTORIES) {
+			Concordia concordia =
+				new Concordia(
+					new FileInputStream(
+						new File(directory + "definition.json")));
+
+			for(String kind : new String[] { "valid", "invalid" }) {
+				File[] files = (new File(directory + kind)).listFiles();
+				for(File file : files) {
+					JsonNode data = MAPPER.readTree(file);
+					boolean treeValid = concordia.check(data).isValid();
+
+					boolean parserValid = true;
+					JsonParser parser =
+						concordia
+							.validatingParser(
+								MAPPER.getFactory().createParser(file));
+					try {
+						Assert.assertEquals(
+							file.getPath(),
+							data,
+							MAPPER.readTree(parser));
+					}
+					catch(ValidationParseException e) {
+						parserValid = false;
+					}
+					finally {
+						parser.close();
+					}
+
+					Assert.assertEquals(file.getPath(), treeValid, parserValid);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test that data can be bound and validated in one pass, that violations
+	 * are located, and that every violation is reported when the controller
+	 * collects all errors.
+	 */
+	@Test
+	public void testValidatingParserBinds()
+		throws ConcordiaException, IOException {
+
+		String schema =
+			"{\"type\":\"object\",\"fields\":[" +
+				"{\"name\":\"id\",\"type\":\"number\"}," +
+				"{\"name\":\"tags\",\"type\":\"array\"," +
+					"\"constType\":{\"type\":\"string\"}}]}";
+		Concordia concordia = new Concordia(schema);
+
+		Map<?, ?> bound =
+			MAPPER
+				.readValue(
+					concordia
+						.validatingParser(
+							MAPPER
+								.getFactory()
+								.createParser(
+									"{\"id\":1,\"extra\":{\"a\":[1]}," +
+										"\"tags\":[\"x\"]}")),
+					Map.class);
+		Assert.assertEquals(1, bound.get("id"));
+
+		try {
+			MAPPER
+				.readValue(
+					concordia
+						.validatingParser(
+							MAPPER
+								.getFactory()
+								.createParser(
+									"{\"id\":1,\"tags\":[\"x\",2]}")),
+					Map.class);
+			Assert.fail("The invalid element was not caught.");
+		}
+		catch(ValidationParseException e) {
+			Assert.assertEquals(
+				"/tags/1",
+				((InvalidDataException) e.getResult().getException())
+					.getPointer());
+		}
+
+		ValidationController.Builder builder =
+			new ValidationController.Builder();
+		builder.setCollectAllErrors(true);
+		concordia = new Concordia(schema, builder.build());
+		try {
+			MAPPER
+				.readValue(
+					concordia
+						.validatingParser(
+							MAPPER
+								.getFactory()
+								.createParser("{\"tags\":[1,\"x\",true]}")),
+					Map.class);
+			Assert.fail("The invalid data was not caught.");
+		}
+		catch(ValidationParseException e) {
+			Assert.assertEquals(3, e.getResult().getErrors().size());
+		}
+	}
+
+	/**
+	 * Test that writing through a validating generator agrees with
+	 * validating a tree on every data file.
+	 */
+	@Test
+	public void testValidatingGeneratorMatchesTree()
+		throws ConcordiaException, IOException {
+
+		for(String directory : DIRECTORIES) {
+			Concordia concordia =
+				new Concordia(
+					new FileInputStream(
+						new File(directory + "definition.json")));
+
+			for(String kind : new String[] { "valid", "invalid" }) {
+				File[] files = (new File(directory + kind)).listFiles();
+				for(File file : files) {
+					JsonNode data = MAPPER.readTree(file);
+					boolean treeValid = concordia.check(data).isValid();
+
+					boolean generatorValid = true;
+					StringWriter output = new StringWriter();
+					try {
+						MAPPER
+							.writeValue(
+								concordia
+									.validatingGenerator(
+										MAPPER
+											.getFactory()
+											.createGenerator(output)),
+								data);
+						Assert.assertEquals(
+							file.getPath(),
+							data,
+							MAPPER.readTree(output.toString()));
+					}
+					catch(ValidationGenerationException e) {
+						generatorValid = false;
+					}
+
+					Assert.assertEquals(
+						file.getPath(),
+						treeValid,
+						generatorValid);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test that an invalid token is not written in fail-fast mode and that
+	 * every violation is reported when the controller collects all errors.
+	 */
+	@Test
+	public void testValidatingGenerator()
+		throws ConcordiaException, IOException {
+
+		String schema =
+			"{\"type\":\"object\",\"fields\":[" +
+				"{\"name\":\"id\",\"type\":\"number\"}," +
+				"{\"name\":\"tags\",\"type\":\"array\"," +
+					"\"constType\":{\"type\":\"string\"}}]}";
+		Concordia concordia = new Concordia(schema);
+
+		StringWriter output = new StringWriter();
+		JsonGenerator generator =
+			concordia
+				.validatingGenerator(
+					MAPPER.getFactory().createGenerator(output));
+		generator.writeStartObject();
+		generator.writeNumberField("id", 1);
+		generator.writeArrayFieldStart("tags");
+		generator.writeString("x");
+		try {
+			generator.writeNumber(2);
+			Assert.fail("The invalid element was written.");
+		}
+		catch(ValidationGenerationException e) {
+			Assert.assertEquals(
+				"/tags/1",
+				((InvalidDataException) e.getResult().getException())
+					.getPointer());
+		}
+		generator.flush();
+		Assert.assertEquals("{\"id\":1,\"tags\":[\"x\"", output.toString());
+
+		ValidationController.Builder builder =
+			new ValidationController.Builder();
+		builder.setCollectAllErrors(true);
+		concordia = new Concordia(schema, builder.build());
+		try {
+			MAPPER
+				.writeValue(
+					concordia
+						.validatingGenerator(
+							MAPPER
+								.getFactory()
+								.createGenerator(new StringWriter())),
+					MAPPER.readTree("{\"tags\":[1,\"x\",true]}"));
+			Assert.fail("The invalid data was not caught.");
+		}
+		catch(ValidationGenerationException e) {
+			Assert.assertEquals(3, e.getResult().getErrors().size());
+		}
+	}
+
+	/**
+	 * Test that custom data validators still run when compiled.
+	 */
+	@Test
+	public void testCompiledCustomValidator()
+		throws ConcordiaException, IOException {
+
+		ValidationController.Builder builder =
+			new ValidationController.Builder();
+		builder.addDataValidator(NumberSchema.class, new CustomValidator());
+		ValidationController controller = builder.build();
+
+		Concordia concordia =
+			new Concordia(
+				new FileInputStream(
+					new File("./test/definition/decorator/number.json")),
+				controller);
+
+		try {
+			controller
+				.compile(concordia.getSchema())
+				.validate(
+					MAPPER.readTree(
+						new File("./test/data/decorator/number.json")));
+			Assert.fail("The custom validator did not run.");
+		}
+		catch(ConcordiaException e) {
+			Assert.assertEquals(CustomValidator.PASS, e.getMessage());
+		}
+
+		FileInputStream input =
+			new FileInputStream(new File("./test/data/decorator/number.json"));
+		try {
+			concordia.validateData(input);
+			Assert.fail("The custom validator did not run when streaming.");
+		}
+		catch(ConcordiaException e) {
+			Assert.assertEquals(CustomValidator.PASS, e.getMessage());
+		}
+		finally {
+			input.close();
+		}
+	}
+}
@@ -0,0 +1,260 @@
+package name.jenkins.paul.john.concordia.validator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import name.jenkins.paul.john.concordia.Concordia;
+import name.jenkins.paul.john.concordia.exception.ConcordiaException;
+import name.jenkins.paul.john.concordia.exception.InvalidDataException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * <p>
+ * This class is responsible for testing that validating data through each
+ * {@link DataAccessor} agrees with validating it as a tree.
+ * </p>
+ *
+ * @author John Jenkins
+ */
+public class DataAccessorTest {
+	/**
+	 * The mapper to use to read the data.
+	 */
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	/**
+	 * The data directories that don't require a remote schema.
+	 */
+	private static final String[] DIRECTORIES = {
+		"./test/data/boolean/",
+		"./test/data/number/",
+		"./test/data/string/",
+		"./test/data/object/",
+		"./test/data/optional/",
+		"./test/data/const_length_array/",
+		"./test/data/const_type_array_boolean/",
+		"./test/data/const_type_array_number/",
+		"./test/data/const_type_array_string/",
+		"./test/data/const_type_array_object/",
+		"./test/data/const_type_array_array/"
+	};
+
+	/**
+	 * A bean for the test.
+	 *
+	 * @author John Jenkins
+	 */
+	public static class Reading {
+		/**
+		 * A public field.
+		 */
+		public String unit;
+		/**
+		 * A field that is read through its getter.
+		 */
+		private final Object value;
+		/**
+		 * A nested bean.
+		 */
+		private final Reading previous;
+
+		/**
+		 * Creates a new reading.
+		 */
+		Reading(final String unit, final Object value, final Reading previous) {
+			this.unit = unit;
+			this.value = value;
+			this.previous = previous;
+		}
+
+		/**
+		 * Returns the value.
+		 *
+		 * @return The value.
+		 */
+		public Object getValue() {
+			return value;
+		}
+
+		/**
+		 * Returns the previous reading.
+		 *
+		 * @return The previous reading.
+		 */
+		public Reading getPrevious() {
+			return previous;
+		}
+
+		/**
+		 * Returns the readings, which is not in the schema.
+		 *
+		 * @return This reading and the previous one.
+		 */
+		public List<Reading> getReadings() {
+			return Arrays.asList(this, previous);
+		}
+	}
+
+	/**
+	 * Test that every data file, read as a tree and as collections, gives the
+	 * same result as validating the tree.
+	 */
+	@Test
+	public void testMatchesTree() throws ConcordiaException, IOException {
+		for(String directory : DIRECTORIES) {
+			Concordia concordia =
+				new Concordia(
+					new FileInputStream(
+						new File(directory + "definition.json")));
+
+			for(String kind : new String[] { "valid", "invalid" }) {
+				File[] files = (new File(directory + kind)).listFiles();
+				if(files == null) {
+					continue;
+				}
+				for(File file : files) {
+					JsonNode tree = MAPPER.readTree(file);
+					Object collections = MAPPER.readValue(file, Object.class);
+					String expected = concordia.check(tree).getMessage();
+
+					Assert.assertEquals(
+						file.getPath(),
+						expected,
+						concordia
+							.check(tree, JsonNodeAccessor.INSTANCE)
+							.getMessage());
+					Assert.assertEquals(
+						file.getPath(),
+						expected,
+						concordia
+							.check(collections, CollectionAccessor.INSTANCE)
+							.getMessage());
+					Assert.assertEquals(
+						file.getPath(),
+						expected,
+						concordia
+							.check(collections, PojoAccessor.INSTANCE)
+							.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test that plain Java objects, including ones that are mixed with
+	 * collections and trees, are validated in place.
+	 */
+	@Test
+	public void testPojo() throws ConcordiaException, IOException {
+		Concordia concordia =
+			new Concordia(
+				"{\"type\":\"object\",\"fields\":[" +
+					"{\"name\":\"unit\",\"type\":\"string\"}," +
+					"{\"name\":\"value\",\"type\":\"number\"}," +
+					"{\"name\":\"previous\",\"type\":\"object\"," +
+						"\"optional\":true,\"fields\":[" +
+							"{\"name\":\"value\",\"type\":\"number\"}]}]}");
+
+		Reading first = new Reading("C", 20.5, null);
+		concordia.validateData(new Reading("C", 21, first), PojoAccessor.INSTANCE);
+		concordia
+			.validateData(
+				new Reading("C", MAPPER.readTree("21"), first),
+				PojoAccessor.INSTANCE);
+
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("unit", "C");
+		map.put("value", 21L);
+		map.put("previous", Collections.singletonMap("value", "x"));
+		try {
+			concordia.validateData(map, PojoAccessor.INSTANCE);
+			Assert.fail("The invalid nested value was accepted.");
+		}
+		catch(InvalidDataException e) {
+			Assert.assertEquals("/previous/value", e.getPointer());
+			Assert.assertEquals(
+				"The data was not a number value: \"x\"",
+				e.getMessage());
+		}
+
+		try {
+			concordia
+				.validateData(
+					new Reading("C", 21, new Reading("C", "x", null)),
+					PojoAccessor.INSTANCE);
+			Assert.fail("The invalid nested bean was accepted.");
+		}
+		catch(InvalidDataException e) {
+			Assert.assertEquals("/previous/value", e.getPointer());
+		}
+
+		// Without the bean support, a bean is not an object.
+		Assert.assertFalse(
+			concordia
+				.check(new Reading("C", 21, null), CollectionAccessor.INSTANCE)
+				.isValid());
+	}
+
+	/**
+	 * Test that large arrays without fast random access are only walked
+	 * once.
+	 */
+	@Test
+	public void testLargeCollections() throws ConcordiaException, IOException {
+		Concordia concordia =
+			new Concordia(
+				"{\"type\":\"array\",\"constType\":" +
+					"{\"type\":\"number\"}}");
+
+		final List<Object> list = new LinkedList<Object>();
+		for(int i = 0; i < 100000; i++) {
+			list.add(i);
+		}
+		concordia
+			.validateData(
+				new HashSet<Object>(list),
+				CollectionAccessor.INSTANCE);
+
+		list.add("x");
+		final int[] iterators = new int[1];
+		Collection<Object> collection =
+			new AbstractCollection<Object>() {
+				@Override
+				public Iterator<Object> iterator() {
+					iterators[0]++;
+					return list.iterator();
+				}
+
+				@Override
+				public int size() {
+					return list.size();
+				}
+			};
+		for(Object data : new Object[] { list, collection }) {
+			try {
+				concordia.validateData(data, CollectionAccessor.INSTANCE);
+				Assert.fail("The invalid last element was accepted.");
+			}
+			catch(InvalidDataException e) {
+				Assert.assertEquals("/100000", e.getPointer());
+			}
+		}
+		Assert.assertEquals(1, iterators[0]);
+	}
+}